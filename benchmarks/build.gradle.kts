@@ -44,6 +44,74 @@ dependencies {
     jmh("com.fasterxml.jackson.core:jackson-databind:$jacksonVersion")
 }
 
+val myraCodegen by configurations.creating
+
+dependencies {
+    myraCodegen(project(":codegen"))
+}
+
+// Myra flyweights, builders and tables for the benchmark schemas are generated at build time,
+// one task and output directory per schema file.
+fun registerMyraCodegen(
+    schemaName: String,
+    schemaFile: Provider<RegularFile>
+): TaskProvider<JavaExec> {
+    val taskSuffix = schemaName.split('_')
+        .joinToString("") { it.replaceFirstChar(Char::uppercase) }
+    return tasks.register<JavaExec>("generateMyra${taskSuffix}Sources") {
+        val outputDir = layout.buildDirectory.dir("generated/myra/$schemaName/java")
+        val lockFile = layout.buildDirectory.file("generated/myra/$schemaName.myra.lock")
+        inputs.file(schemaFile)
+        outputs.dir(outputDir)
+        classpath = myraCodegen
+        mainClass.set("express.mvp.myra.codec.codegen.MyraCodegenCli")
+        args(
+            "--schema", schemaFile.get().asFile.absolutePath,
+            "--output", outputDir.get().asFile.absolutePath,
+            "--lockfile", lockFile.get().asFile.absolutePath
+        )
+    }
+}
+
+val myraSchemas = listOf("level_table", "order_book_layout")
+val myraSchemaTasks = myraSchemas.map { schemaName ->
+    val schemaFile = layout.projectDirectory.file("schema/$schemaName.myra.yml")
+    registerMyraCodegen(schemaName, provider { schemaFile })
+}
+
+// A synthetic 500-message schema for FlyweightFootprintBenchmark, written rather than checked in.
+val wideSchemaMessages = 500
+val wideSchemaFile = layout.buildDirectory.file("generated/myra/wide_schema.myra.yml")
+val writeWideSchema by tasks.registering {
+    inputs.property("messages", wideSchemaMessages)
+    outputs.file(wideSchemaFile)
+    doLast {
+        val yaml = StringBuilder()
+        yaml.append("namespace: \"express.mvp.myra.bench.wide\"\nversion: \"1.0.0\"\n")
+        yaml.append("enums: []\nmessages:\n")
+        for (i in 0 until wideSchemaMessages) {
+            yaml.append("  - name: \"Wide%03d\"\n    fields:\n".format(i))
+            listOf(
+                "id" to "int64", "price" to "int64", "symbol" to "string",
+                "venue" to "string", "tags" to "string", "fills" to "int64"
+            ).forEachIndexed { index, (name, type) ->
+                yaml.append("      - tag: ${index + 1}\n        name: \"$name\"\n")
+                yaml.append("        type: \"$type\"\n")
+                if (name == "tags" || name == "fills") {
+                    yaml.append("        repeated: true\n")
+                }
+            }
+        }
+        wideSchemaFile.get().asFile.writeText(yaml.toString())
+    }
+}
+val wideSchemaTask = registerMyraCodegen("wide_schema", wideSchemaFile)
+wideSchemaTask.configure { dependsOn(writeWideSchema) }
+
+val generateMyraSources by tasks.registering {
+    dependsOn(myraSchemaTasks, wideSchemaTask)
+}
+
 sourceSets {
     val generatedDir = "src/generated/java"
     named("main") {
@@ -51,6 +119,8 @@ sourceSets {
     }
     named("jmh") {
         java.srcDir(generatedDir)
+        myraSchemaTasks.forEach { java.srcDir(it) }
+        java.srcDir(wideSchemaTask)
     }
 }
 
@@ -0,0 +1,123 @@
+package express.mvp.myra.codec.bench.codecs.myra;
+
+import express.mvp.myra.bench.layout.AlignedOrderBookSnapshotFlyweight;
+import express.mvp.myra.bench.layout.PackedOrderBookSnapshotCodec;
+import express.mvp.myra.bench.layout.PackedOrderBookSnapshotFlyweight;
+import express.mvp.myra.codec.runtime.struct.MessageHeader;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Compares fixed-field access on the order-book snapshot in the packed and aligned layout modes
+ * (see {@code schema/order_book_layout.myra.yml}). Frames are laid out back to back in native
+ * memory: packed frames at their natural length, aligned frames rounded up to 8 bytes, which is
+ * how each mode would sit in a journal or ring buffer. {@code readPackedCodec} scans the packed
+ * frames through the stateless {@code PackedOrderBookSnapshotCodec} instead of a flyweight.
+ */
+@State(Scope.Benchmark)
+public class FieldLayoutBenchmark {
+
+    @Param({"1024", "1048576"})
+    public int frames;
+
+    private final PackedOrderBookSnapshotFlyweight packed = new PackedOrderBookSnapshotFlyweight();
+    private final AlignedOrderBookSnapshotFlyweight aligned =
+            new AlignedOrderBookSnapshotFlyweight();
+
+    private Arena arena;
+    private MemorySegment packedFrames;
+    private MemorySegment alignedFrames;
+    private long packedStride;
+    private long alignedStride;
+
+    @Setup(org.openjdk.jmh.annotations.Level.Trial)
+    public void setup() {
+        packedStride = MessageHeader.HEADER_SIZE + PackedOrderBookSnapshotFlyweight.BLOCK_LENGTH;
+        alignedStride =
+                (MessageHeader.HEADER_SIZE + AlignedOrderBookSnapshotFlyweight.BLOCK_LENGTH + 7)
+                        & ~7L;
+        arena = Arena.ofShared();
+        packedFrames = arena.allocate(packedStride * frames, Long.BYTES);
+        alignedFrames = arena.allocate(alignedStride * frames, Long.BYTES);
+        for (int i = 0; i < frames; i++) {
+            packed.wrap(packedFrames, packedStride * i + MessageHeader.HEADER_SIZE);
+            packed.setInstrumentId(i & 1023);
+            packed.setSequence(i);
+            packed.setIsTrading((i & 1) == 0);
+            aligned.wrap(alignedFrames, alignedStride * i + MessageHeader.HEADER_SIZE);
+            aligned.setInstrumentId(i & 1023);
+            aligned.setSequence(i);
+            aligned.setIsTrading((i & 1) == 0);
+        }
+        aligned.validate();
+        System.out.printf(
+                "%nStride: packed %d bytes, aligned %d bytes%n", packedStride, alignedStride);
+    }
+
+    @TearDown(org.openjdk.jmh.annotations.Level.Trial)
+    public void tearDown() {
+        if (arena != null) {
+            arena.close();
+        }
+    }
+
+    @Benchmark
+    public long readPacked() {
+        long sum = 0;
+        for (int i = 0; i < frames; i++) {
+            packed.wrap(packedFrames, packedStride * i + MessageHeader.HEADER_SIZE);
+            if (packed.getIsTrading()) {
+                sum += packed.getSequence() + packed.getInstrumentId();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long readPackedCodec() {
+        long sum = 0;
+        for (int i = 0; i < frames; i++) {
+            long offset = packedStride * i + MessageHeader.HEADER_SIZE;
+            if (PackedOrderBookSnapshotCodec.isTrading(packedFrames, offset)) {
+                sum +=
+                        PackedOrderBookSnapshotCodec.sequence(packedFrames, offset)
+                                + PackedOrderBookSnapshotCodec.instrumentId(packedFrames, offset);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long readAligned() {
+        long sum = 0;
+        for (int i = 0; i < frames; i++) {
+            aligned.wrap(alignedFrames, alignedStride * i + MessageHeader.HEADER_SIZE);
+            if (aligned.getIsTrading()) {
+                sum += aligned.getSequence() + aligned.getInstrumentId();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public void updatePacked() {
+        for (int i = 0; i < frames; i++) {
+            packed.wrap(packedFrames, packedStride * i + MessageHeader.HEADER_SIZE);
+            packed.setSequence(packed.getSequence() + 1);
+        }
+    }
+
+    @Benchmark
+    public void updateAligned() {
+        for (int i = 0; i < frames; i++) {
+            aligned.wrap(alignedFrames, alignedStride * i + MessageHeader.HEADER_SIZE);
+            aligned.setSequence(aligned.getSequence() + 1);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package express.mvp.myra.codec.bench.codecs.myra;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures what the flyweights of a wide schema cost before any message is read: the allocation
+ * of constructing one flyweight per message type, and the cold start of loading and constructing
+ * all of them. The schema ({@code Wide000} to {@code Wide499}, each with two strings and two
+ * repeating groups) is written by the {@code writeWideSchema} build task. Run with {@code -prof
+ * gc} to see the bytes allocated per {@link #constructAll} call.
+ */
+@State(Scope.Benchmark)
+public class FlyweightFootprintBenchmark {
+
+    private static final String PACKAGE = "express.mvp.myra.bench.wide.";
+    private static final int MESSAGES = 500;
+
+    private MethodHandle[] constructors;
+
+    @Setup(org.openjdk.jmh.annotations.Level.Trial)
+    public void setup() throws Throwable {
+        constructors = new MethodHandle[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++) {
+            Class<?> type = Class.forName(flyweightName(i));
+            constructors[i] =
+                    MethodHandles.publicLookup()
+                            .findConstructor(type, MethodType.methodType(void.class))
+                            .asType(MethodType.methodType(Object.class));
+        }
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Object[] retained = new Object[MESSAGES];
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MESSAGES; i++) {
+            retained[i] = constructors[i].invokeExact();
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        System.out.printf(
+                "%nFootprint: %d bytes for %d flyweights (%d bytes each)%n",
+                allocated, retained.length, allocated / MESSAGES);
+    }
+
+    /** Constructs one flyweight of every message type. */
+    @Benchmark
+    public void constructAll(Blackhole blackhole) throws Throwable {
+        for (MethodHandle constructor : constructors) {
+            blackhole.consume((Object) constructor.invokeExact());
+        }
+    }
+
+    /**
+     * Loads, links and constructs every flyweight in a fresh class loader, as an application
+     * touching the whole schema for the first time would.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public void coldStart(Blackhole blackhole) throws ReflectiveOperationException {
+        ClassLoader loader = new IsolatingLoader(getClass().getClassLoader());
+        for (int i = 0; i < MESSAGES; i++) {
+            blackhole.consume(
+                    loader.loadClass(flyweightName(i)).getConstructor().newInstance());
+        }
+    }
+
+    private static String flyweightName(int index) {
+        return String.format("%sWide%03dFlyweight", PACKAGE, index);
+    }
+
+    /** Defines the generated classes anew so each invocation pays for loading them. */
+    private static final class IsolatingLoader extends ClassLoader {
+
+        IsolatingLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.startsWith(PACKAGE)) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded == null) {
+                    String resource = name.replace('.', '/') + ".class";
+                    try (InputStream in = getParent().getResourceAsStream(resource)) {
+                        if (in == null) {
+                            throw new ClassNotFoundException(name);
+                        }
+                        byte[] bytes = in.readAllBytes();
+                        loaded = defineClass(name, bytes, 0, bytes.length);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                if (resolve) {
+                    resolveClass(loaded);
+                }
+                return loaded;
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package express.mvp.myra.codec.bench.codecs.myra;
+
+import express.mvp.myra.bench.table.LevelFlyweight;
+import express.mvp.myra.bench.table.LevelTable;
+import express.mvp.myra.codec.bench.shared.model.Level;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Compares a generated off-heap {@code LevelTable} against an {@code ArrayList<Level>} of heap
+ * objects for scan speed, and reports the memory footprint of both at setup.
+ */
+@State(Scope.Benchmark)
+public class LevelTableBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    private List<Level> list;
+    private LevelTable table;
+    private long tableNotional;
+
+    @Setup(org.openjdk.jmh.annotations.Level.Trial)
+    public void setup() {
+        long heapBefore = usedHeap();
+        list = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            list.add(new Level(priceOf(i), sizeOf(i), i & 7, (i & 1) == 0 ? Boolean.TRUE : null));
+        }
+        long listBytes = usedHeap() - heapBefore;
+
+        table = new LevelTable(rows);
+        for (int i = 0; i < rows; i++) {
+            LevelFlyweight level = table.row(table.add());
+            level.setPriceNanos(priceOf(i));
+            level.setSize(sizeOf(i));
+            level.setOrderCount(i & 7);
+            if ((i & 1) == 0) {
+                level.setMaker(true);
+            }
+        }
+
+        System.out.printf(
+                "%nFootprint for %d rows: ArrayList<Level> ~%d bytes/row (heap),"
+                        + " LevelTable %d bytes/row (off-heap)%n",
+                rows,
+                listBytes / rows,
+                table.reservedBytes() / rows);
+    }
+
+    @TearDown(org.openjdk.jmh.annotations.Level.Trial)
+    public void tearDown() {
+        if (table != null) {
+            table.close();
+        }
+    }
+
+    @Benchmark
+    public long scanArrayList() {
+        long notional = 0;
+        for (int i = 0, n = list.size(); i < n; i++) {
+            Level level = list.get(i);
+            notional += level.priceNanos() * level.size();
+        }
+        return notional;
+    }
+
+    @Benchmark
+    public long scanTable() {
+        tableNotional = 0;
+        table.forEach(level -> tableNotional += level.getPriceNanos() * level.getSize());
+        return tableNotional;
+    }
+
+    @Benchmark
+    public long scanTableByIndex() {
+        long notional = 0;
+        for (int i = table.nextRow(0); i >= 0; i = table.nextRow(i + 1)) {
+            LevelFlyweight level = table.row(i);
+            notional += level.getPriceNanos() * level.getSize();
+        }
+        return notional;
+    }
+
+    private static long priceOf(int i) {
+        return 100_000_000_000L + i * 1_000_000L;
+    }
+
+    private static int sizeOf(int i) {
+        return 100 + (i % 900);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,507 @@
+package express.mvp.myra.codec.codegen;
+
+import com.palantir.javapoet.ClassName;
+import com.palantir.javapoet.CodeBlock;
+import com.palantir.javapoet.JavaFile;
+import com.palantir.javapoet.MethodSpec;
+import com.palantir.javapoet.TypeName;
+import com.palantir.javapoet.TypeSpec;
+import express.mvp.myra.codec.codegen.resolver.MessageLayout;
+import express.mvp.myra.codec.codegen.resolver.ResolvedFieldDefinition;
+import express.mvp.myra.codec.codegen.resolver.ResolvedMessageDefinition;
+import express.mvp.myra.codec.codegen.resolver.ResolvedSchemaDefinition;
+import express.mvp.myra.codec.runtime.AlignedLayouts;
+import express.mvp.myra.codec.runtime.struct.RepeatingGroupIterator;
+import express.mvp.myra.codec.runtime.struct.VariableSizeRepeatingGroupIterator;
+import express.mvp.myra.codec.schema.RichType;
+import express.mvp.roray.ffm.utils.memory.Layouts;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.lang.model.element.Modifier;
+
+/**
+ * Generates a stateless {@code <Message>Codec} class per message: static accessors that take the
+ * segment and the offset of the message block and read straight from memory. Scan loops over
+ * journals can decode with them without holding or wrapping any flyweight.
+ *
+ * <p>For each field the codec emits:
+ *
+ * <ul>
+ *   <li>fixed primitives and enums (as their raw id): {@code long sequence(segment, offset)},
+ *       plus {@code sequenceAcquire} and {@code sequenceVolatile} for {@code concurrent} fields
+ *   <li>timestamps, decimals and {@code ascii8} as their stored long, uuids as {@code long
+ *       idMsb(segment, offset)} and {@code long idLsb(segment, offset)}, and {@code ascii16} as
+ *       {@code nameHi} and {@code nameLo}
+ *   <li>optional fields: {@code boolean hasSequence(segment, offset)}; fields with a
+ *       message default return it while absent
+ *   <li>{@code constant} fields: {@code byte msgType(segment, offset)}, which returns the
+ *       flyweight's constant without reading the segment
+ *   <li>dictionary strings: {@code int venueId(segment, offset)}
+ *   <li>strings, bytes and nested messages: {@code long symbolOffset(segment, offset)}, the
+ *       absolute offset of the data, and {@code int symbolLength(segment, offset)}
+ *   <li>repeating groups: {@code fillsOffset} and {@code fillsCount}, plus {@code fillsAt(segment,
+ *       offset, index)} for fixed-size elements or {@code fillsElementOffset} for variable-size
+ *       ones
+ *   <li>{@code fixed_count} arrays: {@code bidsCount} and {@code bidsAt(segment, offset, index)}
+ * </ul>
+ *
+ * <p>Offsets are the flyweight's compile-time constants, so the codec adds no class
+ * initialization of its own.
+ */
+public final class CodecGenerator {
+
+    private static final String FLYWEIGHT_SUFFIX = "Flyweight";
+
+    private final ResolvedSchemaDefinition schema;
+
+    /**
+     * Creates a generator for the given schema.
+     *
+     * @param schema the resolved schema
+     */
+    public CodecGenerator(ResolvedSchemaDefinition schema) {
+        this.schema = Objects.requireNonNull(schema);
+    }
+
+    /**
+     * Generates a codec for every message that has fields.
+     *
+     * @return the generated codec sources
+     */
+    public List<JavaFile> generate() {
+        List<JavaFile> files = new ArrayList<>();
+        for (ResolvedMessageDefinition message : schema.messages()) {
+            if (!message.fields().isEmpty()
+                    || !message.oneofs().isEmpty()
+                    || !message.constants().isEmpty()) {
+                files.add(generateCodec(message));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Writes all generated codecs to the specified output directory.
+     *
+     * @param outputDir The root directory for the generated source code.
+     */
+    public void writeFiles(Path outputDir) throws IOException {
+        for (JavaFile javaFile : generate()) {
+            javaFile.writeTo(outputDir);
+        }
+    }
+
+    private JavaFile generateCodec(ResolvedMessageDefinition message) {
+        MessageLayout layout = MessageLayout.of(schema, message);
+        ClassName flyweight = ClassName.get(schema.namespace(), message.name() + FLYWEIGHT_SUFFIX);
+        ClassName layouts =
+                layout.aligned()
+                        ? ClassName.get(AlignedLayouts.class)
+                        : ClassName.get(Layouts.class);
+
+        TypeSpec.Builder type =
+                TypeSpec.classBuilder(message.name() + "Codec")
+                        .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                        .addJavadoc(
+                                """
+                                Auto-generated stateless accessors for the $L message.
+
+                                Every method takes the segment and the offset of the message block,
+                                as passed to {@link $T#wrap}, and holds no state. Var-field helpers
+                                return absolute offsets into the segment; check {@code has<Field>}
+                                before reading an optional var field.
+                                """,
+                                message.name(),
+                                flyweight)
+                        .addMethod(
+                                MethodSpec.constructorBuilder()
+                                        .addModifiers(Modifier.PRIVATE)
+                                        .build());
+
+        Set<String> concurrent =
+                message.fields().stream()
+                        .filter(ResolvedFieldDefinition::concurrent)
+                        .map(ResolvedFieldDefinition::name)
+                        .collect(Collectors.toSet());
+        Set<String> defaulted =
+                message.fields().stream()
+                        .filter(f -> f.defaultValue() != null)
+                        .map(ResolvedFieldDefinition::name)
+                        .collect(Collectors.toSet());
+        for (ResolvedFieldDefinition field : message.constants()) {
+            type.addMethod(
+                    accessor(field.name(), constantType(field))
+                            .addStatement(
+                                    "return $T.$L",
+                                    flyweight,
+                                    field.name().toUpperCase() + "_CONSTANT")
+                            .build());
+        }
+        for (MessageLayout.Slot slot : layout.slots()) {
+            String offsetConst = slot.name().toUpperCase() + "_OFFSET";
+            if (slot.presenceBit() >= 0) {
+                type.addMethod(createPresenceChecker(slot, flyweight));
+            }
+            String encoding = slot.encoding();
+            if (slot.variable()) {
+                type.addMethod(createDataOffset(slot.name(), flyweight, offsetConst));
+                if (encoding.startsWith("repeated:")) {
+                    addRepeatedAccessors(type, slot.name(), encoding.substring(9));
+                } else {
+                    type.addMethod(
+                            accessor(slot.name() + "Length", TypeName.INT)
+                                    .addStatement(
+                                            "return segment.get($T.INT_BE, offset + $T.$L + 4)",
+                                            Layouts.class,
+                                            flyweight,
+                                            offsetConst)
+                                    .build());
+                }
+            } else if (slot.sparse()) {
+                // Sparse member: absent reads as the default or zero, present is ranked within
+                // its region.
+                TypeName valueType = javaType(slot.valueType());
+                type.addMethod(
+                        accessor(slot.name(), valueType)
+                                .addStatement(
+                                        "return has$L(segment, offset) ? segment.get($T.$L, $L) :"
+                                                + " $L",
+                                        capitalize(slot.name()),
+                                        Layouts.class,
+                                        layoutConstant(slot.valueType()),
+                                        StubGenerator.sparseAddress(
+                                                layout,
+                                                slot,
+                                                "segment",
+                                                "offset",
+                                                CodeBlock.of("$T.SPARSE_OFFSET", flyweight)),
+                                        defaulted.contains(slot.name())
+                                                ? CodeBlock.of(
+                                                        "$T.$L",
+                                                        flyweight,
+                                                        slot.name().toUpperCase() + "_DEFAULT")
+                                                : valueType.equals(TypeName.BOOLEAN)
+                                                        ? "false"
+                                                        : "0")
+                                .build());
+            } else if (slot.packed()) {
+                CodeBlock word =
+                        CodeBlock.of(
+                                "segment.get($T.$L, offset + $T.$L)",
+                                layouts,
+                                layoutConstant(slot.wordType()),
+                                flyweight,
+                                offsetConst);
+                CodeBlock value =
+                        StubGenerator.packedValue(
+                                slot,
+                                javaType(slot.valueType()),
+                                word,
+                                CodeBlock.of(
+                                        "$T.$L", flyweight, slot.name().toUpperCase() + "_SHIFT"));
+                type.addMethod(
+                        accessor(slot.name(), javaType(slot.valueType()))
+                                .addStatement(
+                                        "return $L",
+                                        defaulted.contains(slot.name())
+                                                ? orDefault(slot, flyweight, value)
+                                                : value)
+                                .build());
+            } else if (encoding.equals("oneof-case")) {
+                // Oneof discriminator: the group's var header locates the selected option.
+                ClassName caseEnum = flyweight.nestedClass(capitalize(slot.name()));
+                type.addMethod(
+                        accessor(slot.name(), caseEnum)
+                                .addStatement(
+                                        "return $T.fromId(segment.get($T.BYTE, offset + $T.$L))",
+                                        caseEnum,
+                                        Layouts.class,
+                                        flyweight,
+                                        offsetConst)
+                                .build());
+            } else if (encoding.startsWith("inline:")) {
+                // Inline message: its block sits at a constant offset in this one.
+                type.addMethod(
+                        accessor(slot.name() + "Offset", TypeName.LONG)
+                                .addStatement("return offset + $T.$L", flyweight, offsetConst)
+                                .build());
+            } else if (encoding.equals("dictionary")) {
+                type.addMethod(
+                        accessor(slot.name() + "Id", TypeName.INT)
+                                .addStatement(
+                                        "return segment.get($T.INT_BE, offset + $T.$L)",
+                                        layouts,
+                                        flyweight,
+                                        offsetConst)
+                                .build());
+            } else if (encoding.startsWith("array:")) {
+                // Fixed-count array: its elements sit back to back at a constant offset.
+                String element = encoding.substring(6, encoding.indexOf('['));
+                String countConst = slot.name().toUpperCase() + "_COUNT";
+                type.addMethod(
+                        accessor(slot.name() + "Count", TypeName.INT)
+                                .addStatement("return $T.$L", flyweight, countConst)
+                                .build());
+                type.addMethod(
+                        accessor(slot.name() + "At", javaType(element))
+                                .addParameter(int.class, "index")
+                                .addStatement(
+                                        "$T.checkIndex(index, $T.$L)",
+                                        Objects.class,
+                                        flyweight,
+                                        countConst)
+                                .addStatement(
+                                        "return segment.get($T.$L, offset + $T.$L + (long) index"
+                                                + " * $L)",
+                                        layouts,
+                                        layoutConstant(element),
+                                        flyweight,
+                                        offsetConst,
+                                        elementSize(element))
+                                .build());
+            } else if (encoding.equals("bitset")) {
+                // Enum bitset: bit id is set for each value present.
+                type.addMethod(
+                        accessor(slot.name() + "Bits", TypeName.LONG)
+                                .addStatement(
+                                        "return segment.get($T.LONG_BE, offset + $T.$L)",
+                                        layouts,
+                                        flyweight,
+                                        offsetConst)
+                                .build());
+            } else if (encoding.endsWith("]")) {
+                // Fixed-capacity string or bytes: [length:int32][bytes], inline in the block.
+                type.addMethod(
+                        accessor(slot.name() + "Offset", TypeName.LONG)
+                                .addStatement("return offset + $T.$L + 4", flyweight, offsetConst)
+                                .build());
+                type.addMethod(
+                        accessor(slot.name() + "Length", TypeName.INT)
+                                .addStatement(
+                                        "return segment.get($T.INT_BE, offset + $T.$L)",
+                                        Layouts.class,
+                                        flyweight,
+                                        offsetConst)
+                                .build());
+            } else if (RichType.of(encoding) != null && !RichType.of(encoding).int64Backed()) {
+                // uuid and ascii16: two big-endian words, high word first.
+                List<String> words = StubGenerator.wordSuffixes(RichType.of(encoding));
+                for (int i = 0; i < words.size(); i++) {
+                    type.addMethod(
+                            accessor(slot.name() + words.get(i), TypeName.LONG)
+                                    .addStatement(
+                                            "return segment.get($T.LONG_BE, offset + $T.$L$L)",
+                                            layouts,
+                                            flyweight,
+                                            offsetConst,
+                                            i == 0 ? "" : " + 8")
+                                    .build());
+                }
+            } else {
+                CodeBlock value =
+                        CodeBlock.of(
+                                "segment.get($T.$L, offset + $T.$L)",
+                                layouts,
+                                layoutConstant(encoding),
+                                flyweight,
+                                offsetConst);
+                type.addMethod(
+                        accessor(slot.name(), javaType(encoding))
+                                .addStatement(
+                                        "return $L",
+                                        defaulted.contains(slot.name())
+                                                ? orDefault(slot, flyweight, value)
+                                                : value)
+                                .build());
+                if (concurrent.contains(slot.name())) {
+                    addConcurrentReads(type, slot.name(), encoding, flyweight, offsetConst);
+                }
+            }
+        }
+        return JavaFile.builder(schema.namespace(), type.build()).indent("    ").build();
+    }
+
+    private void addConcurrentReads(
+            TypeSpec.Builder type,
+            String name,
+            String encoding,
+            ClassName flyweight,
+            String offsetConst) {
+        TypeName javaType = javaType(encoding);
+        String handle = encoding.equals("int64") ? "LONG_BE_HANDLE" : "INT_BE_HANDLE";
+        for (String mode : List.of("Acquire", "Volatile")) {
+            type.addMethod(
+                    accessor(name + mode, javaType)
+                            .addStatement(
+                                    "return ($T) $T.$L.get$L(segment, offset + $T.$L)",
+                                    javaType,
+                                    AlignedLayouts.class,
+                                    handle,
+                                    mode,
+                                    flyweight,
+                                    offsetConst)
+                            .build());
+        }
+    }
+
+    private MethodSpec createPresenceChecker(MessageLayout.Slot slot, ClassName flyweight) {
+        // Same bit order as the flyweight's BitSetView: bit i is bit (i % 8) of byte (i / 8).
+        String bitConst = slot.name().toUpperCase() + "_OPT_BIT";
+        return accessor("has" + capitalize(slot.name()), TypeName.BOOLEAN)
+                .addStatement(
+                        "return (segment.get($T.BYTE, offset + ($T.$L >>> 3)) & (1 << ($T.$L &"
+                                + " 7))) != 0",
+                        Layouts.class,
+                        flyweight,
+                        bitConst,
+                        flyweight,
+                        bitConst)
+                .build();
+    }
+
+    /** Returns {@code value} when the defaulted field is present, else its default. */
+    private static CodeBlock orDefault(
+            MessageLayout.Slot slot, ClassName flyweight, CodeBlock value) {
+        return CodeBlock.of(
+                "has$L(segment, offset) ? $L : $T.$L",
+                capitalize(slot.name()),
+                value,
+                flyweight,
+                slot.name().toUpperCase() + "_DEFAULT");
+    }
+
+    private TypeName constantType(ResolvedFieldDefinition field) {
+        if (field.type().equals("string")) {
+            return ClassName.get(String.class);
+        }
+        return schema.enums().stream()
+                .filter(e -> e.name().equals(field.type()))
+                .findFirst()
+                .map(e -> javaType(e.type()))
+                .orElseGet(() -> javaType(field.type()));
+    }
+
+    private MethodSpec createDataOffset(String name, ClassName flyweight, String offsetConst) {
+        return accessor(name + "Offset", TypeName.LONG)
+                .addStatement(
+                        "return offset + segment.get($T.INT_BE, offset + $T.$L)",
+                        Layouts.class,
+                        flyweight,
+                        offsetConst)
+                .build();
+    }
+
+    private void addRepeatedAccessors(TypeSpec.Builder type, String name, String element) {
+        type.addMethod(
+                accessor(name + "Count", TypeName.INT)
+                        .addStatement(
+                                "return segment.get($T.INT_BE, $LOffset(segment, offset))",
+                                Layouts.class,
+                                name)
+                        .build());
+        if (isPrimitive(element)) {
+            type.addMethod(
+                    accessor(name + "At", javaType(element))
+                            .addParameter(int.class, "index")
+                            .addStatement("final long group = $LOffset(segment, offset)", name)
+                            .addStatement(
+                                    "$T.checkIndex(index, segment.get($T.INT_BE, group))",
+                                    Objects.class,
+                                    Layouts.class)
+                            .addStatement(
+                                    "return segment.get($T.$L, group + $T.COUNT_SIZE + (long)"
+                                            + " index * $L)",
+                                    Layouts.class,
+                                    layoutConstant(element),
+                                    RepeatingGroupIterator.class,
+                                    elementSize(element))
+                            .build());
+        } else {
+            ClassName iterator = ClassName.get(VariableSizeRepeatingGroupIterator.class);
+            type.addMethod(
+                    accessor(name + "ElementOffset", TypeName.LONG)
+                            .addParameter(int.class, "index")
+                            .addStatement("final long group = $LOffset(segment, offset)", name)
+                            .addStatement(
+                                    "final int count = segment.get($T.INT_BE, group)",
+                                    Layouts.class)
+                            .addStatement("$T.checkIndex(index, count)", Objects.class)
+                            .addStatement(
+                                    "final long table = group + $T.COUNT_SIZE", iterator)
+                            .addStatement(
+                                    "return table + (long) count * $T.OFFSET_ENTRY_SIZE"
+                                            + " + segment.get($T.INT_BE, table + (long) index *"
+                                            + " $T.OFFSET_ENTRY_SIZE)",
+                                    iterator,
+                                    Layouts.class,
+                                    iterator)
+                            .build());
+        }
+    }
+
+    private static MethodSpec.Builder accessor(String name, TypeName returnType) {
+        return MethodSpec.methodBuilder(name)
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .returns(returnType)
+                .addParameter(MemorySegment.class, "segment")
+                .addParameter(long.class, "offset");
+    }
+
+    private static boolean isPrimitive(String encoding) {
+        return switch (valueEncoding(encoding)) {
+            case "bool", "int8", "int16", "int32", "int64", "float32", "float64" -> true;
+            default -> false;
+        };
+    }
+
+    static TypeName javaType(String encoding) {
+        return switch (valueEncoding(encoding)) {
+            case "bool" -> TypeName.BOOLEAN;
+            case "int8" -> TypeName.BYTE;
+            case "int16" -> TypeName.SHORT;
+            case "int32" -> TypeName.INT;
+            case "int64" -> TypeName.LONG;
+            case "float32" -> TypeName.FLOAT;
+            case "float64" -> TypeName.DOUBLE;
+            default -> throw new IllegalArgumentException("Unsupported encoding: " + encoding);
+        };
+    }
+
+    static String layoutConstant(String encoding) {
+        return switch (valueEncoding(encoding)) {
+            case "bool" -> "BOOLEAN";
+            case "int8" -> "BYTE";
+            case "int16" -> "SHORT_BE";
+            case "int32" -> "INT_BE";
+            case "int64" -> "LONG_BE";
+            case "float32" -> "FLOAT_BE";
+            case "float64" -> "DOUBLE_BE";
+            default -> throw new IllegalArgumentException("Unsupported encoding: " + encoding);
+        };
+    }
+
+    /** Maps timestamps and decimals to the int64 they are stored as. */
+    private static String valueEncoding(String encoding) {
+        RichType rich = RichType.of(encoding);
+        return rich != null && rich.int64Backed() ? "int64" : encoding;
+    }
+
+    private static int elementSize(String encoding) {
+        return switch (valueEncoding(encoding)) {
+            case "bool", "int8" -> 1;
+            case "int16" -> 2;
+            case "int32", "float32" -> 4;
+            default -> 8;
+        };
+    }
+
+    private static String capitalize(String s) {
+        return Character.toUpperCase(s.charAt(0)) + s.substring(1);
+    }
+}
@@ -0,0 +1,1070 @@
+package express.mvp.myra.codec.codegen;
+
+import com.palantir.javapoet.ClassName;
+import com.palantir.javapoet.FieldSpec;
+import com.palantir.javapoet.JavaFile;
+import com.palantir.javapoet.MethodSpec;
+import com.palantir.javapoet.TypeSpec;
+import express.mvp.myra.codec.codegen.resolver.MessageLayout;
+import express.mvp.myra.codec.codegen.resolver.ResolvedMessageDefinition;
+import express.mvp.myra.codec.codegen.resolver.ResolvedSchemaDefinition;
+import express.mvp.myra.codec.runtime.SegmentContent;
+import express.mvp.myra.codec.runtime.struct.MessageHeader;
+import express.mvp.myra.codec.runtime.struct.VariableSizeRepeatingGroupIterator;
+import express.mvp.roray.ffm.utils.memory.Layouts;
+import express.mvp.roray.ffm.utils.memory.SegmentUtils;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import javax.lang.model.element.Modifier;
+
+/**
+ * Generates a {@code <Message>Differ} and a {@code <Message>Patcher} for every message, so that a
+ * stream of snapshots can be distributed as one full frame followed by patches.
+ *
+ * <p>A patch body starts with a change mask holding one bit per unit of the message, followed by
+ * the new contents of each changed unit in unit order:
+ *
+ * <ul>
+ *   <li>fixed units (the presence bytes, each fixed slot or bitfield word, and any other block
+ *       bytes such as padding and sparse index entries) carry their raw bytes;
+ *   <li>var fields and the sparse region carry {@code [length][bytes]};
+ *   <li>slack fields carry {@code [capacity or -1][length][bytes]};
+ *   <li>repeated message fields carry {@code [length][count]} and then entries covering the
+ *       elements in order: {@code [first][run]} for a run of identical base elements, or {@code
+ *       -1, [length][bytes]} for a new one.
+ * </ul>
+ *
+ * <p>Group elements are matched with the element flyweight's {@code keyHash}/{@code keyEquals},
+ * so a book where one level moved is sent as a few runs and that level. Patching rebuilds the var
+ * data in field order, so the result is {@code contentEquals} to the next frame but not
+ * necessarily byte-identical to it. A patch is only meaningful against the base it was computed
+ * from; the frame carries no fingerprint of that base.
+ */
+public final class DiffGenerator {
+
+    private static final String FLYWEIGHT_SUFFIX = "Flyweight";
+    private static final String SLACK_SUFFIX = "+slack";
+    private static final String GROUP_PREFIX = "repeated:message:";
+
+    private final ResolvedSchemaDefinition schema;
+
+    /**
+     * Creates a generator for the given schema.
+     *
+     * @param schema the resolved schema
+     */
+    public DiffGenerator(ResolvedSchemaDefinition schema) {
+        this.schema = Objects.requireNonNull(schema);
+    }
+
+    /**
+     * Generates a differ and a patcher for every message that has fields.
+     *
+     * @return the generated sources
+     */
+    public List<JavaFile> generate() {
+        List<JavaFile> files = new ArrayList<>();
+        for (ResolvedMessageDefinition message : schema.messages()) {
+            if (message.fields().isEmpty() && message.oneofs().isEmpty()) {
+                continue;
+            }
+            MessageLayout layout = MessageLayout.of(schema, message);
+            List<Unit> units = units(layout);
+            files.add(generateDiffer(message, units));
+            files.add(generatePatcher(message, units));
+        }
+        return files;
+    }
+
+    /**
+     * Writes all generated differs and patchers to the specified output directory.
+     *
+     * @param outputDir The root directory for the generated source code.
+     */
+    public void writeFiles(Path outputDir) throws IOException {
+        for (JavaFile javaFile : generate()) {
+            javaFile.writeTo(outputDir);
+        }
+    }
+
+    private enum Kind {
+        FIXED,
+        VAR,
+        SLACK,
+        GROUP
+    }
+
+    /**
+     * One bit of the change mask: a fixed byte range of the block, or the 8-byte header of a var
+     * field (or of the sparse region) whose payload is compared.
+     */
+    private record Unit(String name, Kind kind, int offset, int size, String elementType) {}
+
+    /** Splits a layout into fixed units in block order, then var units in slot order. */
+    private static List<Unit> units(MessageLayout layout) {
+        boolean[] taken = new boolean[layout.blockLength()];
+        List<Unit> fixed = new ArrayList<>();
+        List<Unit> variable = new ArrayList<>();
+        if (layout.presenceBytes() > 0) {
+            fixed.add(new Unit("presence", Kind.FIXED, 0, layout.presenceBytes(), null));
+        }
+        Set<Integer> words = new HashSet<>();
+        for (MessageLayout.Slot slot : layout.slots()) {
+            if (slot.sparse()) {
+                continue;
+            }
+            if (slot.variable()) {
+                String encoding = slot.encoding();
+                Kind kind =
+                        encoding.startsWith(GROUP_PREFIX)
+                                ? Kind.GROUP
+                                : encoding.endsWith(SLACK_SUFFIX) ? Kind.SLACK : Kind.VAR;
+                variable.add(
+                        new Unit(
+                                slot.name(),
+                                kind,
+                                slot.offset(),
+                                slot.size(),
+                                kind == Kind.GROUP
+                                        ? encoding.substring(GROUP_PREFIX.length())
+                                        : null));
+            } else if (!slot.packed() || words.add(slot.offset())) {
+                fixed.add(
+                        new Unit(
+                                slot.packed() ? "bitfields" : slot.name(),
+                                Kind.FIXED,
+                                slot.offset(),
+                                slot.size(),
+                                null));
+            }
+        }
+        if (layout.sparseOffset() >= 0) {
+            variable.add(
+                    new Unit(
+                            "sparse region",
+                            Kind.VAR,
+                            layout.sparseOffset(),
+                            MessageLayout.VAR_HEADER_SIZE,
+                            null));
+        }
+        for (Unit unit : fixed) {
+            Arrays.fill(taken, unit.offset(), unit.offset() + unit.size(), true);
+        }
+        for (Unit unit : variable) {
+            Arrays.fill(taken, unit.offset(), unit.offset() + unit.size(), true);
+        }
+        // Whatever is left (padding, sparse index entries) travels as plain bytes.
+        for (int start = 0; start < taken.length; ) {
+            if (taken[start]) {
+                start++;
+                continue;
+            }
+            int end = start;
+            while (end < taken.length && !taken[end]) {
+                end++;
+            }
+            String name = "bytes " + start + "-" + (end - 1);
+            fixed.add(new Unit(name, Kind.FIXED, start, end - start, null));
+            start = end;
+        }
+        fixed.sort(Comparator.comparingInt(Unit::offset));
+        List<Unit> units = new ArrayList<>(fixed);
+        units.addAll(variable);
+        return units;
+    }
+
+    private static int maskBytes(List<Unit> units) {
+        return (units.size() + 7) / 8;
+    }
+
+    private JavaFile generateDiffer(ResolvedMessageDefinition message, List<Unit> units) {
+        ClassName flyweight = ClassName.get(schema.namespace(), message.name() + FLYWEIGHT_SUFFIX);
+        TypeSpec.Builder type =
+                TypeSpec.classBuilder(message.name() + "Differ")
+                        .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                        .addJavadoc(
+                                """
+                                Auto-generated differ for $L frames.
+
+                                Writes the fields of the next message that differ from the base
+                                message as a patch for {@link $LPatcher}. Elements of repeated
+                                message fields that also occur in the base are sent as references.
+                                Instances are reusable but NOT thread-safe.
+                                """,
+                                message.name(),
+                                message.name())
+                        .addField(
+                                FieldSpec.builder(
+                                                int.class,
+                                                "CHANGE_MASK_BYTES",
+                                                Modifier.PUBLIC,
+                                                Modifier.STATIC,
+                                                Modifier.FINAL)
+                                        .addJavadoc("Size of the change mask that starts a patch.")
+                                        .initializer("$L", maskBytes(units))
+                                        .build());
+
+        MethodSpec.Builder diff =
+                MethodSpec.methodBuilder("diff")
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(int.class)
+                        .addJavadoc(
+                                """
+                                Writes the patch that turns one message body into another.
+
+                                @param base segment holding the message the receiver already has
+                                @param baseOffset offset of the base message body
+                                @param next segment holding the message to send
+                                @param nextOffset offset of the next message body
+                                @param patch segment receiving the patch
+                                @param patchOffset offset at which to write the patch body
+                                @return the number of bytes written to {@code patch}
+                                """)
+                        .addParameter(MemorySegment.class, "base")
+                        .addParameter(long.class, "baseOffset")
+                        .addParameter(MemorySegment.class, "next")
+                        .addParameter(long.class, "nextOffset")
+                        .addParameter(MemorySegment.class, "patch")
+                        .addParameter(long.class, "patchOffset")
+                        .addStatement("int cursor = CHANGE_MASK_BYTES");
+        for (int i = 0; i < maskBytes(units); i++) {
+            diff.addStatement("patch.set($T.BYTE, patchOffset + $L, (byte) 0)", Layouts.class, i);
+        }
+
+        boolean declared = false;
+        Set<String> elementTypes = new LinkedHashSet<>();
+        for (int i = 0; i < units.size(); i++) {
+            Unit unit = units.get(i);
+            if (unit.kind() == Kind.FIXED) {
+                diff.addComment("$L", unit.name())
+                        .beginControlFlow(
+                                "if (!$T.equals(base, baseOffset + $L, next, nextOffset + $L, $L))",
+                                SegmentContent.class,
+                                unit.offset(),
+                                unit.offset(),
+                                unit.size())
+                        .addStatement("markChanged(patch, patchOffset, $L)", i)
+                        .addStatement(
+                                "$T.copy(next, nextOffset + $L, patch, patchOffset + cursor, $L)",
+                                MemorySegment.class,
+                                unit.offset(),
+                                unit.size())
+                        .addStatement("cursor += $L", unit.size())
+                        .endControlFlow();
+                continue;
+            }
+            if (!declared) {
+                diff.addStatement("int relativeOffset")
+                        .addStatement("int length")
+                        .addStatement("int baseRelativeOffset")
+                        .addStatement("int baseLength");
+                declared = true;
+            }
+            diff.addComment("$L", unit.name())
+                    .addStatement(
+                            "relativeOffset = next.get($T.INT_BE, nextOffset + $L)",
+                            Layouts.class,
+                            unit.offset())
+                    .addStatement(
+                            "length = next.get($T.INT_BE, nextOffset + $L)",
+                            Layouts.class,
+                            unit.offset() + 4)
+                    .addStatement(
+                            "baseRelativeOffset = base.get($T.INT_BE, baseOffset + $L)",
+                            Layouts.class,
+                            unit.offset())
+                    .addStatement(
+                            "baseLength = base.get($T.INT_BE, baseOffset + $L)",
+                            Layouts.class,
+                            unit.offset() + 4);
+            switch (unit.kind()) {
+                case SLACK -> emitSlackDiff(diff, i);
+                case GROUP -> {
+                    elementTypes.add(unit.elementType());
+                    emitGroupDiff(diff, i, unit.elementType());
+                }
+                default -> emitVarDiff(diff, i);
+            }
+        }
+        diff.addStatement("return cursor");
+        type.addMethod(diff.build());
+        type.addMethod(createDiffFrame(flyweight, message.name()));
+        type.addMethod(createCheckFrame(flyweight, message.name()));
+        type.addMethod(
+                MethodSpec.methodBuilder("markChanged")
+                        .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                        .addParameter(MemorySegment.class, "patch")
+                        .addParameter(long.class, "patchOffset")
+                        .addParameter(int.class, "unit")
+                        .addStatement("final long address = patchOffset + (unit >>> 3)")
+                        .addStatement(
+                                "patch.set($T.BYTE, address, (byte) (patch.get($T.BYTE, address) |"
+                                        + " (1 << (unit & 7))))",
+                                Layouts.class,
+                                Layouts.class)
+                        .build());
+        if (!elementTypes.isEmpty()) {
+            type.addField(
+                    FieldSpec.builder(int[].class, "table", Modifier.PRIVATE)
+                            .initializer("new int[16]")
+                            .build());
+            for (String elementType : elementTypes) {
+                addElementMatching(type, elementType);
+            }
+            addGroupAddressing(type);
+        }
+        return JavaFile.builder(schema.namespace(), type.build()).indent("    ").build();
+    }
+
+    private static void emitVarDiff(MethodSpec.Builder diff, int unit) {
+        diff.beginControlFlow(
+                        "if (!$T.equals(base, baseOffset + baseRelativeOffset, baseLength, next,"
+                                + " nextOffset + relativeOffset, length))",
+                        SegmentContent.class)
+                .addStatement("markChanged(patch, patchOffset, $L)", unit)
+                .addStatement("patch.set($T.INT_BE, patchOffset + cursor, length)", Layouts.class)
+                .addStatement(
+                        "$T.copy(next, nextOffset + relativeOffset, patch, patchOffset + cursor +"
+                                + " 4, length)",
+                        MemorySegment.class)
+                .addStatement("cursor += 4 + length")
+                .endControlFlow();
+    }
+
+    /** Slack fields also differ when only their reserved capacity changed. */
+    private static void emitSlackDiff(MethodSpec.Builder diff, int unit) {
+        diff.addStatement(
+                        "final int capacity$L = relativeOffset == 0 ? -1 : next.get($T.INT_BE,"
+                                + " nextOffset + relativeOffset - 4)",
+                        unit,
+                        Layouts.class)
+                .beginControlFlow(
+                        "if (capacity$L != (baseRelativeOffset == 0 ? -1 : base.get($T.INT_BE,"
+                                + " baseOffset + baseRelativeOffset - 4)) || !$T.equals(base,"
+                                + " baseOffset + baseRelativeOffset, baseLength, next, nextOffset"
+                                + " + relativeOffset, length))",
+                        unit,
+                        Layouts.class,
+                        SegmentContent.class)
+                .addStatement("markChanged(patch, patchOffset, $L)", unit)
+                .addStatement(
+                        "patch.set($T.INT_BE, patchOffset + cursor, capacity$L)",
+                        Layouts.class,
+                        unit)
+                .addStatement(
+                        "patch.set($T.INT_BE, patchOffset + cursor + 4, length)", Layouts.class)
+                .addStatement(
+                        "$T.copy(next, nextOffset + relativeOffset, patch, patchOffset + cursor +"
+                                + " 8, length)",
+                        MemorySegment.class)
+                .addStatement("cursor += 8 + length")
+                .endControlFlow();
+    }
+
+    private static void emitGroupDiff(MethodSpec.Builder diff, int unit, String elementType) {
+        diff.beginControlFlow(
+                        "if (!$T.equals(base, baseOffset + baseRelativeOffset, baseLength, next,"
+                                + " nextOffset + relativeOffset, length))",
+                        SegmentContent.class)
+                .addStatement("markChanged(patch, patchOffset, $L)", unit)
+                .addComment("An absent group stays absent: no count, no elements.")
+                .addStatement(
+                        "length = length == 0 ? 0 : diff$LGroup(base, baseOffset +"
+                                + " baseRelativeOffset, baseLength, next, nextOffset +"
+                                + " relativeOffset, length, patch, patchOffset + cursor + 4)",
+                        elementType)
+                .addStatement("patch.set($T.INT_BE, patchOffset + cursor, length)", Layouts.class)
+                .addStatement("cursor += 4 + length")
+                .endControlFlow();
+    }
+
+    /**
+     * Adds the per-element-type group differ: base elements are indexed by key hash in an
+     * open-addressing table of {@code index + 1} entries, then each next element is looked up
+     * and sent as a reference when a base element with the same key also has the same content.
+     */
+    private void addElementMatching(TypeSpec.Builder type, String elementType) {
+        ClassName element = ClassName.get(schema.namespace(), elementType + FLYWEIGHT_SUFFIX);
+        String baseView = "base" + elementType;
+        String nextView = "next" + elementType;
+        type.addField(
+                FieldSpec.builder(element, baseView, Modifier.PRIVATE, Modifier.FINAL)
+                        .initializer("new $T()", element)
+                        .build());
+        type.addField(
+                FieldSpec.builder(element, nextView, Modifier.PRIVATE, Modifier.FINAL)
+                        .initializer("new $T()", element)
+                        .build());
+
+        type.addMethod(
+                MethodSpec.methodBuilder("diff" + elementType + "Group")
+                        .addModifiers(Modifier.PRIVATE)
+                        .returns(int.class)
+                        .addParameter(MemorySegment.class, "base")
+                        .addParameter(long.class, "baseGroup")
+                        .addParameter(int.class, "baseLength")
+                        .addParameter(MemorySegment.class, "next")
+                        .addParameter(long.class, "nextGroup")
+                        .addParameter(int.class, "nextLength")
+                        .addParameter(MemorySegment.class, "patch")
+                        .addParameter(long.class, "out")
+                        .addStatement(
+                                "final int baseCount = baseLength == 0 ? 0 : base.get($T.INT_BE,"
+                                        + " baseGroup)",
+                                Layouts.class)
+                        .addStatement(
+                                "final int count = next.get($T.INT_BE, nextGroup)", Layouts.class)
+                        .addStatement(
+                                "final int mask = index$L(base, baseGroup, baseCount)",
+                                elementType)
+                        .addStatement("patch.set($T.INT_BE, out, count)", Layouts.class)
+                        .addStatement(
+                                "int written = $T.COUNT_SIZE",
+                                VariableSizeRepeatingGroupIterator.class)
+                        .addComment("Patch position of the open run's length, and the base")
+                        .addComment("element that would extend it.")
+                        .addStatement("int run = -1")
+                        .addStatement("int runEnd = 0")
+                        .beginControlFlow("for (int i = 0; i < count; i++)")
+                        .addStatement(
+                                "final long element = elementAddress(next, nextGroup, count, i)")
+                        .addStatement("this.$L.wrap(next, element)", nextView)
+                        .beginControlFlow("if (run >= 0 && runEnd < baseCount)")
+                        .addStatement(
+                                "this.$L.wrap(base, elementAddress(base, baseGroup, baseCount,"
+                                        + " runEnd))",
+                                baseView)
+                        .beginControlFlow("if (this.$L.contentEquals(this.$L))", baseView, nextView)
+                        .addStatement(
+                                "patch.set($T.INT_BE, out + run, patch.get($T.INT_BE, out + run)"
+                                        + " + 1)",
+                                Layouts.class,
+                                Layouts.class)
+                        .addStatement("runEnd++")
+                        .addStatement("continue")
+                        .endControlFlow()
+                        .endControlFlow()
+                        .addStatement(
+                                "final int ref = find$L(base, baseGroup, baseCount, mask)",
+                                elementType)
+                        .addStatement("patch.set($T.INT_BE, out + written, ref)", Layouts.class)
+                        .addStatement("written += 4")
+                        .beginControlFlow("if (ref < 0)")
+                        .addStatement(
+                                "final int elementLength = elementLength(next, nextGroup,"
+                                        + " nextLength, count, i)")
+                        .addStatement(
+                                "patch.set($T.INT_BE, out + written, elementLength)",
+                                Layouts.class)
+                        .addStatement(
+                                "$T.copy(next, element, patch, out + written + 4, elementLength)",
+                                MemorySegment.class)
+                        .addStatement("written += 4 + elementLength")
+                        .addStatement("run = -1")
+                        .nextControlFlow("else")
+                        .addStatement("patch.set($T.INT_BE, out + written, 1)", Layouts.class)
+                        .addStatement("run = written")
+                        .addStatement("runEnd = ref + 1")
+                        .addStatement("written += 4")
+                        .endControlFlow()
+                        .endControlFlow()
+                        .addStatement("return written")
+                        .build());
+
+        type.addMethod(
+                MethodSpec.methodBuilder("index" + elementType)
+                        .addModifiers(Modifier.PRIVATE)
+                        .returns(int.class)
+                        .addParameter(MemorySegment.class, "base")
+                        .addParameter(long.class, "baseGroup")
+                        .addParameter(int.class, "baseCount")
+                        .addComment("At most half full, so probes stay short.")
+                        .addStatement(
+                                "final int size = Integer.highestOneBit(baseCount * 2 + 1) << 1")
+                        .beginControlFlow("if (this.table.length < size)")
+                        .addStatement("this.table = new int[size]")
+                        .endControlFlow()
+                        .addStatement("$T.fill(this.table, 0, size, 0)", Arrays.class)
+                        .beginControlFlow("for (int i = 0; i < baseCount; i++)")
+                        .addStatement(
+                                "this.$L.wrap(base, elementAddress(base, baseGroup, baseCount, i))",
+                                baseView)
+                        .addStatement("final long hash = this.$L.keyHash()", baseView)
+                        .addStatement("int slot = (int) (hash ^ (hash >>> 32)) & (size - 1)")
+                        .beginControlFlow("while (this.table[slot] != 0)")
+                        .addStatement("slot = (slot + 1) & (size - 1)")
+                        .endControlFlow()
+                        .addStatement("this.table[slot] = i + 1")
+                        .endControlFlow()
+                        .addStatement("return size - 1")
+                        .build());
+
+        type.addMethod(
+                MethodSpec.methodBuilder("find" + elementType)
+                        .addModifiers(Modifier.PRIVATE)
+                        .returns(int.class)
+                        .addParameter(MemorySegment.class, "base")
+                        .addParameter(long.class, "baseGroup")
+                        .addParameter(int.class, "baseCount")
+                        .addParameter(int.class, "mask")
+                        .addStatement("final long hash = this.$L.keyHash()", nextView)
+                        .beginControlFlow(
+                                "for (int slot = (int) (hash ^ (hash >>> 32)) & mask;"
+                                        + " this.table[slot] != 0; slot = (slot + 1) & mask)")
+                        .addStatement("final int ref = this.table[slot] - 1")
+                        .addStatement(
+                                "this.$L.wrap(base, elementAddress(base, baseGroup, baseCount,"
+                                        + " ref))",
+                                baseView)
+                        .beginControlFlow(
+                                "if (this.$L.keyEquals(this.$L) && this.$L.contentEquals(this.$L))",
+                                baseView,
+                                nextView,
+                                baseView,
+                                nextView)
+                        .addStatement("return ref")
+                        .endControlFlow()
+                        .endControlFlow()
+                        .addStatement("return -1")
+                        .build());
+    }
+
+    /** Adds the element address and length helpers for {@code [count][offsets][data]} groups. */
+    private static void addGroupAddressing(TypeSpec.Builder type) {
+        type.addMethod(
+                MethodSpec.methodBuilder("elementAddress")
+                        .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                        .returns(long.class)
+                        .addParameter(MemorySegment.class, "segment")
+                        .addParameter(long.class, "group")
+                        .addParameter(int.class, "count")
+                        .addParameter(int.class, "index")
+                        .addStatement(
+                                "return group + $T.COUNT_SIZE + (long) count * $T.OFFSET_ENTRY_SIZE"
+                                        + " + segment.get($T.INT_BE, group + $T.COUNT_SIZE + (long)"
+                                        + " index * $T.OFFSET_ENTRY_SIZE)",
+                                VariableSizeRepeatingGroupIterator.class,
+                                VariableSizeRepeatingGroupIterator.class,
+                                Layouts.class,
+                                VariableSizeRepeatingGroupIterator.class,
+                                VariableSizeRepeatingGroupIterator.class)
+                        .build());
+        type.addMethod(
+                MethodSpec.methodBuilder("elementLength")
+                        .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                        .returns(int.class)
+                        .addParameter(MemorySegment.class, "segment")
+                        .addParameter(long.class, "group")
+                        .addParameter(int.class, "groupLength")
+                        .addParameter(int.class, "count")
+                        .addParameter(int.class, "index")
+                        .addStatement(
+                                "final long entry = group + $T.COUNT_SIZE + (long) index *"
+                                        + " $T.OFFSET_ENTRY_SIZE",
+                                VariableSizeRepeatingGroupIterator.class,
+                                VariableSizeRepeatingGroupIterator.class)
+                        .addComment("The last element runs to the end of the group.")
+                        .addStatement(
+                                "final int end = index + 1 < count ? segment.get($T.INT_BE, entry +"
+                                        + " $T.OFFSET_ENTRY_SIZE) : groupLength - $T.COUNT_SIZE -"
+                                        + " count * $T.OFFSET_ENTRY_SIZE",
+                                Layouts.class,
+                                VariableSizeRepeatingGroupIterator.class,
+                                VariableSizeRepeatingGroupIterator.class,
+                                VariableSizeRepeatingGroupIterator.class)
+                        .addStatement("return end - segment.get($T.INT_BE, entry)", Layouts.class)
+                        .build());
+    }
+
+    private MethodSpec createDiffFrame(ClassName flyweight, String messageName) {
+        return MethodSpec.methodBuilder("diffFrame")
+                .addModifiers(Modifier.PUBLIC)
+                .returns(int.class)
+                .addJavadoc(
+                        """
+                        Writes a patch frame: the header of the next frame with
+                        {@link MessageHeader#FLAG_PATCH} set, followed by the patch. A checksum is
+                        computed over the patch when the next frame carried one.
+
+                        @param base segment holding the frame the receiver already has
+                        @param baseOffset offset of the base frame header
+                        @param next segment holding the frame to send
+                        @param nextOffset offset of the next frame header
+                        @param patch segment receiving the patch frame
+                        @param patchOffset offset at which to write the patch frame header
+                        @return the patch frame length written to {@code patch}
+                        @throws IllegalArgumentException if either frame is not a full $L frame of
+                            the current version
+                        """,
+                        messageName)
+                .addParameter(MemorySegment.class, "base")
+                .addParameter(long.class, "baseOffset")
+                .addParameter(MemorySegment.class, "next")
+                .addParameter(long.class, "nextOffset")
+                .addParameter(MemorySegment.class, "patch")
+                .addParameter(long.class, "patchOffset")
+                .addStatement("checkFrame(base, baseOffset, false)")
+                .addStatement("checkFrame(next, nextOffset, false)")
+                .addStatement(
+                        "final int frameLength = $T.HEADER_SIZE + diff(base, baseOffset +"
+                                + " $T.HEADER_SIZE, next, nextOffset + $T.HEADER_SIZE, patch,"
+                                + " patchOffset + $T.HEADER_SIZE)",
+                        MessageHeader.class,
+                        MessageHeader.class,
+                        MessageHeader.class,
+                        MessageHeader.class)
+                .addStatement(
+                        "patch.set($T.INT_BE, patchOffset + $T.FRAME_LENGTH_OFFSET, frameLength)",
+                        Layouts.class,
+                        MessageHeader.class)
+                .addComment("Template, version, flags and reserved bytes come from the next frame.")
+                .addStatement(
+                        "$T.copy(next, nextOffset + $T.TEMPLATE_ID_OFFSET, patch, patchOffset +"
+                                + " $T.TEMPLATE_ID_OFFSET, $T.CHECKSUM_OFFSET -"
+                                + " $T.TEMPLATE_ID_OFFSET)",
+                        MemorySegment.class,
+                        MessageHeader.class,
+                        MessageHeader.class,
+                        MessageHeader.class,
+                        MessageHeader.class)
+                .addStatement(
+                        "patch.set($T.BYTE, patchOffset + $T.FLAGS_OFFSET, (byte)"
+                                + " (next.get($T.BYTE, nextOffset + $T.FLAGS_OFFSET) |"
+                                + " $T.FLAG_PATCH))",
+                        Layouts.class,
+                        MessageHeader.class,
+                        Layouts.class,
+                        MessageHeader.class,
+                        MessageHeader.class)
+                .addStatement(
+                        "int checksum = next.get($T.INT_BE, nextOffset + $T.CHECKSUM_OFFSET)",
+                        Layouts.class,
+                        MessageHeader.class)
+                .beginControlFlow("if (checksum != 0)")
+                .addStatement(
+                        "checksum = $T.calculateCrc32(patch.asSlice(patchOffset + $T.HEADER_SIZE,"
+                                + " frameLength - $T.HEADER_SIZE))",
+                        SegmentUtils.class,
+                        MessageHeader.class,
+                        MessageHeader.class)
+                .endControlFlow()
+                .addStatement(
+                        "patch.set($T.INT_BE, patchOffset + $T.CHECKSUM_OFFSET, checksum)",
+                        Layouts.class,
+                        MessageHeader.class)
+                .addStatement("return frameLength")
+                .build();
+    }
+
+    private JavaFile generatePatcher(ResolvedMessageDefinition message, List<Unit> units) {
+        ClassName flyweight = ClassName.get(schema.namespace(), message.name() + FLYWEIGHT_SUFFIX);
+        ClassName differ = ClassName.get(schema.namespace(), message.name() + "Differ");
+        TypeSpec.Builder type =
+                TypeSpec.classBuilder(message.name() + "Patcher")
+                        .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                        .addJavadoc(
+                                """
+                                Auto-generated patcher for $L frames.
+
+                                Rebuilds the next message from a base message and a patch written
+                                by {@link $T}. Instances are reusable but NOT thread-safe.
+                                """,
+                                message.name(),
+                                differ);
+
+        MethodSpec.Builder patch =
+                MethodSpec.methodBuilder("patch")
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(int.class)
+                        .addJavadoc(
+                                """
+                                Applies a patch to a message body. Unchanged var fields and group
+                                elements are copied from the base, and var data is laid out in
+                                field order behind the fixed block.
+
+                                @param base segment holding the message the patch was computed from
+                                @param baseOffset offset of the base message body
+                                @param patch segment holding the patch
+                                @param patchOffset offset of the patch body
+                                @param target segment receiving the rebuilt message
+                                @param targetOffset offset at which to write the message body
+                                @return the number of bytes written to {@code target}
+                                @throws IllegalArgumentException if the patch refers to a group
+                                    element the base does not have
+                                """)
+                        .addParameter(MemorySegment.class, "base")
+                        .addParameter(long.class, "baseOffset")
+                        .addParameter(MemorySegment.class, "patch")
+                        .addParameter(long.class, "patchOffset")
+                        .addParameter(MemorySegment.class, "target")
+                        .addParameter(long.class, "targetOffset")
+                        .addStatement(
+                                "$T.copy(base, baseOffset, target, targetOffset, $T.BLOCK_LENGTH)",
+                                MemorySegment.class,
+                                flyweight)
+                        .addStatement("int cursor = $T.CHANGE_MASK_BYTES", differ);
+
+        boolean declared = false;
+        boolean slackDeclared = false;
+        boolean groups = false;
+        for (int i = 0; i < units.size(); i++) {
+            Unit unit = units.get(i);
+            if (unit.kind() == Kind.FIXED) {
+                patch.addComment("$L", unit.name())
+                        .beginControlFlow("if (isChanged(patch, patchOffset, $L))", i)
+                        .addStatement(
+                                "$T.copy(patch, patchOffset + cursor, target, targetOffset + $L,"
+                                        + " $L)",
+                                MemorySegment.class,
+                                unit.offset(),
+                                unit.size())
+                        .addStatement("cursor += $L", unit.size())
+                        .endControlFlow();
+                continue;
+            }
+            if (!declared) {
+                patch.addStatement("int written = $T.BLOCK_LENGTH", flyweight)
+                        .addStatement("int relativeOffset")
+                        .addStatement("int length");
+                declared = true;
+            }
+            patch.addComment("$L", unit.name())
+                    .addStatement(
+                            "relativeOffset = base.get($T.INT_BE, baseOffset + $L)",
+                            Layouts.class,
+                            unit.offset())
+                    .addStatement(
+                            "length = base.get($T.INT_BE, baseOffset + $L)",
+                            Layouts.class,
+                            unit.offset() + 4);
+            if (unit.kind() == Kind.SLACK) {
+                if (!slackDeclared) {
+                    patch.addStatement("int capacity")
+                            .addStatement("$T from", MemorySegment.class)
+                            .addStatement("long fromOffset");
+                    slackDeclared = true;
+                }
+                emitSlackPatch(patch, i, unit.offset());
+                continue;
+            }
+            patch.beginControlFlow("if (isChanged(patch, patchOffset, $L))", i);
+            if (unit.kind() == Kind.GROUP) {
+                groups = true;
+                patch.addStatement(
+                                "final int $LLength = patch.get($T.INT_BE, patchOffset + cursor)",
+                                unit.name(),
+                                Layouts.class)
+                        .addStatement(
+                                "length = $LLength == 0 ? 0 : patchGroup(base, baseOffset +"
+                                        + " relativeOffset, length, patch, patchOffset + cursor +"
+                                        + " 4, target, targetOffset + written)",
+                                unit.name())
+                        .addStatement("cursor += 4 + $LLength", unit.name());
+            } else {
+                patch.addStatement(
+                                "length = patch.get($T.INT_BE, patchOffset + cursor)",
+                                Layouts.class)
+                        .addStatement(
+                                "$T.copy(patch, patchOffset + cursor + 4, target, targetOffset +"
+                                        + " written, length)",
+                                MemorySegment.class)
+                        .addStatement("cursor += 4 + length");
+            }
+            patch.nextControlFlow("else")
+                    .addStatement(
+                            "$T.copy(base, baseOffset + relativeOffset, target, targetOffset +"
+                                    + " written, length)",
+                            MemorySegment.class)
+                    .endControlFlow()
+                    .addStatement(
+                            "target.set($T.INT_BE, targetOffset + $L, written)",
+                            Layouts.class,
+                            unit.offset())
+                    .addStatement(
+                            "target.set($T.INT_BE, targetOffset + $L, length)",
+                            Layouts.class,
+                            unit.offset() + 4)
+                    .addStatement("written += length");
+        }
+        if (declared) {
+            patch.addStatement("return written");
+        } else {
+            patch.addStatement("return $T.BLOCK_LENGTH", flyweight);
+        }
+        type.addMethod(patch.build());
+        type.addMethod(createPatchFrame(message.name()));
+        type.addMethod(createCheckFrame(flyweight, message.name()));
+        type.addMethod(
+                MethodSpec.methodBuilder("isChanged")
+                        .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                        .returns(boolean.class)
+                        .addParameter(MemorySegment.class, "patch")
+                        .addParameter(long.class, "patchOffset")
+                        .addParameter(int.class, "unit")
+                        .addStatement(
+                                "return (patch.get($T.BYTE, patchOffset + (unit >>> 3)) & (1 <<"
+                                        + " (unit & 7))) != 0",
+                                Layouts.class)
+                        .build());
+        if (groups) {
+            type.addMethod(createPatchGroup());
+            addGroupAddressing(type);
+        }
+        return JavaFile.builder(schema.namespace(), type.build()).indent("    ").build();
+    }
+
+    /** Re-reserves a slack field's capacity and zeroes the tail behind the new value. */
+    private static void emitSlackPatch(MethodSpec.Builder patch, int unit, int header) {
+        patch.beginControlFlow("if (isChanged(patch, patchOffset, $L))", unit)
+                .addStatement(
+                        "capacity = patch.get($T.INT_BE, patchOffset + cursor)", Layouts.class)
+                .addStatement(
+                        "length = patch.get($T.INT_BE, patchOffset + cursor + 4)", Layouts.class)
+                .addStatement("from = patch")
+                .addStatement("fromOffset = patchOffset + cursor + 8")
+                .addStatement("cursor += 8 + length")
+                .nextControlFlow("else")
+                .addStatement(
+                        "capacity = relativeOffset == 0 ? -1 : base.get($T.INT_BE, baseOffset +"
+                                + " relativeOffset - 4)",
+                        Layouts.class)
+                .addStatement("from = base")
+                .addStatement("fromOffset = baseOffset + relativeOffset")
+                .endControlFlow()
+                .beginControlFlow("if (capacity < 0)")
+                .addStatement("target.set($T.INT_BE, targetOffset + $L, 0)", Layouts.class, header)
+                .addStatement(
+                        "target.set($T.INT_BE, targetOffset + $L, 0)", Layouts.class, header + 4)
+                .nextControlFlow("else")
+                .addStatement(
+                        "target.set($T.INT_BE, targetOffset + written, capacity)", Layouts.class)
+                .addStatement(
+                        "$T.copy(from, fromOffset, target, targetOffset + written + 4, length)",
+                        MemorySegment.class)
+                .addStatement(
+                        "target.asSlice(targetOffset + written + 4 + length, capacity -"
+                                + " length).fill((byte) 0)")
+                .addStatement(
+                        "target.set($T.INT_BE, targetOffset + $L, written + 4)",
+                        Layouts.class,
+                        header)
+                .addStatement(
+                        "target.set($T.INT_BE, targetOffset + $L, length)",
+                        Layouts.class,
+                        header + 4)
+                .addStatement("written += 4 + capacity")
+                .endControlFlow();
+    }
+
+    private static MethodSpec createPatchGroup() {
+        return MethodSpec.methodBuilder("patchGroup")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(int.class)
+                .addParameter(MemorySegment.class, "base")
+                .addParameter(long.class, "baseGroup")
+                .addParameter(int.class, "baseLength")
+                .addParameter(MemorySegment.class, "patch")
+                .addParameter(long.class, "in")
+                .addParameter(MemorySegment.class, "target")
+                .addParameter(long.class, "out")
+                .addStatement(
+                        "final int baseCount = baseLength == 0 ? 0 : base.get($T.INT_BE,"
+                                + " baseGroup)",
+                        Layouts.class)
+                .addStatement("final int count = patch.get($T.INT_BE, in)", Layouts.class)
+                .addStatement(
+                        "final int tableSize = $T.COUNT_SIZE + count * $T.OFFSET_ENTRY_SIZE",
+                        VariableSizeRepeatingGroupIterator.class,
+                        VariableSizeRepeatingGroupIterator.class)
+                .addStatement("target.set($T.INT_BE, out, count)", Layouts.class)
+                .addStatement(
+                        "long read = in + $T.COUNT_SIZE", VariableSizeRepeatingGroupIterator.class)
+                .addStatement("int written = 0")
+                .beginControlFlow("for (int i = 0; i < count; )")
+                .addStatement("final int ref = patch.get($T.INT_BE, read)", Layouts.class)
+                .beginControlFlow("if (ref < 0)")
+                .addStatement(
+                        "final int elementLength = patch.get($T.INT_BE, read + 4)", Layouts.class)
+                .addStatement(
+                        "target.set($T.INT_BE, out + $T.COUNT_SIZE + (long) i++ *"
+                                + " $T.OFFSET_ENTRY_SIZE, written)",
+                        Layouts.class,
+                        VariableSizeRepeatingGroupIterator.class,
+                        VariableSizeRepeatingGroupIterator.class)
+                .addStatement(
+                        "$T.copy(patch, read + 8, target, out + tableSize + written,"
+                                + " elementLength)",
+                        MemorySegment.class)
+                .addStatement("read += 8 + elementLength")
+                .addStatement("written += elementLength")
+                .addStatement("continue")
+                .endControlFlow()
+                .addStatement("final int run = patch.get($T.INT_BE, read + 4)", Layouts.class)
+                .addStatement("read += 8")
+                .beginControlFlow("if (run <= 0 || ref > baseCount - run || run > count - i)")
+                .addStatement(
+                        "throw new IllegalArgumentException(\"Patch refers to \" + run + \""
+                                + " elements from \" + ref + \" of a base group of \" +"
+                                + " baseCount)")
+                .endControlFlow()
+                .addComment("Consecutive base elements are contiguous, so a run is one copy.")
+                .addStatement(
+                        "final long first = baseGroup + $T.COUNT_SIZE + (long) ref *"
+                                + " $T.OFFSET_ENTRY_SIZE",
+                        VariableSizeRepeatingGroupIterator.class,
+                        VariableSizeRepeatingGroupIterator.class)
+                .beginControlFlow("for (int j = 0; j < run; j++)")
+                .addStatement(
+                        "target.set($T.INT_BE, out + $T.COUNT_SIZE + (long) i++ *"
+                                + " $T.OFFSET_ENTRY_SIZE, written + base.get($T.INT_BE, first +"
+                                + " (long) j * $T.OFFSET_ENTRY_SIZE) - base.get($T.INT_BE, first))",
+                        Layouts.class,
+                        VariableSizeRepeatingGroupIterator.class,
+                        VariableSizeRepeatingGroupIterator.class,
+                        Layouts.class,
+                        VariableSizeRepeatingGroupIterator.class,
+                        Layouts.class)
+                .endControlFlow()
+                .addStatement("final long from = elementAddress(base, baseGroup, baseCount, ref)")
+                .addStatement(
+                        "final int runLength = (int) (elementAddress(base, baseGroup, baseCount,"
+                                + " ref + run - 1) - from) + elementLength(base, baseGroup,"
+                                + " baseLength, baseCount, ref + run - 1)")
+                .addStatement(
+                        "$T.copy(base, from, target, out + tableSize + written, runLength)",
+                        MemorySegment.class)
+                .addStatement("written += runLength")
+                .endControlFlow()
+                .addStatement("return tableSize + written")
+                .build();
+    }
+
+    private static MethodSpec createPatchFrame(String messageName) {
+        return MethodSpec.methodBuilder("patchFrame")
+                .addModifiers(Modifier.PUBLIC)
+                .returns(int.class)
+                .addJavadoc(
+                        """
+                        Rebuilds a full frame from a base frame and a patch frame, clearing
+                        {@link MessageHeader#FLAG_PATCH}. The checksum is recomputed when the patch
+                        frame carried one.
+
+                        @param base segment holding the frame the patch was computed from
+                        @param baseOffset offset of the base frame header
+                        @param patch segment holding the patch frame
+                        @param patchOffset offset of the patch frame header
+                        @param target segment receiving the rebuilt frame
+                        @param targetOffset offset at which to write the frame header
+                        @return the frame length written to {@code target}
+                        @throws IllegalArgumentException if the base is not a full $L frame or the
+                            patch is not a $L patch frame of the current version
+                        """,
+                        messageName,
+                        messageName)
+                .addParameter(MemorySegment.class, "base")
+                .addParameter(long.class, "baseOffset")
+                .addParameter(MemorySegment.class, "patch")
+                .addParameter(long.class, "patchOffset")
+                .addParameter(MemorySegment.class, "target")
+                .addParameter(long.class, "targetOffset")
+                .addStatement("checkFrame(base, baseOffset, false)")
+                .addStatement("checkFrame(patch, patchOffset, true)")
+                .addStatement(
+                        "final int frameLength = $T.HEADER_SIZE + patch(base, baseOffset +"
+                                + " $T.HEADER_SIZE, patch, patchOffset + $T.HEADER_SIZE, target,"
+                                + " targetOffset + $T.HEADER_SIZE)",
+                        MessageHeader.class,
+                        MessageHeader.class,
+                        MessageHeader.class,
+                        MessageHeader.class)
+                .addStatement(
+                        "target.set($T.INT_BE, targetOffset + $T.FRAME_LENGTH_OFFSET, frameLength)",
+                        Layouts.class,
+                        MessageHeader.class)
+                .addStatement(
+                        "$T.copy(patch, patchOffset + $T.TEMPLATE_ID_OFFSET, target, targetOffset"
+                                + " + $T.TEMPLATE_ID_OFFSET, $T.CHECKSUM_OFFSET -"
+                                + " $T.TEMPLATE_ID_OFFSET)",
+                        MemorySegment.class,
+                        MessageHeader.class,
+                        MessageHeader.class,
+                        MessageHeader.class,
+                        MessageHeader.class)
+                .addStatement(
+                        "target.set($T.BYTE, targetOffset + $T.FLAGS_OFFSET, (byte)"
+                                + " (patch.get($T.BYTE, patchOffset + $T.FLAGS_OFFSET) &"
+                                + " ~$T.FLAG_PATCH))",
+                        Layouts.class,
+                        MessageHeader.class,
+                        Layouts.class,
+                        MessageHeader.class,
+                        MessageHeader.class)
+                .addStatement(
+                        "int checksum = patch.get($T.INT_BE, patchOffset + $T.CHECKSUM_OFFSET)",
+                        Layouts.class,
+                        MessageHeader.class)
+                .beginControlFlow("if (checksum != 0)")
+                .addStatement(
+                        "checksum = $T.calculateCrc32(target.asSlice(targetOffset +"
+                                + " $T.HEADER_SIZE, frameLength - $T.HEADER_SIZE))",
+                        SegmentUtils.class,
+                        MessageHeader.class,
+                        MessageHeader.class)
+                .endControlFlow()
+                .addStatement(
+                        "target.set($T.INT_BE, targetOffset + $T.CHECKSUM_OFFSET, checksum)",
+                        Layouts.class,
+                        MessageHeader.class)
+                .addStatement("return frameLength")
+                .build();
+    }
+
+    /** Rejects frames of another message or version, and patch frames where full ones belong. */
+    private static MethodSpec createCheckFrame(ClassName flyweight, String messageName) {
+        return MethodSpec.methodBuilder("checkFrame")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(MemorySegment.class, "frame")
+                .addParameter(long.class, "frameOffset")
+                .addParameter(boolean.class, "expectPatch")
+                .addStatement(
+                        "final short templateId = frame.get($T.SHORT_BE, frameOffset +"
+                                + " $T.TEMPLATE_ID_OFFSET)",
+                        Layouts.class,
+                        MessageHeader.class)
+                .addStatement(
+                        "final short version = frame.get($T.SHORT_BE, frameOffset +"
+                                + " $T.SCHEMA_VERSION_OFFSET)",
+                        Layouts.class,
+                        MessageHeader.class)
+                .addStatement(
+                        "final boolean isPatch = (frame.get($T.BYTE, frameOffset +"
+                                + " $T.FLAGS_OFFSET) & $T.FLAG_PATCH) != 0",
+                        Layouts.class,
+                        MessageHeader.class,
+                        MessageHeader.class)
+                .beginControlFlow(
+                        "if (templateId != (short) $T.TEMPLATE_ID || version != $T.SCHEMA_VERSION"
+                                + " || isPatch != expectPatch)",
+                        flyweight,
+                        flyweight)
+                .addStatement(
+                        "throw new IllegalArgumentException(\"Not a $L \" + (expectPatch ?"
+                                + " \"patch\" : \"full\") + \" frame of version \" +"
+                                + " $T.SCHEMA_VERSION + \":"
+                                + " template \" + templateId + \", version \" + version + \","
+                                + " patch \" + isPatch)",
+                        messageName,
+                        flyweight)
+                .endControlFlow()
+                .build();
+    }
+}
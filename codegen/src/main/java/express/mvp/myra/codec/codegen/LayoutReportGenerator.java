@@ -0,0 +1,236 @@
+package express.mvp.myra.codec.codegen;
+
+import express.mvp.myra.codec.codegen.resolver.MessageLayout;
+import express.mvp.myra.codec.codegen.resolver.ResolvedFieldDefinition;
+import express.mvp.myra.codec.codegen.resolver.ResolvedMessageDefinition;
+import express.mvp.myra.codec.codegen.resolver.ResolvedSchemaDefinition;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Renders a plain-text report of every message's fixed block: slot offsets and sizes, padding
+ * gaps, hot fields and {@link MessageLayout#CACHE_LINE_SIZE}-byte cache-line boundaries. Offsets
+ * are relative to the start of the block, so line numbers describe the real cache lines only when
+ * the block itself starts on a line boundary.
+ *
+ * <p>Example output:
+ *
+ * <pre>
+ * Message ExecutionReport (id 1, packed, block 100 bytes, 0 padding bytes, 2 cache lines)
+ *   hot region: bytes 0..13, cache line 0
+ *   offset  size  line  field                  encoding      flags
+ *        0     1     0  (presence)             bitmap
+ *        1     8     0  price                  int64         hot
+ *        9     4     0  qty                    int32         hot
+ *       13     1     0  flag                   bool          hot bit 0
+ *       14    24     0  account                string[20]
+ *       38    44   0-1  text                   string[40]    crosses line
+ *   ---- cache line 1 @ 64 ----
+ *       82     2     1  venue                  int16
+ *       84     8     1  execId                 int64
+ *       92     8     1  note                   string        var-header
+ * </pre>
+ */
+public final class LayoutReportGenerator {
+
+    /** File name of the report written by {@link #writeFile(Path)}. */
+    public static final String REPORT_FILE_NAME = "myra-layout-report.txt";
+
+    private final ResolvedSchemaDefinition schema;
+
+    /**
+     * Creates a generator for the given schema.
+     *
+     * @param schema the resolved schema
+     */
+    public LayoutReportGenerator(ResolvedSchemaDefinition schema) {
+        this.schema = Objects.requireNonNull(schema);
+    }
+
+    /**
+     * Renders the report for every message in the schema.
+     *
+     * @return the report text
+     */
+    public String render() {
+        StringBuilder out = new StringBuilder();
+        out.append("Layout report for ")
+                .append(schema.namespace())
+                .append(" (schema ")
+                .append(schema.version())
+                .append(")\n")
+                .append("Offsets are relative to the message block; cache lines are ")
+                .append(MessageLayout.CACHE_LINE_SIZE)
+                .append(" bytes from the block start.\n");
+        for (ResolvedMessageDefinition message : schema.messages()) {
+            out.append('\n');
+            renderMessage(out, message);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes the report to {@link #REPORT_FILE_NAME} in the given directory.
+     *
+     * @param outputDir the directory to write into
+     * @return the path of the written report
+     */
+    public Path writeFile(Path outputDir) throws IOException {
+        Files.createDirectories(outputDir);
+        Path report = outputDir.resolve(REPORT_FILE_NAME);
+        Files.writeString(report, render(), StandardCharsets.UTF_8);
+        return report;
+    }
+
+    private void renderMessage(StringBuilder out, ResolvedMessageDefinition message) {
+        MessageLayout layout = MessageLayout.of(schema, message);
+        Map<String, ResolvedFieldDefinition> fields = new HashMap<>();
+        message.fields().forEach(f -> fields.put(f.name(), f));
+
+        // Sparse members live after the var data; the block only holds their header and index.
+        int sparseHeader = 0;
+        int sparseMembers = 0;
+        int sparseBytes = 0;
+        for (MessageLayout.Slot slot : layout.slots()) {
+            if (slot.sparse()) {
+                sparseHeader = 8 + 4 * (slot.presenceBit() / Long.SIZE);
+                sparseMembers++;
+                sparseBytes += slot.size();
+            }
+        }
+        int used = layout.presenceBytes() + sparseHeader;
+        boolean wordCounted = false;
+        for (MessageLayout.Slot slot : layout.slots()) {
+            // Bitfield members share one word, which is only counted once.
+            if (slot.sparse() || (slot.packed() && wordCounted)) {
+                continue;
+            }
+            wordCounted |= slot.packed();
+            used += slot.size();
+        }
+        int block = layout.blockLength();
+        int lines = block == 0 ? 0 : line(block - 1) + 1;
+        out.append(
+                String.format(
+                        "Message %s (id %d, %s, block %d bytes, %d padding bytes, %d cache"
+                                + " line%s)\n",
+                        message.name(),
+                        message.id(),
+                        layout.aligned() ? "aligned" : "packed",
+                        block,
+                        block - used,
+                        lines,
+                        lines == 1 ? "" : "s"));
+        int hotEnd = layout.hotRegionEnd(message);
+        if (hotEnd > 0) {
+            out.append(
+                    String.format(
+                            "  hot region: bytes 0..%d, cache line%s %s\n",
+                            hotEnd - 1,
+                            line(hotEnd - 1) == 0 ? "" : "s",
+                            lineRange(0, hotEnd)));
+        }
+        if (sparseMembers > 0) {
+            out.append(
+                    String.format(
+                            "  sparse region: %d member%s, up to %d bytes after the var data\n",
+                            sparseMembers,
+                            sparseMembers == 1 ? "" : "s",
+                            sparseBytes));
+        }
+        out.append(
+                String.format(
+                        "  %6s  %4s  %4s  %-22s %-13s %s\n",
+                        "offset", "size", "line", "field", "encoding", "flags"));
+
+        int cursor = 0;
+        int nextLine = MessageLayout.CACHE_LINE_SIZE;
+        if (layout.presenceBytes() > 0) {
+            row(out, 0, layout.presenceBytes(), "(presence)", "bitmap", "");
+            cursor = layout.presenceBytes();
+        }
+        if (sparseHeader > 0) {
+            row(out, cursor, sparseHeader, "(sparse)", "header+index", "");
+            cursor += sparseHeader;
+        }
+        for (MessageLayout.Slot slot : layout.slots()) {
+            if (slot.sparse()) {
+                continue;
+            }
+            if (slot.offset() > cursor) {
+                nextLine = lineBreaks(out, cursor, nextLine);
+                row(out, cursor, slot.offset() - cursor, "(padding)", "", "");
+            }
+            nextLine = lineBreaks(out, slot.offset(), nextLine);
+            row(
+                    out,
+                    slot.offset(),
+                    slot.size(),
+                    slot.name(),
+                    slot.encoding(),
+                    flags(fields.get(slot.name()), slot));
+            cursor = slot.offset() + slot.size();
+        }
+        if (block > cursor) {
+            nextLine = lineBreaks(out, cursor, nextLine);
+            row(out, cursor, block - cursor, "(padding)", "", "");
+        }
+    }
+
+    private static int lineBreaks(StringBuilder out, int offset, int nextLine) {
+        while (offset >= nextLine) {
+            out.append(
+                    String.format(
+                            "  ---- cache line %d @ %d ----\n", line(nextLine), nextLine));
+            nextLine += MessageLayout.CACHE_LINE_SIZE;
+        }
+        return nextLine;
+    }
+
+    private static void row(
+            StringBuilder out, int offset, int size, String name, String encoding, String flags) {
+        out.append(
+                String.format(
+                                "  %6d  %4d  %4s  %-22s %-13s %s",
+                                offset,
+                                size,
+                                lineRange(offset, offset + size),
+                                name,
+                                encoding,
+                                flags)
+                        .stripTrailing())
+                .append('\n');
+    }
+
+    private static String flags(ResolvedFieldDefinition field, MessageLayout.Slot slot) {
+        StringBuilder flags = new StringBuilder();
+        if (field != null && field.hot()) {
+            flags.append("hot ");
+        }
+        if (slot.variable()) {
+            flags.append("var-header ");
+        }
+        if (slot.presenceBit() >= 0) {
+            flags.append("bit ").append(slot.presenceBit()).append(' ');
+        }
+        if (line(slot.offset()) != line(slot.offset() + slot.size() - 1)) {
+            flags.append("crosses line ");
+        }
+        return flags.toString().trim();
+    }
+
+    private static String lineRange(int start, int end) {
+        int first = line(start);
+        int last = line(end - 1);
+        return first == last ? Integer.toString(first) : first + "-" + last;
+    }
+
+    private static int line(int offset) {
+        return offset / MessageLayout.CACHE_LINE_SIZE;
+    }
+}
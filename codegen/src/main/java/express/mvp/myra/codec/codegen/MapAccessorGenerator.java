@@ -0,0 +1,310 @@
+package express.mvp.myra.codec.codegen;
+
+import com.palantir.javapoet.ArrayTypeName;
+import com.palantir.javapoet.ClassName;
+import com.palantir.javapoet.CodeBlock;
+import com.palantir.javapoet.MethodSpec;
+import com.palantir.javapoet.ParameterSpec;
+import com.palantir.javapoet.ParameterizedTypeName;
+import com.palantir.javapoet.TypeName;
+import express.mvp.myra.codec.codegen.resolver.ResolvedFieldDefinition;
+import express.mvp.myra.codec.runtime.struct.MapGroupBuilder;
+import express.mvp.myra.codec.runtime.struct.MapGroupView;
+import express.mvp.myra.codec.schema.MapType;
+import express.mvp.roray.ffm.utils.memory.Layouts;
+import express.mvp.roray.ffm.utils.memory.Utf8View;
+import java.lang.foreign.MemorySegment;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.lang.model.element.Modifier;
+
+/**
+ * Emits the flyweight accessors and builder setter of map fields for {@link StubGenerator}. A map
+ * is stored as a var field holding a {@link MapGroupView} region: entries sorted by key, plus a
+ * hash index once the map is large enough.
+ */
+final class MapAccessorGenerator {
+
+    private final StubGenerator stubs;
+
+    /**
+     * Creates an emitter that resolves schema types through the given generator.
+     *
+     * @param stubs the generator owning the flyweights and builders
+     */
+    MapAccessorGenerator(StubGenerator stubs) {
+        this.stubs = stubs;
+    }
+
+    /** Returns the initializer of the reusable view a flyweight keeps for a map field. */
+    static CodeBlock newView(MapType map) {
+        return CodeBlock.of(
+                "new $T($T.KeyType.$L)", MapGroupView.class, MapGroupView.class, keyType(map));
+    }
+
+    /** One way of passing a map key to a generated lookup: its parameters and the find call. */
+    private record MapKeyForm(List<ParameterSpec> parameters, String arguments, String javadoc) {}
+
+    /**
+     * Creates the accessors of a map field. Lookups go through the field's {@link MapGroupView},
+     * which binary-searches small maps and probes the hash index of large ones, so no accessor
+     * decodes or allocates.
+     */
+    List<MethodSpec> createGetters(ResolvedFieldDefinition field, MapType map, String offsetConst) {
+        List<MethodSpec> methods = new ArrayList<>();
+        String cap = StubGenerator.capitalize(field.name());
+        String wrapMethod = "wrap" + cap + "Map";
+        TypeName keyType =
+                "string".equals(map.keyType())
+                        ? ClassName.get(String.class)
+                        : stubs.getJavaTypeName(map.keyType());
+        String valueType = stubs.getUnderlyingType(map.valueType());
+        boolean varValue = "string".equals(valueType) || "bytes".equals(valueType);
+
+        methods.add(
+                MethodSpec.methodBuilder(wrapMethod)
+                        .addModifiers(Modifier.PRIVATE)
+                        .returns(MapGroupView.class)
+                        .addStatement(
+                                "final long dataOffset = this.offset + segment.get($T.INT_BE,"
+                                        + " this.offset + $L)",
+                                Layouts.class,
+                                offsetConst)
+                        .addStatement("$LMap().wrap(this.segment, dataOffset)", field.name())
+                        .addStatement("return $LMap()", field.name())
+                        .build());
+        methods.add(
+                MethodSpec.methodBuilder("get" + cap + "Count")
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(int.class)
+                        .addStatement("return $L().count()", wrapMethod)
+                        .build());
+        // String keys can also be given as UTF-8 bytes, e.g. a var field of another frame.
+        List<MapKeyForm> keyForms = new ArrayList<>();
+        keyForms.add(
+                new MapKeyForm(
+                        List.of(ParameterSpec.builder(keyType, "key").build()),
+                        "key",
+                        "@param key the key\n"));
+        if ("string".equals(map.keyType())) {
+            keyForms.add(
+                    new MapKeyForm(
+                            List.of(ParameterSpec.builder(Utf8View.class, "key").build()),
+                            "key",
+                            "@param key a view over the key's UTF-8 bytes\n"));
+            keyForms.add(
+                    new MapKeyForm(
+                            List.of(
+                                    ParameterSpec.builder(MemorySegment.class, "key").build(),
+                                    ParameterSpec.builder(long.class, "keyOffset").build(),
+                                    ParameterSpec.builder(int.class, "keyLength").build()),
+                            "key, keyOffset, keyLength",
+                            "@param key the segment holding the key's UTF-8 bytes\n"
+                                    + "@param keyOffset the offset of the first key byte\n"
+                                    + "@param keyLength the number of key bytes\n"));
+        }
+
+        for (MapKeyForm keyForm : keyForms) {
+            methods.add(
+                    MethodSpec.methodBuilder("contains" + cap)
+                            .addModifiers(Modifier.PUBLIC)
+                            .addParameters(keyForm.parameters())
+                            .returns(boolean.class)
+                            .addJavadoc(
+                                    "Returns whether the map has an entry for the given key.\n"
+                                            + keyForm.javadoc()
+                                            + "@return true if the key is present")
+                            .addStatement(
+                                    "return $L().find($L) >= 0", wrapMethod, keyForm.arguments())
+                            .build());
+
+            if (varValue) {
+                methods.add(
+                        MethodSpec.methodBuilder("get" + cap)
+                                .addModifiers(Modifier.PUBLIC)
+                                .addParameters(keyForm.parameters())
+                                .addParameter(Utf8View.class, "view")
+                                .returns(boolean.class)
+                                .addJavadoc(
+                                        "Wraps the view around the value for the given key.\n"
+                                                + keyForm.javadoc()
+                                                + "@param view the view to wrap; left empty if the"
+                                                + " key is absent\n"
+                                                + "@return true if the key is present")
+                                .addStatement(
+                                        "final long valueOffset = $L().find($L)",
+                                        wrapMethod,
+                                        keyForm.arguments())
+                                .beginControlFlow("if (valueOffset < 0)")
+                                .addStatement("view.wrap(this.segment, this.offset, 0)")
+                                .addStatement("return false")
+                                .endControlFlow()
+                                .addStatement(
+                                        "view.wrap(this.segment, valueOffset + 4,"
+                                                + " segment.get($T.INT_BE, valueOffset))",
+                                        Layouts.class)
+                                .addStatement("return true")
+                                .build());
+            } else {
+                TypeName type = stubs.getJavaTypeName(map.valueType());
+                methods.add(
+                        MethodSpec.methodBuilder("get" + cap + "OrDefault")
+                                .addModifiers(Modifier.PUBLIC)
+                                .addParameters(keyForm.parameters())
+                                .addParameter(type, "defaultValue")
+                                .returns(type)
+                                .addJavadoc(
+                                        "Returns the value for the given key.\n"
+                                                + keyForm.javadoc()
+                                                + "@param defaultValue the value to return if the"
+                                                + " key is absent\n"
+                                                + "@return the value, or defaultValue")
+                                .addStatement(
+                                        "final long valueOffset = $L().find($L)",
+                                        wrapMethod,
+                                        keyForm.arguments())
+                                .addStatement(
+                                        "return valueOffset < 0 ? defaultValue :"
+                                                + " segment.get($T.$L, valueOffset)",
+                                        Layouts.class,
+                                        stubs.getLayoutConstantName(map.valueType()))
+                                .build());
+            }
+        }
+
+        MethodSpec.Builder keyAt =
+                MethodSpec.methodBuilder("get" + cap + "KeyAt")
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(int.class, "index");
+        if (keyType.equals(TypeName.INT)) {
+            keyAt.returns(int.class).addStatement("return (int) $L().longKeyAt(index)", wrapMethod);
+        } else if (keyType.equals(TypeName.LONG)) {
+            keyAt.returns(long.class).addStatement("return $L().longKeyAt(index)", wrapMethod);
+        } else {
+            keyAt.addParameter(Utf8View.class, "view")
+                    .addStatement("$L().stringKeyAt(index, view)", wrapMethod);
+        }
+        methods.add(
+                keyAt.addJavadoc(
+                                "Reads the key of the entry at the given index; entries are in"
+                                        + " ascending key order.\n"
+                                        + "@param index the entry index (0-based)\n"
+                                        + "@throws IndexOutOfBoundsException if index is out of"
+                                        + " range")
+                        .build());
+
+        MethodSpec.Builder valueAt =
+                MethodSpec.methodBuilder("get" + cap + "ValueAt")
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(int.class, "index")
+                        .addJavadoc(
+                                "Reads the value of the entry at the given index.\n"
+                                        + "@param index the entry index (0-based)\n"
+                                        + "@throws IndexOutOfBoundsException if index is out of"
+                                        + " range")
+                        .addStatement(
+                                "final long valueOffset = $L().valueOffset(index)", wrapMethod);
+        if (varValue) {
+            valueAt.addParameter(Utf8View.class, "view")
+                    .addStatement(
+                            "view.wrap(this.segment, valueOffset + 4, segment.get($T.INT_BE,"
+                                    + " valueOffset))",
+                            Layouts.class);
+        } else {
+            valueAt.returns(stubs.getJavaTypeName(map.valueType()))
+                    .addStatement(
+                            "return segment.get($T.$L, valueOffset)",
+                            Layouts.class,
+                            stubs.getLayoutConstantName(map.valueType()));
+        }
+        methods.add(valueAt.build());
+        return methods;
+    }
+
+    /**
+     * Creates the builder setter of a map field. Entries are written in the map's iteration order;
+     * {@link MapGroupBuilder#finish()} then sorts the offset table and builds the hash index.
+     */
+    MethodSpec createSetter(
+            ClassName builderClassName,
+            ResolvedFieldDefinition field,
+            MapType map,
+            Integer optionalBitIndex,
+            ClassName objectsClass,
+            ClassName nestedHandleClass) {
+        String indexConst = stubs.constantName(field.name(), "INDEX");
+        TypeName keyType =
+                "string".equals(map.keyType())
+                        ? ClassName.get(String.class)
+                        : stubs.getJavaTypeName(map.keyType()).box();
+        String valueType = stubs.getUnderlyingType(map.valueType());
+        TypeName boxedValueType =
+                switch (valueType) {
+                    case "string" -> ClassName.get(String.class);
+                    case "bytes" -> ArrayTypeName.of(byte.class);
+                    default -> stubs.getJavaTypeName(map.valueType()).box();
+                };
+        String putMethod =
+                switch (valueType) {
+                    case "string" -> "putString";
+                    case "bytes" -> "putBytes";
+                    default ->
+                            stubs.getRepeatingGroupBuilderAddMethod(map.valueType())
+                                    .replaceFirst("add", "put");
+                };
+        ParameterizedTypeName entryType =
+                ParameterizedTypeName.get(ClassName.get(Map.Entry.class), keyType, boxedValueType);
+
+        MethodSpec.Builder method =
+                MethodSpec.methodBuilder("set" + StubGenerator.capitalize(field.name()))
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(builderClassName)
+                        .addParameter(
+                                ParameterizedTypeName.get(
+                                        ClassName.get(Map.class), keyType, boxedValueType),
+                                "entries")
+                        .addJavadoc(
+                                "Sets the $L map field.\n"
+                                        + "@param entries the entries to write; keys are unique"
+                                        + " by definition\n"
+                                        + "@return this builder for chaining",
+                                field.name())
+                        .addStatement("$T.requireNonNull(entries, \"entries\")", objectsClass)
+                        .addStatement("ensureWritable($L, $S)", indexConst, field.name())
+                        .addStatement(
+                                "$T handle = varWriter.beginNestedField($L)",
+                                nestedHandleClass,
+                                stubs.constantName(field.name(), "VAR_SLOT"))
+                        .addStatement("long absoluteOffset = payloadBase + handle.relativeOffset()")
+                        .addStatement(
+                                "$T mapBuilder = new $T($T.KeyType.$L)",
+                                MapGroupBuilder.class,
+                                MapGroupBuilder.class,
+                                MapGroupView.class,
+                                keyType(map))
+                        .addStatement(
+                                "mapBuilder.beginWithCount(segment, absoluteOffset,"
+                                        + " entries.size())")
+                        .beginControlFlow("for ($T entry : entries.entrySet())", entryType)
+                        .addStatement(
+                                "mapBuilder.putKey(entry.getKey()).$L(entry.getValue())",
+                                putMethod)
+                        .endControlFlow()
+                        .addStatement("handle.finish(mapBuilder.finish())")
+                        .addStatement("markWritten($L)", indexConst);
+        if (optionalBitIndex != null) {
+            method.addStatement(
+                    "presenceBits.set($L)", stubs.constantName(field.name(), "OPT_BIT"));
+        }
+        return method.addStatement("return this").build();
+    }
+
+    private static MapGroupView.KeyType keyType(MapType map) {
+        return switch (map.keyType()) {
+            case "int32" -> MapGroupView.KeyType.INT32;
+            case "int64" -> MapGroupView.KeyType.INT64;
+            default -> MapGroupView.KeyType.STRING;
+        };
+    }
+}
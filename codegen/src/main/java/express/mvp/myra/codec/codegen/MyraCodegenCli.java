@@ -5,6 +5,7 @@ import express.mvp.myra.codec.codegen.resolver.ResolutionResult;
 import express.mvp.myra.codec.codegen.resolver.SchemaResolver;
 import express.mvp.myra.codec.schema.SchemaDefinition;
 import java.io.File;
+import java.nio.file.Path;
 import java.util.concurrent.Callable;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
@@ -73,9 +74,20 @@ public class MyraCodegenCli implements Callable<Integer> {
                     SchemaResolver.resolve(rawSchema, existingLockFile, schemaFile.toPath());
 
             // 4. Generate the Java source files.
-            System.out.println("Step 4: Generating Java stubs and flyweights...");
+            System.out.println(
+                    "Step 4: Generating Java stubs, flyweights, transcoders, differs and"
+                            + " projectors...");
             StubGenerator generator = new StubGenerator(result.resolvedSchema());
             generator.writeFiles(outputDir.toPath());
+            new CodecGenerator(result.resolvedSchema()).writeFiles(outputDir.toPath());
+            new TranscoderGenerator(result.resolvedSchema(), result.updatedLockFile())
+                    .writeFiles(outputDir.toPath());
+            new DiffGenerator(result.resolvedSchema()).writeFiles(outputDir.toPath());
+            new ProjectionGenerator(result.resolvedSchema()).writeFiles(outputDir.toPath());
+            Path report =
+                    new LayoutReportGenerator(result.resolvedSchema())
+                            .writeFile(outputDir.toPath());
+            System.out.println("  Layout report: " + report);
 
             // 5. Write the updated .myra.lock file.
             System.out.println("Step 5: Writing updated lock file...");
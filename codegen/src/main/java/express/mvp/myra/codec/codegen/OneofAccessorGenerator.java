@@ -0,0 +1,268 @@
+package express.mvp.myra.codec.codegen;
+
+import com.palantir.javapoet.ArrayTypeName;
+import com.palantir.javapoet.ClassName;
+import com.palantir.javapoet.FieldSpec;
+import com.palantir.javapoet.MethodSpec;
+import com.palantir.javapoet.ParameterizedTypeName;
+import com.palantir.javapoet.TypeName;
+import com.palantir.javapoet.TypeSpec;
+import express.mvp.myra.codec.codegen.resolver.ResolvedFieldDefinition;
+import express.mvp.myra.codec.codegen.resolver.ResolvedOneofDefinition;
+import express.mvp.roray.ffm.utils.memory.Layouts;
+import express.mvp.roray.ffm.utils.memory.Utf8View;
+import java.lang.foreign.MemorySegment;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import javax.lang.model.element.Modifier;
+
+/**
+ * Emits the flyweight accessors and builder setters of oneofs for {@link StubGenerator}. A oneof
+ * takes a case byte in the fixed block and one var header shared by all of its options; the case
+ * byte names the option that is set, 0 meaning none.
+ */
+final class OneofAccessorGenerator {
+
+    private static final String FLYWEIGHT_SUFFIX = "Flyweight";
+
+    private final String namespace;
+    private final StubGenerator stubs;
+
+    /**
+     * Creates an emitter for the messages of one schema.
+     *
+     * @param namespace the package of the generated classes
+     * @param stubs the generator owning the flyweights and builders
+     */
+    OneofAccessorGenerator(String namespace, StubGenerator stubs) {
+        this.namespace = namespace;
+        this.stubs = stubs;
+    }
+
+    /**
+     * Creates the enum naming the options of a oneof: {@code NOT_SET} for case 0, then one
+     * constant per option in tag order, so that a case byte is the constant's ordinal.
+     */
+    TypeSpec createCaseEnum(ResolvedOneofDefinition oneof, ClassName enumClass) {
+        TypeSpec.Builder caseEnum =
+                TypeSpec.enumBuilder(enumClass)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addJavadoc("The field of oneof {@code $L} that is set.\n", oneof.name())
+                        .addEnumConstant("NOT_SET");
+        for (ResolvedFieldDefinition option : oneof.fields()) {
+            caseEnum.addEnumConstant(StubGenerator.upperSnakeCase(option.name()));
+        }
+        return caseEnum.addField(
+                        FieldSpec.builder(
+                                        ArrayTypeName.of(enumClass),
+                                        "VALUES",
+                                        Modifier.PRIVATE,
+                                        Modifier.STATIC,
+                                        Modifier.FINAL)
+                                .initializer("values()")
+                                .build())
+                .addMethod(
+                        MethodSpec.methodBuilder("id")
+                                .addModifiers(Modifier.PUBLIC)
+                                .returns(int.class)
+                                .addJavadoc(
+                                        "Returns the wire-format case byte for this option.\n"
+                                                + "@return the case, 0 for {@code NOT_SET}")
+                                .addStatement("return ordinal()")
+                                .build())
+                .addMethod(
+                        MethodSpec.methodBuilder("fromId")
+                                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                                .addParameter(int.class, "id")
+                                .returns(enumClass)
+                                .addJavadoc(
+                                        """
+                                        Returns the option for a wire-format case byte.
+
+                                        @param id the case byte
+                                        @return the corresponding option
+                                        @throws IllegalArgumentException if id is unknown
+                                        """)
+                                .beginControlFlow("if (id < 0 || id >= VALUES.length)")
+                                .addStatement(
+                                        "throw new IllegalArgumentException(\"Unknown $L case: \""
+                                                + " + id)",
+                                        oneof.name())
+                                .endControlFlow()
+                                .addStatement("return VALUES[id]")
+                                .build())
+                .build();
+    }
+
+    /**
+     * Creates the accessors of a oneof: {@code get<Group>Case()}, and per option a {@code has}
+     * check on the case byte and a getter reading the group's var region. An option that is not
+     * set reads as zero or an empty view; message options throw, like absent optional ones.
+     */
+    List<MethodSpec> createAccessors(ResolvedOneofDefinition oneof, ClassName caseEnum) {
+        String caseConst = stubs.constantName(oneof.caseName(), "OFFSET");
+        String offsetConst = stubs.constantName(oneof.name(), "OFFSET");
+        List<MethodSpec> methods = new ArrayList<>();
+        methods.add(
+                MethodSpec.methodBuilder("get" + StubGenerator.capitalize(oneof.caseName()))
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(caseEnum)
+                        .addStatement(
+                                "return $T.fromId(this.segment.get($T.BYTE, this.offset + $L))",
+                                caseEnum,
+                                Layouts.class,
+                                caseConst)
+                        .build());
+        for (int i = 0; i < oneof.fields().size(); i++) {
+            ResolvedFieldDefinition option = oneof.fields().get(i);
+            String cap = StubGenerator.capitalize(option.name());
+            methods.add(
+                    MethodSpec.methodBuilder("has" + cap)
+                            .addModifiers(Modifier.PUBLIC)
+                            .returns(boolean.class)
+                            .addStatement(
+                                    "return this.segment.get($T.BYTE, this.offset + $L) == $L",
+                                    Layouts.class,
+                                    caseConst,
+                                    i + 1)
+                            .build());
+            MethodSpec.Builder getter =
+                    MethodSpec.methodBuilder("get" + cap).addModifiers(Modifier.PUBLIC);
+            String viewFieldName = option.name() + "View";
+            if (stubs.isMessageType(option)) {
+                getter.returns(ClassName.get(namespace, option.type() + FLYWEIGHT_SUFFIX))
+                        .beginControlFlow("if (!has$L())", cap)
+                        .addStatement(
+                                "throw new IllegalStateException(\"Field '$L' is not present\")",
+                                option.name())
+                        .endControlFlow()
+                        .addStatement(
+                                "final int relativeOffset = segment.get($T.INT_BE, this.offset +"
+                                        + " $L)",
+                                Layouts.class,
+                                offsetConst)
+                        .addStatement(
+                                "$L().wrap(this.segment, this.offset + relativeOffset)",
+                                viewFieldName)
+                        .addStatement("return $L()", viewFieldName);
+            } else if (!stubs.isFixedSize(option)) {
+                getter.returns(Utf8View.class)
+                        .beginControlFlow("if (!has$L())", cap)
+                        .addStatement("$L().wrap(this.segment, this.offset, 0)", viewFieldName)
+                        .addStatement("return $L()", viewFieldName)
+                        .endControlFlow()
+                        .addStatement(
+                                "final int relativeOffset = segment.get($T.INT_BE, this.offset +"
+                                        + " $L)",
+                                Layouts.class,
+                                offsetConst)
+                        .addStatement(
+                                "final int dataLength = segment.get($T.INT_BE, this.offset + $L +"
+                                        + " 4)",
+                                Layouts.class,
+                                offsetConst)
+                        .addStatement(
+                                "$L().wrap(this.segment, this.offset + relativeOffset,"
+                                        + " dataLength)",
+                                viewFieldName)
+                        .addStatement("return $L()", viewFieldName);
+            } else {
+                TypeName type = stubs.getJavaTypeName(option.type());
+                getter.returns(type)
+                        .beginControlFlow("if (!has$L())", cap)
+                        .addStatement("return $L", type.equals(TypeName.BOOLEAN) ? "false" : "0")
+                        .endControlFlow()
+                        .addStatement(
+                                "return this.segment.get($T.$L, this.offset +"
+                                        + " this.segment.get($T.INT_BE, this.offset + $L))",
+                                Layouts.class,
+                                stubs.getLayoutConstantName(option.type()),
+                                Layouts.class,
+                                offsetConst);
+            }
+            methods.add(getter.build());
+        }
+        return methods;
+    }
+
+    /**
+     * Creates the builder setter of one oneof option. Any option claims the group, so a second
+     * setter call on the same group fails like a second write of a field. The value is written
+     * through the group's var slot and the case byte is set last.
+     */
+    MethodSpec createSetter(
+            ClassName builderClassName,
+            ResolvedOneofDefinition oneof,
+            ResolvedFieldDefinition option,
+            int caseId,
+            ClassName layoutsClass,
+            ClassName flyweightClassName,
+            ClassName objectsClass,
+            ClassName nestedHandleClass) {
+        String indexConst = stubs.constantName(oneof.name(), "INDEX");
+        String varSlotConst = stubs.constantName(oneof.name(), "VAR_SLOT");
+        MethodSpec.Builder method =
+                MethodSpec.methodBuilder("set" + StubGenerator.capitalize(option.name()))
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(builderClassName);
+        if (stubs.isStringType(option)) {
+            method.addParameter(String.class, "value")
+                    .addParameter(MemorySegment.class, "scratchBuffer")
+                    .addStatement("$T.requireNonNull(value, \"value\")", objectsClass)
+                    .addStatement(
+                            "$T.requireNonNull(scratchBuffer, \"scratchBuffer\")", objectsClass)
+                    .addStatement("ensureWritable($L, $S)", indexConst, oneof.name())
+                    .addStatement(
+                            "varWriter.writeVarField($L, value, scratchBuffer)", varSlotConst);
+        } else if (stubs.isBytesType(option)) {
+            method.addParameter(MemorySegment.class, "source")
+                    .addStatement("$T.requireNonNull(source, \"source\")", objectsClass)
+                    .addStatement("ensureWritable($L, $S)", indexConst, oneof.name())
+                    .addStatement("varWriter.writeVarField($L, source)", varSlotConst);
+        } else if (stubs.isMessageType(option)) {
+            ClassName childBuilder = ClassName.get(namespace, option.type() + "Builder");
+            method.addParameter(
+                            ParameterizedTypeName.get(ClassName.get(Consumer.class), childBuilder),
+                            "encoder")
+                    .addStatement("$T.requireNonNull(encoder, \"encoder\")", objectsClass)
+                    .addStatement("ensureWritable($L, $S)", indexConst, oneof.name())
+                    .addStatement(
+                            "$T handle = varWriter.beginNestedField($L)",
+                            nestedHandleClass,
+                            varSlotConst)
+                    .addStatement("long absoluteOffset = payloadBase + handle.relativeOffset()")
+                    .addStatement(
+                            "$T nestedSlice = segment.asSlice(absoluteOffset,"
+                                    + " segment.byteSize() - absoluteOffset)",
+                            MemorySegment.class)
+                    .addStatement(
+                            "$T nestedBuilder = $L(nestedSlice)",
+                            childBuilder,
+                            StubGenerator.nestedBuilderName(option.type()))
+                    .addStatement("encoder.accept(nestedBuilder)")
+                    .addStatement("handle.finish(nestedBuilder.finishInline())");
+        } else {
+            method.addParameter(stubs.getJavaTypeName(option.type()), "value")
+                    .addStatement("ensureWritable($L, $S)", indexConst, oneof.name())
+                    .addStatement(
+                            "$T handle = varWriter.beginNestedField($L)",
+                            nestedHandleClass,
+                            varSlotConst)
+                    .addStatement(
+                            "segment.set($T.$L, payloadBase + handle.relativeOffset(), value)",
+                            layoutsClass,
+                            stubs.getLayoutConstantName(option.type()))
+                    .addStatement("handle.finish($L)", stubs.getFixedSize(option));
+        }
+        return method.addStatement(
+                        "segment.set($T.BYTE, payloadBase + $T.$L, (byte) $L)",
+                        layoutsClass,
+                        flyweightClassName,
+                        stubs.constantName(oneof.caseName(), "OFFSET"),
+                        caseId)
+                .addStatement("markWritten($L)", indexConst)
+                .addStatement("return this")
+                .build();
+    }
+}
@@ -0,0 +1,250 @@
+package express.mvp.myra.codec.codegen;
+
+import com.palantir.javapoet.ClassName;
+import com.palantir.javapoet.JavaFile;
+import com.palantir.javapoet.MethodSpec;
+import com.palantir.javapoet.TypeSpec;
+import express.mvp.myra.codec.codegen.resolver.MessageLayout;
+import express.mvp.myra.codec.codegen.resolver.ResolvedMessageDefinition;
+import express.mvp.myra.codec.codegen.resolver.ResolvedSchemaDefinition;
+import express.mvp.myra.codec.runtime.struct.MessageHeader;
+import express.mvp.roray.ffm.utils.memory.Layouts;
+import express.mvp.roray.ffm.utils.memory.SegmentUtils;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import javax.lang.model.element.Modifier;
+
+/**
+ * Generates a {@code <Projection>Projector} for every projection declared in the schema. The
+ * resolver turns each projection into a message of its own, so it already has a flyweight,
+ * builder, codec and differ; the projector fills it from a frame of the message declaring it.
+ *
+ * <p>Projectors copy straight from segment to segment, exactly like a transcoder from the source
+ * message's layout to the projection's: fixed fields move in runs, bitfield and sparse members by
+ * value, and the selected var fields, groups and oneofs have their payloads appended behind the
+ * projection's block with rewritten headers. Nothing in the source is decoded.
+ */
+public final class ProjectionGenerator {
+
+    private static final String FLYWEIGHT_SUFFIX = "Flyweight";
+
+    private final ResolvedSchemaDefinition schema;
+
+    /**
+     * Creates a generator for the given schema.
+     *
+     * @param schema the resolved schema
+     */
+    public ProjectionGenerator(ResolvedSchemaDefinition schema) {
+        this.schema = Objects.requireNonNull(schema);
+    }
+
+    /**
+     * Generates a projector for every projection.
+     *
+     * @return the generated sources
+     */
+    public List<JavaFile> generate() {
+        List<JavaFile> files = new ArrayList<>();
+        for (ResolvedMessageDefinition message : schema.messages()) {
+            if (message.projectionOf() != null) {
+                files.add(generateProjector(message, sourceMessage(message.projectionOf())));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Writes all generated projectors to the specified output directory.
+     *
+     * @param outputDir The root directory for the generated source code.
+     */
+    public void writeFiles(Path outputDir) throws IOException {
+        for (JavaFile javaFile : generate()) {
+            javaFile.writeTo(outputDir);
+        }
+    }
+
+    private ResolvedMessageDefinition sourceMessage(String name) {
+        return schema.messages().stream()
+                .filter(m -> m.name().equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private JavaFile generateProjector(
+            ResolvedMessageDefinition projection, ResolvedMessageDefinition source) {
+        MessageLayout sourceLayout = MessageLayout.of(schema, source);
+        MessageLayout layout = MessageLayout.of(schema, projection);
+        ClassName flyweight =
+                ClassName.get(schema.namespace(), projection.name() + FLYWEIGHT_SUFFIX);
+        ClassName sourceFlyweight =
+                ClassName.get(schema.namespace(), source.name() + FLYWEIGHT_SUFFIX);
+
+        TypeSpec.Builder type =
+                TypeSpec.classBuilder(projection.name() + "Projector")
+                        .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                        .addJavadoc(
+                                """
+                                Auto-generated projector filling $L messages from $L messages.
+
+                                Copies the selected fields directly between segments without
+                                decoding the source. Instances are reusable but NOT thread-safe.
+                                """,
+                                projection.name(),
+                                source.name());
+
+        MethodSpec.Builder project =
+                MethodSpec.methodBuilder("project")
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(int.class)
+                        .addJavadoc(
+                                """
+                                Projects one $L body (no frame header).
+
+                                @param source segment holding the source message
+                                @param sourceOffset offset of the source message body
+                                @param target segment receiving the projection
+                                @param targetOffset offset at which to write the projection body
+                                @return the number of bytes written to {@code target}
+                                """,
+                                source.name())
+                        .addParameter(MemorySegment.class, "source")
+                        .addParameter(long.class, "sourceOffset")
+                        .addParameter(MemorySegment.class, "target")
+                        .addParameter(long.class, "targetOffset");
+        new TranscoderGenerator(schema, null)
+                .emitBodyCopy(
+                        type, project, projection, sourceLayout, layout, flyweight, null, null);
+
+        type.addMethod(project.build());
+        type.addMethod(
+                MethodSpec.methodBuilder("project")
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(int.class)
+                        .addJavadoc(
+                                """
+                                Projects the message a flyweight is wrapped around.
+
+                                @param source flyweight wrapped around the source message body
+                                @param target segment receiving the projection
+                                @param targetOffset offset at which to write the projection body
+                                @return the number of bytes written to {@code target}
+                                """)
+                        .addParameter(sourceFlyweight, "source")
+                        .addParameter(MemorySegment.class, "target")
+                        .addParameter(long.class, "targetOffset")
+                        .addStatement(
+                                "return project(source.segment(), source.offset(), target,"
+                                        + " targetOffset)")
+                        .build());
+        type.addMethod(createProjectFrame(flyweight, sourceFlyweight, source.name()));
+        return JavaFile.builder(schema.namespace(), type.build()).indent("    ").build();
+    }
+
+    private static MethodSpec createProjectFrame(
+            ClassName flyweight, ClassName sourceFlyweight, String sourceName) {
+        return MethodSpec.methodBuilder("projectFrame")
+                .addModifiers(Modifier.PUBLIC)
+                .returns(int.class)
+                .addJavadoc(
+                        """
+                        Projects a complete frame, writing a header for the projection's own
+                        template. The checksum is recomputed when the source frame carried one.
+
+                        @param source segment holding the source frame
+                        @param sourceOffset offset of the source frame header
+                        @param target segment receiving the projected frame
+                        @param targetOffset offset at which to write the frame header
+                        @return the frame length written to {@code target}
+                        @throws IllegalArgumentException if the source is not a full $L frame of
+                            the current version
+                        """,
+                        sourceName)
+                .addParameter(MemorySegment.class, "source")
+                .addParameter(long.class, "sourceOffset")
+                .addParameter(MemorySegment.class, "target")
+                .addParameter(long.class, "targetOffset")
+                .addStatement(
+                        "final short templateId = source.get($T.SHORT_BE, sourceOffset +"
+                                + " $T.TEMPLATE_ID_OFFSET)",
+                        Layouts.class,
+                        MessageHeader.class)
+                .addStatement(
+                        "final short version = source.get($T.SHORT_BE, sourceOffset +"
+                                + " $T.SCHEMA_VERSION_OFFSET)",
+                        Layouts.class,
+                        MessageHeader.class)
+                .addStatement(
+                        "final byte flags = source.get($T.BYTE, sourceOffset +"
+                                + " $T.FLAGS_OFFSET)",
+                        Layouts.class,
+                        MessageHeader.class)
+                .beginControlFlow(
+                        "if (templateId != (short) $T.TEMPLATE_ID || version != $T.SCHEMA_VERSION"
+                                + " || (flags & $T.FLAG_PATCH) != 0)",
+                        sourceFlyweight,
+                        sourceFlyweight,
+                        MessageHeader.class)
+                .addStatement(
+                        "throw new IllegalArgumentException(\"Not a full $L frame of version \" +"
+                                + " $T.SCHEMA_VERSION + \": template \" + templateId + \","
+                                + " version \" + version + \", flags \" + flags)",
+                        sourceName,
+                        sourceFlyweight)
+                .endControlFlow()
+                .addStatement(
+                        "final int frameLength = $T.HEADER_SIZE + project(source, sourceOffset +"
+                                + " $T.HEADER_SIZE, target, targetOffset + $T.HEADER_SIZE)",
+                        MessageHeader.class,
+                        MessageHeader.class,
+                        MessageHeader.class)
+                .addStatement(
+                        "target.set($T.INT_BE, targetOffset + $T.FRAME_LENGTH_OFFSET, frameLength)",
+                        Layouts.class,
+                        MessageHeader.class)
+                .addStatement(
+                        "target.set($T.SHORT_BE, targetOffset + $T.TEMPLATE_ID_OFFSET, (short)"
+                                + " $T.TEMPLATE_ID)",
+                        Layouts.class,
+                        MessageHeader.class,
+                        flyweight)
+                .addStatement(
+                        "target.set($T.SHORT_BE, targetOffset + $T.SCHEMA_VERSION_OFFSET,"
+                                + " $T.SCHEMA_VERSION)",
+                        Layouts.class,
+                        MessageHeader.class,
+                        flyweight)
+                .addComment("Flags and reserved bytes carry over unchanged.")
+                .addStatement(
+                        "$T.copy(source, sourceOffset + $T.FLAGS_OFFSET, target, targetOffset +"
+                                + " $T.FLAGS_OFFSET, $T.CHECKSUM_OFFSET - $T.FLAGS_OFFSET)",
+                        MemorySegment.class,
+                        MessageHeader.class,
+                        MessageHeader.class,
+                        MessageHeader.class,
+                        MessageHeader.class)
+                .addStatement(
+                        "int checksum = source.get($T.INT_BE, sourceOffset + $T.CHECKSUM_OFFSET)",
+                        Layouts.class,
+                        MessageHeader.class)
+                .beginControlFlow("if (checksum != 0)")
+                .addStatement(
+                        "checksum = $T.calculateCrc32(target.asSlice(targetOffset +"
+                                + " $T.HEADER_SIZE, frameLength - $T.HEADER_SIZE))",
+                        SegmentUtils.class,
+                        MessageHeader.class,
+                        MessageHeader.class)
+                .endControlFlow()
+                .addStatement(
+                        "target.set($T.INT_BE, targetOffset + $T.CHECKSUM_OFFSET, checksum)",
+                        Layouts.class,
+                        MessageHeader.class)
+                .addStatement("return frameLength")
+                .build();
+    }
+}
@@ -1,28 +1,47 @@
 package express.mvp.myra.codec.codegen;
 
 import com.palantir.javapoet.*;
+import express.mvp.myra.codec.codegen.resolver.MessageLayout;
 import express.mvp.myra.codec.codegen.resolver.ResolvedEnumDefinition;
 import express.mvp.myra.codec.codegen.resolver.ResolvedFieldDefinition;
 import express.mvp.myra.codec.codegen.resolver.ResolvedMessageDefinition;
+import express.mvp.myra.codec.codegen.resolver.ResolvedOneofDefinition;
 import express.mvp.myra.codec.codegen.resolver.ResolvedSchemaDefinition;
+import express.mvp.myra.codec.runtime.AlignedLayouts;
+import express.mvp.myra.codec.runtime.Ascii;
+import express.mvp.myra.codec.runtime.Decimals;
+import express.mvp.myra.codec.runtime.FixedStrideTable;
+import express.mvp.myra.codec.runtime.SegmentContent;
+import express.mvp.myra.codec.runtime.Timestamps;
+import express.mvp.myra.codec.runtime.Uuids;
+import express.mvp.myra.codec.runtime.struct.MapGroupView;
 import express.mvp.myra.codec.runtime.struct.RepeatingGroupBuilder;
 import express.mvp.myra.codec.runtime.struct.RepeatingGroupIterator;
 import express.mvp.myra.codec.runtime.struct.VariableSizeRepeatingGroupBuilder;
 import express.mvp.myra.codec.runtime.struct.VariableSizeRepeatingGroupIterator;
 import express.mvp.myra.codec.schema.EnumValueDefinition;
+import express.mvp.myra.codec.schema.MapType;
+import express.mvp.myra.codec.schema.RichType;
 import express.mvp.myra.codec.schema.SchemaVersion;
+import express.mvp.myra.codec.schema.SortOrder;
 import express.mvp.roray.ffm.utils.memory.*;
 import express.mvp.roray.ffm.utils.memory.BitSetView;
 import express.mvp.roray.ffm.utils.memory.Layouts;
 import java.io.IOException;
 import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import javax.lang.model.element.Modifier;
@@ -30,11 +49,23 @@ import javax.lang.model.element.Modifier;
 /** Generates Java source files from a resolved schema definition. */
 public final class StubGenerator {
 
+    // Perfect-hash search for sparse enum ids; see findIdHash.
+    private static final int ID_HASH_SEED = 0x9E3779B9;
+    private static final int ID_HASH_ATTEMPTS = 4096;
+    private static final int MAX_ID_HASH_BITS = 16;
+
+    // Bound on child views and nested builders below a top-level one, for recursive messages.
+    private static final int MAX_NESTING_DEPTH = 64;
+
     private final ResolvedSchemaDefinition schema;
     private final String flyweightSuffix = "Flyweight";
+    private final MapAccessorGenerator maps;
+    private final OneofAccessorGenerator oneofs;
 
     public StubGenerator(ResolvedSchemaDefinition schema) {
         this.schema = Objects.requireNonNull(schema);
+        this.maps = new MapAccessorGenerator(this);
+        this.oneofs = new OneofAccessorGenerator(schema.namespace(), this);
     }
 
     /**
@@ -47,10 +78,17 @@ public final class StubGenerator {
 
         // Generate a flyweight class for each message in the schema.
         for (ResolvedMessageDefinition message : schema.messages()) {
-            if (message.fields() != null && !message.fields().isEmpty()) {
+            if (!message.fields().isEmpty()
+                    || !message.oneofs().isEmpty()
+                    || !message.constants().isEmpty()) {
                 generatedFiles.add(generateMessageFlyweight(message));
                 // Also emit a minimal builder skeleton to support single-pass encoding.
                 generatedFiles.add(generateMessageBuilder(message));
+                if (!message.sparse()
+                        && message.oneofs().isEmpty()
+                        && message.fields().stream().allMatch(this::isFixedSize)) {
+                    generatedFiles.add(generateMessageTable(message));
+                }
             }
         }
 
@@ -88,11 +126,16 @@ public final class StubGenerator {
         List<ResolvedFieldDefinition> varFields =
                 message.fields().stream().filter(f -> !isFixedSize(f)).collect(Collectors.toList());
         Map<ResolvedFieldDefinition, Integer> optionalBits = optionalBitIndexes(message.fields());
-        int presenceBytes = optionalBits.isEmpty() ? 0 : (optionalBits.size() + 7) / 8;
+        MessageLayout layout = MessageLayout.of(schema, message);
+        int presenceBytes = layout.presenceBytes();
+        // Aligned messages read their fixed fields through aligned layouts; see MessageLayout.
+        ClassName layoutsClass =
+                message.aligned()
+                        ? ClassName.get(AlignedLayouts.class)
+                        : ClassName.get(Layouts.class);
 
         List<FieldSpec> constantFields = new ArrayList<>();
         List<FieldSpec> viewFields = new ArrayList<>();
-        int currentOffset = presenceBytes;
 
         if (presenceBytes > 0) {
             constantFields.add(
@@ -125,93 +168,193 @@ public final class StubGenerator {
                                                 Modifier.FINAL)
                                         .initializer("$L", index)
                                         .build()));
+        if (layout.sparseOffset() >= 0) {
+            constantFields.add(
+                    FieldSpec.builder(
+                                    int.class,
+                                    "SPARSE_OFFSET",
+                                    Modifier.PUBLIC,
+                                    Modifier.STATIC,
+                                    Modifier.FINAL)
+                            .initializer("$L", layout.sparseOffset())
+                            .build());
+        }
 
-        // Pass 1: Lay out all fixed-size fields first.
+        // Pass 1: Offsets of the fixed-size fields, as placed by MessageLayout.
+        // Views, iterators and child flyweights are created on first access (see addLazyView),
+        // so constructing a flyweight for a wide or self-referencing message allocates little.
+        List<MethodSpec> viewAccessors = new ArrayList<>();
         for (ResolvedFieldDefinition field : fixedFields) {
-            constantFields.add(createOffsetConstant(field.name(), currentOffset));
-            if (isFixedInlineUtf8(field)) {
-                viewFields.add(
+            MessageLayout.Slot slot = layout.slot(field.name());
+            if (slot.sparse()) {
+                // Sparse members have no fixed offset; see createSparseAccessors.
+                continue;
+            }
+            constantFields.add(createOffsetConstant(field.name(), slot.offset()));
+            if (slot.packed()) {
+                constantFields.add(
                         FieldSpec.builder(
-                                        Utf8View.class,
-                                        field.name() + "View",
-                                        Modifier.PRIVATE,
+                                        int.class,
+                                        constantName(field.name(), "SHIFT"),
+                                        Modifier.PUBLIC,
+                                        Modifier.STATIC,
+                                        Modifier.FINAL)
+                                .initializer("$L", slot.bitShift())
+                                .build());
+            }
+            if (field.fixedCount() != null) {
+                constantFields.add(
+                        FieldSpec.builder(
+                                        int.class,
+                                        constantName(field.name(), "COUNT"),
+                                        Modifier.PUBLIC,
+                                        Modifier.STATIC,
                                         Modifier.FINAL)
-                                .initializer("new $T()", Utf8View.class)
+                                .initializer("$L", field.fixedCount())
                                 .build());
             }
-            currentOffset += getFixedSize(field);
+            if (isFixedInlineUtf8(field) || field.dictionary()) {
+                addLazyView(
+                        viewFields,
+                        viewAccessors,
+                        ClassName.get(Utf8View.class),
+                        field.name() + "View",
+                        CodeBlock.of("new $T()", Utf8View.class));
+            } else if (isMessageType(field)) {
+                ClassName childFlyweight =
+                        ClassName.get(schema.namespace(), field.type() + flyweightSuffix);
+                addLazyView(
+                        viewFields,
+                        viewAccessors,
+                        childFlyweight,
+                        field.name() + "View",
+                        childView(message, field.type()));
+            }
         }
 
         // Pass 2: For each variable-length field, add a fixed-size header (offset + length)
-        // to the main flyweight block. Also create a reusable view field for zero-GC access.
-        int varHeaderSize = 8; // 4 bytes for data offset, 4 for data length
+        // to the main flyweight block. Also declare a reusable view for zero-GC access.
         for (ResolvedFieldDefinition field : varFields) {
-            constantFields.add(createOffsetConstant(field.name(), currentOffset));
-            currentOffset += varHeaderSize;
-
-            if (field.repeated()) {
+            constantFields.add(
+                    createOffsetConstant(field.name(), layout.slot(field.name()).offset()));
+
+            MapType map = MapType.parse(field.type());
+            if (map != null) {
+                addLazyView(
+                        viewFields,
+                        viewAccessors,
+                        ClassName.get(MapGroupView.class),
+                        field.name() + "Map",
+                        MapAccessorGenerator.newView(map));
+            } else if (field.repeated()) {
                 // Repeating groups use specialized iterators
                 if (isRepeatedPrimitiveOrEnum(field)) {
                     // Fixed-size elements use RepeatingGroupIterator
                     int elementSize = getRepeatedElementSize(field);
-                    viewFields.add(
-                            FieldSpec.builder(
-                                            RepeatingGroupIterator.class,
-                                            field.name() + "Iterator",
-                                            Modifier.PRIVATE,
-                                            Modifier.FINAL)
-                                    .initializer(
-                                            "new $T($L)", RepeatingGroupIterator.class, elementSize)
-                                    .build());
+                    addLazyView(
+                            viewFields,
+                            viewAccessors,
+                            ClassName.get(RepeatingGroupIterator.class),
+                            field.name() + "Iterator",
+                            CodeBlock.of("new $T($L)", RepeatingGroupIterator.class, elementSize));
                 } else {
                     // Variable-size elements (strings, messages, bytes) use
                     // VariableSizeRepeatingGroupIterator
-                    viewFields.add(
-                            FieldSpec.builder(
-                                            VariableSizeRepeatingGroupIterator.class,
-                                            field.name() + "Iterator",
-                                            Modifier.PRIVATE,
-                                            Modifier.FINAL)
-                                    .initializer(
-                                            "new $T()", VariableSizeRepeatingGroupIterator.class)
-                                    .build());
+                    addLazyView(
+                            viewFields,
+                            viewAccessors,
+                            ClassName.get(VariableSizeRepeatingGroupIterator.class),
+                            field.name() + "Iterator",
+                            CodeBlock.of("new $T()", VariableSizeRepeatingGroupIterator.class));
                     // Also add a flyweight view for nested messages
                     if (isMessageType(field)) {
                         ClassName childFlyweight =
                                 ClassName.get(schema.namespace(), field.type() + flyweightSuffix);
-                        viewFields.add(
-                                FieldSpec.builder(
-                                                childFlyweight,
-                                                field.name() + "View",
-                                                Modifier.PRIVATE,
-                                                Modifier.FINAL)
-                                        .initializer("new $T()", childFlyweight)
-                                        .build());
+                        addLazyView(
+                                viewFields,
+                                viewAccessors,
+                                childFlyweight,
+                                field.name() + "View",
+                                childView(message, field.type()));
                     }
                 }
             } else if (isMessageType(field)) {
                 ClassName childFlyweight =
                         ClassName.get(schema.namespace(), field.type() + flyweightSuffix);
-                viewFields.add(
-                        FieldSpec.builder(
-                                        childFlyweight,
-                                        field.name() + "View",
-                                        Modifier.PRIVATE,
-                                        Modifier.FINAL)
-                                .initializer("new $T()", childFlyweight)
-                                .build());
+                addLazyView(
+                        viewFields,
+                        viewAccessors,
+                        childFlyweight,
+                        field.name() + "View",
+                        childView(message, field.type()));
             } else {
-                viewFields.add(
+                addLazyView(
+                        viewFields,
+                        viewAccessors,
+                        ClassName.get(Utf8View.class),
+                        field.name() + "View",
+                        CodeBlock.of("new $T()", Utf8View.class));
+            }
+        }
+
+        // Pass 3: Each oneof has a discriminator byte and one var header shared by its options.
+        for (ResolvedOneofDefinition oneof : message.oneofs()) {
+            constantFields.add(
+                    createOffsetConstant(
+                            oneof.caseName(), layout.slot(oneof.caseName()).offset()));
+            constantFields.add(
+                    createOffsetConstant(oneof.name(), layout.slot(oneof.name()).offset()));
+            for (ResolvedFieldDefinition option : oneof.fields()) {
+                if (isMessageType(option)) {
+                    ClassName childFlyweight =
+                            ClassName.get(schema.namespace(), option.type() + flyweightSuffix);
+                    addLazyView(
+                            viewFields,
+                            viewAccessors,
+                            childFlyweight,
+                            option.name() + "View",
+                            childView(message, option.type()));
+                } else if (!isFixedSize(option)) {
+                    addLazyView(
+                            viewFields,
+                            viewAccessors,
+                            ClassName.get(Utf8View.class),
+                            option.name() + "View",
+                            CodeBlock.of("new $T()", Utf8View.class));
+                }
+            }
+        }
+
+        // Decimal fields publish their scale, which the stored long does not carry.
+        List<ResolvedFieldDefinition> allFields = new ArrayList<>(message.fields());
+        message.oneofs().forEach(oneof -> allFields.addAll(oneof.fields()));
+        for (ResolvedFieldDefinition field : allFields) {
+            int scale = RichType.decimalScale(field.type());
+            if (scale >= 0) {
+                constantFields.add(
                         FieldSpec.builder(
-                                        Utf8View.class,
-                                        field.name() + "View",
-                                        Modifier.PRIVATE,
+                                        int.class,
+                                        constantName(field.name(), "SCALE"),
+                                        Modifier.PUBLIC,
+                                        Modifier.STATIC,
                                         Modifier.FINAL)
-                                .initializer("new $T()", Utf8View.class)
+                                .initializer("$L", scale)
                                 .build());
             }
         }
 
+        // Constant fields have no bytes, only their value; defaulted fields publish the value
+        // they report while absent.
+        for (ResolvedFieldDefinition field : message.constants()) {
+            constantFields.add(createLiteralConstant(field, "CONSTANT", field.constant()));
+        }
+        for (ResolvedFieldDefinition field : message.fields()) {
+            if (field.defaultValue() != null) {
+                constantFields.add(
+                        createLiteralConstant(field, "DEFAULT", field.defaultValue()));
+            }
+        }
+
         // Add final constants for Template ID, Schema Version, and the fixed block length.
         constantFields.add(
                 FieldSpec.builder(
@@ -246,43 +389,87 @@ public final class StubGenerator {
                                 Modifier.PUBLIC,
                                 Modifier.STATIC,
                                 Modifier.FINAL)
-                        .initializer("$L", currentOffset)
+                        .initializer("$L", layout.blockLength())
                         .build());
 
         // --- 2. Generate Accessor and Core Flyweight Methods ---
         List<MethodSpec> methods = new ArrayList<>();
+        if (isRecursive(message.name())) {
+            addNestingDepth(flyweightClassName, message, constantFields, viewFields, methods);
+        }
         methods.add(createWrapMethod(presenceBytes > 0));
         methods.add(createSegmentMethod());
+        methods.add(createOffsetMethod());
         methods.add(createByteSizeMethod());
         methods.add(createIsWrappedMethod());
-        methods.add(createValidateMethod());
+        methods.add(createValidateMethod(message.aligned()));
 
         // Generate getters and setters for FIXED-SIZE fields.
         for (ResolvedFieldDefinition field : fixedFields) {
             String offsetConstantName = field.name().toUpperCase() + "_OFFSET";
-            if (isFixedInlineUtf8(field)) {
+            MessageLayout.Slot slot = layout.slot(field.name());
+            if (slot.sparse()) {
+                methods.addAll(createSparseAccessors(field, layout, slot));
+            } else if (slot.packed()) {
+                methods.addAll(createPackedAccessors(field, slot, layoutsClass));
+            } else if (isFixedInlineUtf8(field)) {
                 methods.add(createInlineUtf8Getter(field, offsetConstantName));
+            } else if (isMessageType(field)) {
+                ClassName childFlyweight =
+                        ClassName.get(schema.namespace(), field.type() + flyweightSuffix);
+                methods.add(createMessageFieldGetter(field, childFlyweight, offsetConstantName));
+            } else if (field.dictionary()) {
+                methods.addAll(createDictionaryAccessors(field, layoutsClass, offsetConstantName));
+            } else if (isTwoWord(field)) {
+                methods.addAll(createTwoWordAccessors(field, layoutsClass, offsetConstantName));
+            } else if (field.fixedCount() != null) {
+                methods.addAll(createFixedArrayAccessors(field, layoutsClass, offsetConstantName));
+            } else if (field.bitset()) {
+                methods.addAll(createBitsetAccessors(field, layoutsClass, offsetConstantName));
             } else {
                 TypeName fieldType = getJavaTypeName(field.type());
-                methods.add(
-                        createGetter(
-                                field.name(),
-                                fieldType,
-                                getLayoutConstantName(field.type()),
-                                offsetConstantName));
+                if (field.defaultValue() == null) {
+                    methods.add(
+                            createGetter(
+                                    field.name(),
+                                    fieldType,
+                                    layoutsClass,
+                                    getLayoutConstantName(field.type()),
+                                    offsetConstantName));
+                } else {
+                    methods.add(
+                            createDefaultedGetter(
+                                    field,
+                                    fieldType,
+                                    CodeBlock.of(
+                                            "segment.get($T.$L, this.offset + $L)",
+                                            layoutsClass,
+                                            getLayoutConstantName(field.type()),
+                                            offsetConstantName)));
+                }
                 methods.add(
                         createSetter(
                                 field.name(),
                                 fieldType,
+                                layoutsClass,
                                 getLayoutConstantName(field.type()),
-                                offsetConstantName));
+                                offsetConstantName,
+                                presenceBitConstant(field)));
+                if (field.concurrent()) {
+                    methods.addAll(
+                            createConcurrentAccessors(field.name(), fieldType, offsetConstantName));
+                }
+                methods.addAll(createRichAccessors(field));
             }
         }
 
         // Generate GETTERS ONLY for VARIABLE-LENGTH fields.
         for (ResolvedFieldDefinition field : varFields) {
             String offsetConstantName = field.name().toUpperCase() + "_OFFSET";
-            if (field.repeated()) {
+            MapType map = MapType.parse(field.type());
+            if (map != null) {
+                methods.addAll(maps.createGetters(field, map, offsetConstantName));
+            } else if (field.repeated()) {
                 // Generate repeating group accessors
                 methods.addAll(createRepeatingGroupGetters(field, offsetConstantName));
             } else if (isMessageType(field)) {
@@ -293,90 +480,164 @@ public final class StubGenerator {
                 methods.add(
                         createVarFieldGetter(
                                 field, ClassName.get(Utf8View.class), offsetConstantName));
+                if (field.slack() != null) {
+                    methods.addAll(createSlackAccessors(field, offsetConstantName));
+                }
             }
         }
 
+        for (ResolvedFieldDefinition field : message.constants()) {
+            methods.add(createConstantGetter(field));
+        }
+
+        List<TypeSpec> caseEnums = new ArrayList<>();
+        for (ResolvedOneofDefinition oneof : message.oneofs()) {
+            ClassName caseEnum = flyweightClassName.nestedClass(capitalize(oneof.caseName()));
+            caseEnums.add(oneofs.createCaseEnum(oneof, caseEnum));
+            methods.addAll(oneofs.createAccessors(oneof, caseEnum));
+        }
+
         if (!optionalBits.isEmpty()) {
             optionalBits.forEach(
                     (field, bit) -> methods.add(createPresenceChecker(field.name(), bit)));
         }
 
+        methods.addAll(createContentMethods(message, flyweightClassName));
+
         // --- 3. Generate the writeTo() serialization method ---
-        // The flyweight wraps already-serialized data in BinaryWriter format
-        // We need to write out the fields in the same format: varint length + bytes
+        // Var-length payloads are streamed straight from the wrapped segment to the writer
+        // (varint length + raw bytes), so re-serializing a flyweight never allocates.
         MethodSpec.Builder writeToMethodBuilder =
                 MethodSpec.methodBuilder("writeTo")
                         .addAnnotation(Override.class)
                         .addModifiers(Modifier.PUBLIC)
                         .addParameter(BinaryWriter.class, "writer");
 
-        // For each field, write using the appropriate writer method
         for (ResolvedFieldDefinition field : message.fields()) {
             String fieldName = field.name();
-            String getterCall = "this.get" + capitalize(fieldName) + "()";
-            String viewVar = fieldName + "ViewTmp";
-            String bytesVar = fieldName + "BytesTmp";
 
-            if (isMessageType(field)) {
+            if (!isFixedSize(field)) {
                 String offsetConst = field.name().toUpperCase() + "_OFFSET";
+                String relativeOffsetVar = fieldName + "RelativeOffset";
+                String lengthVar = fieldName + "Length";
                 writeToMethodBuilder
                         .addStatement(
-                                "final int relativeOffset = this.segment.get($T.INT_BE, this.offset"
-                                        + " + $L)",
+                                "final int $L = this.segment.get($T.INT_BE, this.offset + $L)",
+                                relativeOffsetVar,
                                 Layouts.class,
                                 offsetConst)
                         .addStatement(
-                                "final int nestedLength = this.segment.get($T.INT_BE, this.offset +"
-                                        + " $L + 4)",
+                                "final int $L = this.segment.get($T.INT_BE, this.offset + $L + 4)",
+                                lengthVar,
                                 Layouts.class,
                                 offsetConst)
-                        .addStatement("writer.writeVarInt(nestedLength)")
+                        .addStatement("writer.writeVarInt($L)", lengthVar)
                         .addStatement(
-                                "writer.writeSegmentRaw(this.segment, this.offset + relativeOffset,"
-                                        + " nestedLength)");
+                                "writer.writeSegmentRaw(this.segment, this.offset + $L, $L)",
+                                relativeOffsetVar,
+                                lengthVar);
                 continue;
             }
 
-            String writerMethod = getWriterMethodSuffix(field.type());
-
-            if ("String".equals(writerMethod)) {
-                writeToMethodBuilder.addStatement(
-                        "$T $L = $L", Utf8View.class, viewVar, getterCall);
+            if (field.dictionary()) {
+                // Dictionary fields are copied as their id; the peer shares the dictionary.
                 writeToMethodBuilder.addStatement(
-                        "byte[] $L = new byte[(int)$L.byteSize()]", bytesVar, viewVar);
-                writeToMethodBuilder.addStatement(
-                        "$T.copy($L.segment(), $L.offset(), $T.ofArray($L), 0, $L.byteSize())",
-                        MemorySegment.class,
-                        viewVar,
-                        viewVar,
-                        MemorySegment.class,
-                        bytesVar,
-                        viewVar);
-                writeToMethodBuilder.addStatement("writer.writeBytes($L)", bytesVar);
-            } else if ("Bytes".equals(writerMethod)) {
-                writeToMethodBuilder.addStatement(
-                        "$T $L = $L", Utf8View.class, viewVar, getterCall);
+                        "writer.writeIntBE(this.get$LId())", capitalize(fieldName));
+                continue;
+            }
+
+            if (isMessageType(field)) {
+                // Inline messages are streamed like var ones: length, then the nested block.
+                ClassName childFlyweight =
+                        ClassName.get(schema.namespace(), field.type() + flyweightSuffix);
+                writeToMethodBuilder
+                        .addStatement("writer.writeVarInt($T.BLOCK_LENGTH)", childFlyweight)
+                        .addStatement(
+                                "writer.writeSegmentRaw(this.segment, this.offset + $L,"
+                                        + " $T.BLOCK_LENGTH)",
+                                constantName(fieldName, "OFFSET"),
+                                childFlyweight);
+                continue;
+            }
+
+            if (isFixedInlineUtf8(field)) {
+                String viewVar = fieldName + "ViewTmp";
+                writeToMethodBuilder
+                        .addStatement(
+                                "final $T $L = this.get$L()",
+                                Utf8View.class,
+                                viewVar,
+                                capitalize(fieldName))
+                        .addStatement("writer.writeVarInt((int) $L.byteSize())", viewVar)
+                        .addStatement(
+                                "writer.writeSegmentRaw($L.segment(), $L.offset(), $L.byteSize())",
+                                viewVar,
+                                viewVar,
+                                viewVar);
+                continue;
+            }
+
+            if (field.fixedCount() != null) {
+                // Arrays have a constant length, so their big-endian elements go out as-is.
                 writeToMethodBuilder.addStatement(
-                        "byte[] $L = new byte[(int)$L.byteSize()]", bytesVar, viewVar);
+                        "writer.writeSegmentRaw(this.segment, this.offset + $L, $L)",
+                        constantName(fieldName, "OFFSET"),
+                        getFixedSize(field));
+                continue;
+            }
+
+            if (field.bitset()) {
                 writeToMethodBuilder.addStatement(
-                        "$T.copy($L.segment(), $L.offset(), $T.ofArray($L), 0, $L.byteSize())",
-                        MemorySegment.class,
-                        viewVar,
-                        viewVar,
-                        MemorySegment.class,
-                        bytesVar,
-                        viewVar);
-                writeToMethodBuilder.addStatement("writer.writeBytes($L)", bytesVar);
-            } else {
-                // For primitive and enum types, write directly
-                writeToMethodBuilder.addStatement("writer.write$L($L)", writerMethod, getterCall);
+                        "writer.writeLongBE(this.get$LBits())", capitalize(fieldName));
+                continue;
+            }
+
+            if (isTwoWord(field)) {
+                for (String word : wordSuffixes(RichType.of(field.type()))) {
+                    writeToMethodBuilder.addStatement(
+                            "writer.writeLongBE(this.get$L$L())", capitalize(fieldName), word);
+                }
+                continue;
             }
+
+            // For primitive and enum types, write directly
+            writeToMethodBuilder.addStatement(
+                    "writer.write$L(this.get$L())",
+                    getWriterMethodSuffix(field.type()),
+                    capitalize(fieldName));
+        }
+
+        for (ResolvedOneofDefinition oneof : message.oneofs()) {
+            // The case byte, then the selected option's bytes like a var field.
+            String relativeOffsetVar = oneof.name() + "RelativeOffset";
+            String lengthVar = oneof.name() + "Length";
+            String offsetConst = constantName(oneof.name(), "OFFSET");
+            writeToMethodBuilder
+                    .addStatement(
+                            "writer.writeByte(this.segment.get($T.BYTE, this.offset + $L))",
+                            Layouts.class,
+                            constantName(oneof.caseName(), "OFFSET"))
+                    .addStatement(
+                            "final int $L = this.segment.get($T.INT_BE, this.offset + $L)",
+                            relativeOffsetVar,
+                            Layouts.class,
+                            offsetConst)
+                    .addStatement(
+                            "final int $L = this.segment.get($T.INT_BE, this.offset + $L + 4)",
+                            lengthVar,
+                            Layouts.class,
+                            offsetConst)
+                    .addStatement("writer.writeVarInt($L)", lengthVar)
+                    .addStatement(
+                            "writer.writeSegmentRaw(this.segment, this.offset + $L, $L)",
+                            relativeOffsetVar,
+                            lengthVar);
         }
 
         methods.add(writeToMethodBuilder.build());
 
         // --- 4. Assemble the Final Class ---
-        TypeSpec flyweightClass =
+        TypeSpec.Builder flyweightClass =
                 TypeSpec.classBuilder(flyweightClassName)
                         .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
                         .addSuperinterface(FlyweightAccessor.class)
@@ -386,10 +647,14 @@ public final class StubGenerator {
 
                                 Provides direct access to binary data without deserialization overhead.
                                 Thread-safe for read operations when properly synchronized.
-
+                                $L
                                 @see FlyweightAccessor
                                 """,
-                                message.name())
+                                message.name(),
+                                message.aligned()
+                                        ? "\nUses the aligned layout: wrap only 8-byte aligned"
+                                                + " native memory.\n"
+                                        : "")
                         .addFields(constantFields)
                         .addField(
                                 FieldSpec.builder(MemorySegment.class, "segment", Modifier.PRIVATE)
@@ -397,9 +662,12 @@ public final class StubGenerator {
                         .addField(FieldSpec.builder(long.class, "offset", Modifier.PRIVATE).build())
                         .addFields(viewFields)
                         .addMethods(methods)
-                        .build();
+                        .addMethods(viewAccessors);
+        caseEnums.forEach(flyweightClass::addType);
 
-        return JavaFile.builder(schema.namespace(), flyweightClass).indent("    ").build();
+        return JavaFile.builder(schema.namespace(), flyweightClass.build())
+                .indent("    ")
+                .build();
     }
 
     /** Generates a write-once builder for a message that enforces single-pass encoding. */
@@ -422,8 +690,12 @@ public final class StubGenerator {
                         "express.mvp.roray.ffm.utils.memory", "VarFieldWriter", "NestedFieldHandle");
 
         List<ResolvedFieldDefinition> fields = message.fields();
-        int totalFields = fields.size();
-        int varFieldCount = (int) fields.stream().filter(f -> !isFixedSize(f)).count();
+        MessageLayout layout = MessageLayout.of(schema, message);
+        // Each oneof counts as one field and one var field: it is written once, by any option.
+        int totalFields = fields.size() + message.oneofs().size();
+        int varFieldCount =
+                (int) fields.stream().filter(f -> !isFixedSize(f)).count()
+                        + message.oneofs().size();
         Map<ResolvedFieldDefinition, Integer> optionalBits = optionalBitIndexes(fields);
         int presenceBytes = optionalBits.isEmpty() ? 0 : (optionalBits.size() + 7) / 8;
 
@@ -463,10 +735,13 @@ public final class StubGenerator {
                         .build());
 
         // Field name metadata for error reporting
+        List<String> fieldNames = new ArrayList<>();
+        fields.forEach(f -> fieldNames.add(f.name()));
+        message.oneofs().forEach(o -> fieldNames.add(o.name()));
         CodeBlock.Builder namesInit = CodeBlock.builder().add("{\n");
-        for (int i = 0; i < fields.size(); i++) {
-            namesInit.add("    $S", fields.get(i).name());
-            if (i < fields.size() - 1) {
+        for (int i = 0; i < fieldNames.size(); i++) {
+            namesInit.add("    $S", fieldNames.get(i));
+            if (i < fieldNames.size() - 1) {
                 namesInit.add(",\n");
             }
         }
@@ -525,6 +800,17 @@ public final class StubGenerator {
                 varSlotMap.put(field, varSlot);
                 varSlot++;
             }
+            if (field.slack() != null) {
+                builder.addField(
+                        FieldSpec.builder(
+                                        int.class,
+                                        constantName(field.name(), "SLACK"),
+                                        Modifier.PRIVATE,
+                                        Modifier.STATIC,
+                                        Modifier.FINAL)
+                                .initializer("$L", field.slack())
+                                .build());
+            }
             if (isFixedInlineUtf8(field)) {
                 builder.addField(
                         FieldSpec.builder(
@@ -538,38 +824,58 @@ public final class StubGenerator {
             }
             fieldIdx++;
         }
+        for (ResolvedOneofDefinition oneof : message.oneofs()) {
+            builder.addField(
+                    FieldSpec.builder(
+                                    int.class,
+                                    constantName(oneof.name(), "INDEX"),
+                                    Modifier.PRIVATE,
+                                    Modifier.STATIC,
+                                    Modifier.FINAL)
+                            .initializer("$L", fieldIdx++)
+                            .build());
+            builder.addField(
+                    FieldSpec.builder(
+                                    int.class,
+                                    constantName(oneof.name(), "VAR_SLOT"),
+                                    Modifier.PRIVATE,
+                                    Modifier.STATIC,
+                                    Modifier.FINAL)
+                            .initializer("$L", varSlot++)
+                            .build());
+        }
 
-        CodeBlock requiredInitializer;
-        if (requiredIndexes.isEmpty()) {
-            requiredInitializer = CodeBlock.of("new int[0]");
-        } else {
-            CodeBlock.Builder requiredBuilder = CodeBlock.builder().add("new int[] { ");
-            for (int i = 0; i < requiredIndexes.size(); i++) {
-                requiredBuilder.add("$L", requiredIndexes.get(i));
-                if (i < requiredIndexes.size() - 1) {
-                    requiredBuilder.add(", ");
-                }
-            }
-            requiredBuilder.add(" }");
-            requiredInitializer = requiredBuilder.build();
+        // Written and required fields are tracked as bit masks, one long per 64 fields, so
+        // verifying a 1,000-field message checks 16 words rather than every required index.
+        long[] requiredMask = new long[(totalFields + 63) >>> 6];
+        for (int index : requiredIndexes) {
+            requiredMask[index >>> 6] |= 1L << index;
+        }
+        CodeBlock.Builder requiredBuilder = CodeBlock.builder().add("new long[] { ");
+        for (int i = 0; i < requiredMask.length; i++) {
+            requiredBuilder.add(i == 0 ? "0x$LL" : ", 0x$LL", Long.toHexString(requiredMask[i]));
         }
         builder.addField(
                 FieldSpec.builder(
-                                ArrayTypeName.of(int.class),
-                                "REQUIRED_FIELD_INDEXES",
+                                ArrayTypeName.of(long.class),
+                                "REQUIRED_MASK",
                                 Modifier.PRIVATE,
                                 Modifier.STATIC,
                                 Modifier.FINAL)
-                        .initializer(requiredInitializer)
+                        .initializer(requiredBuilder.add(" }").build())
                         .build());
+        List<MessageLayout.Slot> sparseSlots =
+                layout.slots().stream().filter(MessageLayout.Slot::sparse).toList();
+        if (!sparseSlots.isEmpty()) {
+            addSparseStaging(builder, sparseSlots, layoutsClass, flyweightClassName);
+        }
 
         // Instance fields
         builder.addField(
                 FieldSpec.builder(encoderClass, "encoder", Modifier.PRIVATE, Modifier.FINAL)
                         .build());
         builder.addField(
-                FieldSpec.builder(MemorySegment.class, "segment", Modifier.PRIVATE, Modifier.FINAL)
-                        .build());
+                FieldSpec.builder(MemorySegment.class, "segment", Modifier.PRIVATE).build());
         builder.addField(
                 FieldSpec.builder(long.class, "payloadBase", Modifier.PRIVATE, Modifier.FINAL)
                         .build());
@@ -578,21 +884,23 @@ public final class StubGenerator {
                         .build());
         builder.addField(
                 FieldSpec.builder(
-                                ArrayTypeName.of(boolean.class),
+                                ArrayTypeName.of(long.class),
                                 "written",
                                 Modifier.PRIVATE,
                                 Modifier.FINAL)
                         .build());
         builder.addField(
-                FieldSpec.builder(
-                                varFieldWriterClass, "varWriter", Modifier.PRIVATE, Modifier.FINAL)
-                        .build());
+                FieldSpec.builder(varFieldWriterClass, "varWriter", Modifier.PRIVATE).build());
         builder.addField(
                 FieldSpec.builder(
                                 BitSetView.class, "presenceBits", Modifier.PRIVATE, Modifier.FINAL)
                         .build());
         builder.addField(FieldSpec.builder(boolean.class, "built", Modifier.PRIVATE).build());
         builder.addField(FieldSpec.builder(long.class, "frameLength", Modifier.PRIVATE).build());
+        if (isRecursive(message.name())) {
+            // Package-private: set by the parent builder that nests this one.
+            builder.addField(FieldSpec.builder(int.class, "depth").build());
+        }
 
         // Static allocator
         builder.addMethod(
@@ -627,15 +935,33 @@ public final class StubGenerator {
                                 "this.encoder = inline ? encoder : $T.requireNonNull(encoder,"
                                         + " \"encoder\")",
                                 objectsClass)
-                        .addStatement(
-                                "this.segment = $T.requireNonNull(segment, \"segment\")",
-                                objectsClass)
                         .addStatement(
                                 "this.payloadBase = inline ? 0L : $T.HEADER_SIZE",
                                 messageHeaderClass)
-                        .addStatement("this.written = new boolean[TOTAL_FIELDS]");
+                        .addStatement("this.written = new long[(TOTAL_FIELDS + 63) >>> 6]");
+        if (presenceBytes > 0) {
+            ctor.addStatement("this.presenceBits = new $T()", BitSetView.class);
+        } else {
+            ctor.addStatement("this.presenceBits = null");
+        }
+        ctor.addStatement("reset(segment)");
+        builder.addMethod(ctor.build());
+
+        // Everything that depends on the target segment, so that a parent can point one nested
+        // builder at each of its values in turn; see addNestedBuilderPool.
+        MethodSpec.Builder reset =
+                MethodSpec.methodBuilder("reset")
+                        .addJavadoc(
+                                "Points this builder at a new target, forgetting everything"
+                                        + " written so far.\n")
+                        .addParameter(MemorySegment.class, "target")
+                        .addStatement(
+                                "this.segment = $T.requireNonNull(target, \"segment\")",
+                                objectsClass)
+                        .addStatement("$T.fill(this.written, 0L)", Arrays.class)
+                        .addStatement("this.built = false");
         if (varFieldCount > 0) {
-            ctor.addStatement(
+            reset.addStatement(
                             "$T body = segment.asSlice(this.payloadBase, segment.byteSize() -"
                                     + " this.payloadBase)",
                             MemorySegment.class)
@@ -644,22 +970,36 @@ public final class StubGenerator {
                                     + " VAR_FIELD_COUNT)",
                             varFieldWriterClass,
                             flyweightClassName)
-                    .addStatement(
-                            "for (int i = 0; i < VAR_FIELD_COUNT; i++) {$>\n"
-                                    + "this.varWriter.reserveVarField();\n"
-                                    + "$<}");
-        } else {
-            ctor.addStatement("this.varWriter = null");
+                    .beginControlFlow("for (int i = 0; i < VAR_FIELD_COUNT; i++)")
+                    .addStatement("this.varWriter.reserveVarField()")
+                    .endControlFlow();
         }
         if (presenceBytes > 0) {
-            ctor.addStatement("this.presenceBits = new $T()", BitSetView.class)
-                    .addStatement(
-                            "this.presenceBits.wrap(segment, this.payloadBase, PRESENCE_BYTES)")
+            reset.addStatement("this.presenceBits.wrap(segment, this.payloadBase, PRESENCE_BYTES)")
                     .addStatement("this.presenceBits.clearAll()");
-        } else {
-            ctor.addStatement("this.presenceBits = null");
         }
-        builder.addMethod(ctor.build());
+        layout.slots().stream()
+                .filter(MessageLayout.Slot::packed)
+                .findFirst()
+                .ifPresent(
+                        slot ->
+                                // Setters read-modify-write the bitfield word, so start it at 0.
+                                reset.addStatement(
+                                        "segment.set($T.$L, payloadBase + $T.$L, ($T) 0)",
+                                        layoutsClass,
+                                        getLayoutConstantName(slot.wordType()),
+                                        flyweightClassName,
+                                        constantName(slot.name(), "OFFSET"),
+                                        getJavaTypeName(slot.wordType())));
+        for (ResolvedOneofDefinition oneof : message.oneofs()) {
+            reset.addStatement(
+                    "segment.set($T.BYTE, payloadBase + $T.$L, (byte) 0)",
+                    layoutsClass,
+                    flyweightClassName,
+                    constantName(oneof.caseName(), "OFFSET"));
+        }
+        builder.addMethod(reset.build());
+        addNestedBuilderPool(builder, message);
 
         // Helper methods
         builder.addMethod(
@@ -671,7 +1011,8 @@ public final class StubGenerator {
                         .addStatement(
                                 "throw new IllegalStateException(\"Builder already finalized\")")
                         .endControlFlow()
-                        .beginControlFlow("if (written[fieldIndex])")
+                        .beginControlFlow(
+                                "if ((written[fieldIndex >>> 6] & (1L << fieldIndex)) != 0)")
                         .addStatement(
                                 "throw new IllegalStateException(\"Field '"
                                         + "\" + fieldName + \"' already written\")")
@@ -682,17 +1023,19 @@ public final class StubGenerator {
                 MethodSpec.methodBuilder("markWritten")
                         .addModifiers(Modifier.PRIVATE)
                         .addParameter(int.class, "fieldIndex")
-                        .addStatement("written[fieldIndex] = true")
+                        .addStatement("written[fieldIndex >>> 6] |= 1L << fieldIndex")
                         .build());
 
         builder.addMethod(
                 MethodSpec.methodBuilder("verifyRequiredFields")
                         .addModifiers(Modifier.PRIVATE)
-                        .beginControlFlow("for (int idx : REQUIRED_FIELD_INDEXES)")
-                        .beginControlFlow("if (!written[idx])")
+                        .beginControlFlow("for (int i = 0; i < REQUIRED_MASK.length; i++)")
+                        .addStatement("final long missing = REQUIRED_MASK[i] & ~written[i]")
+                        .beginControlFlow("if (missing != 0)")
                         .addStatement(
                                 "throw new IllegalStateException(\"Missing required field: \" +"
-                                        + " FIELD_NAMES[idx])")
+                                        + " FIELD_NAMES[(i << 6) +"
+                                        + " Long.numberOfTrailingZeros(missing)])")
                         .endControlFlow()
                         .endControlFlow()
                         .build());
@@ -736,7 +1079,10 @@ public final class StubGenerator {
                                         + " build()\")")
                         .endControlFlow()
                         .addStatement("verifyRequiredFields()")
-                        .addStatement("long payloadSize = bodySize()")
+                        .addStatement(
+                                sparseSlots.isEmpty()
+                                        ? "long payloadSize = bodySize()"
+                                        : "long payloadSize = finishSparse(bodySize())")
                         .addStatement(
                                 "long targetLength = $T.HEADER_SIZE + payloadSize",
                                 messageHeaderClass)
@@ -762,17 +1108,55 @@ public final class StubGenerator {
                                 "throw new IllegalStateException(\"Builder already finalized\")")
                         .endControlFlow()
                         .addStatement("verifyRequiredFields()")
-                        .addStatement("long payloadSize = bodySize()")
+                        .addStatement(
+                                sparseSlots.isEmpty()
+                                        ? "long payloadSize = bodySize()"
+                                        : "long payloadSize = finishSparse(bodySize())")
                         .addStatement("this.built = true")
                         .addStatement("return payloadSize")
                         .build());
 
+        if (fields.stream().anyMatch(f -> f.slack() != null)) {
+            builder.addMethod(
+                    MethodSpec.methodBuilder("writeWithSlack")
+                            .addModifiers(Modifier.PRIVATE)
+                            .addParameter(int.class, "varSlot")
+                            .addParameter(int.class, "headerOffset")
+                            .addParameter(MemorySegment.class, "source")
+                            .addParameter(long.class, "length")
+                            .addParameter(int.class, "slack")
+                            .addStatement(
+                                    "$T handle = varWriter.beginNestedField(varSlot)",
+                                    nestedHandleClass)
+                            .addStatement("long relativeOffset = handle.relativeOffset()")
+                            .addStatement("long base = payloadBase + relativeOffset")
+                            .addStatement("int capacity = (int) length + slack")
+                            .addStatement("segment.set($T.INT_BE, base, capacity)", layoutsClass)
+                            .addStatement(
+                                    "$T.copy(source, 0, segment, base + 4, length)",
+                                    MemorySegment.class)
+                            .addStatement(
+                                    "segment.asSlice(base + 4 + length, slack).fill((byte) 0)")
+                            .addStatement("handle.finish(4L + capacity)")
+                            .addComment("Point the header past the capacity prefix.")
+                            .addStatement(
+                                    "segment.set($T.INT_BE, payloadBase + headerOffset, (int)"
+                                            + " relativeOffset + 4)",
+                                    layoutsClass)
+                            .addStatement(
+                                    "segment.set($T.INT_BE, payloadBase + headerOffset + 4, (int)"
+                                            + " length)",
+                                    layoutsClass)
+                            .build());
+        }
+
         // Generate setters per field
         for (ResolvedFieldDefinition field : fields) {
             builder.addMethod(
                     createBuilderSetter(
                             builderClassName,
                             field,
+                            layout.slot(field.name()),
                             fieldIndexMap.get(field),
                             varSlotMap.get(field),
                             optionalBits.get(field),
@@ -781,12 +1165,197 @@ public final class StubGenerator {
                             objectsClass,
                             varFieldWriterClass,
                             nestedHandleClass));
+            RichType rich = RichType.of(field.type());
+            if ((rich == RichType.ASCII8 || rich == RichType.ASCII16) && !field.repeated()) {
+                builder.addMethod(createPackedAsciiSetter(builderClassName, field, rich));
+            }
+            if (field.bitset()) {
+                builder.addMethod(createBitsetSetter(builderClassName, field));
+            }
+        }
+        for (ResolvedOneofDefinition oneof : message.oneofs()) {
+            for (int i = 0; i < oneof.fields().size(); i++) {
+                builder.addMethod(
+                        oneofs.createSetter(
+                                builderClassName,
+                                oneof,
+                                oneof.fields().get(i),
+                                i + 1,
+                                layoutsClass,
+                                flyweightClassName,
+                                objectsClass,
+                                nestedHandleClass));
+            }
         }
 
         return JavaFile.builder(schema.namespace(), builder.build()).indent("    ").build();
     }
 
-    /** Generates a Java enum class from a schema definition. */
+    /**
+     * Generates an off-heap table of rows for a message whose fields are all fixed-size. Rows sit
+     * back to back at a {@code BLOCK_LENGTH} stride and are read and written through a single
+     * reusable flyweight cursor, so the flyweight's offset constants double as column offsets.
+     */
+    private JavaFile generateMessageTable(ResolvedMessageDefinition message) {
+        String tableName = message.name() + "Table";
+        ClassName flyweightClass =
+                ClassName.get(schema.namespace(), message.name() + flyweightSuffix);
+        ClassName rowsClass = ClassName.get(FixedStrideTable.class);
+        TypeName actionType =
+                ParameterizedTypeName.get(ClassName.get(Consumer.class), flyweightClass);
+
+        TypeSpec table =
+                TypeSpec.classBuilder(tableName)
+                        .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                        .addSuperinterface(AutoCloseable.class)
+                        .addJavadoc(
+                                """
+                                Auto-generated off-heap table of $L rows.
+
+                                Rows are stored without frame headers at a fixed stride of
+                                {@link $T#BLOCK_LENGTH} bytes. {@link #row(int)} re-wraps one
+                                reusable cursor, so hold at most one row at a time. Not
+                                thread-safe.
+                                """,
+                                message.name(),
+                                flyweightClass)
+                        .addField(
+                                FieldSpec.builder(
+                                                int.class,
+                                                "ROW_SIZE",
+                                                Modifier.PUBLIC,
+                                                Modifier.STATIC,
+                                                Modifier.FINAL)
+                                        .initializer("$T.BLOCK_LENGTH", flyweightClass)
+                                        .build())
+                        .addField(rowsClass, "rows", Modifier.PRIVATE, Modifier.FINAL)
+                        .addField(
+                                FieldSpec.builder(
+                                                flyweightClass,
+                                                "cursor",
+                                                Modifier.PRIVATE,
+                                                Modifier.FINAL)
+                                        .initializer("new $T()", flyweightClass)
+                                        .build())
+                        .addMethod(
+                                MethodSpec.constructorBuilder()
+                                        .addJavadoc(
+                                                "@param initialRows initial row capacity; the"
+                                                        + " table grows on demand\n")
+                                        .addModifiers(Modifier.PUBLIC)
+                                        .addParameter(int.class, "initialRows")
+                                        .addStatement(
+                                                "this.rows = new $T(ROW_SIZE, initialRows)",
+                                                rowsClass)
+                                        .build())
+                        .addMethod(
+                                MethodSpec.methodBuilder("add")
+                                        .addJavadoc(
+                                                "Allocates a zeroed row, reusing a removed one"
+                                                        + " first, and returns its index.\n")
+                                        .addModifiers(Modifier.PUBLIC)
+                                        .returns(int.class)
+                                        .addStatement("return rows.allocate()")
+                                        .build())
+                        .addMethod(
+                                MethodSpec.methodBuilder("row")
+                                        .addJavadoc(
+                                                "Wraps the cursor over a live row and returns"
+                                                        + " it.\n")
+                                        .addModifiers(Modifier.PUBLIC)
+                                        .returns(flyweightClass)
+                                        .addParameter(int.class, "index")
+                                        .beginControlFlow("if (!rows.isLive(index))")
+                                        .addStatement(
+                                                "throw new $T(\"Row \" + index + \" is not"
+                                                        + " live\")",
+                                                IndexOutOfBoundsException.class)
+                                        .endControlFlow()
+                                        .addStatement(
+                                                "cursor.wrap(rows.segment(),"
+                                                        + " rows.rowOffset(index))")
+                                        .addStatement("return cursor")
+                                        .build())
+                        .addMethod(
+                                MethodSpec.methodBuilder("remove")
+                                        .addJavadoc("Releases a row for reuse.\n")
+                                        .addModifiers(Modifier.PUBLIC)
+                                        .addParameter(int.class, "index")
+                                        .addStatement("rows.free(index)")
+                                        .build())
+                        .addMethod(
+                                MethodSpec.methodBuilder("nextRow")
+                                        .addJavadoc(
+                                                "Returns the first live row at or after {@code"
+                                                        + " from}, or -1.\n")
+                                        .addModifiers(Modifier.PUBLIC)
+                                        .returns(int.class)
+                                        .addParameter(int.class, "from")
+                                        .addStatement("return rows.nextLive(from)")
+                                        .build())
+                        .addMethod(
+                                MethodSpec.methodBuilder("forEach")
+                                        .addJavadoc(
+                                                "Visits every live row in index order through"
+                                                        + " the cursor.\n")
+                                        .addModifiers(Modifier.PUBLIC)
+                                        .addParameter(actionType, "action")
+                                        .addStatement(
+                                                "final $T segment = rows.segment()",
+                                                MemorySegment.class)
+                                        .addStatement("final int limit = rows.highWaterMark()")
+                                        .beginControlFlow(
+                                                "for (int base = 0; base < limit; base += 64)")
+                                        .addStatement("long word = rows.liveWord(base >>> 6)")
+                                        .beginControlFlow("while (word != 0)")
+                                        .addStatement(
+                                                "final int index = base +"
+                                                        + " Long.numberOfTrailingZeros(word)")
+                                        .addStatement("word &= word - 1")
+                                        .addStatement(
+                                                "cursor.wrap(segment, (long) index * ROW_SIZE)")
+                                        .addStatement("action.accept(cursor)")
+                                        .endControlFlow()
+                                        .endControlFlow()
+                                        .build())
+                        .addMethod(
+                                MethodSpec.methodBuilder("size")
+                                        .addJavadoc("Returns the number of live rows.\n")
+                                        .addModifiers(Modifier.PUBLIC)
+                                        .returns(int.class)
+                                        .addStatement("return rows.size()")
+                                        .build())
+                        .addMethod(
+                                MethodSpec.methodBuilder("reservedBytes")
+                                        .addJavadoc("Returns the off-heap bytes reserved.\n")
+                                        .addModifiers(Modifier.PUBLIC)
+                                        .returns(long.class)
+                                        .addStatement("return rows.reservedBytes()")
+                                        .build())
+                        .addMethod(
+                                MethodSpec.methodBuilder("clear")
+                                        .addJavadoc("Removes every row.\n")
+                                        .addModifiers(Modifier.PUBLIC)
+                                        .addStatement("rows.clear()")
+                                        .build())
+                        .addMethod(
+                                MethodSpec.methodBuilder("close")
+                                        .addAnnotation(Override.class)
+                                        .addModifiers(Modifier.PUBLIC)
+                                        .addStatement("rows.close()")
+                                        .build())
+                        .build();
+
+        return JavaFile.builder(schema.namespace(), table).indent("    ").build();
+    }
+
+    /**
+     * Generates a Java enum class from a schema definition. Decoding an id never scans {@code
+     * values()}: dense ids index an array, and sparse or negative ids go through a
+     * multiplicative perfect hash found at generation time, or a binary search if none fits.
+     * Names are looked up from UTF-8 bytes through an open-addressing table, and enums whose ids
+     * all lie in {@code [0, 63]} expose a {@code bit()} for bitset fields.
+     */
     private JavaFile generateEnum(ResolvedEnumDefinition enumDef) {
         ClassName enumClass = ClassName.get(schema.namespace(), enumDef.name());
         TypeSpec.Builder enumBuilder =
@@ -797,16 +1366,21 @@ public final class StubGenerator {
                                 Auto-generated enum for $L.
 
                                 Provides type-safe enumeration with stable integer IDs for wire format.
-                                Uses O(1) array lookup via {@link #fromId(int)} for high-performance decoding.
+                                Uses O(1) lookup via {@link #fromId(int)} for high-performance decoding.
                                 """,
                                 enumDef.name());
 
         // Add enum fields and constructor
         enumBuilder.addField(int.class, "id", Modifier.PRIVATE, Modifier.FINAL);
+        enumBuilder.addField(MemorySegment.class, "nameBytes", Modifier.PRIVATE, Modifier.FINAL);
         enumBuilder.addMethod(
                 MethodSpec.constructorBuilder()
                         .addParameter(int.class, "id")
                         .addStatement("this.id = id")
+                        .addStatement(
+                                "this.nameBytes = $T.ofArray(name().getBytes($T.UTF_8))",
+                                MemorySegment.class,
+                                StandardCharsets.class)
                         .build());
         enumBuilder.addMethod(
                 MethodSpec.methodBuilder("id")
@@ -828,6 +1402,9 @@ public final class StubGenerator {
             maxId = Math.max(maxId, value.id());
         }
 
+        // The id and name tables are filled by a single static initializer.
+        CodeBlock.Builder staticBlock = CodeBlock.builder();
+
         // Add O(1) lookup array for non-negative, reasonably-sized ID ranges
         // We use an array indexed by ID for constant-time lookup
         if (minId >= 0 && maxId < 1024) { // Reasonable limit to avoid huge arrays
@@ -844,13 +1421,11 @@ public final class StubGenerator {
                                     Modifier.FINAL)
                             .build());
 
-            // Add static initializer to populate the array
-            CodeBlock.Builder staticBlock = CodeBlock.builder();
+            // Populate the array in the static initializer
             staticBlock.addStatement("VALUES_BY_ID = new $T[$L]", enumClass, arraySize);
             staticBlock.beginControlFlow("for ($T e : values())", enumClass);
             staticBlock.addStatement("VALUES_BY_ID[e.id] = e");
             staticBlock.endControlFlow();
-            enumBuilder.addStaticBlock(staticBlock.build());
 
             // Add O(1) fromId method
             enumBuilder.addMethod(
@@ -906,56 +1481,246 @@ public final class StubGenerator {
                             .build());
 
         } else {
-            // For large or negative ID ranges, fall back to linear search
+            addSparseIdLookup(enumBuilder, enumClass, enumDef, staticBlock);
+        }
+
+        if (minId >= 0 && maxId < Long.SIZE) {
             enumBuilder.addMethod(
-                    MethodSpec.methodBuilder("fromId")
-                            .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
-                            .addParameter(int.class, "id")
-                            .returns(enumClass)
+                    MethodSpec.methodBuilder("bit")
+                            .addModifiers(Modifier.PUBLIC)
+                            .returns(long.class)
                             .addJavadoc(
-                                    """
-                                    Returns the enum constant for the given wire-format ID.
-
-                                    @param id the wire-format integer ID
-                                    @return the corresponding enum constant
-                                    @throws IllegalArgumentException if id is unknown
-                                    """)
-                            .beginControlFlow("for ($T e : values())", enumClass)
-                            .beginControlFlow("if (e.id == id)")
-                            .addStatement("return e")
-                            .endControlFlow()
-                            .endControlFlow()
-                            .addStatement(
-                                    "throw new IllegalArgumentException(\"Unknown enum id: \" +"
-                                            + " id)")
+                                    "Returns this value's bit in a bitset field.\n"
+                                            + "@return {@code 1L << id()}")
+                            .addStatement("return 1L << this.id")
                             .build());
+        }
+        addNameLookup(enumBuilder, enumClass, enumDef.values().size(), staticBlock);
+        enumBuilder.addStaticBlock(staticBlock.build());
 
-            enumBuilder.addMethod(
-                    MethodSpec.methodBuilder("fromIdOrNull")
-                            .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
-                            .addParameter(int.class, "id")
-                            .returns(enumClass)
-                            .addAnnotation(
-                                    AnnotationSpec.builder(SuppressWarnings.class)
-                                            .addMember("value", "$S", "unused")
-                                            .build())
-                            .addJavadoc(
-                                    """
-                                    Returns the enum constant for the given wire-format ID, or null if unknown.
+        return JavaFile.builder(schema.namespace(), enumBuilder.build()).indent("    ").build();
+    }
 
-                                    @param id the wire-format integer ID
-                                    @return the corresponding enum constant, or null if id is unknown
-                                    """)
-                            .beginControlFlow("for ($T e : values())", enumClass)
-                            .beginControlFlow("if (e.id == id)")
-                            .addStatement("return e")
-                            .endControlFlow()
-                            .endControlFlow()
-                            .addStatement("return null")
+    /**
+     * Adds {@code fromId}/{@code fromIdOrNull} for ids too sparse for a dense array. The ids are
+     * known here, so a multiplier is searched for that sends every id to its own slot of a
+     * power-of-two table, {@code (id * M) >>> (32 - bits)}; decoding is then one multiply, one
+     * load and one compare. If no multiplier is found the ids are binary-searched instead. The
+     * tables are filled by statements appended to {@code staticBlock}.
+     */
+    private static void addSparseIdLookup(
+            TypeSpec.Builder enumBuilder,
+            ClassName enumClass,
+            ResolvedEnumDefinition enumDef,
+            CodeBlock.Builder staticBlock) {
+        int[] ids = enumDef.values().stream().mapToInt(EnumValueDefinition::id).toArray();
+        int[] hash = findIdHash(ids);
+        ArrayTypeName arrayType = ArrayTypeName.of(enumClass);
+        MethodSpec.Builder fromIdOrNull =
+                MethodSpec.methodBuilder("fromIdOrNull")
+                        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                        .addParameter(int.class, "id")
+                        .returns(enumClass)
+                        .addJavadoc(
+                                """
+                                Returns the enum constant for the given wire-format ID, or null if unknown.
+
+                                @param id the wire-format integer ID
+                                @return the corresponding enum constant, or null if id is unknown
+                                """);
+        if (hash != null) {
+            enumBuilder.addField(
+                    FieldSpec.builder(
+                                    int.class,
+                                    "ID_HASH_MULTIPLIER",
+                                    Modifier.PRIVATE,
+                                    Modifier.STATIC,
+                                    Modifier.FINAL)
+                            .initializer("0x$L", Integer.toHexString(hash[0]))
+                            .build());
+            enumBuilder.addField(
+                    FieldSpec.builder(
+                                    int.class,
+                                    "ID_HASH_SHIFT",
+                                    Modifier.PRIVATE,
+                                    Modifier.STATIC,
+                                    Modifier.FINAL)
+                            .initializer("$L", Integer.SIZE - hash[1])
+                            .build());
+            enumBuilder.addField(
+                    FieldSpec.builder(
+                                    arrayType,
+                                    "VALUES_BY_HASH",
+                                    Modifier.PRIVATE,
+                                    Modifier.STATIC,
+                                    Modifier.FINAL)
+                            .initializer("new $T[$L]", enumClass, 1 << hash[1])
+                            .build());
+            staticBlock
+                    .beginControlFlow("for ($T e : values())", enumClass)
+                    .addStatement(
+                            "VALUES_BY_HASH[(e.id * ID_HASH_MULTIPLIER) >>> ID_HASH_SHIFT] = e")
+                    .endControlFlow();
+            fromIdOrNull
+                    .addStatement(
+                            "$T e = VALUES_BY_HASH[(id * ID_HASH_MULTIPLIER) >>> ID_HASH_SHIFT]",
+                            enumClass)
+                    .addStatement("return e != null && e.id == id ? e : null");
+        } else {
+            enumBuilder.addField(
+                    FieldSpec.builder(
+                                    int[].class,
+                                    "SORTED_IDS",
+                                    Modifier.PRIVATE,
+                                    Modifier.STATIC,
+                                    Modifier.FINAL)
+                            .initializer("new int[$L]", ids.length)
+                            .build());
+            enumBuilder.addField(
+                    FieldSpec.builder(
+                                    arrayType,
+                                    "VALUES_BY_SORTED_ID",
+                                    Modifier.PRIVATE,
+                                    Modifier.STATIC,
+                                    Modifier.FINAL)
+                            .initializer("values().clone()")
                             .build());
+            staticBlock
+                    .addStatement(
+                            "$T.sort(VALUES_BY_SORTED_ID, (a, b) -> Integer.compare(a.id, b.id))",
+                            Arrays.class)
+                    .beginControlFlow("for (int i = 0; i < SORTED_IDS.length; i++)")
+                    .addStatement("SORTED_IDS[i] = VALUES_BY_SORTED_ID[i].id")
+                    .endControlFlow();
+            fromIdOrNull
+                    .addStatement("int index = $T.binarySearch(SORTED_IDS, id)", Arrays.class)
+                    .addStatement("return index >= 0 ? VALUES_BY_SORTED_ID[index] : null");
         }
+        enumBuilder.addMethod(
+                MethodSpec.methodBuilder("fromId")
+                        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                        .addParameter(int.class, "id")
+                        .returns(enumClass)
+                        .addJavadoc(
+                                """
+                                Returns the enum constant for the given wire-format ID.
+
+                                @param id the wire-format integer ID
+                                @return the corresponding enum constant
+                                @throws IllegalArgumentException if id is unknown
+                                """)
+                        .addStatement("$T result = fromIdOrNull(id)", enumClass)
+                        .beginControlFlow("if (result == null)")
+                        .addStatement(
+                                "throw new IllegalArgumentException(\"Unknown enum id: \" + id)")
+                        .endControlFlow()
+                        .addStatement("return result")
+                        .build());
+        enumBuilder.addMethod(fromIdOrNull.build());
+    }
 
-        return JavaFile.builder(schema.namespace(), enumBuilder.build()).indent("    ").build();
+    /**
+     * Searches for a multiplicative perfect hash of the ids: a table of {@code 2^bits} slots, at
+     * most four times the smallest that fits, and an odd multiplier such that {@code (id * M)
+     * >>> (32 - bits)} differs for every id. The search order is fixed so that regenerating a
+     * schema yields the same code.
+     *
+     * @return {@code {multiplier, bits}}, or null if none was found
+     */
+    static int[] findIdHash(int[] ids) {
+        int minBits = Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(ids.length - 1));
+        for (int bits = minBits; bits <= Math.min(minBits + 2, MAX_ID_HASH_BITS); bits++) {
+            boolean[] used = new boolean[1 << bits];
+            for (int attempt = 0; attempt < ID_HASH_ATTEMPTS; attempt++) {
+                int multiplier = ID_HASH_SEED + 2 * attempt;
+                Arrays.fill(used, false);
+                boolean perfect = true;
+                for (int id : ids) {
+                    int slot = (id * multiplier) >>> (Integer.SIZE - bits);
+                    if (used[slot]) {
+                        perfect = false;
+                        break;
+                    }
+                    used[slot] = true;
+                }
+                if (perfect) {
+                    return new int[] {multiplier, bits};
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds {@code fromName(Utf8View)}, which finds a constant by its UTF-8 name without creating a
+     * {@code String}. Names are hashed into an open-addressing table at least twice the size of
+     * the enum when the class loads, by statements appended to {@code staticBlock}, so a lookup
+     * hashes the bytes once and compares them with about one candidate.
+     */
+    private static void addNameLookup(
+            TypeSpec.Builder enumBuilder,
+            ClassName enumClass,
+            int valueCount,
+            CodeBlock.Builder staticBlock) {
+        int slots = Integer.highestOneBit(Math.max(1, valueCount) * 2 - 1) << 1;
+        enumBuilder.addField(
+                FieldSpec.builder(
+                                ArrayTypeName.of(enumClass),
+                                "VALUES_BY_NAME",
+                                Modifier.PRIVATE,
+                                Modifier.STATIC,
+                                Modifier.FINAL)
+                        .initializer("new $T[$L]", enumClass, slots)
+                        .build());
+        staticBlock
+                .beginControlFlow("for ($T e : values())", enumClass)
+                .addStatement("int slot = nameSlot(e.nameBytes, 0, (int) e.nameBytes.byteSize())")
+                .beginControlFlow("while (VALUES_BY_NAME[slot] != null)")
+                .addStatement("slot = (slot + 1) & (VALUES_BY_NAME.length - 1)")
+                .endControlFlow()
+                .addStatement("VALUES_BY_NAME[slot] = e")
+                .endControlFlow();
+        enumBuilder.addMethod(
+                MethodSpec.methodBuilder("nameSlot")
+                        .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                        .addParameter(MemorySegment.class, "segment")
+                        .addParameter(long.class, "offset")
+                        .addParameter(int.class, "length")
+                        .returns(int.class)
+                        .addStatement(
+                                "return (int) $T.hash(segment, offset, length, $T.DEFAULT_SEED)"
+                                        + " & (VALUES_BY_NAME.length - 1)",
+                                SegmentContent.class,
+                                SegmentContent.class)
+                        .build());
+        enumBuilder.addMethod(
+                MethodSpec.methodBuilder("fromName")
+                        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                        .addParameter(Utf8View.class, "name")
+                        .returns(enumClass)
+                        .addJavadoc(
+                                """
+                                Returns the enum constant with the given name, without allocating.
+
+                                @param name the UTF-8 name, e.g. a string field of a flyweight
+                                @return the corresponding enum constant, or null if no constant has that name
+                                """)
+                        .addStatement("int length = (int) name.byteSize()")
+                        .addStatement(
+                                "int slot = nameSlot(name.segment(), name.offset(), length)")
+                        .addStatement("$T e", enumClass)
+                        .beginControlFlow("while ((e = VALUES_BY_NAME[slot]) != null)")
+                        .beginControlFlow(
+                                "if (e.nameBytes.byteSize() == length && $T.mismatch(e.nameBytes,"
+                                        + " 0, length, name.segment(), name.offset(),"
+                                        + " name.offset() + length) == -1)",
+                                MemorySegment.class)
+                        .addStatement("return e")
+                        .endControlFlow()
+                        .addStatement("slot = (slot + 1) & (VALUES_BY_NAME.length - 1)")
+                        .endControlFlow()
+                        .addStatement("return null")
+                        .build());
     }
 
     /** Creates the standard wrap() method for a flyweight. */
@@ -984,6 +1749,15 @@ public final class StubGenerator {
                 .build();
     }
 
+    /** Creates the offset() accessor, returning where the wrapped message body starts. */
+    private MethodSpec createOffsetMethod() {
+        return MethodSpec.methodBuilder("offset")
+                .addModifiers(Modifier.PUBLIC)
+                .returns(long.class)
+                .addStatement("return this.offset")
+                .build();
+    }
+
     /** Creates the standard byteSize() method, returning the fixed block length. */
     private MethodSpec createByteSizeMethod() {
         return MethodSpec.methodBuilder("byteSize")
@@ -1003,20 +1777,346 @@ public final class StubGenerator {
                 .build();
     }
 
-    private MethodSpec createValidateMethod() {
-        return MethodSpec.methodBuilder("validate")
-                .addAnnotation(Override.class)
-                .addModifiers(Modifier.PUBLIC)
-                .beginControlFlow("if (this.segment == null)")
-                .addStatement("throw new IllegalStateException(\"Flyweight is not wrapped\")")
-                .endControlFlow()
-                .addStatement("final long remaining = segment.byteSize() - this.offset")
-                .beginControlFlow("if (remaining < BLOCK_LENGTH)")
+    private MethodSpec createValidateMethod(boolean aligned) {
+        MethodSpec.Builder validate =
+                MethodSpec.methodBuilder("validate")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .beginControlFlow("if (this.segment == null)")
+                        .addStatement(
+                                "throw new IllegalStateException(\"Flyweight is not wrapped\")")
+                        .endControlFlow()
+                        .addStatement("final long remaining = segment.byteSize() - this.offset")
+                        .beginControlFlow("if (remaining < BLOCK_LENGTH)")
+                        .addStatement(
+                                "throw new IllegalStateException(\"Insufficient bytes for"
+                                        + " flyweight: required \" + BLOCK_LENGTH)")
+                        .endControlFlow();
+        if (aligned) {
+            validate.beginControlFlow(
+                            "if (!segment.isNative() || ((segment.address() + this.offset) & 7)"
+                                    + " != 0)")
+                    .addStatement(
+                            "throw new IllegalStateException(\"Aligned flyweight requires an"
+                                    + " 8-byte aligned native block\")")
+                    .endControlFlow();
+        }
+        return validate.build();
+    }
+
+    /**
+     * Adds one reusable builder per nested message type: created by the first value of that type
+     * and re-targeted with {@code reset} for every later one, so that writing the elements of a
+     * repeated message field or the levels of a tree creates each nested builder once. A nested
+     * builder is therefore only valid inside the callback it was passed to.
+     */
+    private void addNestedBuilderPool(
+            TypeSpec.Builder builder, ResolvedMessageDefinition message) {
+        List<ResolvedFieldDefinition> children = new ArrayList<>(message.fields());
+        message.oneofs().forEach(oneof -> children.addAll(oneof.fields()));
+        Set<String> childTypes = new LinkedHashSet<>();
+        children.stream().filter(this::isMessageType).forEach(f -> childTypes.add(f.type()));
+        ClassName flyweightClass =
+                ClassName.get(schema.namespace(), message.name() + flyweightSuffix);
+        for (String childType : childTypes) {
+            ClassName childBuilder = ClassName.get(schema.namespace(), childType + "Builder");
+            String name = nestedBuilderName(childType);
+            builder.addField(FieldSpec.builder(childBuilder, name, Modifier.PRIVATE).build());
+            MethodSpec.Builder method =
+                    MethodSpec.methodBuilder(name)
+                            .addModifiers(Modifier.PRIVATE)
+                            .returns(childBuilder)
+                            .addParameter(MemorySegment.class, "target")
+                            .addStatement("$T nested = this.$L", childBuilder, name)
+                            .beginControlFlow("if (nested != null)")
+                            .addStatement("nested.reset(target)")
+                            .addStatement("return nested")
+                            .endControlFlow();
+            boolean deeper = isRecursive(message.name()) && isRecursive(childType);
+            if (deeper) {
+                method.beginControlFlow("if (depth >= $T.MAX_NESTING_DEPTH)", flyweightClass)
+                        .addStatement(
+                                "throw new IllegalStateException(\"Message '$L' is nested more"
+                                        + " than \" + $T.MAX_NESTING_DEPTH + \" levels deep\")",
+                                childType,
+                                flyweightClass)
+                        .endControlFlow();
+            }
+            method.addStatement("nested = $T.inline(target)", childBuilder);
+            if (deeper) {
+                method.addStatement("nested.depth = depth + 1");
+            }
+            method.addStatement("this.$L = nested", name).addStatement("return nested");
+            builder.addMethod(method.build());
+        }
+    }
+
+    static String nestedBuilderName(String messageType) {
+        return "nested" + messageType + "Builder";
+    }
+
+    /**
+     * Returns the initializer of a child flyweight view. Between two recursive messages the child
+     * is created one level deeper than its parent, so that a cyclic or hostile payload cannot
+     * grow the chain of lazily created views without bound.
+     */
+    private CodeBlock childView(ResolvedMessageDefinition parent, String childType) {
+        ClassName childFlyweight = ClassName.get(schema.namespace(), childType + flyweightSuffix);
+        if (isRecursive(parent.name()) && isRecursive(childType)) {
+            return CodeBlock.of("$T.nested(this.depth + 1)", childFlyweight);
+        }
+        return CodeBlock.of("new $T()", childFlyweight);
+    }
+
+    /**
+     * Adds the nesting bound of a recursive message: the {@code MAX_NESTING_DEPTH} constant, the
+     * view's own depth and the {@code nested} factory that parent views create children with.
+     */
+    private static void addNestingDepth(
+            ClassName flyweightClassName,
+            ResolvedMessageDefinition message,
+            List<FieldSpec> constantFields,
+            List<FieldSpec> viewFields,
+            List<MethodSpec> methods) {
+        constantFields.add(
+                FieldSpec.builder(
+                                int.class,
+                                "MAX_NESTING_DEPTH",
+                                Modifier.PUBLIC,
+                                Modifier.STATIC,
+                                Modifier.FINAL)
+                        .addJavadoc("Deepest child view or nested builder below a top-level one.\n")
+                        .initializer("$L", MAX_NESTING_DEPTH)
+                        .build());
+        viewFields.add(FieldSpec.builder(int.class, "depth", Modifier.PRIVATE).build());
+        methods.add(
+                MethodSpec.methodBuilder("nested")
+                        .addModifiers(Modifier.STATIC)
+                        .addJavadoc(
+                                "Creates a child view {@code depth} levels below a top-level"
+                                        + " one.\n")
+                        .returns(flyweightClassName)
+                        .addParameter(int.class, "depth")
+                        .beginControlFlow("if (depth > MAX_NESTING_DEPTH)")
+                        .addStatement(
+                                "throw new IllegalStateException(\"Message '$L' is nested more than"
+                                        + " \" + MAX_NESTING_DEPTH + \" levels deep\")",
+                                message.name())
+                        .endControlFlow()
+                        .addStatement("$T view = new $T()", flyweightClassName, flyweightClassName)
+                        .addStatement("view.depth = depth")
+                        .addStatement("return view")
+                        .build());
+    }
+
+    /** Returns whether a message reaches itself through message fields or oneof options. */
+    private boolean isRecursive(String messageName) {
+        return reachesMessage(messageName, messageName, new HashSet<>());
+    }
+
+    private boolean reachesMessage(String messageName, String target, Set<String> visited) {
+        if (!visited.add(messageName)) {
+            return false;
+        }
+        for (ResolvedMessageDefinition message : schema.messages()) {
+            if (!message.name().equals(messageName)) {
+                continue;
+            }
+            List<ResolvedFieldDefinition> children = new ArrayList<>(message.fields());
+            message.oneofs().forEach(oneof -> children.addAll(oneof.fields()));
+            for (ResolvedFieldDefinition child : children) {
+                if (isMessageType(child)
+                        && (child.type().equals(target)
+                                || reachesMessage(child.type(), target, visited))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates the binary searches of a sorted repeated message field: {@code find<Field>By<Key>},
+     * {@code lowerBound<Field>By<Key>} and {@code upperBound<Field>By<Key>}. Each probe reads the
+     * key of one element through the offset table, so a search costs O(log n) key reads.
+     */
+    private List<MethodSpec> createSortedSearchMethods(
+            ResolvedFieldDefinition field, String offsetConst) {
+        SortOrder order = SortOrder.parse(field.sortedBy());
+        ResolvedFieldDefinition key = sortKey(field);
+        TypeName keyType = getJavaTypeName(key.type());
+        String suffix = capitalize(field.name()) + "By" + capitalize(key.name());
+        String keyName = key.name();
+        String boundName = "bound" + suffix;
+        String keyAt =
+                field.name() + "Iterator().wrapElementAt($L, " + field.name() + "View()).get"
+                        + capitalize(keyName) + "()";
+        String direction = order.descending() ? "descending" : "ascending";
+
+        MethodSpec bound =
+                MethodSpec.methodBuilder(boundName)
+                        .addModifiers(Modifier.PRIVATE)
+                        .returns(int.class)
+                        .addParameter(keyType, keyName)
+                        .addParameter(boolean.class, "upper")
+                        .addStatement(
+                                "final long dataOffset = this.offset + segment.get($T.INT_BE,"
+                                        + " this.offset + $L)",
+                                Layouts.class,
+                                offsetConst)
+                        .addStatement("$LIterator().wrap(this.segment, dataOffset)", field.name())
+                        .addStatement("int low = 0")
+                        .addStatement("int high = $LIterator().count()", field.name())
+                        .beginControlFlow("while (low < high)")
+                        .addStatement("int mid = (low + high) >>> 1")
+                        .addStatement("$T key = " + keyAt, keyType, "mid")
+                        .beginControlFlow(
+                                "if (key $L $L || (upper && key == $L))",
+                                order.descending() ? ">" : "<",
+                                keyName,
+                                keyName)
+                        .addStatement("low = mid + 1")
+                        .nextControlFlow("else")
+                        .addStatement("high = mid")
+                        .endControlFlow()
+                        .endControlFlow()
+                        .addStatement("return low")
+                        .build();
+
+        MethodSpec find =
+                MethodSpec.methodBuilder("find" + suffix)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(int.class)
+                        .addParameter(keyType, keyName)
+                        .addJavadoc(
+                                "Binary-searches the $L elements, sorted by $L $L, for one whose"
+                                        + " key equals {@code $L}.\n"
+                                        + "@param $L the key to find\n"
+                                        + "@return the index of a matching element, or {@code"
+                                        + " -(insertion point) - 1} like {@link"
+                                        + " java.util.Arrays#binarySearch(long[], long)}",
+                                field.name(),
+                                keyName,
+                                direction,
+                                keyName,
+                                keyName)
+                        .addStatement("int index = $L($L, false)", boundName, keyName)
+                        .beginControlFlow(
+                                "if (index < $LIterator().count() && " + keyAt + " == $L)",
+                                field.name(),
+                                "index",
+                                keyName)
+                        .addStatement("return index")
+                        .endControlFlow()
+                        .addStatement("return -(index + 1)")
+                        .build();
+
+        MethodSpec lower =
+                MethodSpec.methodBuilder("lowerBound" + suffix)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(int.class)
+                        .addParameter(keyType, keyName)
+                        .addJavadoc(
+                                "Returns the index of the first $L element whose $L does not come"
+                                        + " before {@code $L} in $L order.\n"
+                                        + "@param $L the key to search for\n"
+                                        + "@return 0 to {@code get$LCount()}",
+                                field.name(),
+                                keyName,
+                                keyName,
+                                direction,
+                                keyName,
+                                capitalize(field.name()))
+                        .addStatement("return $L($L, false)", boundName, keyName)
+                        .build();
+
+        MethodSpec upper =
+                MethodSpec.methodBuilder("upperBound" + suffix)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(int.class)
+                        .addParameter(keyType, keyName)
+                        .addJavadoc(
+                                "Returns the index of the first $L element whose $L comes after"
+                                        + " {@code $L} in $L order.\n"
+                                        + "@param $L the key to search for\n"
+                                        + "@return 0 to {@code get$LCount()}",
+                                field.name(),
+                                keyName,
+                                keyName,
+                                direction,
+                                keyName,
+                                capitalize(field.name()))
+                        .addStatement("return $L($L, true)", boundName, keyName)
+                        .build();
+        return List.of(find, lower, upper, bound);
+    }
+
+    /**
+     * Rejects an element of a sorted repeated message field whose key comes before the previous
+     * element's. The key is read back from the element just written, at its fixed offset.
+     */
+    private void addSortCheck(
+            MethodSpec.Builder method, ResolvedFieldDefinition field, ResolvedFieldDefinition key) {
+        SortOrder order = SortOrder.parse(field.sortedBy());
+        ResolvedMessageDefinition element =
+                schema.messages().stream()
+                        .filter(m -> m.name().equals(field.type()))
+                        .findFirst()
+                        .orElseThrow();
+        String keyType = getUnderlyingType(key.type());
+        method.addStatement(
+                        "$T key = segment.get($T.$L, elementStart + $T.$L)",
+                        getJavaTypeName(keyType),
+                        element.aligned() ? AlignedLayouts.class : Layouts.class,
+                        getLayoutConstantName(keyType),
+                        ClassName.get(schema.namespace(), field.type() + flyweightSuffix),
+                        constantName(key.name(), "OFFSET"))
+                .beginControlFlow(
+                        "if (i > 0 && key $L previousKey)", order.descending() ? ">" : "<")
                 .addStatement(
-                        "throw new IllegalStateException(\"Insufficient bytes for flyweight:"
-                                + " required \" + BLOCK_LENGTH)")
+                        "throw new IllegalArgumentException(\"Field '$L' must be sorted by $L $L,"
+                                + " but element \" + i + \" is out of order\")",
+                        field.name(),
+                        key.name(),
+                        order.descending() ? "descending" : "ascending")
                 .endControlFlow()
-                .build();
+                .addStatement("previousKey = key");
+    }
+
+    /** Returns the element field that a sorted repeated message field is ordered by. */
+    private ResolvedFieldDefinition sortKey(ResolvedFieldDefinition field) {
+        String keyField = SortOrder.parse(field.sortedBy()).keyField();
+        return schema.messages().stream()
+                .filter(m -> m.name().equals(field.type()))
+                .flatMap(m -> m.fields().stream())
+                .filter(f -> f.name().equals(keyField))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    /**
+     * Declares a view field that is created on first use: a non-final field plus a private
+     * accessor of the same name that allocates it once. Generated code reaches views only through
+     * these accessors.
+     */
+    private static void addLazyView(
+            List<FieldSpec> viewFields,
+            List<MethodSpec> viewAccessors,
+            TypeName type,
+            String name,
+            CodeBlock initializer) {
+        viewFields.add(FieldSpec.builder(type, name, Modifier.PRIVATE).build());
+        viewAccessors.add(
+                MethodSpec.methodBuilder(name)
+                        .addModifiers(Modifier.PRIVATE)
+                        .returns(type)
+                        .addStatement("$T view = this.$L", type, name)
+                        .beginControlFlow("if (view == null)")
+                        .addStatement("view = $L", initializer)
+                        .addStatement("this.$L = view", name)
+                        .endControlFlow()
+                        .addStatement("return view")
+                        .build());
     }
 
     /** Creates a private static final int constant for a field's offset. */
@@ -1032,31 +2132,557 @@ public final class StubGenerator {
     }
 
     /** Creates a standard getter for a fixed-size primitive field. */
-    private MethodSpec createGetter(String name, TypeName type, String layout, String offsetConst) {
+    private MethodSpec createGetter(
+            String name, TypeName type, ClassName layouts, String layout, String offsetConst) {
         return MethodSpec.methodBuilder("get" + capitalize(name))
                 .addModifiers(Modifier.PUBLIC)
                 .returns(type)
                 .addStatement(
                         "return segment.get($T.$L, this.offset + $L)",
-                        Layouts.class,
+                        layouts,
                         layout,
                         offsetConst)
                 .build();
     }
 
-    /** Creates a standard setter for a fixed-size primitive field. */
-    private MethodSpec createSetter(String name, TypeName type, String layout, String offsetConst) {
-        return MethodSpec.methodBuilder("set" + capitalize(name))
+    /**
+     * Creates the getter of a defaulted field, which returns the default while the field is absent
+     * and {@code value} otherwise.
+     */
+    private MethodSpec createDefaultedGetter(
+            ResolvedFieldDefinition field, TypeName type, CodeBlock value) {
+        String cap = capitalize(field.name());
+        return MethodSpec.methodBuilder("get" + cap)
                 .addModifiers(Modifier.PUBLIC)
-                .addParameter(type, "value")
-                .addStatement(
-                        "segment.set($T.$L, this.offset + $L, value)",
-                        Layouts.class,
-                        layout,
-                        offsetConst)
+                .returns(type)
+                .beginControlFlow("if (!has$L())", cap)
+                .addStatement("return $L", constantName(field.name(), "DEFAULT"))
+                .endControlFlow()
+                .addStatement("return $L", value)
+                .build();
+    }
+
+    /**
+     * Creates the {@code CONSTANT} or {@code DEFAULT} constant holding a value fixed by the
+     * schema, which the resolver has already checked and put in canonical form.
+     */
+    private FieldSpec createLiteralConstant(
+            ResolvedFieldDefinition field, String suffix, String value) {
+        return FieldSpec.builder(
+                        literalType(field),
+                        constantName(field.name(), suffix),
+                        Modifier.PUBLIC,
+                        Modifier.STATIC,
+                        Modifier.FINAL)
+                .initializer(literal(field, value))
+                .build();
+    }
+
+    private TypeName literalType(ResolvedFieldDefinition field) {
+        return isStringType(field) ? ClassName.get(String.class) : getJavaTypeName(field.type());
+    }
+
+    private CodeBlock literal(ResolvedFieldDefinition field, String value) {
+        if (isStringType(field)) {
+            return CodeBlock.of("$S", value);
+        }
+        return switch (getUnderlyingType(field.type())) {
+            case "int8" -> CodeBlock.of("(byte) $L", value);
+            case "int16" -> CodeBlock.of("(short) $L", value);
+            case "int64" -> CodeBlock.of("$LL", value);
+            case "float32" -> CodeBlock.of("$Lf", value);
+            default -> CodeBlock.of("$L", value);
+        };
+    }
+
+    /** Creates the getter of a {@code constant} field, which reads nothing from the frame. */
+    private MethodSpec createConstantGetter(ResolvedFieldDefinition field) {
+        return MethodSpec.methodBuilder("get" + capitalize(field.name()))
+                .addJavadoc(
+                        "Returns the schema constant {@link #$L}.\n",
+                        constantName(field.name(), "CONSTANT"))
+                .addModifiers(Modifier.PUBLIC)
+                .returns(literalType(field))
+                .addStatement("return $L", constantName(field.name(), "CONSTANT"))
                 .build();
     }
 
+    /**
+     * Creates a standard setter for a fixed-size primitive field. Setters of optional fields also
+     * set the field's presence bit.
+     */
+    private MethodSpec createSetter(
+            String name,
+            TypeName type,
+            ClassName layouts,
+            String layout,
+            String offsetConst,
+            String presenceBit) {
+        MethodSpec.Builder setter =
+                MethodSpec.methodBuilder("set" + capitalize(name))
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(type, "value")
+                        .addStatement(
+                                "segment.set($T.$L, this.offset + $L, value)",
+                                layouts,
+                                layout,
+                                offsetConst);
+        if (presenceBit != null) {
+            // Writing an optional field in place makes it present.
+            setter.addStatement("this.presenceBits.set($L)", presenceBit);
+        }
+        return setter.build();
+    }
+
+    /**
+     * Creates the getter and setter of a bitfield member. Both load the whole word; the setter
+     * stores it back with only the member's bits replaced, so members share the word safely
+     * within one thread.
+     */
+    private List<MethodSpec> createPackedAccessors(
+            ResolvedFieldDefinition field, MessageLayout.Slot slot, ClassName layouts) {
+        TypeName type = getJavaTypeName(field.type());
+        TypeName wordType = getJavaTypeName(slot.wordType());
+        String layout = getLayoutConstantName(slot.wordType());
+        String offsetConst = constantName(field.name(), "OFFSET");
+        CodeBlock shift = CodeBlock.of("$L", constantName(field.name(), "SHIFT"));
+        CodeBlock word =
+                CodeBlock.of(
+                        "this.segment.get($T.$L, this.offset + $L)", layouts, layout, offsetConst);
+
+        MethodSpec getter =
+                field.defaultValue() != null
+                        ? createDefaultedGetter(field, type, packedValue(slot, type, word, shift))
+                        : MethodSpec.methodBuilder("get" + capitalize(field.name()))
+                                .addModifiers(Modifier.PUBLIC)
+                                .returns(type)
+                                .addStatement("return $L", packedValue(slot, type, word, shift))
+                                .build();
+        MethodSpec.Builder setter =
+                MethodSpec.methodBuilder("set" + capitalize(field.name()))
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(type, "value")
+                        .addStatement("final $T word = $L", wordType, word)
+                        .addStatement(
+                                "this.segment.set($T.$L, this.offset + $L, $L)",
+                                layouts,
+                                layout,
+                                offsetConst,
+                                packedWord(slot, type, wordType, shift));
+        if (field.optional()) {
+            setter.addStatement("this.presenceBits.set($L)", presenceBitConstant(field));
+        }
+        return List.of(getter, setter.build());
+    }
+
+    /**
+     * Creates the getter and setter of a sparse member. The getter returns the field's default, or
+     * the type's zero, when the field is absent; the setter overwrites a present value in place
+     * and throws otherwise, since an absent member has no bytes in the frame.
+     */
+    private List<MethodSpec> createSparseAccessors(
+            ResolvedFieldDefinition field, MessageLayout layout, MessageLayout.Slot slot) {
+        String cap = capitalize(field.name());
+        TypeName type = getJavaTypeName(field.type());
+        String layoutName = getLayoutConstantName(field.type());
+        CodeBlock address =
+                sparseAddress(
+                        layout, slot, "this.segment", "this.offset", CodeBlock.of("SPARSE_OFFSET"));
+
+        MethodSpec getter =
+                MethodSpec.methodBuilder("get" + cap)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(type)
+                        .beginControlFlow("if (!has$L())", cap)
+                        .addStatement(
+                                "return $L",
+                                field.defaultValue() != null
+                                        ? constantName(field.name(), "DEFAULT")
+                                        : type.equals(TypeName.BOOLEAN) ? "false" : "0")
+                        .endControlFlow()
+                        .addStatement(
+                                "return this.segment.get($T.$L, $L)",
+                                Layouts.class,
+                                layoutName,
+                                address)
+                        .build();
+        MethodSpec setter =
+                MethodSpec.methodBuilder("set" + cap)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(type, "value")
+                        .beginControlFlow("if (!has$L())", cap)
+                        .addStatement(
+                                "throw new IllegalStateException(\"Sparse field '$L' is absent and"
+                                        + " cannot be set in place\")",
+                                field.name())
+                        .endControlFlow()
+                        .addStatement(
+                                "this.segment.set($T.$L, $L, value)",
+                                Layouts.class,
+                                layoutName,
+                                address)
+                        .build();
+        return List.of(getter, setter);
+    }
+
+    /**
+     * Returns the address of a present sparse member: the region start from the sparse header,
+     * plus the bytes before the member's presence word, plus the sizes of the lower present
+     * members of that word, ranked by popcount as described by {@link
+     * MessageLayout#sparseRankMasks}.
+     *
+     * @param layout the message layout
+     * @param slot the member's slot
+     * @param segment the expression of the segment holding the message
+     * @param base the expression of the message's block offset
+     * @param header the expression of the sparse header offset
+     * @return the address expression
+     */
+    static CodeBlock sparseAddress(
+            MessageLayout layout,
+            MessageLayout.Slot slot,
+            String segment,
+            String base,
+            CodeBlock header) {
+        int word = slot.presenceBit() / Long.SIZE;
+        CodeBlock.Builder address =
+                CodeBlock.builder()
+                        .add(
+                                "$L + $L.get($T.INT_BE, $L + $L)",
+                                base,
+                                segment,
+                                Layouts.class,
+                                base,
+                                header);
+        if (word > 0) {
+            address.add(
+                    " + $L.get($T.INT_BE, $L + $L + $L)",
+                    segment,
+                    Layouts.class,
+                    base,
+                    header,
+                    4 + 4 * word);
+        }
+        for (Map.Entry<Integer, Long> mask : layout.sparseRankMasks(slot).entrySet()) {
+            address.add(
+                    " + Long.bitCount($L.get($T.LONG_BE, $L) & 0x$LL)$L",
+                    segment,
+                    Layouts.class,
+                    word == 0 ? base : base + " + " + 8 * word,
+                    Long.toHexString(mask.getValue()),
+                    mask.getKey() == 1 ? "" : " * " + mask.getKey());
+        }
+        return address.build();
+    }
+
+    /**
+     * Extracts a bitfield member from an expression that loads its word.
+     *
+     * @param slot the member's slot
+     * @param type the member's Java type ({@code boolean} or the enum's primitive)
+     * @param word the expression loading the word
+     * @param shift the expression holding the member's shift
+     * @return the value expression
+     */
+    static CodeBlock packedValue(
+            MessageLayout.Slot slot, TypeName type, CodeBlock word, CodeBlock shift) {
+        boolean wide = slot.size() == Long.BYTES;
+        if (type.equals(TypeName.BOOLEAN)) {
+            return CodeBlock.of("($L & ($L << $L)) != 0", word, wide ? "1L" : "1", shift);
+        }
+        CodeBlock value = CodeBlock.of("($L >>> $L) & $L", word, shift, packedMask(slot));
+        TypeName promoted = wide ? TypeName.LONG : TypeName.INT;
+        return type.equals(promoted) ? value : CodeBlock.of("($T) ($L)", type, value);
+    }
+
+    /**
+     * Returns the local {@code word} with a bitfield member's bits replaced by {@code value}.
+     *
+     * @param slot the member's slot
+     * @param type the member's Java type
+     * @param wordType the Java type of the word
+     * @param shift the expression holding the member's shift
+     * @return the updated word expression
+     */
+    static CodeBlock packedWord(
+            MessageLayout.Slot slot, TypeName type, TypeName wordType, CodeBlock shift) {
+        boolean wide = slot.size() == Long.BYTES;
+        String one = wide ? "1L" : "1";
+        CodeBlock updated =
+                type.equals(TypeName.BOOLEAN)
+                        ? CodeBlock.of(
+                                "value ? word | ($L << $L) : word & ~($L << $L)",
+                                one,
+                                shift,
+                                one,
+                                shift)
+                        : CodeBlock.of(
+                                "(word & ~($L << $L)) | ((value & $L) << $L)",
+                                packedMask(slot),
+                                shift,
+                                packedMask(slot),
+                                shift);
+        return wide || wordType.equals(TypeName.INT)
+                ? updated
+                : CodeBlock.of("($T) ($L)", wordType, updated);
+    }
+
+    private static String packedMask(MessageLayout.Slot slot) {
+        return "0x"
+                + Integer.toHexString((1 << slot.bitWidth()) - 1)
+                + (slot.size() == Long.BYTES ? "L" : "");
+    }
+
+    /**
+     * Creates the ordered and atomic accessors of a {@code concurrent: true} field, all through
+     * the shared var handles of {@link AlignedLayouts}. The resolver only admits required int32
+     * and int64 fields of aligned messages here, so every access is naturally aligned.
+     */
+    private List<MethodSpec> createConcurrentAccessors(
+            String name, TypeName type, String offsetConst) {
+        String capitalized = capitalize(name);
+        String handle = type.equals(TypeName.LONG) ? "LONG_BE_HANDLE" : "INT_BE_HANDLE";
+        ClassName layouts = ClassName.get(AlignedLayouts.class);
+        List<MethodSpec> methods = new ArrayList<>();
+        for (String mode : List.of("Acquire", "Volatile")) {
+            methods.add(
+                    MethodSpec.methodBuilder("get" + capitalized + mode)
+                            .addJavadoc(
+                                    "Reads {@code $L} with $L semantics.\n",
+                                    name,
+                                    mode.toLowerCase())
+                            .addModifiers(Modifier.PUBLIC)
+                            .returns(type)
+                            .addStatement(
+                                    "return ($T) $T.$L.get$L(this.segment, this.offset + $L)",
+                                    type,
+                                    layouts,
+                                    handle,
+                                    mode,
+                                    offsetConst)
+                            .build());
+        }
+        for (String mode : List.of("Release", "Volatile")) {
+            methods.add(
+                    MethodSpec.methodBuilder("set" + capitalized + mode)
+                            .addJavadoc(
+                                    "Writes {@code $L} with $L semantics.\n",
+                                    name,
+                                    mode.toLowerCase())
+                            .addModifiers(Modifier.PUBLIC)
+                            .addParameter(type, "value")
+                            .addStatement(
+                                    "$T.$L.set$L(this.segment, this.offset + $L, value)",
+                                    layouts,
+                                    handle,
+                                    mode,
+                                    offsetConst)
+                            .build());
+        }
+        methods.add(
+                MethodSpec.methodBuilder("compareAndSet" + capitalized)
+                        .addJavadoc(
+                                "Atomically sets {@code $L} to {@code value} if it equals {@code"
+                                        + " expected}.\n"
+                                        + "@return whether the value was updated\n",
+                                name)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(boolean.class)
+                        .addParameter(type, "expected")
+                        .addParameter(type, "value")
+                        .addStatement(
+                                "return $T.$L.compareAndSet(this.segment, this.offset + $L,"
+                                        + " expected, value)",
+                                layouts,
+                                handle,
+                                offsetConst)
+                        .build());
+        methods.add(
+                MethodSpec.methodBuilder("getAndAdd" + capitalized)
+                        .addJavadoc(
+                                "Atomically adds {@code delta} to {@code $L}.\n"
+                                        + "@return the previous value\n",
+                                name)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(type)
+                        .addParameter(type, "delta")
+                        .addStatement(
+                                "return ($T) $T.$L.getAndAdd(this.segment, this.offset + $L,"
+                                        + " delta)",
+                                type,
+                                layouts,
+                                handle,
+                                offsetConst)
+                        .build());
+        return methods;
+    }
+
+    /**
+     * Creates the derived accessors of an int64-backed rich field on top of its plain long
+     * getter: epoch conversions for timestamps, a double view for decimals, the text length for
+     * {@code ascii8}, and an allocation-free {@code append<Name>(Appendable)} that writes the
+     * ISO-8601, plain decimal or ASCII text.
+     */
+    private List<MethodSpec> createRichAccessors(ResolvedFieldDefinition field) {
+        RichType rich = RichType.of(field.type());
+        if (rich == null) {
+            return List.of();
+        }
+        String cap = capitalize(field.name());
+        List<MethodSpec> methods = new ArrayList<>();
+        CodeBlock format =
+                switch (rich) {
+                    case TIMESTAMP_NANOS -> {
+                        methods.add(
+                                MethodSpec.methodBuilder("get" + cap + "EpochMillis")
+                                        .addModifiers(Modifier.PUBLIC)
+                                        .returns(long.class)
+                                        .addStatement(
+                                                "return Math.floorDiv(get$L(), $T.NANOS_PER_MILLI)",
+                                                cap,
+                                                Timestamps.class)
+                                        .build());
+                        yield CodeBlock.of(
+                                "$T.formatIso8601(get$L(), out)", Timestamps.class, cap);
+                    }
+                    case TIMESTAMP_MILLIS -> {
+                        methods.add(
+                                MethodSpec.methodBuilder("get" + cap + "EpochNanos")
+                                        .addModifiers(Modifier.PUBLIC)
+                                        .returns(long.class)
+                                        .addJavadoc(
+                                                "@throws ArithmeticException if the instant lies"
+                                                        + " outside the epoch-nanosecond range")
+                                        .addStatement(
+                                                "return Math.multiplyExact(get$L(),"
+                                                        + " $T.NANOS_PER_MILLI)",
+                                                cap,
+                                                Timestamps.class)
+                                        .build());
+                        yield CodeBlock.of(
+                                "$T.formatIso8601Millis(get$L(), out)", Timestamps.class, cap);
+                    }
+                    case DECIMAL -> {
+                        String scale = constantName(field.name(), "SCALE");
+                        methods.add(
+                                MethodSpec.methodBuilder("get" + cap + "AsDouble")
+                                        .addModifiers(Modifier.PUBLIC)
+                                        .returns(double.class)
+                                        .addStatement(
+                                                "return $T.toDouble(get$L(), $L)",
+                                                Decimals.class,
+                                                cap,
+                                                scale)
+                                        .build());
+                        yield CodeBlock.of(
+                                "$T.formatTo(get$L(), $L, out)", Decimals.class, cap, scale);
+                    }
+                    case ASCII8 -> {
+                        methods.add(
+                                createPackedLengthGetter(
+                                        cap,
+                                        CodeBlock.of(
+                                                "$T.packedLength(get$L())", Ascii.class, cap)));
+                        yield CodeBlock.of("$T.appendPacked8(get$L(), out)", Ascii.class, cap);
+                    }
+                    case UUID, ASCII16 ->
+                            throw new IllegalArgumentException(rich + " is not int64-backed");
+                };
+        methods.add(createAppendMethod(cap, format));
+        return methods;
+    }
+
+    /**
+     * Creates the accessors of a two-word {@code uuid} or {@code ascii16} field: its big-endian
+     * words, an in-place setter taking both, and {@code append<Name>(Appendable)} writing the
+     * canonical UUID or ASCII text. An {@code ascii16} field also gets its text length.
+     */
+    private List<MethodSpec> createTwoWordAccessors(
+            ResolvedFieldDefinition field, ClassName layouts, String offsetConst) {
+        String cap = capitalize(field.name());
+        RichType rich = RichType.of(field.type());
+        List<String> words = wordSuffixes(rich);
+        MethodSpec.Builder setter =
+                MethodSpec.methodBuilder("set" + cap).addModifiers(Modifier.PUBLIC);
+        List<MethodSpec> methods = new ArrayList<>();
+        for (int i = 0; i < words.size(); i++) {
+            String param = words.get(i).toLowerCase();
+            String delta = i == 0 ? "" : " + 8";
+            methods.add(
+                    MethodSpec.methodBuilder("get" + cap + words.get(i))
+                            .addModifiers(Modifier.PUBLIC)
+                            .returns(long.class)
+                            .addStatement(
+                                    "return segment.get($T.LONG_BE, this.offset + $L$L)",
+                                    layouts,
+                                    offsetConst,
+                                    delta)
+                            .build());
+            setter.addParameter(long.class, param)
+                    .addStatement(
+                            "segment.set($T.LONG_BE, this.offset + $L$L, $L)",
+                            layouts,
+                            offsetConst,
+                            delta,
+                            param);
+        }
+        String presenceBit = presenceBitConstant(field);
+        if (presenceBit != null) {
+            setter.addStatement("this.presenceBits.set($L)", presenceBit);
+        }
+        methods.add(setter.build());
+        CodeBlock hi = CodeBlock.of("get$L$L()", cap, words.get(0));
+        CodeBlock lo = CodeBlock.of("get$L$L()", cap, words.get(1));
+        if (rich == RichType.UUID) {
+            methods.add(
+                    createAppendMethod(
+                            cap, CodeBlock.of("$T.formatTo($L, $L, out)", Uuids.class, hi, lo)));
+        } else {
+            methods.add(
+                    createPackedLengthGetter(
+                            cap,
+                            CodeBlock.of(
+                                    "$T.packedLength($L) + $T.packedLength($L)",
+                                    Ascii.class,
+                                    hi,
+                                    Ascii.class,
+                                    lo)));
+            methods.add(
+                    createAppendMethod(
+                            cap,
+                            CodeBlock.of("$T.appendPacked16($L, $L, out)", Ascii.class, hi, lo)));
+        }
+        return methods;
+    }
+
+    private MethodSpec createPackedLengthGetter(String cap, CodeBlock length) {
+        return MethodSpec.methodBuilder("get" + cap + "Length")
+                .addModifiers(Modifier.PUBLIC)
+                .returns(int.class)
+                .addJavadoc("Returns the number of packed ASCII characters.\n")
+                .addStatement("return $L", length)
+                .build();
+    }
+
+    private MethodSpec createAppendMethod(String cap, CodeBlock format) {
+        TypeVariableName appendable = TypeVariableName.get("A", ClassName.get(Appendable.class));
+        return MethodSpec.methodBuilder("append" + cap)
+                .addModifiers(Modifier.PUBLIC)
+                .addTypeVariable(appendable)
+                .addParameter(appendable, "out")
+                .returns(appendable)
+                .addJavadoc(
+                        "Appends the field's text form without allocating.\n"
+                                + "@param out where to write\n"
+                                + "@return {@code out}")
+                .addStatement("return $L", format)
+                .build();
+    }
+
+    private String presenceBitConstant(ResolvedFieldDefinition field) {
+        return field.optional() ? constantName(field.name(), "OPT_BIT") : null;
+    }
+
     /**
      * Creates a zero-GC getter for a variable-length field (like a string). It reads the offset and
      * length from the main flyweight's block and wraps a reusable view object around the actual
@@ -1078,9 +2704,9 @@ public final class StubGenerator {
                         Layouts.class,
                         offsetConst)
                 .addStatement(
-                        "this.$L.wrap(this.segment, this.offset + relativeOffset, dataLength)",
+                        "$L().wrap(this.segment, this.offset + relativeOffset, dataLength)",
                         viewFieldName)
-                .addStatement("return this.$L", viewFieldName)
+                .addStatement("return $L()", viewFieldName)
                 .build();
     }
 
@@ -1105,8 +2731,8 @@ public final class StubGenerator {
                                         + " this.offset + $L)",
                                 Layouts.class,
                                 offsetConst)
-                        .addStatement("this.$L.wrap(this.segment, dataOffset)", iteratorFieldName)
-                        .addStatement("return this.$L.count()", iteratorFieldName)
+                        .addStatement("$L().wrap(this.segment, dataOffset)", iteratorFieldName)
+                        .addStatement("return $L().count()", iteratorFieldName)
                         .build();
         methods.add(countGetter);
 
@@ -1132,9 +2758,9 @@ public final class StubGenerator {
                                     Layouts.class,
                                     offsetConst)
                             .addStatement(
-                                    "this.$L.wrap(this.segment, dataOffset)", iteratorFieldName)
+                                    "$L().wrap(this.segment, dataOffset)", iteratorFieldName)
                             .addStatement(
-                                    "return this.$L.$L(index)", iteratorFieldName, getterMethod)
+                                    "return $L().$L(index)", iteratorFieldName, getterMethod)
                             .build();
             methods.add(elementGetter);
 
@@ -1156,19 +2782,12 @@ public final class StubGenerator {
                                         Layouts.class,
                                         offsetConst)
                                 .addStatement(
-                                        "this.$L.wrap(this.segment, dataOffset)", iteratorFieldName)
+                                        "$L().wrap(this.segment, dataOffset)", iteratorFieldName)
                                 .addStatement(
-                                        "int rawValue = (int) this.$L.$L(index)",
+                                        "return $T.fromId((int) $L().$L(index))",
+                                        enumClass,
                                         iteratorFieldName,
-                                        getterMethod)
-                                .beginControlFlow("for ($T e : $T.values())", enumClass, enumClass)
-                                .beginControlFlow("if (e.id() == rawValue)")
-                                .addStatement("return e")
-                                .endControlFlow()
-                                .endControlFlow()
-                                .addStatement(
-                                        "throw new IllegalArgumentException(\"Unknown enum value:"
-                                                + " \" + rawValue)")
+                                        getterMethod)
                                 .build();
                 methods.add(enumGetter);
             }
@@ -1196,13 +2815,16 @@ public final class StubGenerator {
                                     Layouts.class,
                                     offsetConst)
                             .addStatement(
-                                    "this.$L.wrap(this.segment, dataOffset)", iteratorFieldName)
+                                    "$L().wrap(this.segment, dataOffset)", iteratorFieldName)
                             .addStatement(
-                                    "return this.$L.wrapElementAt(index, this.$L)",
+                                    "return $L().wrapElementAt(index, $L())",
                                     iteratorFieldName,
                                     viewFieldName)
                             .build();
             methods.add(elementGetter);
+            if (field.sortedBy() != null) {
+                methods.addAll(createSortedSearchMethods(field, offsetConst));
+            }
         } else if (isStringType(field)) {
             // For strings: generate method that fills a Utf8View
             MethodSpec stringGetter =
@@ -1221,8 +2843,8 @@ public final class StubGenerator {
                                     Layouts.class,
                                     offsetConst)
                             .addStatement(
-                                    "this.$L.wrap(this.segment, dataOffset)", iteratorFieldName)
-                            .addStatement("this.$L.getStringAt(index, view)", iteratorFieldName)
+                                    "$L().wrap(this.segment, dataOffset)", iteratorFieldName)
+                            .addStatement("$L().getStringAt(index, view)", iteratorFieldName)
                             .build();
             methods.add(stringGetter);
         } else if (isBytesType(field)) {
@@ -1242,8 +2864,8 @@ public final class StubGenerator {
                                     Layouts.class,
                                     offsetConst)
                             .addStatement(
-                                    "this.$L.wrap(this.segment, dataOffset)", iteratorFieldName)
-                            .addStatement("return this.$L.getBytesAt(index)", iteratorFieldName)
+                                    "$L().wrap(this.segment, dataOffset)", iteratorFieldName)
+                            .addStatement("return $L().getBytesAt(index)", iteratorFieldName)
                             .build();
             methods.add(bytesGetter);
         }
@@ -1265,16 +2887,585 @@ public final class StubGenerator {
                             field.name())
                     .endControlFlow();
         }
-        builder.addStatement(
-                        "final int relativeOffset = segment.get($T.INT_BE, this.offset + $L)",
-                        Layouts.class,
-                        offsetConst)
-                .addStatement(
-                        "this.$L.wrap(this.segment, this.offset + relativeOffset)", viewFieldName)
-                .addStatement("return this.$L", viewFieldName);
+        if (isFixedSize(field)) {
+            // Inline: the nested block sits at a constant offset in this block.
+            builder.addStatement(
+                    "$L().wrap(this.segment, this.offset + $L)", viewFieldName, offsetConst);
+        } else {
+            builder.addStatement(
+                            "final int relativeOffset = segment.get($T.INT_BE, this.offset + $L)",
+                            Layouts.class,
+                            offsetConst)
+                    .addStatement(
+                            "$L().wrap(this.segment, this.offset + relativeOffset)",
+                            viewFieldName);
+        }
+        builder.addStatement("return $L()", viewFieldName);
         return builder.build();
     }
 
+    /** The comparison shapes emitted by {@link #createContentMethods}. */
+    private enum ContentOp {
+        EQUALS,
+        HASH,
+        COMPARE
+    }
+
+    /**
+     * Creates the allocation-free content methods: {@code contentEquals}/{@code contentHash} over
+     * every field, and {@code keyEquals}/{@code keyHash}/{@code compareByKey} over the fields
+     * marked {@code key: true} (every field when none are). Var fields are compared by the bytes
+     * they reference rather than by their header offsets, so frames holding the same values in a
+     * different data-region order compare equal.
+     */
+    private List<MethodSpec> createContentMethods(
+            ResolvedMessageDefinition message, ClassName flyweightClassName) {
+        MessageLayout layout = MessageLayout.of(schema, message);
+        Set<String> helpers = new LinkedHashSet<>();
+
+        MethodSpec.Builder contentEquals =
+                MethodSpec.methodBuilder("contentEquals")
+                        .addJavadoc(
+                                "Returns whether {@code other} holds the same field values,"
+                                        + " comparing raw bytes.\n")
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(boolean.class)
+                        .addParameter(flyweightClassName, "other")
+                        .beginControlFlow(
+                                "if (this.segment == other.segment && this.offset == other.offset)")
+                        .addStatement("return true")
+                        .endControlFlow();
+        MethodSpec.Builder contentHash =
+                MethodSpec.methodBuilder("contentHash")
+                        .addJavadoc(
+                                "Returns a 64-bit hash of every field value, consistent with"
+                                        + " {@link #contentEquals}.\n")
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(long.class)
+                        .addStatement("long hash = $T.DEFAULT_SEED", SegmentContent.class);
+
+        // Presence bytes and required fixed fields are contiguous runs compared as blocks.
+        // Slots are walked in block order; alignment padding ends a run, since its bytes are
+        // not part of any value. Inline messages compare through their own flyweight, which
+        // skips the unused tail of fixed-capacity strings, and bitfield members by value. Oneof
+        // case bytes have no field of their own and join the runs.
+        Map<String, ResolvedFieldDefinition> fieldsByName = new HashMap<>();
+        message.fields().forEach(f -> fieldsByName.put(f.name(), f));
+        int runStart = 0;
+        int runEnd = layout.presenceBytes();
+        for (MessageLayout.Slot slot : layout.slots()) {
+            if (slot.variable() || slot.sparse()) {
+                continue;
+            }
+            ResolvedFieldDefinition field = fieldsByName.get(slot.name());
+            if (field == null
+                    || (!field.optional()
+                            && !isFixedInlineUtf8(field)
+                            && !isMessageType(field)
+                            && !slot.packed())) {
+                if (slot.offset() != runEnd) {
+                    addContentRun(contentEquals, contentHash, runStart, runEnd);
+                    runStart = slot.offset();
+                }
+                runEnd = slot.offset() + slot.size();
+                continue;
+            }
+            addContentRun(contentEquals, contentHash, runStart, runEnd);
+            runStart = slot.offset() + slot.size();
+            runEnd = runStart;
+            addFieldContent(contentEquals, ContentOp.EQUALS, field, false, layout, helpers);
+            addFieldContent(contentHash, ContentOp.HASH, field, false, layout, helpers);
+        }
+        addContentRun(contentEquals, contentHash, runStart, runEnd);
+        for (ResolvedFieldDefinition field : message.fields()) {
+            if (!isFixedSize(field)) {
+                addFieldContent(contentEquals, ContentOp.EQUALS, field, false, layout, helpers);
+                addFieldContent(contentHash, ContentOp.HASH, field, false, layout, helpers);
+            }
+        }
+        if (layout.sparseOffset() >= 0) {
+            // Equal presence bytes mean equal member sets, so the packed regions compare as bytes.
+            helpers.add("varEquals");
+            helpers.add("varHash");
+            contentEquals
+                    .beginControlFlow("if (!varEquals(SPARSE_OFFSET, other))")
+                    .addStatement("return false")
+                    .endControlFlow();
+            contentHash.addStatement("hash = varHash(SPARSE_OFFSET, hash)");
+        }
+        for (ResolvedOneofDefinition oneof : message.oneofs()) {
+            addOneofContent(contentEquals, ContentOp.EQUALS, oneof, false, helpers);
+            addOneofContent(contentHash, ContentOp.HASH, oneof, false, helpers);
+        }
+        contentEquals.addStatement("return true");
+        contentHash.addStatement("return hash");
+
+        List<ResolvedFieldDefinition> keyFields =
+                message.fields().stream().filter(ResolvedFieldDefinition::key).toList();
+        List<ResolvedOneofDefinition> keyOneofs = List.of();
+        if (keyFields.isEmpty()) {
+            keyFields = message.fields();
+            keyOneofs = message.oneofs();
+        }
+        MethodSpec.Builder keyEquals =
+                MethodSpec.methodBuilder("keyEquals")
+                        .addJavadoc(
+                                "Returns whether {@code other} has the same key field values.\n")
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(boolean.class)
+                        .addParameter(flyweightClassName, "other");
+        MethodSpec.Builder keyHash =
+                MethodSpec.methodBuilder("keyHash")
+                        .addJavadoc(
+                                "Returns a 64-bit hash of the key field values, consistent with"
+                                        + " {@link #keyEquals}.\n")
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(long.class)
+                        .addStatement("long hash = $T.DEFAULT_SEED", SegmentContent.class);
+        MethodSpec.Builder compareByKey =
+                MethodSpec.methodBuilder("compareByKey")
+                        .addJavadoc(
+                                "Orders messages by their key fields in declaration order. Absent"
+                                        + " optional fields sort first, numbers by value and"
+                                        + " strings/bytes by unsigned bytes.\n")
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(int.class)
+                        .addParameter(flyweightClassName, "other")
+                        .addStatement("int result");
+        for (ResolvedFieldDefinition field : keyFields) {
+            addFieldContent(keyEquals, ContentOp.EQUALS, field, true, layout, helpers);
+            addFieldContent(keyHash, ContentOp.HASH, field, true, layout, helpers);
+            addFieldContent(compareByKey, ContentOp.COMPARE, field, true, layout, helpers);
+        }
+        for (ResolvedOneofDefinition oneof : keyOneofs) {
+            addOneofContent(keyEquals, ContentOp.EQUALS, oneof, true, helpers);
+            addOneofContent(keyHash, ContentOp.HASH, oneof, true, helpers);
+            addOneofContent(compareByKey, ContentOp.COMPARE, oneof, true, helpers);
+        }
+        keyEquals.addStatement("return true");
+        keyHash.addStatement("return hash");
+        compareByKey.addStatement("return 0");
+
+        List<MethodSpec> methods = new ArrayList<>();
+        methods.add(contentEquals.build());
+        methods.add(contentHash.build());
+        methods.add(keyEquals.build());
+        methods.add(keyHash.build());
+        methods.add(compareByKey.build());
+        for (String helper : helpers) {
+            methods.add(createContentHelper(helper, flyweightClassName));
+        }
+        return methods;
+    }
+
+    private void addContentRun(
+            MethodSpec.Builder equals, MethodSpec.Builder hash, int start, int end) {
+        if (end <= start) {
+            return;
+        }
+        String delta = start == 0 ? "" : " + " + start;
+        equals.beginControlFlow(
+                        "if (!$T.equals(this.segment, this.offset$L, other.segment,"
+                                + " other.offset$L, $L))",
+                        SegmentContent.class,
+                        delta,
+                        delta,
+                        end - start)
+                .addStatement("return false")
+                .endControlFlow();
+        hash.addStatement(
+                "hash = $T.hash(this.segment, this.offset$L, $L, hash)",
+                SegmentContent.class,
+                delta,
+                end - start);
+    }
+
+    /**
+     * Emits one field's contribution to an equals, hash or compare method. In key mode the
+     * presence of optional fields is compared explicitly; in content mode it is already covered
+     * by the presence bytes.
+     */
+    private void addFieldContent(
+            MethodSpec.Builder method,
+            ContentOp op,
+            ResolvedFieldDefinition field,
+            boolean keyMode,
+            MessageLayout layout,
+            Set<String> helpers) {
+        String cap = capitalize(field.name());
+        if (field.optional()) {
+            if (keyMode) {
+                switch (op) {
+                    case EQUALS ->
+                            method.beginControlFlow("if (this.has$L() != other.has$L())", cap, cap)
+                                    .addStatement("return false")
+                                    .endControlFlow();
+                    case HASH ->
+                            method.addStatement(
+                                    "hash = $T.mix(hash, this.has$L() ? 1 : 0)",
+                                    SegmentContent.class,
+                                    cap);
+                    case COMPARE ->
+                            method.addStatement(
+                                            "result = Boolean.compare(this.has$L(), other.has$L())",
+                                            cap,
+                                            cap)
+                                    .beginControlFlow("if (result != 0)")
+                                    .addStatement("return result")
+                                    .endControlFlow();
+                }
+            }
+            method.beginControlFlow("if (this.has$L())", cap);
+        }
+
+        String offsetConst = constantName(field.name(), "OFFSET");
+        if (isMessageType(field) && !field.repeated()) {
+            switch (op) {
+                case EQUALS ->
+                        method.beginControlFlow(
+                                        "if (!this.get$L().contentEquals(other.get$L()))", cap, cap)
+                                .addStatement("return false")
+                                .endControlFlow();
+                case HASH ->
+                        method.addStatement(
+                                "hash = $T.mix(hash, this.get$L().contentHash())",
+                                SegmentContent.class,
+                                cap);
+                case COMPARE ->
+                        method.addStatement(
+                                        "result = this.get$L().compareByKey(other.get$L())",
+                                        cap,
+                                        cap)
+                                .beginControlFlow("if (result != 0)")
+                                .addStatement("return result")
+                                .endControlFlow();
+            }
+        } else if (field.fixedCount() != null) {
+            // Unset elements are zero, so an array's slot is equal and hashed as one block;
+            // order compares the elements by value.
+            switch (op) {
+                case EQUALS ->
+                        method.beginControlFlow(
+                                        "if (!$T.equals(this.segment, this.offset + $L,"
+                                                + " other.segment, other.offset + $L, $L))",
+                                        SegmentContent.class,
+                                        offsetConst,
+                                        offsetConst,
+                                        getFixedSize(field))
+                                .addStatement("return false")
+                                .endControlFlow();
+                case HASH ->
+                        method.addStatement(
+                                "hash = $T.hash(this.segment, this.offset + $L, $L, hash)",
+                                SegmentContent.class,
+                                offsetConst,
+                                getFixedSize(field));
+                case COMPARE ->
+                        method.beginControlFlow(
+                                        "for (int i = 0; i < $L; i++)",
+                                        constantName(field.name(), "COUNT"))
+                                .addStatement(
+                                        "result = $L.compare(this.get$LAt(i), other.get$LAt(i))",
+                                        boxedTypeName(getUnderlyingType(field.type())),
+                                        cap,
+                                        cap)
+                                .beginControlFlow("if (result != 0)")
+                                .addStatement("return result")
+                                .endControlFlow()
+                                .endControlFlow();
+            }
+        } else if (!isFixedSize(field) || isFixedInlineUtf8(field)) {
+            String prefix = isFixedSize(field) ? "inline" : "var";
+            switch (op) {
+                case EQUALS -> {
+                    helpers.add(prefix + "Equals");
+                    method.beginControlFlow("if (!$LEquals($L, other))", prefix, offsetConst)
+                            .addStatement("return false")
+                            .endControlFlow();
+                }
+                case HASH -> {
+                    helpers.add(prefix + "Hash");
+                    method.addStatement("hash = $LHash($L, hash)", prefix, offsetConst);
+                }
+                case COMPARE -> {
+                    helpers.add(prefix + "Compare");
+                    method.addStatement("result = $LCompare($L, other)", prefix, offsetConst)
+                            .beginControlFlow("if (result != 0)")
+                            .addStatement("return result")
+                            .endControlFlow();
+                }
+            }
+        } else {
+            // A uuid or ascii16 is compared as its two int64 words, most significant first.
+            // A bitset is compared as its int64 of bits.
+            boolean uuid = isTwoWord(field);
+            boolean int64 = uuid || field.bitset();
+            String layoutName =
+                    field.dictionary()
+                            ? "INT_BE"
+                            : int64 ? "LONG_BE" : getLayoutConstantName(field.type());
+            String underlying =
+                    field.dictionary()
+                            ? "int32"
+                            : int64 ? "int64" : getUnderlyingType(field.type());
+            for (String word : uuid ? List.of("", " + 8") : List.of("")) {
+                CodeBlock thisValue =
+                        CodeBlock.of(
+                                "this.segment.get($T.$L, this.offset + $L$L)",
+                                Layouts.class,
+                                layoutName,
+                                offsetConst,
+                                word);
+                CodeBlock otherValue =
+                        CodeBlock.of(
+                                "other.segment.get($T.$L, other.offset + $L$L)",
+                                Layouts.class,
+                                layoutName,
+                                offsetConst,
+                                word);
+                MessageLayout.Slot slot = layout.slot(field.name());
+                if (slot.packed() || slot.sparse()) {
+                    // Bitfield members are compared by value; the rest of the word is not
+                    // theirs. Sparse members have no fixed offset to read from.
+                    thisValue = CodeBlock.of("this.get$L()", cap);
+                    otherValue = CodeBlock.of("other.get$L()", cap);
+                }
+                switch (op) {
+                    case EQUALS ->
+                            method.beginControlFlow(
+                                            "if ($L != $L)",
+                                            rawBits(underlying, thisValue),
+                                            rawBits(underlying, otherValue))
+                                    .addStatement("return false")
+                                    .endControlFlow();
+                    case HASH ->
+                            method.addStatement(
+                                    "hash = $T.mix(hash, $L)",
+                                    SegmentContent.class,
+                                    rawBits(underlying, thisValue));
+                    case COMPARE ->
+                            method.addStatement(
+                                            "result = $L.compare($L, $L)",
+                                            boxedTypeName(underlying),
+                                            thisValue,
+                                            otherValue)
+                                    .beginControlFlow("if (result != 0)")
+                                    .addStatement("return result")
+                                    .endControlFlow();
+                }
+            }
+        }
+
+        if (field.optional()) {
+            method.endControlFlow();
+        }
+    }
+
+    /**
+     * Emits one oneof's contribution to an equals, hash or compare method: the set option, read
+     * like a field of its type. In key mode the cases are compared first; in content mode they
+     * are already covered by the fixed-slot runs.
+     */
+    private void addOneofContent(
+            MethodSpec.Builder method,
+            ContentOp op,
+            ResolvedOneofDefinition oneof,
+            boolean keyMode,
+            Set<String> helpers) {
+        String caseGetter = "get" + capitalize(oneof.caseName()) + "()";
+        if (keyMode) {
+            switch (op) {
+                case EQUALS ->
+                        method.beginControlFlow(
+                                        "if (this.$L != other.$L)", caseGetter, caseGetter)
+                                .addStatement("return false")
+                                .endControlFlow();
+                case HASH ->
+                        method.addStatement(
+                                "hash = $T.mix(hash, this.$L.id())",
+                                SegmentContent.class,
+                                caseGetter);
+                case COMPARE ->
+                        method.addStatement(
+                                        "result = Integer.compare(this.$L.id(), other.$L.id())",
+                                        caseGetter,
+                                        caseGetter)
+                                .beginControlFlow("if (result != 0)")
+                                .addStatement("return result")
+                                .endControlFlow();
+            }
+        }
+        String offsetConst = constantName(oneof.name(), "OFFSET");
+        for (ResolvedFieldDefinition option : oneof.fields()) {
+            String cap = capitalize(option.name());
+            method.beginControlFlow("if (this.has$L())", cap);
+            if (isMessageType(option)) {
+                switch (op) {
+                    case EQUALS ->
+                            method.beginControlFlow(
+                                            "if (!this.get$L().contentEquals(other.get$L()))",
+                                            cap,
+                                            cap)
+                                    .addStatement("return false")
+                                    .endControlFlow();
+                    case HASH ->
+                            method.addStatement(
+                                    "hash = $T.mix(hash, this.get$L().contentHash())",
+                                    SegmentContent.class,
+                                    cap);
+                    case COMPARE ->
+                            method.addStatement(
+                                            "result = this.get$L().compareByKey(other.get$L())",
+                                            cap,
+                                            cap)
+                                    .beginControlFlow("if (result != 0)")
+                                    .addStatement("return result")
+                                    .endControlFlow();
+                }
+            } else if (!isFixedSize(option)) {
+                switch (op) {
+                    case EQUALS -> {
+                        helpers.add("varEquals");
+                        method.beginControlFlow("if (!varEquals($L, other))", offsetConst)
+                                .addStatement("return false")
+                                .endControlFlow();
+                    }
+                    case HASH -> {
+                        helpers.add("varHash");
+                        method.addStatement("hash = varHash($L, hash)", offsetConst);
+                    }
+                    case COMPARE -> {
+                        helpers.add("varCompare");
+                        method.addStatement("result = varCompare($L, other)", offsetConst)
+                                .beginControlFlow("if (result != 0)")
+                                .addStatement("return result")
+                                .endControlFlow();
+                    }
+                }
+            } else {
+                String underlying = getUnderlyingType(option.type());
+                CodeBlock thisValue = CodeBlock.of("this.get$L()", cap);
+                CodeBlock otherValue = CodeBlock.of("other.get$L()", cap);
+                switch (op) {
+                    case EQUALS ->
+                            method.beginControlFlow(
+                                            "if ($L != $L)",
+                                            rawBits(underlying, thisValue),
+                                            rawBits(underlying, otherValue))
+                                    .addStatement("return false")
+                                    .endControlFlow();
+                    case HASH ->
+                            method.addStatement(
+                                    "hash = $T.mix(hash, $L)",
+                                    SegmentContent.class,
+                                    rawBits(underlying, thisValue));
+                    case COMPARE ->
+                            method.addStatement(
+                                            "result = $L.compare($L, $L)",
+                                            boxedTypeName(underlying),
+                                            thisValue,
+                                            otherValue)
+                                    .beginControlFlow("if (result != 0)")
+                                    .addStatement("return result")
+                                    .endControlFlow();
+                }
+            }
+            method.endControlFlow();
+        }
+    }
+
+    /** Widens a fixed slot read to a value whose equality matches bitwise slot equality. */
+    private CodeBlock rawBits(String underlyingType, CodeBlock value) {
+        return switch (underlyingType) {
+            case "bool" -> CodeBlock.of("($L ? 1 : 0)", value);
+            case "float32" -> CodeBlock.of("Float.floatToRawIntBits($L)", value);
+            case "float64" -> CodeBlock.of("Double.doubleToRawLongBits($L)", value);
+            default -> value;
+        };
+    }
+
+    private String boxedTypeName(String underlyingType) {
+        return switch (underlyingType) {
+            case "bool" -> "Boolean";
+            case "int8" -> "Byte";
+            case "int16" -> "Short";
+            case "int32" -> "Integer";
+            case "int64" -> "Long";
+            case "float32" -> "Float";
+            case "float64" -> "Double";
+            default ->
+                    throw new IllegalArgumentException(
+                            "Unsupported type for comparison: " + underlyingType);
+        };
+    }
+
+    /**
+     * Creates a private helper that compares or hashes the bytes of a length-prefixed value. The
+     * {@code var*} helpers follow an 8-byte var-field header; the {@code inline*} helpers read a
+     * fixed-capacity string's {@code [length][bytes]} slot, ignoring unused capacity.
+     */
+    private MethodSpec createContentHelper(String name, ClassName flyweightClassName) {
+        boolean inline = name.startsWith("inline");
+        String slotParam = inline ? "slotOffset" : "headerOffset";
+        MethodSpec.Builder helper =
+                MethodSpec.methodBuilder(name)
+                        .addModifiers(Modifier.PRIVATE)
+                        .addParameter(int.class, slotParam);
+        addHelperRegion(helper, "this", slotParam, inline);
+        if (name.endsWith("Hash")) {
+            return helper.returns(long.class)
+                    .addParameter(long.class, "hash")
+                    .addStatement(
+                            "return $T.hash(this.segment, thisData, thisLength,"
+                                    + " $T.mix(hash, thisLength))",
+                            SegmentContent.class,
+                            SegmentContent.class)
+                    .build();
+        }
+        helper.addParameter(flyweightClassName, "other");
+        addHelperRegion(helper, "other", slotParam, inline);
+        boolean equals = name.endsWith("Equals");
+        return helper.returns(equals ? boolean.class : int.class)
+                .addStatement(
+                        "return $T.$L(this.segment, thisData, thisLength, other.segment,"
+                                + " otherData, otherLength)",
+                        SegmentContent.class,
+                        equals ? "equals" : "compare")
+                .build();
+    }
+
+    private void addHelperRegion(
+            MethodSpec.Builder helper, String side, String slotParam, boolean inline) {
+        if (inline) {
+            helper.addStatement(
+                            "final long $LData = $L.offset + $L + 4", side, side, slotParam)
+                    .addStatement(
+                            "final int $LLength = $L.segment.get($T.INT_BE, $L.offset + $L)",
+                            side,
+                            side,
+                            Layouts.class,
+                            side,
+                            slotParam);
+        } else {
+            helper.addStatement(
+                            "final long $LData = $L.offset + $L.segment.get($T.INT_BE, $L.offset"
+                                    + " + $L)",
+                            side,
+                            side,
+                            side,
+                            Layouts.class,
+                            side,
+                            slotParam)
+                    .addStatement(
+                            "final int $LLength = $L.segment.get($T.INT_BE, $L.offset + $L + 4)",
+                            side,
+                            side,
+                            Layouts.class,
+                            side,
+                            slotParam);
+        }
+    }
+
     private MethodSpec createPresenceChecker(String fieldName, int bitIndex) {
         return MethodSpec.methodBuilder("has" + capitalize(fieldName))
                 .addModifiers(Modifier.PUBLIC)
@@ -1283,21 +3474,471 @@ public final class StubGenerator {
                 .build();
     }
 
-    private MethodSpec createInlineUtf8Getter(ResolvedFieldDefinition field, String offsetConst) {
-        String viewFieldName = field.name() + "View";
-        return MethodSpec.methodBuilder("get" + capitalize(field.name()))
-                .addModifiers(Modifier.PUBLIC)
-                .returns(ClassName.get(Utf8View.class))
-                .addStatement("final long base = this.offset + $L", offsetConst)
-                .addStatement("final int dataLength = segment.get($T.INT_BE, base)", Layouts.class)
-                .addStatement("this.$L.wrap(this.segment, base + 4, dataLength)", viewFieldName)
-                .addStatement("return this.$L", viewFieldName)
-                .build();
+    /**
+     * Creates the accessors of a {@code bitset} field, an int64 with bit {@code id} set for each
+     * enum value present: the raw bits, membership and count tests that never decode, and a fill
+     * of a caller-owned {@link EnumSet}. Bits without a known value, written by a newer
+     * schema, are skipped.
+     */
+    private List<MethodSpec> createBitsetAccessors(
+            ResolvedFieldDefinition field, ClassName layouts, String offsetConst) {
+        String cap = capitalize(field.name());
+        ClassName enumClass = ClassName.get(schema.namespace(), field.type());
+        List<MethodSpec> methods = new ArrayList<>();
+        methods.add(
+                MethodSpec.methodBuilder("get" + cap + "Bits")
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(long.class)
+                        .addStatement(
+                                "return segment.get($T.LONG_BE, this.offset + $L)",
+                                layouts,
+                                offsetConst)
+                        .build());
+        methods.add(
+                MethodSpec.methodBuilder("set" + cap + "Bits")
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(long.class, "bits")
+                        .addStatement(
+                                "segment.set($T.LONG_BE, this.offset + $L, bits)",
+                                layouts,
+                                offsetConst)
+                        .build());
+        methods.add(
+                MethodSpec.methodBuilder("has" + cap)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(enumClass, "value")
+                        .returns(boolean.class)
+                        .addStatement("return (get$LBits() & value.bit()) != 0", cap)
+                        .build());
+        methods.add(
+                MethodSpec.methodBuilder("get" + cap + "Count")
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(int.class)
+                        .addStatement("return $T.bitCount(get$LBits())", Long.class, cap)
+                        .build());
+        TypeName setType =
+                ParameterizedTypeName.get(ClassName.get(EnumSet.class), enumClass);
+        methods.add(
+                MethodSpec.methodBuilder("get" + cap)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(setType, "dst")
+                        .returns(setType)
+                        .addJavadoc(
+                                "Replaces the contents of {@code dst} with the values in this"
+                                        + " set.\n"
+                                        + "@param dst the set to fill\n"
+                                        + "@return {@code dst}")
+                        .addStatement("dst.clear()")
+                        .beginControlFlow(
+                                "for (long bits = get$LBits(); bits != 0; bits &= bits - 1)", cap)
+                        .addStatement(
+                                "$T value = $T.fromIdOrNull($T.numberOfTrailingZeros(bits))",
+                                enumClass,
+                                enumClass,
+                                Long.class)
+                        .beginControlFlow("if (value != null)")
+                        .addStatement("dst.add(value)")
+                        .endControlFlow()
+                        .endControlFlow()
+                        .addStatement("return dst")
+                        .build());
+        return methods;
+    }
+
+    /**
+     * Creates the accessors of a {@code fixed_count} array: its constant count, indexed element
+     * access and bulk copies to and from a Java array. Element access is bounds-checked against
+     * the declared count; in-place writes of an optional array make it present.
+     */
+    private List<MethodSpec> createFixedArrayAccessors(
+            ResolvedFieldDefinition field, ClassName layouts, String offsetConst) {
+        String cap = capitalize(field.name());
+        String countConst = constantName(field.name(), "COUNT");
+        TypeName elementType = getJavaTypeName(field.type());
+        String layout = getLayoutConstantName(field.type());
+        int elementSize = MessageLayout.elementSize(schema, field);
+        String presenceBit = presenceBitConstant(field);
+        List<MethodSpec> methods = new ArrayList<>();
+        methods.add(
+                MethodSpec.methodBuilder("get" + cap + "Count")
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(int.class)
+                        .addJavadoc(
+                                "Returns the declared element count of {@code $L}.\n",
+                                field.name())
+                        .addStatement("return $L", countConst)
+                        .build());
+        methods.add(
+                MethodSpec.methodBuilder("get" + cap + "At")
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(int.class, "index")
+                        .returns(elementType)
+                        .addJavadoc(
+                                "Returns the element at the given index.\n"
+                                        + "@param index the element index (0-based)\n"
+                                        + "@return the element value\n"
+                                        + "@throws IndexOutOfBoundsException if index is out of"
+                                        + " range")
+                        .addStatement("$T.checkIndex(index, $L)", Objects.class, countConst)
+                        .addStatement(
+                                "return segment.get($T.$L, this.offset + $L + index * $LL)",
+                                layouts,
+                                layout,
+                                offsetConst,
+                                elementSize)
+                        .build());
+        MethodSpec.Builder setAt =
+                MethodSpec.methodBuilder("set" + cap + "At")
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(int.class, "index")
+                        .addParameter(elementType, "value")
+                        .addJavadoc(
+                                "Overwrites the element at the given index in place.\n"
+                                        + "@param index the element index (0-based)\n"
+                                        + "@param value the new value\n"
+                                        + "@throws IndexOutOfBoundsException if index is out of"
+                                        + " range")
+                        .addStatement("$T.checkIndex(index, $L)", Objects.class, countConst)
+                        .addStatement(
+                                "segment.set($T.$L, this.offset + $L + index * $LL, value)",
+                                layouts,
+                                layout,
+                                offsetConst,
+                                elementSize);
+        if (presenceBit != null) {
+            setAt.addStatement("this.presenceBits.set($L)", presenceBit);
+        }
+        methods.add(setAt.build());
+        methods.add(
+                MethodSpec.methodBuilder("get" + cap)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(ArrayTypeName.of(elementType), "dst")
+                        .addJavadoc(
+                                "Copies all $L elements into {@code dst}, starting at index 0.\n"
+                                        + "@param dst the destination array\n"
+                                        + "@throws IndexOutOfBoundsException if {@code dst} is"
+                                        + " shorter than the element count",
+                                field.fixedCount())
+                        .addStatement(
+                                "$T.copy(segment, $T.$L, this.offset + $L, dst, 0, $L)",
+                                MemorySegment.class,
+                                layouts,
+                                layout,
+                                offsetConst,
+                                countConst)
+                        .build());
+        MethodSpec.Builder setAll =
+                MethodSpec.methodBuilder("set" + cap)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(ArrayTypeName.of(elementType), "src")
+                        .addJavadoc(
+                                "Copies all $L elements from {@code src}, starting at index 0.\n"
+                                        + "@param src the source array\n"
+                                        + "@throws IndexOutOfBoundsException if {@code src} is"
+                                        + " shorter than the element count",
+                                field.fixedCount())
+                        .addStatement(
+                                "$T.copy(src, 0, segment, $T.$L, this.offset + $L, $L)",
+                                MemorySegment.class,
+                                layouts,
+                                layout,
+                                offsetConst,
+                                countConst);
+        if (presenceBit != null) {
+            setAll.addStatement("this.presenceBits.set($L)", presenceBit);
+        }
+        methods.add(setAll.build());
+        return methods;
+    }
+
+    private MethodSpec createInlineUtf8Getter(ResolvedFieldDefinition field, String offsetConst) {
+        String viewFieldName = field.name() + "View";
+        return MethodSpec.methodBuilder("get" + capitalize(field.name()))
+                .addModifiers(Modifier.PUBLIC)
+                .returns(ClassName.get(Utf8View.class))
+                .addStatement("final long base = this.offset + $L", offsetConst)
+                .addStatement("final int dataLength = segment.get($T.INT_BE, base)", Layouts.class)
+                .addStatement("$L().wrap(this.segment, base + 4, dataLength)", viewFieldName)
+                .addStatement("return $L()", viewFieldName)
+                .build();
+    }
+
+    /**
+     * Creates the accessors for a dictionary-encoded string: the raw id getter/setter plus a
+     * resolver that wraps the field's reusable view around the decoder's off-heap bytes.
+     */
+    private List<MethodSpec> createDictionaryAccessors(
+            ResolvedFieldDefinition field, ClassName layouts, String offsetConst) {
+        ClassName dictionaryClass =
+                ClassName.get("express.mvp.myra.codec.runtime", "StringDictionaryDecoder");
+        String capitalizedName = capitalize(field.name());
+        List<MethodSpec> methods = new ArrayList<>();
+        methods.add(
+                createGetter(field.name() + "Id", TypeName.INT, layouts, "INT_BE", offsetConst));
+        methods.add(
+                createSetter(
+                        field.name() + "Id",
+                        TypeName.INT,
+                        layouts,
+                        "INT_BE",
+                        offsetConst,
+                        presenceBitConstant(field)));
+        methods.add(
+                MethodSpec.methodBuilder("get" + capitalizedName)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(ClassName.get(Utf8View.class))
+                        .addParameter(dictionaryClass, "dictionary")
+                        .addJavadoc(
+                                "Resolves the dictionary id of {@code $L} without copying.\n"
+                                        + "@param dictionary the session dictionary\n"
+                                        + "@return the reusable view over the string bytes",
+                                field.name())
+                        .addStatement(
+                                "return dictionary.resolve(get$LId(), $LView())",
+                                capitalizedName,
+                                field.name())
+                        .build());
+        return methods;
+    }
+
+    /**
+     * Creates the in-place mutators for a var field declared with {@code slack}. The builder
+     * stores the reserved capacity as an int32 just before the value, so a new value can be
+     * written over the old one, and the header length rewritten, whenever it fits.
+     */
+    private List<MethodSpec> createSlackAccessors(
+            ResolvedFieldDefinition field, String offsetConst) {
+        String capitalizedName = capitalize(field.name());
+        ClassName varFieldWriterClass =
+                ClassName.get("express.mvp.roray.ffm.utils.memory", "VarFieldWriter");
+        List<MethodSpec> methods = new ArrayList<>();
+        methods.add(
+                MethodSpec.methodBuilder("get" + capitalizedName + "Capacity")
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(int.class)
+                        .addJavadoc(
+                                "Returns the bytes reserved for {@code $L}, or 0 if it was never"
+                                        + " written.\n"
+                                        + "@return the in-place capacity in bytes",
+                                field.name())
+                        .addStatement(
+                                "final int relativeOffset = segment.get($T.INT_BE, this.offset +"
+                                        + " $L)",
+                                Layouts.class,
+                                offsetConst)
+                        .addStatement(
+                                "return relativeOffset == 0 ? 0 : segment.get($T.INT_BE,"
+                                        + " this.offset + relativeOffset - 4)",
+                                Layouts.class)
+                        .build());
+
+        MethodSpec.Builder trySetRaw =
+                MethodSpec.methodBuilder("trySet" + capitalizedName)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(boolean.class)
+                        .addParameter(MemorySegment.class, "value")
+                        .addJavadoc(
+                                "Overwrites {@code $L} in place if {@code value} fits the reserved"
+                                        + " capacity.\n"
+                                        + "@param value the new encoded bytes\n"
+                                        + "@return false, leaving the frame untouched, if the value"
+                                        + " does not fit",
+                                field.name())
+                        .addStatement("final long length = value.byteSize()")
+                        .beginControlFlow("if (length > get$LCapacity())", capitalizedName)
+                        .addStatement("return false")
+                        .endControlFlow()
+                        .addStatement(
+                                "final long data = this.offset + segment.get($T.INT_BE, this.offset"
+                                        + " + $L)",
+                                Layouts.class,
+                                offsetConst)
+                        .addStatement(
+                                "final int previousLength = segment.get($T.INT_BE, this.offset +"
+                                        + " $L + 4)",
+                                Layouts.class,
+                                offsetConst)
+                        .addStatement(
+                                "$T.copy(value, 0, segment, data, length)", MemorySegment.class)
+                        .beginControlFlow("if (length < previousLength)")
+                        .addStatement(
+                                "segment.asSlice(data + length, previousLength -"
+                                        + " length).fill((byte) 0)")
+                        .endControlFlow()
+                        .addStatement(
+                                "segment.set($T.INT_BE, this.offset + $L + 4, (int) length)",
+                                Layouts.class,
+                                offsetConst);
+        if (field.optional()) {
+            trySetRaw.addStatement(
+                    "this.presenceBits.set($L)", constantName(field.name(), "OPT_BIT"));
+        }
+        methods.add(trySetRaw.addStatement("return true").build());
+
+        if (isStringType(field)) {
+            methods.add(
+                    MethodSpec.methodBuilder("trySet" + capitalizedName)
+                            .addModifiers(Modifier.PUBLIC)
+                            .returns(boolean.class)
+                            .addParameter(String.class, "value")
+                            .addParameter(MemorySegment.class, "scratchBuffer")
+                            .addJavadoc(
+                                    "UTF-8 encodes {@code value} into {@code scratchBuffer} and"
+                                            + " writes it in place if it fits.\n"
+                                            + "@param value the new value\n"
+                                            + "@param scratchBuffer buffer used for encoding\n"
+                                            + "@return false, leaving the frame untouched, if the"
+                                            + " value does not fit")
+                            .addStatement(
+                                    "final int encodedLength = $T.utf8Length(value)",
+                                    varFieldWriterClass)
+                            .beginControlFlow(
+                                    "if (encodedLength > get$LCapacity())", capitalizedName)
+                            .addStatement("return false")
+                            .endControlFlow()
+                            .addStatement(
+                                    "$T.encodeUtf8(value, scratchBuffer)", varFieldWriterClass)
+                            .addStatement(
+                                    "return trySet$L(scratchBuffer.asSlice(0, encodedLength))",
+                                    capitalizedName)
+                            .build());
+        }
+        return methods;
+    }
+
+    /**
+     * Adds the sparse staging area of a builder. Setters write present members into a heap
+     * segment laid out like a fully populated region; {@code finishSparse} then appends the
+     * present ones after the var data in presence-bit order and fills in the sparse header. The
+     * loop runs over static tables, so its code size does not grow with the field count.
+     */
+    private void addSparseStaging(
+            TypeSpec.Builder builder,
+            List<MessageLayout.Slot> sparseSlots,
+            ClassName layoutsClass,
+            ClassName flyweightClassName) {
+        CodeBlock.Builder bits = CodeBlock.builder().add("new int[] { ");
+        CodeBlock.Builder sizes = CodeBlock.builder().add("new int[] { ");
+        int stageSize = 0;
+        for (int i = 0; i < sparseSlots.size(); i++) {
+            MessageLayout.Slot slot = sparseSlots.get(i);
+            bits.add(i == 0 ? "$L" : ", $L", slot.presenceBit());
+            sizes.add(i == 0 ? "$L" : ", $L", slot.size());
+            stageSize += slot.size();
+        }
+        builder.addField(
+                        FieldSpec.builder(
+                                        ArrayTypeName.of(int.class),
+                                        "SPARSE_BITS",
+                                        Modifier.PRIVATE,
+                                        Modifier.STATIC,
+                                        Modifier.FINAL)
+                                .initializer(bits.add(" }").build())
+                                .build())
+                .addField(
+                        FieldSpec.builder(
+                                        ArrayTypeName.of(int.class),
+                                        "SPARSE_SIZES",
+                                        Modifier.PRIVATE,
+                                        Modifier.STATIC,
+                                        Modifier.FINAL)
+                                .initializer(sizes.add(" }").build())
+                                .build())
+                .addField(
+                        FieldSpec.builder(
+                                        int.class,
+                                        "SPARSE_STAGE_SIZE",
+                                        Modifier.PRIVATE,
+                                        Modifier.STATIC,
+                                        Modifier.FINAL)
+                                .initializer("$L", stageSize)
+                                .build())
+                .addField(
+                        FieldSpec.builder(MemorySegment.class, "sparseValues", Modifier.PRIVATE)
+                                .build());
+        builder.addMethod(
+                MethodSpec.methodBuilder("sparseValues")
+                        .addModifiers(Modifier.PRIVATE)
+                        .returns(MemorySegment.class)
+                        .addStatement("$T values = this.sparseValues", MemorySegment.class)
+                        .beginControlFlow("if (values == null)")
+                        .addStatement(
+                                "values = $T.ofArray(new byte[SPARSE_STAGE_SIZE])",
+                                MemorySegment.class)
+                        .addStatement("this.sparseValues = values")
+                        .endControlFlow()
+                        .addStatement("return values")
+                        .build());
+        builder.addMethod(
+                MethodSpec.methodBuilder("finishSparse")
+                        .addModifiers(Modifier.PRIVATE)
+                        .returns(long.class)
+                        .addParameter(long.class, "start")
+                        .addStatement("long cursor = start")
+                        .addStatement("int stage = 0")
+                        .addStatement("int word = 0")
+                        .beginControlFlow("for (int i = 0; i < SPARSE_BITS.length; i++)")
+                        .addStatement("final int bit = SPARSE_BITS[i]")
+                        .addStatement("final int size = SPARSE_SIZES[i]")
+                        .beginControlFlow("while (word < bit >>> 6)")
+                        .addStatement("word++")
+                        .addStatement(
+                                "segment.set($T.INT_BE, payloadBase + $T.SPARSE_OFFSET + 4 + 4 *"
+                                        + " word, (int) (cursor - start))",
+                                layoutsClass,
+                                flyweightClassName)
+                        .endControlFlow()
+                        .beginControlFlow("if (presenceBits.get(bit))")
+                        .addStatement(
+                                "$T.copy(sparseValues, stage, segment, payloadBase + cursor, size)",
+                                MemorySegment.class)
+                        .addStatement("cursor += size")
+                        .endControlFlow()
+                        .addStatement("stage += size")
+                        .endControlFlow()
+                        .addStatement(
+                                "segment.set($T.INT_BE, payloadBase + $T.SPARSE_OFFSET, (int)"
+                                        + " start)",
+                                layoutsClass,
+                                flyweightClassName)
+                        .addStatement(
+                                "segment.set($T.INT_BE, payloadBase + $T.SPARSE_OFFSET + 4, (int)"
+                                        + " (cursor - start))",
+                                layoutsClass,
+                                flyweightClassName)
+                        .addStatement("return cursor")
+                        .build());
+    }
+
+    /**
+     * Returns whether a builder setter's {@code value} equals the field's default. Floats compare
+     * by their bits, so {@code -0.0} is written when the default is {@code 0.0}.
+     */
+    private CodeBlock equalsDefault(ResolvedFieldDefinition field, ClassName flyweightClass) {
+        String defaultConst = constantName(field.name(), "DEFAULT");
+        return switch (getUnderlyingType(field.type())) {
+            case "float32" ->
+                    CodeBlock.of(
+                            "$T.floatToRawIntBits(value) == $T.floatToRawIntBits($T.$L)",
+                            Float.class,
+                            Float.class,
+                            flyweightClass,
+                            defaultConst);
+            case "float64" ->
+                    CodeBlock.of(
+                            "$T.doubleToRawLongBits(value) == $T.doubleToRawLongBits($T.$L)",
+                            Double.class,
+                            Double.class,
+                            flyweightClass,
+                            defaultConst);
+            default -> CodeBlock.of("value == $T.$L", flyweightClass, defaultConst);
+        };
     }
 
     private MethodSpec createBuilderSetter(
             ClassName builderClassName,
             ResolvedFieldDefinition field,
+            MessageLayout.Slot slot,
             int fieldIndex,
             Integer varSlot,
             Integer optionalBitIndex,
@@ -1311,7 +3952,7 @@ public final class StubGenerator {
                         .addModifiers(Modifier.PUBLIC)
                         .returns(builderClassName);
 
-        if (field.repeated()) {
+        if (field.repeated() && field.fixedCount() == null && !field.bitset()) {
             // Generate setter for repeating groups
             return createRepeatingGroupSetter(
                     builderClassName,
@@ -1325,13 +3966,189 @@ public final class StubGenerator {
                     varFieldWriterClass);
         }
 
+        MapType map = MapType.parse(field.type());
+        if (map != null) {
+            return maps.createSetter(
+                    builderClassName,
+                    field,
+                    map,
+                    optionalBitIndex,
+                    objectsClass,
+                    nestedHandleClass);
+        }
+
         String indexConst = constantName(field.name(), "INDEX");
         String offsetConst = constantName(field.name(), "OFFSET");
         String optionalConst =
                 optionalBitIndex == null ? null : constantName(field.name(), "OPT_BIT");
 
-        if (!isFixedSize(field)) {
+        if (field.bitset()) {
+            // The bits are the primary setter; see createBitsetSetter for the value overload.
+            return MethodSpec.methodBuilder("set" + capitalize(field.name()) + "Bits")
+                    .addModifiers(Modifier.PUBLIC)
+                    .returns(builderClassName)
+                    .addParameter(long.class, "bits")
+                    .addStatement("ensureWritable($L, $S)", indexConst, field.name())
+                    .addStatement(
+                            "segment.set($T.LONG_BE, payloadBase + $T.$L, bits)",
+                            layoutsClass,
+                            flyweightClass,
+                            offsetConst)
+                    .addStatement("markWritten($L)", indexConst)
+                    .addStatement("return this")
+                    .build();
+        }
+
+        if (field.defaultValue() != null) {
+            // A value equal to the default is not written: the field stays absent and reads back
+            // as the default, and a sparse message carries no bytes for it.
+            method.beginControlFlow("if ($L)", equalsDefault(field, flyweightClass))
+                    .addStatement("ensureWritable($L, $S)", indexConst, field.name())
+                    .addStatement("markWritten($L)", indexConst)
+                    .addStatement("return this")
+                    .endControlFlow();
+        }
+
+        if (slot.sparse()) {
+            // Staged at the member's offset in a fully populated region; build() compacts.
+            method.addParameter(getJavaTypeName(field.type()), "value")
+                    .addStatement("ensureWritable($L, $S)", indexConst, field.name())
+                    .addStatement(
+                            "sparseValues().set($T.$L, $L, value)",
+                            layoutsClass,
+                            getLayoutConstantName(field.type()),
+                            slot.offset())
+                    .addStatement("markWritten($L)", indexConst)
+                    .addStatement("presenceBits.set($L)", optionalConst)
+                    .addStatement("return this");
+            return method.build();
+        }
+
+        if (slot.packed()) {
+            TypeName type = getJavaTypeName(field.type());
+            TypeName wordType = getJavaTypeName(slot.wordType());
+            String wordLayout = getLayoutConstantName(slot.wordType());
+            method.addParameter(type, "value")
+                    .addStatement("ensureWritable($L, $S)", indexConst, field.name())
+                    .addStatement(
+                            "final $T word = segment.get($T.$L, payloadBase + $T.$L)",
+                            wordType,
+                            layoutsClass,
+                            wordLayout,
+                            flyweightClass,
+                            offsetConst)
+                    .addStatement(
+                            "segment.set($T.$L, payloadBase + $T.$L, $L)",
+                            layoutsClass,
+                            wordLayout,
+                            flyweightClass,
+                            offsetConst,
+                            packedWord(
+                                    slot,
+                                    type,
+                                    wordType,
+                                    CodeBlock.of(
+                                            "$T.$L",
+                                            flyweightClass,
+                                            constantName(field.name(), "SHIFT"))))
+                    .addStatement("markWritten($L)", indexConst);
+            if (optionalConst != null) {
+                method.addStatement("presenceBits.set($L)", optionalConst);
+            }
+            method.addStatement("return this");
+            return method.build();
+        }
+
+        if (field.slack() != null) {
             if (isStringType(field)) {
+                method.addParameter(String.class, "value")
+                        .addParameter(MemorySegment.class, "scratchBuffer")
+                        .addStatement("$T.requireNonNull(value, \"value\")", objectsClass)
+                        .addStatement(
+                                "$T.requireNonNull(scratchBuffer, \"scratchBuffer\")", objectsClass)
+                        .addStatement("ensureWritable($L, $S)", indexConst, field.name())
+                        .addStatement(
+                                "int encodedLength = $T.encodeUtf8(value, scratchBuffer)",
+                                varFieldWriterClass)
+                        .addStatement(
+                                "writeWithSlack($L, $T.$L, scratchBuffer, encodedLength, $L)",
+                                constantName(field.name(), "VAR_SLOT"),
+                                flyweightClass,
+                                offsetConst,
+                                constantName(field.name(), "SLACK"));
+            } else {
+                method.addParameter(MemorySegment.class, "source")
+                        .addStatement("$T.requireNonNull(source, \"source\")", objectsClass)
+                        .addStatement("ensureWritable($L, $S)", indexConst, field.name())
+                        .addStatement(
+                                "writeWithSlack($L, $T.$L, source, source.byteSize(), $L)",
+                                constantName(field.name(), "VAR_SLOT"),
+                                flyweightClass,
+                                offsetConst,
+                                constantName(field.name(), "SLACK"));
+            }
+            method.addStatement("markWritten($L)", indexConst);
+            if (optionalConst != null) {
+                method.addStatement("presenceBits.set($L)", optionalConst);
+            }
+            method.addStatement("return this");
+            return method.build();
+        }
+
+        if (isMessageType(field) && isFixedSize(field)) {
+            // Inline message: the child builder writes straight into this block's slot.
+            ClassName childBuilder = ClassName.get(schema.namespace(), field.type() + "Builder");
+            ClassName childFlyweight =
+                    ClassName.get(schema.namespace(), field.type() + flyweightSuffix);
+            method.addParameter(
+                            ParameterizedTypeName.get(ClassName.get(Consumer.class), childBuilder),
+                            "encoder")
+                    .addStatement("$T.requireNonNull(encoder, \"encoder\")", objectsClass)
+                    .addStatement("ensureWritable($L, $S)", indexConst, field.name())
+                    .addStatement(
+                            "$T nestedBuilder = $L(segment.asSlice(payloadBase + $T.$L,"
+                                    + " $T.BLOCK_LENGTH))",
+                            childBuilder,
+                            nestedBuilderName(field.type()),
+                            flyweightClass,
+                            offsetConst,
+                            childFlyweight)
+                    .addStatement("encoder.accept(nestedBuilder)")
+                    .addStatement("nestedBuilder.finishInline()")
+                    .addStatement("markWritten($L)", indexConst);
+            if (optionalConst != null) {
+                method.addStatement("presenceBits.set($L)", optionalConst);
+            }
+            method.addStatement("return this");
+            return method.build();
+        }
+
+        if (!isFixedSize(field)) {
+            if (isAsciiType(field)) {
+                // Written straight into the var area; the handle records where it ended.
+                method.addParameter(CharSequence.class, "value")
+                        .addStatement("$T.requireNonNull(value, \"value\")", objectsClass)
+                        .addStatement("ensureWritable($L, $S)", indexConst, field.name())
+                        .beginControlFlow("if (varWriter == null)")
+                        .addStatement(
+                                "throw new IllegalStateException(\"Message has no variable"
+                                        + " fields\")")
+                        .endControlFlow()
+                        .addStatement(
+                                "$T handle = varWriter.beginNestedField($L)",
+                                nestedHandleClass,
+                                constantName(field.name(), "VAR_SLOT"))
+                        .addStatement(
+                                "handle.finish($T.encode(value, segment, payloadBase +"
+                                        + " handle.relativeOffset()))",
+                                Ascii.class)
+                        .addStatement("markWritten($L)", indexConst);
+                if (optionalConst != null) {
+                    method.addStatement("presenceBits.set($L)", optionalConst);
+                }
+                method.addStatement("return this");
+                return method.build();
+            } else if (isStringType(field)) {
                 method.addParameter(String.class, "value");
                 method.addParameter(MemorySegment.class, "scratchBuffer");
                 method.addStatement("$T.requireNonNull(value, \"value\")", objectsClass)
@@ -1393,9 +4210,9 @@ public final class StubGenerator {
                                         + " segment.byteSize() - absoluteOffset)",
                                 MemorySegment.class)
                         .addStatement(
-                                "$T nestedBuilder = $T.inline(nestedSlice)",
+                                "$T nestedBuilder = $L(nestedSlice)",
                                 childBuilder,
-                                childBuilder)
+                                nestedBuilderName(field.type()))
                         .addStatement("encoder.accept(nestedBuilder)")
                         .addStatement("long nestedSize = nestedBuilder.finishInline()")
                         .addStatement("handle.finish(nestedSize)")
@@ -1408,6 +4225,136 @@ public final class StubGenerator {
             }
         }
 
+        if (field.dictionary()) {
+            ClassName dictionaryClass =
+                    ClassName.get("express.mvp.myra.codec.runtime", "StringDictionaryEncoder");
+            method.addJavadoc(
+                            "Writes the session dictionary id of {@code value}, assigning a new id"
+                                    + " if needed.\n"
+                                    + "@param value the string to encode\n"
+                                    + "@param dictionary the session dictionary\n"
+                                    + "@return this builder for chaining")
+                    .addParameter(String.class, "value")
+                    .addParameter(dictionaryClass, "dictionary")
+                    .addStatement("$T.requireNonNull(value, \"value\")", objectsClass)
+                    .addStatement("$T.requireNonNull(dictionary, \"dictionary\")", objectsClass)
+                    .addStatement("ensureWritable($L, $S)", indexConst, field.name())
+                    .addStatement(
+                            "segment.set($T.INT_BE, payloadBase + $T.$L, dictionary.idOf(value))",
+                            layoutsClass,
+                            flyweightClass,
+                            offsetConst)
+                    .addStatement("markWritten($L)", indexConst);
+            if (optionalConst != null) {
+                method.addStatement("presenceBits.set($L)", optionalConst);
+            }
+            method.addStatement("return this");
+            return method.build();
+        }
+
+        if (field.fixedCount() != null) {
+            // Elements past the given values are zeroed, so a shorter array never leaves stale
+            // elements behind.
+            TypeName elementType = getJavaTypeName(field.type());
+            int elementSize = MessageLayout.elementSize(schema, field);
+            String countConst = constantName(field.name(), "COUNT");
+            method.addParameter(ArrayTypeName.of(elementType), "values")
+                    .addStatement("$T.requireNonNull(values, \"values\")", objectsClass)
+                    .addStatement("ensureWritable($L, $S)", indexConst, field.name())
+                    .beginControlFlow("if (values.length > $T.$L)", flyweightClass, countConst)
+                    .addStatement(
+                            "throw new IllegalArgumentException(\"Field '\" + $S + \"' holds \" +"
+                                    + " $T.$L + \" elements, got \" + values.length)",
+                            field.name(),
+                            flyweightClass,
+                            countConst)
+                    .endControlFlow()
+                    .addStatement("long base = payloadBase + $T.$L", flyweightClass, offsetConst)
+                    .addStatement(
+                            "$T.copy(values, 0, segment, $T.$L, base, values.length)",
+                            MemorySegment.class,
+                            layoutsClass,
+                            getLayoutConstantName(field.type()))
+                    .beginControlFlow("if (values.length < $T.$L)", flyweightClass, countConst)
+                    .addStatement(
+                            "segment.asSlice(base + values.length * $LL, ($T.$L - values.length)"
+                                    + " * $LL).fill((byte) 0)",
+                            elementSize,
+                            flyweightClass,
+                            countConst,
+                            elementSize)
+                    .endControlFlow()
+                    .addStatement("markWritten($L)", indexConst);
+            if (optionalConst != null) {
+                method.addStatement("presenceBits.set($L)", optionalConst);
+            }
+            method.addStatement("return this");
+            return method.build();
+        }
+
+        if (isFixedInlineUtf8(field) && isBytesType(field)) {
+            method.addParameter(MemorySegment.class, "source")
+                    .addStatement("$T.requireNonNull(source, \"source\")", objectsClass)
+                    .addStatement("ensureWritable($L, $S)", indexConst, field.name())
+                    .beginControlFlow(
+                            "if (source.byteSize() > $L)",
+                            constantName(field.name(), "FIXED_CAPACITY"))
+                    .addStatement(
+                            "throw new IllegalArgumentException(\"Field '\" + $S + \"' exceeds"
+                                    + " fixed_capacity of \" + $L)",
+                            field.name(),
+                            field.fixedCapacity())
+                    .endControlFlow()
+                    .addStatement("int length = (int) source.byteSize()")
+                    .addStatement("long base = payloadBase + $T.$L", flyweightClass, offsetConst)
+                    .addStatement("segment.set($T.INT_BE, base, length)", layoutsClass)
+                    .addStatement(
+                            "$T.copy(source, 0, segment, base + 4, length)", MemorySegment.class)
+                    .beginControlFlow(
+                            "if (length < $L)", constantName(field.name(), "FIXED_CAPACITY"))
+                    .addStatement(
+                            "segment.asSlice(base + 4 + length, $L - length).fill((byte) 0)",
+                            constantName(field.name(), "FIXED_CAPACITY"))
+                    .endControlFlow()
+                    .addStatement("markWritten($L)", indexConst);
+            if (optionalConst != null) {
+                method.addStatement("presenceBits.set($L)", optionalConst);
+            }
+            method.addStatement("return this");
+            return method.build();
+        }
+
+        if (isFixedInlineUtf8(field) && isAsciiType(field)) {
+            // ASCII characters are their own bytes: no UTF-8 pass and no scratch copy.
+            method.addParameter(CharSequence.class, "value")
+                    .addStatement("$T.requireNonNull(value, \"value\")", objectsClass)
+                    .addStatement("ensureWritable($L, $S)", indexConst, field.name())
+                    .beginControlFlow(
+                            "if (value.length() > $L)",
+                            constantName(field.name(), "FIXED_CAPACITY"))
+                    .addStatement(
+                            "throw new IllegalArgumentException(\"Field '\" + $S + \"' exceeds"
+                                    + " fixed_capacity of \" + $L)",
+                            field.name(),
+                            field.fixedCapacity())
+                    .endControlFlow()
+                    .addStatement("long base = payloadBase + $T.$L", flyweightClass, offsetConst)
+                    .addStatement("int length = $T.encode(value, segment, base + 4)", Ascii.class)
+                    .addStatement("segment.set($T.INT_BE, base, length)", layoutsClass)
+                    .beginControlFlow(
+                            "if (length < $L)", constantName(field.name(), "FIXED_CAPACITY"))
+                    .addStatement(
+                            "segment.asSlice(base + 4 + length, $L - length).fill((byte) 0)",
+                            constantName(field.name(), "FIXED_CAPACITY"))
+                    .endControlFlow()
+                    .addStatement("markWritten($L)", indexConst);
+            if (optionalConst != null) {
+                method.addStatement("presenceBits.set($L)", optionalConst);
+            }
+            method.addStatement("return this");
+            return method.build();
+        }
+
         if (isFixedInlineUtf8(field)) {
             method.addParameter(String.class, "value");
             method.addParameter(MemorySegment.class, "scratchBuffer");
@@ -1424,9 +4371,7 @@ public final class StubGenerator {
                             field.name(),
                             field.fixedCapacity())
                     .endControlFlow()
-                    .addStatement(
-                            "$T.encodeUtf8(value, scratchBuffer, encodedLength)",
-                            varFieldWriterClass)
+                    .addStatement("$T.encodeUtf8(value, scratchBuffer)", varFieldWriterClass)
                     .addStatement("long base = payloadBase + $T.$L", flyweightClass, offsetConst)
                     .addStatement("segment.set($T.INT_BE, base, encodedLength)", layoutsClass)
                     .addStatement(
@@ -1457,6 +4402,33 @@ public final class StubGenerator {
             return method.build();
         }
 
+        if (isTwoWord(field)) {
+            List<String> words = wordSuffixes(RichType.of(field.type()));
+            String hi = words.get(0).toLowerCase();
+            String lo = words.get(1).toLowerCase();
+            method.addParameter(long.class, hi)
+                    .addParameter(long.class, lo)
+                    .addStatement("ensureWritable($L, $S)", indexConst, field.name())
+                    .addStatement(
+                            "segment.set($T.LONG_BE, payloadBase + $T.$L, $L)",
+                            layoutsClass,
+                            flyweightClass,
+                            offsetConst,
+                            hi)
+                    .addStatement(
+                            "segment.set($T.LONG_BE, payloadBase + $T.$L + 8, $L)",
+                            layoutsClass,
+                            flyweightClass,
+                            offsetConst,
+                            lo)
+                    .addStatement("markWritten($L)", indexConst);
+            if (optionalConst != null) {
+                method.addStatement("presenceBits.set($L)", optionalConst);
+            }
+            method.addStatement("return this");
+            return method.build();
+        }
+
         TypeName javaType = getJavaTypeName(field.type());
         method.addParameter(javaType, "value")
                 .addStatement("ensureWritable($L, $S)", indexConst, field.name())
@@ -1474,6 +4446,55 @@ public final class StubGenerator {
         return method.build();
     }
 
+    /** Creates a bitset field's builder setter taking enum values, folded into its bits. */
+    private MethodSpec createBitsetSetter(
+            ClassName builderClassName, ResolvedFieldDefinition field) {
+        String cap = capitalize(field.name());
+        ClassName enumClass = ClassName.get(schema.namespace(), field.type());
+        return MethodSpec.methodBuilder("set" + cap)
+                .addModifiers(Modifier.PUBLIC)
+                .returns(builderClassName)
+                .addParameter(
+                        ParameterizedTypeName.get(
+                                ClassName.get(Iterable.class),
+                                WildcardTypeName.subtypeOf(enumClass)),
+                        "values")
+                .addStatement("long bits = 0")
+                .beginControlFlow("for ($T value : values)", enumClass)
+                .addStatement("bits |= value.bit()")
+                .endControlFlow()
+                .addStatement("return set$LBits(bits)", cap)
+                .build();
+    }
+
+    /**
+     * Creates the text overload of an {@code ascii8} or {@code ascii16} builder setter, which
+     * packs the characters and delegates to the setter taking the packed words.
+     */
+    private MethodSpec createPackedAsciiSetter(
+            ClassName builderClassName, ResolvedFieldDefinition field, RichType rich) {
+        String cap = capitalize(field.name());
+        MethodSpec.Builder method =
+                MethodSpec.methodBuilder("set" + cap)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(builderClassName)
+                        .addParameter(CharSequence.class, "value")
+                        .addJavadoc(
+                                "@throws IllegalArgumentException if the text is longer than"
+                                        + " $L characters or not ASCII",
+                                rich.size());
+        if (rich == RichType.ASCII8) {
+            method.addStatement("return set$L($T.pack8(value))", cap, Ascii.class);
+        } else {
+            method.addStatement(
+                    "return set$L($T.pack16Hi(value), $T.pack16Lo(value))",
+                    cap,
+                    Ascii.class,
+                    Ascii.class);
+        }
+        return method.build();
+    }
+
     /**
      * Creates a builder setter method for a repeating group field. For primitive types: accepts an
      * array parameter. For complex types: accepts a count and a Consumer for populating elements.
@@ -1519,9 +4540,9 @@ public final class StubGenerator {
                     .addStatement(
                             "$T handle = varWriter.beginNestedField($L)",
                             ClassName.get(
-                                    "express.mvp.myra.codec.runtime",
+                                    "express.mvp.roray.ffm.utils.memory",
                                     "VarFieldWriter",
-                                    "NestedHandle"),
+                                    "NestedFieldHandle"),
                             constantName(field.name(), "VAR_SLOT"))
                     .addStatement("long absoluteOffset = payloadBase + handle.relativeOffset()")
                     .addStatement(
@@ -1568,30 +4589,37 @@ public final class StubGenerator {
                     .addStatement(
                             "$T handle = varWriter.beginNestedField($L)",
                             ClassName.get(
-                                    "express.mvp.myra.codec.runtime",
+                                    "express.mvp.roray.ffm.utils.memory",
                                     "VarFieldWriter",
-                                    "NestedHandle"),
+                                    "NestedFieldHandle"),
                             constantName(field.name(), "VAR_SLOT"))
                     .addStatement("long absoluteOffset = payloadBase + handle.relativeOffset()")
                     .addStatement(
                             "$T groupBuilder = new $T()",
                             VariableSizeRepeatingGroupBuilder.class,
                             VariableSizeRepeatingGroupBuilder.class)
-                    .addStatement("groupBuilder.beginWithCount(segment, absoluteOffset, count)")
-                    .beginControlFlow("for (int i = 0; i < count; i++)")
+                    .addStatement("groupBuilder.beginWithCount(segment, absoluteOffset, count)");
+            ResolvedFieldDefinition sortKey = field.sortedBy() == null ? null : sortKey(field);
+            if (sortKey != null) {
+                method.addStatement("$T previousKey = 0", getJavaTypeName(sortKey.type()));
+            }
+            method.beginControlFlow("for (int i = 0; i < count; i++)")
                     .addStatement("long elementStart = groupBuilder.beginElement()")
                     .addStatement(
                             "$T elementSlice = segment.asSlice(elementStart, segment.byteSize() -"
                                     + " elementStart)",
                             MemorySegment.class)
                     .addStatement(
-                            "$T nestedBuilder = $T.inline(elementSlice)",
+                            "$T nestedBuilder = $L(elementSlice)",
                             childBuilder,
-                            childBuilder)
+                            nestedBuilderName(field.type()))
                     .addStatement("elementWriter.accept(nestedBuilder)")
                     .addStatement("long nestedSize = nestedBuilder.finishInline()")
-                    .addStatement("groupBuilder.endElement((int) nestedSize)")
-                    .endControlFlow()
+                    .addStatement("groupBuilder.endElement((int) nestedSize)");
+            if (sortKey != null) {
+                addSortCheck(method, field, sortKey);
+            }
+            method.endControlFlow()
                     .addStatement("int bytesWritten = groupBuilder.finish()")
                     .addStatement("handle.finish(bytesWritten)")
                     .addStatement("markWritten($L)", indexConst);
@@ -1623,9 +4651,9 @@ public final class StubGenerator {
                     .addStatement(
                             "$T handle = varWriter.beginNestedField($L)",
                             ClassName.get(
-                                    "express.mvp.myra.codec.runtime",
+                                    "express.mvp.roray.ffm.utils.memory",
                                     "VarFieldWriter",
-                                    "NestedHandle"),
+                                    "NestedFieldHandle"),
                             constantName(field.name(), "VAR_SLOT"))
                     .addStatement("long absoluteOffset = payloadBase + handle.relativeOffset()")
                     .addStatement(
@@ -1664,9 +4692,9 @@ public final class StubGenerator {
                     .addStatement(
                             "$T handle = varWriter.beginNestedField($L)",
                             ClassName.get(
-                                    "express.mvp.myra.codec.runtime",
+                                    "express.mvp.roray.ffm.utils.memory",
                                     "VarFieldWriter",
-                                    "NestedHandle"),
+                                    "NestedFieldHandle"),
                             constantName(field.name(), "VAR_SLOT"))
                     .addStatement("long absoluteOffset = payloadBase + handle.relativeOffset()")
                     .addStatement(
@@ -1691,7 +4719,7 @@ public final class StubGenerator {
     }
 
     /** Gets the RepeatingGroupBuilder add method name for a primitive type. */
-    private String getRepeatingGroupBuilderAddMethod(String schemaType) {
+    String getRepeatingGroupBuilderAddMethod(String schemaType) {
         String underlyingType = getUnderlyingType(schemaType);
         return switch (underlyingType) {
             case "bool" -> "addBoolean";
@@ -1715,7 +4743,17 @@ public final class StubGenerator {
         return schema.enums().stream().anyMatch(e -> e.name().equals(schemaType));
     }
 
-    private String getUnderlyingType(String schemaType) {
+    String getUnderlyingType(String schemaType) {
+        // ASCII text is stored like a string; only the builder's encoding differs.
+        if ("ascii".equals(schemaType)) {
+            return "string";
+        }
+        // Timestamps, decimals and ascii8 are plain int64s on the wire; only their accessors
+        // differ.
+        RichType rich = RichType.of(schemaType);
+        if (rich != null && rich.int64Backed()) {
+            return "int64";
+        }
         // Find a matching enum definition in the schema.
         return schema.enums().stream()
                 .filter(e -> e.name().equals(schemaType))
@@ -1726,18 +4764,11 @@ public final class StubGenerator {
                 .orElse(schemaType);
     }
 
-    private boolean isFixedSize(ResolvedFieldDefinition field) {
-        if (isMessageType(field) || field.repeated()) {
-            return false;
-        }
-        String underlyingType = getUnderlyingType(field.type());
-        if (underlyingType.equals("string") || underlyingType.equals("bytes")) {
-            return field.fixedCapacity() != null;
-        }
-        return true;
+    boolean isFixedSize(ResolvedFieldDefinition field) {
+        return MessageLayout.isFixedSize(schema, field);
     }
 
-    private TypeName getJavaTypeName(String schemaType) {
+    TypeName getJavaTypeName(String schemaType) {
         String underlyingType = getUnderlyingType(schemaType);
         return switch (underlyingType) {
             case "int8" -> TypeName.BYTE;
@@ -1752,7 +4783,7 @@ public final class StubGenerator {
         };
     }
 
-    private String getLayoutConstantName(String schemaType) {
+    String getLayoutConstantName(String schemaType) {
         String underlyingType = getUnderlyingType(schemaType);
         return switch (underlyingType) {
             case "bool" -> "BOOLEAN";
@@ -1768,24 +4799,8 @@ public final class StubGenerator {
         };
     }
 
-    private int getFixedSize(ResolvedFieldDefinition field) {
-        String underlyingType = getUnderlyingType(field.type());
-        return switch (underlyingType) {
-            case "bool", "int8" -> 1;
-            case "int16" -> 2;
-            case "int32", "float32" -> 4;
-            case "int64", "float64" -> 8;
-            case "string" -> {
-                if (field.fixedCapacity() == null) {
-                    throw new IllegalArgumentException(
-                            "string field " + field.name() + " is missing fixedCapacity");
-                }
-                yield 4 + field.fixedCapacity();
-            }
-            default ->
-                    throw new IllegalArgumentException(
-                            "Cannot get fixed size for type: " + field.type());
-        };
+    int getFixedSize(ResolvedFieldDefinition field) {
+        return MessageLayout.fixedSize(schema, field);
     }
 
     private Map<ResolvedFieldDefinition, Integer> optionalBitIndexes(
@@ -1800,24 +4815,45 @@ public final class StubGenerator {
         return indexes;
     }
 
-    private String constantName(String fieldName, String suffix) {
+    String constantName(String fieldName, String suffix) {
         return fieldName.toUpperCase() + "_" + suffix;
     }
 
-    private boolean isStringType(ResolvedFieldDefinition field) {
+    static String upperSnakeCase(String camelCase) {
+        return camelCase.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase();
+    }
+
+    boolean isStringType(ResolvedFieldDefinition field) {
         return "string".equals(getUnderlyingType(field.type()));
     }
 
-    private boolean isBytesType(ResolvedFieldDefinition field) {
+    private boolean isAsciiType(ResolvedFieldDefinition field) {
+        return "ascii".equals(field.type());
+    }
+
+    boolean isBytesType(ResolvedFieldDefinition field) {
         return "bytes".equals(getUnderlyingType(field.type()));
     }
 
-    private boolean isMessageType(ResolvedFieldDefinition field) {
+    boolean isMessageType(ResolvedFieldDefinition field) {
         return schema.messages().stream().anyMatch(m -> m.name().equals(field.type()));
     }
 
+    private boolean isTwoWord(ResolvedFieldDefinition field) {
+        RichType rich = RichType.of(field.type());
+        return rich != null && !rich.int64Backed();
+    }
+
+    /**
+     * Returns the accessor suffixes of a two-word rich type's words, high word first: {@code Msb}
+     * and {@code Lsb} for {@code uuid}, {@code Hi} and {@code Lo} for {@code ascii16}.
+     */
+    static List<String> wordSuffixes(RichType rich) {
+        return rich == RichType.UUID ? List.of("Msb", "Lsb") : List.of("Hi", "Lo");
+    }
+
     private boolean isFixedInlineUtf8(ResolvedFieldDefinition field) {
-        return isStringType(field) && field.fixedCapacity() != null;
+        return (isStringType(field) || isBytesType(field)) && field.fixedCapacity() != null;
     }
 
     /**
@@ -1900,7 +4936,7 @@ public final class StubGenerator {
         };
     }
 
-    private static String capitalize(String s) {
+    static String capitalize(String s) {
         if (s == null || s.isEmpty()) return s;
         return Character.toUpperCase(s.charAt(0)) + s.substring(1);
     }
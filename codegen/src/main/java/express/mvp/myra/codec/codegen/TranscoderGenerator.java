@@ -0,0 +1,983 @@
+package express.mvp.myra.codec.codegen;
+
+import com.palantir.javapoet.ClassName;
+import com.palantir.javapoet.CodeBlock;
+import com.palantir.javapoet.FieldSpec;
+import com.palantir.javapoet.JavaFile;
+import com.palantir.javapoet.MethodSpec;
+import com.palantir.javapoet.TypeName;
+import com.palantir.javapoet.TypeSpec;
+import express.mvp.myra.codec.codegen.resolver.LockFile;
+import express.mvp.myra.codec.codegen.resolver.MessageLayout;
+import express.mvp.myra.codec.codegen.resolver.ResolvedMessageDefinition;
+import express.mvp.myra.codec.codegen.resolver.ResolvedSchemaDefinition;
+import express.mvp.myra.codec.runtime.struct.MessageHeader;
+import express.mvp.myra.codec.runtime.struct.VariableSizeRepeatingGroupIterator;
+import express.mvp.myra.codec.schema.SchemaVersion;
+import express.mvp.roray.ffm.utils.memory.BitSetView;
+import express.mvp.roray.ffm.utils.memory.Layouts;
+import express.mvp.roray.ffm.utils.memory.SegmentUtils;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import javax.lang.model.element.Modifier;
+
+/**
+ * Generates {@code <Message>Transcoder_v<A>_to_v<B>} classes that rewrite frames encoded with an
+ * earlier schema version into the current layout, one per version whose layout the lock file
+ * recorded. The resolver carries those layouts forward, so regenerating at the same version keeps
+ * the transcoders, and a v1 frame is read at v3 without passing through v2.
+ *
+ * <p>Transcoders copy straight from segment to segment: runs of fixed fields that kept their
+ * encoding are moved with a single {@link MemorySegment#copy}, new or retyped fields are zeroed,
+ * var-field payloads are appended behind the new fixed block with rewritten headers, and nested
+ * messages whose own layout changed are transcoded recursively, in place for inline ones. Bool
+ * and enum values moving into, out of or within a bitfield word are shifted into place.
+ *
+ * <p>Oneof groups move like any other fields: the case byte with the fixed runs and the selected
+ * option's bytes like a var field. Those bytes are copied as they are, so a message option whose
+ * own layout changed keeps its source-version encoding.
+ */
+public final class TranscoderGenerator {
+
+    private static final String FLYWEIGHT_SUFFIX = "Flyweight";
+    private static final String SLACK_SUFFIX = "+slack";
+
+    private final ResolvedSchemaDefinition schema;
+    private final LockFile lock;
+
+    /**
+     * Creates a generator for the given schema.
+     *
+     * @param schema the resolved, current schema
+     * @param lock a lock file recording earlier layouts, either the one this resolution produced
+     *     or the one it started from; may be null
+     */
+    public TranscoderGenerator(ResolvedSchemaDefinition schema, LockFile lock) {
+        this.schema = Objects.requireNonNull(schema);
+        this.lock = lock;
+    }
+
+    /**
+     * Generates a transcoder for every message and every earlier schema version its layout was
+     * recorded under. Returns an empty list when there is no lock or no layout from another wire
+     * version.
+     *
+     * @return the generated transcoder sources
+     */
+    public List<JavaFile> generate() {
+        List<JavaFile> files = new ArrayList<>();
+        SchemaVersion target = SchemaVersion.parse(schema.version());
+        for (ResolvedMessageDefinition message : schema.messages()) {
+            if (message.fields().isEmpty() && message.oneofs().isEmpty()) {
+                continue;
+            }
+            for (Map.Entry<SchemaVersion, MessageLayout> recorded :
+                    recordedLayouts(message.name()).entrySet()) {
+                if (recorded.getKey().toWireFormat() != target.toWireFormat()) {
+                    files.add(
+                            generateTranscoder(
+                                    message, recorded.getValue(), recorded.getKey(), target));
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Writes all generated transcoders to the specified output directory.
+     *
+     * @param outputDir The root directory for the generated source code.
+     */
+    public void writeFiles(Path outputDir) throws IOException {
+        for (JavaFile javaFile : generate()) {
+            javaFile.writeTo(outputDir);
+        }
+    }
+
+    /**
+     * Returns the simple class name of the transcoder for a message between two versions.
+     *
+     * @param messageName the message name
+     * @param source the version frames are read in
+     * @param target the version frames are written in
+     * @return e.g. {@code OrderTranscoder_v1_0_to_v1_1}
+     */
+    public static String transcoderName(
+            String messageName, SchemaVersion source, SchemaVersion target) {
+        return messageName
+                + "Transcoder_v"
+                + source.major()
+                + "_"
+                + source.minor()
+                + "_to_v"
+                + target.major()
+                + "_"
+                + target.minor();
+    }
+
+    /**
+     * Returns the layouts recorded for a message by schema version, oldest first: the earlier
+     * ones the lock carries and the one it recorded for its own version.
+     */
+    private Map<SchemaVersion, MessageLayout> recordedLayouts(String messageName) {
+        Map<SchemaVersion, MessageLayout> layouts = new TreeMap<>();
+        LockFile.MessageLock messageLock = lock == null ? null : lock.messages.get(messageName);
+        if (messageLock == null) {
+            return layouts;
+        }
+        if (messageLock.previousLayouts != null) {
+            messageLock.previousLayouts.forEach(
+                    (version, layout) -> {
+                        SchemaVersion parsed = parseVersion(version);
+                        if (parsed != null && layout != null) {
+                            layouts.put(parsed, MessageLayout.fromLock(layout));
+                        }
+                    });
+        }
+        SchemaVersion locked =
+                lock.schemaInfo == null ? null : parseVersion(lock.schemaInfo.get("version"));
+        if (locked != null && messageLock.layout != null) {
+            layouts.put(locked, MessageLayout.fromLock(messageLock.layout));
+        }
+        return layouts;
+    }
+
+    /** Parses a recorded version down to {@code major.minor}, as the wire carries it. */
+    private static SchemaVersion parseVersion(Object version) {
+        if (version == null) {
+            return null;
+        }
+        try {
+            SchemaVersion parsed = SchemaVersion.parse(String.valueOf(version));
+            return new SchemaVersion(parsed.major(), parsed.minor());
+        } catch (IllegalArgumentException e) {
+            // Legacy lock files carried a bare revision counter rather than a schema version.
+            return null;
+        }
+    }
+
+    private boolean layoutChanged(String messageName, SchemaVersion source) {
+        if (lock == null || source == null) {
+            return false;
+        }
+        MessageLayout previous = recordedLayouts(messageName).get(source);
+        ResolvedMessageDefinition current =
+                schema.messages().stream()
+                        .filter(m -> m.name().equals(messageName))
+                        .findFirst()
+                        .orElseThrow();
+        return previous != null && !previous.equals(MessageLayout.of(schema, current));
+    }
+
+    private JavaFile generateTranscoder(
+            ResolvedMessageDefinition message,
+            MessageLayout previous,
+            SchemaVersion source,
+            SchemaVersion target) {
+        MessageLayout current = MessageLayout.of(schema, message);
+        ClassName flyweight = ClassName.get(schema.namespace(), message.name() + FLYWEIGHT_SUFFIX);
+        String className = transcoderName(message.name(), source, target);
+
+        TypeSpec.Builder type =
+                TypeSpec.classBuilder(className)
+                        .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                        .addJavadoc(
+                                """
+                                Auto-generated transcoder for $L frames from schema version $L to $L.
+
+                                Copies directly between segments without materializing the message.
+                                Instances are reusable but NOT thread-safe.
+                                """,
+                                message.name(),
+                                source.toShortString(),
+                                target.toShortString())
+                        .addField(
+                                FieldSpec.builder(
+                                                short.class,
+                                                "SOURCE_SCHEMA_VERSION",
+                                                Modifier.PUBLIC,
+                                                Modifier.STATIC,
+                                                Modifier.FINAL)
+                                        .initializer("(short) $L", source.toWireFormat())
+                                        .build())
+                        .addField(
+                                FieldSpec.builder(
+                                                short.class,
+                                                "TARGET_SCHEMA_VERSION",
+                                                Modifier.PUBLIC,
+                                                Modifier.STATIC,
+                                                Modifier.FINAL)
+                                        .initializer("$T.SCHEMA_VERSION", flyweight)
+                                        .build())
+                        .addField(
+                                FieldSpec.builder(
+                                                int.class,
+                                                "SOURCE_BLOCK_LENGTH",
+                                                Modifier.PUBLIC,
+                                                Modifier.STATIC,
+                                                Modifier.FINAL)
+                                        .initializer("$L", previous.blockLength())
+                                        .build());
+
+        MethodSpec.Builder transcode =
+                MethodSpec.methodBuilder("transcode")
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(int.class)
+                        .addJavadoc(
+                                """
+                                Transcodes one message body (no frame header).
+
+                                @param source segment holding the source message
+                                @param sourceOffset offset of the source message body
+                                @param target segment receiving the transcoded message
+                                @param targetOffset offset at which to write the message body
+                                @return the number of bytes written to {@code target}
+                                """)
+                        .addParameter(MemorySegment.class, "source")
+                        .addParameter(long.class, "sourceOffset")
+                        .addParameter(MemorySegment.class, "target")
+                        .addParameter(long.class, "targetOffset");
+
+        if (previous.equals(current) && !hasChangedNestedTypes(current, source)) {
+            emitIdentityCopy(type, transcode, current);
+        } else {
+            emitBodyCopy(type, transcode, message, previous, current, flyweight, source, target);
+        }
+
+        type.addMethod(transcode.build());
+        type.addMethod(createTranscodeFrame(flyweight, message.name()));
+        return JavaFile.builder(schema.namespace(), type.build()).indent("    ").build();
+    }
+
+    /**
+     * Emits the statements that copy a body laid out as {@code previous} from {@code
+     * source}/{@code sourceOffset} into {@code current} at {@code target}/{@code targetOffset}, and
+     * return the number of bytes written. Fields missing from {@code previous} are written absent.
+     * Projectors reuse this with the source message's layout as {@code previous} and no previous
+     * lock, in which case nested messages are copied as they are.
+     */
+    void emitBodyCopy(
+            TypeSpec.Builder type,
+            MethodSpec.Builder method,
+            ResolvedMessageDefinition message,
+            MessageLayout previous,
+            MessageLayout current,
+            ClassName flyweight,
+            SchemaVersion source,
+            SchemaVersion target) {
+        Map<String, String> nestedTranscoders = new LinkedHashMap<>();
+        emitPresence(type, method, previous, current);
+        emitFixedFields(
+                type, method, message, previous, current, nestedTranscoders, source, target);
+        emitVarFields(
+                type,
+                method,
+                message,
+                previous,
+                current,
+                flyweight,
+                nestedTranscoders,
+                source,
+                target);
+    }
+
+    private boolean hasChangedNestedTypes(MessageLayout layout, SchemaVersion source) {
+        for (MessageLayout.Slot slot : layout.slots()) {
+            String nested = nestedMessageType(slot);
+            if (nested != null && layoutChanged(nested, source)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void emitIdentityCopy(
+            TypeSpec.Builder type, MethodSpec.Builder transcode, MessageLayout layout) {
+        transcode
+                .addComment("Layout unchanged: the whole message moves as one block.")
+                .addStatement("final int length = sourceLength(source, sourceOffset)")
+                .addStatement(
+                        "$T.copy(source, sourceOffset, target, targetOffset, length)",
+                        MemorySegment.class)
+                .addStatement("return length");
+
+        MethodSpec.Builder sourceLength =
+                MethodSpec.methodBuilder("sourceLength")
+                        .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                        .returns(int.class)
+                        .addParameter(MemorySegment.class, "source")
+                        .addParameter(long.class, "sourceOffset")
+                        .addStatement("int end = SOURCE_BLOCK_LENGTH");
+        for (MessageLayout.Slot slot : layout.slots()) {
+            if (slot.variable()) {
+                sourceLength.addStatement(
+                        "end = Math.max(end, source.get($T.INT_BE, sourceOffset + $L)"
+                                + " + source.get($T.INT_BE, sourceOffset + $L))",
+                        Layouts.class,
+                        slot.offset(),
+                        Layouts.class,
+                        slot.offset() + 4);
+            }
+        }
+        if (layout.sparseOffset() >= 0) {
+            sourceLength.addStatement(
+                    "end = Math.max(end, source.get($T.INT_BE, sourceOffset + $L)"
+                            + " + source.get($T.INT_BE, sourceOffset + $L))",
+                    Layouts.class,
+                    layout.sparseOffset(),
+                    Layouts.class,
+                    layout.sparseOffset() + 4);
+        }
+        type.addMethod(sourceLength.addStatement("return end").build());
+    }
+
+    private void emitPresence(
+            TypeSpec.Builder type,
+            MethodSpec.Builder transcode,
+            MessageLayout previous,
+            MessageLayout current) {
+        if (current.presenceBytes() == 0) {
+            return;
+        }
+        if (presenceIsIdentity(previous, current)) {
+            // Bits keep their positions; the fixed-run pass copies them (and zeroes any new byte).
+            return;
+        }
+        type.addField(
+                FieldSpec.builder(
+                                BitSetView.class,
+                                "sourcePresence",
+                                Modifier.PRIVATE,
+                                Modifier.FINAL)
+                        .initializer("new $T()", BitSetView.class)
+                        .build());
+        type.addField(
+                FieldSpec.builder(
+                                BitSetView.class,
+                                "targetPresence",
+                                Modifier.PRIVATE,
+                                Modifier.FINAL)
+                        .initializer("new $T()", BitSetView.class)
+                        .build());
+        transcode
+                .addStatement(
+                        "this.targetPresence.wrap(target, targetOffset, $L)",
+                        current.presenceBytes())
+                .addStatement("this.targetPresence.clearAll()");
+        if (previous.presenceBytes() > 0) {
+            transcode.addStatement(
+                    "this.sourcePresence.wrap(source, sourceOffset, $L)", previous.presenceBytes());
+        }
+        for (MessageLayout.Slot slot : current.slots()) {
+            if (slot.presenceBit() < 0) {
+                continue;
+            }
+            MessageLayout.Slot old = compatibleSlot(previous, slot);
+            if (old == null) {
+                continue;
+            }
+            if (old.presenceBit() < 0) {
+                // Previously required, so always present.
+                transcode.addStatement("this.targetPresence.set($L)", slot.presenceBit());
+            } else {
+                transcode
+                        .beginControlFlow("if (this.sourcePresence.get($L))", old.presenceBit())
+                        .addStatement("this.targetPresence.set($L)", slot.presenceBit())
+                        .endControlFlow();
+            }
+        }
+    }
+
+    private boolean presenceIsIdentity(MessageLayout previous, MessageLayout current) {
+        int previousOptional = 0;
+        for (MessageLayout.Slot slot : previous.slots()) {
+            if (slot.presenceBit() >= 0) {
+                previousOptional++;
+            }
+        }
+        int mapped = 0;
+        for (MessageLayout.Slot slot : current.slots()) {
+            if (slot.presenceBit() < 0) {
+                continue;
+            }
+            MessageLayout.Slot old = compatibleSlot(previous, slot);
+            if (old != null) {
+                if (old.presenceBit() != slot.presenceBit()) {
+                    return false;
+                }
+                mapped++;
+            }
+        }
+        // Every old bit must survive in place; new bits may only be appended after them.
+        if (mapped != previousOptional) {
+            return false;
+        }
+        for (MessageLayout.Slot slot : current.slots()) {
+            if (slot.presenceBit() >= 0
+                    && compatibleSlot(previous, slot) == null
+                    && slot.presenceBit() < previousOptional) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void emitFixedFields(
+            TypeSpec.Builder type,
+            MethodSpec.Builder transcode,
+            ResolvedMessageDefinition message,
+            MessageLayout previous,
+            MessageLayout current,
+            Map<String, String> nestedTranscoders,
+            SchemaVersion source,
+            SchemaVersion target) {
+        // Each entry is {targetStart, sourceStart or -1 for zero-fill, length}.
+        List<int[]> runs = new ArrayList<>();
+        List<CodeBlock> inlineTranscodes = new ArrayList<>();
+        List<CodeBlock> packedTerms = new ArrayList<>();
+        MessageLayout.Slot word = null;
+        if (current.presenceBytes() > 0 && presenceIsIdentity(previous, current)) {
+            int copied = Math.min(previous.presenceBytes(), current.presenceBytes());
+            if (copied > 0) {
+                appendRun(runs, 0, 0, copied);
+            }
+            if (current.presenceBytes() > copied) {
+                appendRun(runs, copied, -1, current.presenceBytes() - copied);
+            }
+        }
+        for (MessageLayout.Slot slot : current.slots()) {
+            if (slot.variable() || slot.sparse()) {
+                continue;
+            }
+            MessageLayout.Slot old = compatibleSlot(previous, slot);
+            if (slot.packed()) {
+                word = slot;
+                if (old != null) {
+                    packedTerms.add(packedTerm(previous, old, slot));
+                }
+                continue;
+            }
+            if (old != null && (old.packed() || old.sparse())) {
+                TypeName valueType = CodecGenerator.javaType(slot.valueType());
+                inlineTranscodes.add(
+                        CodeBlock.of(
+                                "target.set($T.$L, targetOffset + $L, $L)",
+                                Layouts.class,
+                                CodecGenerator.layoutConstant(slot.valueType()),
+                                slot.offset(),
+                                sourceValue(previous, old, valueType)));
+                continue;
+            }
+            String nested = nestedMessageType(slot);
+            if (old != null && nested != null && layoutChanged(nested, source)) {
+                String field =
+                        nestedTranscoders.computeIfAbsent(
+                                nested,
+                                n ->
+                                        addNestedTranscoderField(
+                                                type, message.name(), n, source, target));
+                inlineTranscodes.add(
+                        CodeBlock.of(
+                                "$L.transcode(source, sourceOffset + $L, target, targetOffset +"
+                                        + " $L)",
+                                field,
+                                old.offset(),
+                                slot.offset()));
+                continue;
+            }
+            appendRun(runs, slot.offset(), old == null ? -1 : old.offset(), slot.size());
+        }
+        for (int[] run : runs) {
+            if (run[1] < 0) {
+                transcode.addStatement(
+                        "target.asSlice(targetOffset + $L, $L).fill((byte) 0)", run[0], run[2]);
+            } else {
+                transcode.addStatement(
+                        "$T.copy(source, sourceOffset + $L, target, targetOffset + $L, $L)",
+                        MemorySegment.class,
+                        run[1],
+                        run[0],
+                        run[2]);
+            }
+        }
+        if (word != null) {
+            // The bitfield word is rebuilt from whichever members the source version had.
+            TypeName wordType = CodecGenerator.javaType(word.wordType());
+            CodeBlock.Builder value = CodeBlock.builder();
+            for (CodeBlock term : packedTerms) {
+                value.add(value.isEmpty() ? "$L" : " | $L", term);
+            }
+            if (packedTerms.isEmpty()) {
+                value.add("0");
+            }
+            transcode.addStatement(
+                    "target.set($T.$L, targetOffset + $L, $L)",
+                    Layouts.class,
+                    CodecGenerator.layoutConstant(word.wordType()),
+                    word.offset(),
+                    wordType.equals(TypeName.LONG)
+                            ? value.build()
+                            : CodeBlock.of("($T) ($L)", wordType, value.build()));
+        }
+        for (CodeBlock call : inlineTranscodes) {
+            transcode.addStatement(call);
+        }
+    }
+
+    /** Reads a value that the source version kept in a bitfield word. */
+    private static CodeBlock packedSource(MessageLayout.Slot old, TypeName type) {
+        return StubGenerator.packedValue(
+                old,
+                type,
+                CodeBlock.of(
+                        "source.get($T.$L, sourceOffset + $L)",
+                        Layouts.class,
+                        CodecGenerator.layoutConstant(old.wordType()),
+                        old.offset()),
+                CodeBlock.of("$L", old.bitShift()));
+    }
+
+    /**
+     * Reads a value from wherever the source version kept it: a bitfield word, the sparse region
+     * (zero when absent), or its own block slot.
+     */
+    private static CodeBlock sourceValue(
+            MessageLayout previous, MessageLayout.Slot old, TypeName type) {
+        if (old.packed()) {
+            return packedSource(old, type);
+        }
+        if (old.sparse()) {
+            return CodeBlock.of(
+                    "(source.get($T.BYTE, sourceOffset + $L) & $L) != 0 ? source.get($T.$L, $L) :"
+                            + " $L",
+                    Layouts.class,
+                    old.presenceBit() >>> 3,
+                    1 << (old.presenceBit() & 7),
+                    Layouts.class,
+                    CodecGenerator.layoutConstant(old.valueType()),
+                    StubGenerator.sparseAddress(
+                            previous,
+                            old,
+                            "source",
+                            "sourceOffset",
+                            CodeBlock.of("$L", previous.sparseOffset())),
+                    type.equals(TypeName.BOOLEAN) ? "false" : "0");
+        }
+        return CodeBlock.of(
+                "source.get($T.$L, sourceOffset + $L)",
+                Layouts.class,
+                CodecGenerator.layoutConstant(old.valueType()),
+                old.offset());
+    }
+
+    /** Returns the {@code long} bits a bitfield member contributes to the target word. */
+    private static CodeBlock packedTerm(
+            MessageLayout previous, MessageLayout.Slot old, MessageLayout.Slot slot) {
+        TypeName type = CodecGenerator.javaType(slot.valueType());
+        CodeBlock value = sourceValue(previous, old, type);
+        if (type.equals(TypeName.BOOLEAN)) {
+            return CodeBlock.of("(($L) ? 1L : 0L) << $L", value, slot.bitShift());
+        }
+        return CodeBlock.of(
+                "(((long) $L) & 0x$LL) << $L",
+                value,
+                Integer.toHexString((1 << slot.bitWidth()) - 1),
+                slot.bitShift());
+    }
+
+    private static void appendRun(List<int[]> runs, int targetStart, int sourceStart, int length) {
+        if (!runs.isEmpty()) {
+            int[] last = runs.get(runs.size() - 1);
+            boolean contiguousTarget = last[0] + last[2] == targetStart;
+            boolean bothZero = last[1] < 0 && sourceStart < 0;
+            boolean contiguousSource =
+                    last[1] >= 0 && sourceStart >= 0 && last[1] + last[2] == sourceStart;
+            if (contiguousTarget && (bothZero || contiguousSource)) {
+                last[2] += length;
+                return;
+            }
+        }
+        runs.add(new int[] {targetStart, sourceStart, length});
+    }
+
+    private void emitVarFields(
+            TypeSpec.Builder type,
+            MethodSpec.Builder transcode,
+            ResolvedMessageDefinition message,
+            MessageLayout previous,
+            MessageLayout current,
+            ClassName flyweight,
+            Map<String, String> nestedTranscoders,
+            SchemaVersion source,
+            SchemaVersion target) {
+        transcode.addStatement("int cursor = $T.BLOCK_LENGTH", flyweight);
+        boolean declared = false;
+
+        for (MessageLayout.Slot slot : current.slots()) {
+            if (!slot.variable()) {
+                continue;
+            }
+            MessageLayout.Slot old = compatibleSlot(previous, slot);
+            boolean slack = slot.encoding().endsWith(SLACK_SUFFIX);
+            if (old == null) {
+                // Slack fields use a zero offset to mark "no capacity reserved".
+                transcode
+                        .addComment("$L: not present in the source version", slot.name())
+                        .addStatement(
+                                "target.set($T.INT_BE, targetOffset + $L, $L)",
+                                Layouts.class,
+                                slot.offset(),
+                                slack ? "0" : "cursor")
+                        .addStatement(
+                                "target.set($T.INT_BE, targetOffset + $L, 0)",
+                                Layouts.class,
+                                slot.offset() + 4);
+                continue;
+            }
+            if (!declared) {
+                transcode.addStatement("int relativeOffset").addStatement("int length");
+                declared = true;
+            }
+            transcode
+                    .addStatement(
+                            "relativeOffset = source.get($T.INT_BE, sourceOffset + $L)",
+                            Layouts.class,
+                            old.offset())
+                    .addStatement(
+                            "length = source.get($T.INT_BE, sourceOffset + $L)",
+                            Layouts.class,
+                            old.offset() + 4);
+
+            if (slack) {
+                emitSlackCopy(transcode, slot);
+                continue;
+            }
+
+            String nested = nestedMessageType(slot);
+            if (nested != null && layoutChanged(nested, source)) {
+                String field =
+                        nestedTranscoders.computeIfAbsent(
+                                nested,
+                                n ->
+                                        addNestedTranscoderField(
+                                                type, message.name(), n, source, target));
+                String call =
+                        slot.encoding().startsWith("repeated:")
+                                ? "transcode" + capitalize(slot.name()) + "Group"
+                                : field + ".transcode";
+                if (slot.encoding().startsWith("repeated:")) {
+                    type.addMethod(createGroupTranscoder(slot.name(), field));
+                    call = "this." + call;
+                }
+                transcode
+                        .beginControlFlow("if (length != 0)")
+                        .addStatement(
+                                "length = $L(source, sourceOffset + relativeOffset, target,"
+                                        + " targetOffset + cursor)",
+                                call)
+                        .endControlFlow();
+            } else {
+                transcode.addStatement(
+                        "$T.copy(source, sourceOffset + relativeOffset, target, targetOffset +"
+                                + " cursor, length)",
+                        MemorySegment.class);
+            }
+            transcode
+                    .addStatement(
+                            "target.set($T.INT_BE, targetOffset + $L, cursor)",
+                            Layouts.class,
+                            slot.offset())
+                    .addStatement(
+                            "target.set($T.INT_BE, targetOffset + $L, length)",
+                            Layouts.class,
+                            slot.offset() + 4)
+                    .addStatement("cursor += length");
+        }
+        if (current.sparseOffset() >= 0) {
+            emitSparseRegion(transcode, previous, current);
+        }
+        transcode.addStatement("return cursor");
+    }
+
+    /**
+     * Writes the target's sparse region after the var data: each member whose target presence bit
+     * is set, in bit order, with an index entry at the start of every further presence word.
+     */
+    private static void emitSparseRegion(
+            MethodSpec.Builder transcode, MessageLayout previous, MessageLayout current) {
+        int header = current.sparseOffset();
+        transcode
+                .addComment("Sparse region: present members in bit order, after the var data.")
+                .addStatement("final int sparseStart = cursor");
+        int word = 0;
+        for (MessageLayout.Slot slot : current.slots()) {
+            if (!slot.sparse()) {
+                continue;
+            }
+            while (word < slot.presenceBit() / Long.SIZE) {
+                word++;
+                transcode.addStatement(
+                        "target.set($T.INT_BE, targetOffset + $L, cursor - sparseStart)",
+                        Layouts.class,
+                        header + 4 + 4 * word);
+            }
+            MessageLayout.Slot old = compatibleSlot(previous, slot);
+            if (old == null) {
+                // Not in the source version, so never present in the target.
+                continue;
+            }
+            transcode
+                    .beginControlFlow(
+                            "if ((target.get($T.BYTE, targetOffset + $L) & $L) != 0)",
+                            Layouts.class,
+                            slot.presenceBit() >>> 3,
+                            1 << (slot.presenceBit() & 7))
+                    .addStatement(
+                            "target.set($T.$L, targetOffset + cursor, $L)",
+                            Layouts.class,
+                            CodecGenerator.layoutConstant(slot.valueType()),
+                            sourceValue(
+                                    previous,
+                                    old,
+                                    CodecGenerator.javaType(slot.valueType())))
+                    .addStatement("cursor += $L", slot.size())
+                    .endControlFlow();
+        }
+        transcode
+                .addStatement(
+                        "target.set($T.INT_BE, targetOffset + $L, sparseStart)",
+                        Layouts.class,
+                        header)
+                .addStatement(
+                        "target.set($T.INT_BE, targetOffset + $L, cursor - sparseStart)",
+                        Layouts.class,
+                        header + 4);
+    }
+
+    /** Moves a slack field together with its capacity prefix and reserved tail. */
+    private void emitSlackCopy(MethodSpec.Builder transcode, MessageLayout.Slot slot) {
+        transcode
+                .beginControlFlow("if (relativeOffset == 0)")
+                .addStatement(
+                        "target.set($T.INT_BE, targetOffset + $L, 0)",
+                        Layouts.class,
+                        slot.offset())
+                .addStatement(
+                        "target.set($T.INT_BE, targetOffset + $L, 0)",
+                        Layouts.class,
+                        slot.offset() + 4)
+                .nextControlFlow("else")
+                .addStatement(
+                        "final int $LCapacity = source.get($T.INT_BE, sourceOffset + relativeOffset"
+                                + " - 4)",
+                        slot.name(),
+                        Layouts.class)
+                .addStatement(
+                        "$T.copy(source, sourceOffset + relativeOffset - 4, target, targetOffset"
+                                + " + cursor, 4 + $LCapacity)",
+                        MemorySegment.class,
+                        slot.name())
+                .addStatement(
+                        "target.set($T.INT_BE, targetOffset + $L, cursor + 4)",
+                        Layouts.class,
+                        slot.offset())
+                .addStatement(
+                        "target.set($T.INT_BE, targetOffset + $L, length)",
+                        Layouts.class,
+                        slot.offset() + 4)
+                .addStatement("cursor += 4 + $LCapacity", slot.name())
+                .endControlFlow();
+    }
+
+    private String addNestedTranscoderField(
+            TypeSpec.Builder type,
+            String owner,
+            String nested,
+            SchemaVersion source,
+            SchemaVersion target) {
+        if (nested.equals(owner)) {
+            return "this";
+        }
+        String field =
+                Character.toLowerCase(nested.charAt(0)) + nested.substring(1) + "Transcoder";
+        ClassName nestedClass =
+                ClassName.get(schema.namespace(), transcoderName(nested, source, target));
+        type.addField(
+                FieldSpec.builder(nestedClass, field, Modifier.PRIVATE, Modifier.FINAL)
+                        .initializer("new $T()", nestedClass)
+                        .build());
+        return "this." + field;
+    }
+
+    private MethodSpec createGroupTranscoder(String fieldName, String elementTranscoder) {
+        return MethodSpec.methodBuilder("transcode" + capitalize(fieldName) + "Group")
+                .addModifiers(Modifier.PRIVATE)
+                .returns(int.class)
+                .addParameter(MemorySegment.class, "source")
+                .addParameter(long.class, "groupOffset")
+                .addParameter(MemorySegment.class, "target")
+                .addParameter(long.class, "targetGroupOffset")
+                .addStatement("final int count = source.get($T.INT_BE, groupOffset)", Layouts.class)
+                .addStatement(
+                        "final int tableSize = $T.COUNT_SIZE + count * $T.OFFSET_ENTRY_SIZE",
+                        VariableSizeRepeatingGroupIterator.class,
+                        VariableSizeRepeatingGroupIterator.class)
+                .addStatement("target.set($T.INT_BE, targetGroupOffset, count)", Layouts.class)
+                .addStatement("int written = 0")
+                .beginControlFlow("for (int i = 0; i < count; i++)")
+                .addStatement(
+                        "final long entry = $T.COUNT_SIZE + (long) i * $T.OFFSET_ENTRY_SIZE",
+                        VariableSizeRepeatingGroupIterator.class,
+                        VariableSizeRepeatingGroupIterator.class)
+                .addStatement(
+                        "final int elementOffset = source.get($T.INT_BE, groupOffset + entry)",
+                        Layouts.class)
+                .addStatement(
+                        "target.set($T.INT_BE, targetGroupOffset + entry, written)", Layouts.class)
+                .addStatement(
+                        "written += $L.transcode(source, groupOffset + tableSize + elementOffset,"
+                                + " target, targetGroupOffset + tableSize + written)",
+                        elementTranscoder)
+                .endControlFlow()
+                .addStatement("return tableSize + written")
+                .build();
+    }
+
+    private MethodSpec createTranscodeFrame(ClassName flyweight, String messageName) {
+        return MethodSpec.methodBuilder("transcodeFrame")
+                .addModifiers(Modifier.PUBLIC)
+                .returns(int.class)
+                .addJavadoc(
+                        """
+                        Transcodes a complete frame, rewriting the header for the target version.
+                        The checksum is recomputed when the source frame carried one.
+
+                        @param source segment holding the source frame
+                        @param sourceOffset offset of the source frame header
+                        @param target segment receiving the transcoded frame
+                        @param targetOffset offset at which to write the frame header
+                        @return the frame length written to {@code target}
+                        @throws IllegalArgumentException if the source is not a $L frame of the
+                            source version
+                        """,
+                        messageName)
+                .addParameter(MemorySegment.class, "source")
+                .addParameter(long.class, "sourceOffset")
+                .addParameter(MemorySegment.class, "target")
+                .addParameter(long.class, "targetOffset")
+                .addStatement(
+                        "final short templateId = source.get($T.SHORT_BE, sourceOffset +"
+                                + " $T.TEMPLATE_ID_OFFSET)",
+                        Layouts.class,
+                        MessageHeader.class)
+                .addStatement(
+                        "final short version = source.get($T.SHORT_BE, sourceOffset +"
+                                + " $T.SCHEMA_VERSION_OFFSET)",
+                        Layouts.class,
+                        MessageHeader.class)
+                .beginControlFlow(
+                        "if (templateId != (short) $T.TEMPLATE_ID || version !="
+                                + " SOURCE_SCHEMA_VERSION)",
+                        flyweight)
+                .addStatement(
+                        "throw new IllegalArgumentException(\"Not a $L v\" + SOURCE_SCHEMA_VERSION"
+                                + " + \" frame: template \" + templateId + \", version \" +"
+                                + " version)",
+                        messageName)
+                .endControlFlow()
+                .addStatement(
+                        "final int frameLength = $T.HEADER_SIZE + transcode(source, sourceOffset +"
+                                + " $T.HEADER_SIZE, target, targetOffset + $T.HEADER_SIZE)",
+                        MessageHeader.class,
+                        MessageHeader.class,
+                        MessageHeader.class)
+                .addStatement(
+                        "target.set($T.INT_BE, targetOffset + $T.FRAME_LENGTH_OFFSET, frameLength)",
+                        Layouts.class,
+                        MessageHeader.class)
+                .addStatement(
+                        "target.set($T.SHORT_BE, targetOffset + $T.TEMPLATE_ID_OFFSET, templateId)",
+                        Layouts.class,
+                        MessageHeader.class)
+                .addStatement(
+                        "target.set($T.SHORT_BE, targetOffset + $T.SCHEMA_VERSION_OFFSET,"
+                                + " TARGET_SCHEMA_VERSION)",
+                        Layouts.class,
+                        MessageHeader.class)
+                .addComment("Flags and reserved bytes carry over unchanged.")
+                .addStatement(
+                        "$T.copy(source, sourceOffset + $T.FLAGS_OFFSET, target, targetOffset +"
+                                + " $T.FLAGS_OFFSET, $T.CHECKSUM_OFFSET - $T.FLAGS_OFFSET)",
+                        MemorySegment.class,
+                        MessageHeader.class,
+                        MessageHeader.class,
+                        MessageHeader.class,
+                        MessageHeader.class)
+                .addStatement(
+                        "int checksum = source.get($T.INT_BE, sourceOffset + $T.CHECKSUM_OFFSET)",
+                        Layouts.class,
+                        MessageHeader.class)
+                .beginControlFlow("if (checksum != 0)")
+                .addStatement(
+                        "checksum = $T.calculateCrc32(target.asSlice(targetOffset +"
+                                + " $T.HEADER_SIZE, frameLength - $T.HEADER_SIZE))",
+                        SegmentUtils.class,
+                        MessageHeader.class,
+                        MessageHeader.class)
+                .endControlFlow()
+                .addStatement(
+                        "target.set($T.INT_BE, targetOffset + $T.CHECKSUM_OFFSET, checksum)",
+                        Layouts.class,
+                        MessageHeader.class)
+                .addStatement("return frameLength")
+                .build();
+    }
+
+    /**
+     * Returns the old slot for a field if its bytes can be reused, otherwise null. Nested
+     * messages are matched by type alone; callers transcode them when their layout changed, which
+     * is also the only way an inline message slot changes size. Bitfield and sparse members match
+     * any slot of the same value type.
+     */
+    private static MessageLayout.Slot compatibleSlot(
+            MessageLayout previous, MessageLayout.Slot slot) {
+        MessageLayout.Slot old = previous.slot(slot.name());
+        if (old != null
+                && !old.variable()
+                && (old.packed() || slot.packed() || old.sparse() || slot.sparse())) {
+            // Bitfield and sparse members are moved by value, so only the type must match.
+            return old.valueType().equals(slot.valueType()) ? old : null;
+        }
+        boolean inline = slot.encoding().startsWith("inline:");
+        if (old == null
+                || old.variable() != slot.variable()
+                || (old.size() != slot.size() && !inline)
+                || !old.encoding().equals(slot.encoding())) {
+            return null;
+        }
+        return old;
+    }
+
+    private static String nestedMessageType(MessageLayout.Slot slot) {
+        String encoding = slot.encoding();
+        if (encoding.startsWith("repeated:")) {
+            encoding = encoding.substring("repeated:".length());
+        }
+        if (encoding.startsWith("inline:")) {
+            return encoding.substring("inline:".length());
+        }
+        return encoding.startsWith("message:") ? encoding.substring("message:".length()) : null;
+    }
+
+    private static String capitalize(String s) {
+        if (s == null || s.isEmpty()) return s;
+        return Character.toUpperCase(s.charAt(0)) + s.substring(1);
+    }
+}
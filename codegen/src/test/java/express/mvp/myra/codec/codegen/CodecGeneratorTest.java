@@ -0,0 +1,313 @@
+package express.mvp.myra.codec.codegen;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.palantir.javapoet.JavaFile;
+import express.mvp.myra.codec.codegen.resolver.*;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CodecGeneratorTest {
+
+    @Test
+    void generate_ShouldEmitStaticFixedFieldAccessors() {
+        String codec = single(orderSchema(false));
+
+        assertTrue(codec.contains("public final class OrderCodec"));
+        assertTrue(codec.contains("private OrderCodec()"));
+        assertTrue(
+                codec.contains(
+                        "public static long sequence(MemorySegment segment, long offset) {"));
+        assertTrue(
+                codec.contains(
+                        "segment.get(Layouts.LONG_BE, offset + OrderFlyweight.SEQUENCE_OFFSET)"));
+        assertTrue(codec.contains("public static boolean hasQty(MemorySegment segment"));
+        assertTrue(codec.contains("OrderFlyweight.QTY_OPT_BIT >>> 3"));
+    }
+
+    @Test
+    void generate_ShouldEmitVarFieldOffsetAndLengthHelpers() {
+        String codec = single(orderSchema(false));
+
+        assertTrue(
+                codec.contains(
+                        "return offset + segment.get(Layouts.INT_BE, offset +"
+                                + " OrderFlyweight.NOTE_OFFSET)"));
+        assertTrue(codec.contains("OrderFlyweight.NOTE_OFFSET + 4)"));
+        assertTrue(codec.contains("public static int fillsCount(MemorySegment segment"));
+        assertTrue(
+                codec.contains(
+                        "public static long fillsAt(MemorySegment segment, long offset, int"
+                                + " index)"));
+        assertTrue(codec.contains("Objects.checkIndex(index"));
+    }
+
+    @Test
+    void generate_ShouldUseAlignedLayoutsForAlignedMessages() {
+        String codec = single(orderSchema(true));
+
+        assertTrue(codec.contains("segment.get(AlignedLayouts.LONG_BE, offset"));
+    }
+
+    @Test
+    void generate_ShouldReturnConstantOffsetForInlineMessages() {
+        ResolvedSchemaDefinition schema =
+                new ResolvedSchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new ResolvedMessageDefinition(
+                                        "Px",
+                                        1,
+                                        List.of(
+                                                new ResolvedFieldDefinition(
+                                                        "price", 1, 1, "int64", false, false,
+                                                        false, "", null))),
+                                new ResolvedMessageDefinition(
+                                        "Quote",
+                                        2,
+                                        List.of(
+                                                ResolvedFieldDefinition.builder("bid", 1, 1, "Px")
+                                                        .inline(true)
+                                                        .build()))),
+                        List.of());
+
+        String codec =
+                new CodecGenerator(schema)
+                        .generate().stream()
+                                .map(JavaFile::toString)
+                                .filter(s -> s.contains("class QuoteCodec"))
+                                .findFirst()
+                                .orElseThrow();
+
+        assertTrue(codec.contains("public static long bidOffset(MemorySegment segment, long"));
+        assertTrue(codec.contains("return offset + QuoteFlyweight.BID_OFFSET;"));
+    }
+
+    @Test
+    void generate_ShouldMaskAndShiftBitfieldMembers() {
+        ResolvedSchemaDefinition schema =
+                new ResolvedSchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new ResolvedMessageDefinition(
+                                        "Fill",
+                                        1,
+                                        List.of(
+                                                new ResolvedFieldDefinition(
+                                                        "maker", 1, 1, "bool", false, false,
+                                                        false, "", null),
+                                                new ResolvedFieldDefinition(
+                                                        "implied", 2, 2, "bool", false, false,
+                                                        false, "", null)),
+                                        false,
+                                        true)),
+                        List.of());
+
+        String codec = single(schema);
+
+        assertTrue(codec.contains("public static boolean implied(MemorySegment segment, long"));
+        assertTrue(
+                codec.contains(
+                        "(segment.get(Layouts.BYTE, offset + FillFlyweight.IMPLIED_OFFSET) & (1 <<"
+                                + " FillFlyweight.IMPLIED_SHIFT)) != 0"));
+    }
+
+    @Test
+    void generate_ShouldReadAbsentSparseMembersAsZero() {
+        ResolvedSchemaDefinition schema =
+                new ResolvedSchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new ResolvedMessageDefinition(
+                                        "Quote",
+                                        1,
+                                        List.of(
+                                                new ResolvedFieldDefinition(
+                                                        "bid", 1, 1, "int64", true, false, false,
+                                                        "", null)),
+                                        false,
+                                        false,
+                                        true)),
+                        List.of());
+
+        String codec = single(schema);
+
+        assertTrue(codec.contains("public static long bid(MemorySegment segment, long offset)"));
+        assertTrue(
+                codec.contains(
+                        "return hasBid(segment, offset) ? segment.get(Layouts.LONG_BE, offset +"
+                                + " segment.get(Layouts.INT_BE, offset +"
+                                + " QuoteFlyweight.SPARSE_OFFSET)) : 0;"));
+        assertFalse(codec.contains("BID_OFFSET"));
+    }
+
+    @Test
+    void generate_ShouldReturnDefaultsForAbsentFieldsAndConstantsWithoutReading() {
+        ResolvedSchemaDefinition schema =
+                new ResolvedSchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new ResolvedMessageDefinition(
+                                        "Quote",
+                                        1,
+                                        List.of(
+                                                ResolvedFieldDefinition.builder(
+                                                                "bid", 2, 2, "int64")
+                                                        .optional(true)
+                                                        .defaultValue("5")
+                                                        .build()),
+                                        false,
+                                        false,
+                                        true,
+                                        List.of(),
+                                        List.of(
+                                                ResolvedFieldDefinition.builder(
+                                                                "venue", 1, 1, "string")
+                                                        .constant("XNAS")
+                                                        .build()))),
+                        List.of());
+
+        String codec = single(schema);
+
+        assertTrue(codec.contains(": QuoteFlyweight.BID_DEFAULT;"));
+        assertTrue(
+                codec.contains("public static String venue(MemorySegment segment, long offset)"));
+        assertTrue(codec.contains("return QuoteFlyweight.VENUE_CONSTANT;"));
+    }
+
+    @Test
+    void generate_ShouldDecodeOneofCaseAsEnum() {
+        ResolvedSchemaDefinition schema =
+                new ResolvedSchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new ResolvedMessageDefinition(
+                                        "Order",
+                                        1,
+                                        List.of(),
+                                        false,
+                                        false,
+                                        false,
+                                        List.of(
+                                                new ResolvedOneofDefinition(
+                                                        "payment",
+                                                        List.of(
+                                                                new ResolvedFieldDefinition(
+                                                                        "iban", 1, 1, "string",
+                                                                        false, false, false, "",
+                                                                        null)))))),
+                        List.of());
+
+        String codec = single(schema);
+
+        assertTrue(
+                codec.contains(
+                        "public static OrderFlyweight.PaymentCase paymentCase(MemorySegment"
+                                + " segment"));
+        assertTrue(
+                codec.contains(
+                        "return OrderFlyweight.PaymentCase.fromId(segment.get(Layouts.BYTE,"));
+        assertTrue(
+                codec.contains(
+                        "segment.get(Layouts.BYTE, offset + OrderFlyweight.PAYMENTCASE_OFFSET)"));
+        assertTrue(codec.contains("public static int paymentLength(MemorySegment segment"));
+    }
+
+    @Test
+    void generate_ShouldReadRichTypesAsLongs() {
+        ResolvedSchemaDefinition schema =
+                new ResolvedSchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new ResolvedMessageDefinition(
+                                        "Trade",
+                                        1,
+                                        List.of(
+                                                new ResolvedFieldDefinition(
+                                                        "id", 1, 1, "uuid", false, false, false,
+                                                        "", null),
+                                                new ResolvedFieldDefinition(
+                                                        "price", 2, 2, "decimal(4)", false, false,
+                                                        false, "", null),
+                                                new ResolvedFieldDefinition(
+                                                        "isin", 3, 3, "ascii16", false, false,
+                                                        false, "", null)))),
+                        List.of());
+
+        String codec = single(schema);
+
+        assertTrue(codec.contains("public static long idMsb(MemorySegment segment, long offset)"));
+        assertTrue(
+                codec.contains(
+                        "segment.get(Layouts.LONG_BE, offset + TradeFlyweight.ID_OFFSET + 8)"));
+        assertTrue(codec.contains("public static long price(MemorySegment segment, long offset)"));
+        assertTrue(codec.contains("public static long isinLo(MemorySegment segment, long offset)"));
+    }
+
+    @Test
+    void generate_ShouldIndexFixedCountArraysAtConstantOffsets() {
+        ResolvedSchemaDefinition schema =
+                new ResolvedSchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new ResolvedMessageDefinition(
+                                        "Book",
+                                        1,
+                                        List.of(
+                                                ResolvedFieldDefinition.builder(
+                                                                "bids", 1, 1, "int32")
+                                                        .repeated(true)
+                                                        .fixedCount(5)
+                                                        .build()))),
+                        List.of());
+
+        String codec = single(schema);
+
+        assertTrue(
+                codec.contains(
+                        "public static int bidsAt(MemorySegment segment, long offset, int index)"));
+        assertTrue(codec.contains("Objects.checkIndex(index, BookFlyweight.BIDS_COUNT);"));
+        assertTrue(
+                codec.contains(
+                        "segment.get(Layouts.INT_BE, offset + BookFlyweight.BIDS_OFFSET + (long)"
+                                + " index * 4)"));
+    }
+
+    private static String single(ResolvedSchemaDefinition schema) {
+        List<JavaFile> files = new CodecGenerator(schema).generate();
+        assertEquals(1, files.size());
+        return files.get(0).toString();
+    }
+
+    private static ResolvedSchemaDefinition orderSchema(boolean aligned) {
+        return new ResolvedSchemaDefinition(
+                "com.test",
+                "1.0.0",
+                List.of(
+                        new ResolvedMessageDefinition(
+                                "Order",
+                                1,
+                                List.of(
+                                        new ResolvedFieldDefinition(
+                                                "sequence", 1, 1, "int64", false, false, false,
+                                                "", null),
+                                        new ResolvedFieldDefinition(
+                                                "qty", 2, 2, "int32", true, false, false, "",
+                                                null),
+                                        new ResolvedFieldDefinition(
+                                                "note", 3, 3, "string", false, false, false, "",
+                                                null),
+                                        new ResolvedFieldDefinition(
+                                                "fills", 4, 4, "int64", false, true, false, "",
+                                                null)),
+                                aligned)),
+                List.of());
+    }
+}
@@ -0,0 +1,214 @@
+package express.mvp.myra.codec.codegen;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.palantir.javapoet.JavaFile;
+import express.mvp.myra.codec.codegen.resolver.*;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DiffGeneratorTest {
+
+    @Test
+    void generate_ShouldEmitDifferAndPatcherPerMessage() {
+        List<String> names =
+                new DiffGenerator(bookSchema()).generate().stream()
+                        .map(JavaFile::toString)
+                        .map(s -> s.replaceAll("(?s).*public final class (\\w+).*", "$1"))
+                        .toList();
+
+        assertEquals(List.of("LevelDiffer", "LevelPatcher", "BookDiffer", "BookPatcher"), names);
+    }
+
+    @Test
+    void generate_ShouldSendChangedFixedSlotsAndVarFieldsOnly() {
+        String differ = source("BookDiffer");
+
+        // seq, then status, levels and note: four units fit one mask byte.
+        assertTrue(differ.contains("CHANGE_MASK_BYTES = 1"));
+        assertTrue(
+                differ.contains(
+                        "if (!SegmentContent.equals(base, baseOffset + 0, next, nextOffset + 0,"
+                                + " 8))"));
+        assertTrue(differ.contains("markChanged(patch, patchOffset, 0)"));
+        // The slack field also changes when only its reserved capacity does.
+        assertTrue(differ.contains("final int capacity1 = relativeOffset == 0 ? -1"));
+        assertTrue(differ.contains("patch.set(Layouts.INT_BE, patchOffset + cursor, capacity1)"));
+        assertTrue(differ.contains("int checksum = next.get(Layouts.INT_BE, nextOffset"));
+        assertTrue(differ.contains("| MessageHeader.FLAG_PATCH"));
+    }
+
+    @Test
+    void generate_ShouldMatchGroupElementsByKeyAndSendRuns() {
+        String differ = source("BookDiffer");
+
+        assertTrue(differ.contains("diffLevelGroup(base, baseOffset + baseRelativeOffset"));
+        assertTrue(differ.contains("final long hash = this.baseLevel.keyHash()"));
+        assertTrue(
+                differ.contains(
+                        "if (this.baseLevel.keyEquals(this.nextLevel) &&"
+                                + " this.baseLevel.contentEquals(this.nextLevel))"));
+        // A base element following the previous match extends the open run.
+        assertTrue(differ.contains("patch.set(Layouts.INT_BE, out + run,"));
+        assertFalse(source("LevelDiffer").contains("keyHash"));
+    }
+
+    @Test
+    void generate_ShouldRebuildVarDataFromBaseOrPatch() {
+        String patcher = source("BookPatcher");
+
+        assertTrue(
+                patcher.contains(
+                        "MemorySegment.copy(base, baseOffset, target, targetOffset,"
+                                + " BookFlyweight.BLOCK_LENGTH)"));
+        assertTrue(patcher.contains("int cursor = BookDiffer.CHANGE_MASK_BYTES"));
+        assertTrue(patcher.contains("int written = BookFlyweight.BLOCK_LENGTH"));
+        assertTrue(patcher.contains("levelsLength == 0 ? 0 : patchGroup(base"));
+        assertTrue(patcher.contains("Patch refers to "));
+        assertTrue(patcher.contains("& ~MessageHeader.FLAG_PATCH"));
+        assertTrue(patcher.contains("checkFrame(patch, patchOffset, true)"));
+        assertFalse(source("LevelPatcher").contains("patchGroup"));
+    }
+
+    @Test
+    void generatedPatcher_ShouldRebuildNextFromBaseAndDiff(@TempDir Path tempDir) throws Exception {
+        try (URLClassLoader loader =
+                        MyraCodegenCliRoundTripTest.compileSchema(tempDir, BOOK_SCHEMA);
+                Arena arena = Arena.ofConfined()) {
+            MemorySegment base = book(loader, arena, 1, "OPEN", 1, 2, 3, 4);
+
+            // Level 4 moves to the front and level 2 is replaced by a new level 5.
+            assertRoundTrip(loader, arena, base, book(loader, arena, 2, "OPEN", 4, 1, 5, 3));
+
+            // Same status, but built as "HALTED": 6 + 8 bytes of capacity instead of 4 + 8.
+            MemorySegment wider = book(loader, arena, 1, "HALTED", 1, 2, 3, 4);
+            Object widerBook = MyraCodegenCliRoundTripTest.wrapFrame(loader, BOOK, wider);
+            assertEquals(true, call(widerBook, "trySetStatus", "OPEN", arena.allocate(64)));
+            Object patched = assertRoundTrip(loader, arena, base, wider);
+            assertEquals(14, call(patched, "getStatusCapacity"));
+
+            // An optional group absent on either side.
+            MemorySegment empty = book(loader, arena, 3, "OPEN");
+            assertEquals(false, call(assertRoundTrip(loader, arena, base, empty), "hasLevels"));
+            assertEquals(4, call(assertRoundTrip(loader, arena, empty, base), "getLevelsCount"));
+        }
+    }
+
+    private static final String BOOK = "com.example.book.codec.Book";
+
+    private static final String BOOK_SCHEMA =
+            """
+            namespace: "com.example.book.codec"
+            version: "1.0.0"
+
+            messages:
+              - name: "Level"
+                fields:
+                  - { tag: 1, name: "price", type: "int64", key: true }
+                  - { tag: 2, name: "size", type: "int32" }
+              - name: "Book"
+                fields:
+                  - { tag: 1, name: "seq", type: "int64" }
+                  - { tag: 2, name: "status", type: "string", slack: 8 }
+                  - { tag: 3, name: "levels", type: "Level", repeated: true, optional: true }
+                  - { tag: 4, name: "note", type: "string" }
+            """;
+
+    private static MemorySegment book(
+            ClassLoader loader, Arena arena, long seq, String status, long... prices)
+            throws ReflectiveOperationException {
+        MemorySegment scratch = arena.allocate(64);
+        int[] next = {0};
+        return MyraCodegenCliRoundTripTest.buildFrame(
+                loader,
+                BOOK,
+                arena,
+                builder -> {
+                    call(builder, "setSeq", seq);
+                    call(builder, "setStatus", status, scratch);
+                    call(builder, "setNote", "note-" + seq, scratch);
+                    if (prices.length > 0) {
+                        call(
+                                builder,
+                                "setLevels",
+                                prices.length,
+                                MyraCodegenCliRoundTripTest.elements(
+                                        level -> {
+                                            long price = prices[next[0]++];
+                                            call(level, "setPrice", price);
+                                            call(level, "setSize", (int) price * 10);
+                                        }));
+                    }
+                });
+    }
+
+    /** Diffs {@code next} against {@code base}, patches {@code base} and compares with next. */
+    private static Object assertRoundTrip(
+            ClassLoader loader, Arena arena, MemorySegment base, MemorySegment next)
+            throws ReflectiveOperationException {
+        MemorySegment patch = arena.allocate(4096);
+        MemorySegment target = arena.allocate(4096);
+        Object differ = Class.forName(BOOK + "Differ", true, loader).getConstructor().newInstance();
+        Object patcher =
+                Class.forName(BOOK + "Patcher", true, loader).getConstructor().newInstance();
+        call(differ, "diffFrame", base, 0L, next, 0L, patch, 0L);
+        call(patcher, "patchFrame", base, 0L, patch, 0L, target, 0L);
+        Object patched = MyraCodegenCliRoundTripTest.wrapFrame(loader, BOOK, target);
+        Object expected = MyraCodegenCliRoundTripTest.wrapFrame(loader, BOOK, next);
+        assertEquals(true, call(patched, "contentEquals", expected));
+        return patched;
+    }
+
+    private static Object call(Object target, String name, Object... args)
+            throws ReflectiveOperationException {
+        return MyraCodegenCliRoundTripTest.call(target, name, args);
+    }
+
+    private static String source(String typeName) {
+        return new DiffGenerator(bookSchema())
+                .generate().stream()
+                        .map(JavaFile::toString)
+                        .filter(s -> s.contains("public final class " + typeName + " "))
+                        .findFirst()
+                        .orElseThrow();
+    }
+
+    private static ResolvedSchemaDefinition bookSchema() {
+        return new ResolvedSchemaDefinition(
+                "com.test",
+                "1.0.0",
+                List.of(
+                        new ResolvedMessageDefinition(
+                                "Level",
+                                1,
+                                List.of(
+                                        ResolvedFieldDefinition.builder("price", 1, 1, "int64")
+                                                .key(true)
+                                                .build(),
+                                        new ResolvedFieldDefinition(
+                                                "size", 2, 2, "int32", false, false, false, "",
+                                                null))),
+                        new ResolvedMessageDefinition(
+                                "Book",
+                                2,
+                                List.of(
+                                        new ResolvedFieldDefinition(
+                                                "seq", 1, 1, "int64", false, false, false, "",
+                                                null),
+                                        ResolvedFieldDefinition.builder("status", 2, 2, "string")
+                                                .slack(8)
+                                                .build(),
+                                        new ResolvedFieldDefinition(
+                                                "levels", 3, 3, "Level", false, true, false, "",
+                                                null),
+                                        new ResolvedFieldDefinition(
+                                                "note", 4, 4, "string", false, false, false, "",
+                                                null)))),
+                List.of());
+    }
+}
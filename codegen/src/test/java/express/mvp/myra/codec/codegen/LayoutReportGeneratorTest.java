@@ -0,0 +1,69 @@
+package express.mvp.myra.codec.codegen;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import express.mvp.myra.codec.codegen.resolver.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LayoutReportGeneratorTest {
+
+    @TempDir Path tempDir;
+
+    @Test
+    void render_ShouldListSlotsHotFieldsAndCacheLines() {
+        String report = new LayoutReportGenerator(fillSchema(false)).render();
+
+        assertTrue(report.contains("Message Fill (id 1, packed, block 74 bytes, 0 padding bytes"));
+        assertTrue(report.contains("hot region: bytes 0..8, cache line 0"));
+        assertTrue(report.matches("(?s).*\\n\\s+1\\s+8\\s+0\\s+price\\s+int64\\s+hot\\n.*"));
+        // The 60-byte inline string straddles the first line boundary.
+        assertTrue(report.matches("(?s).*\\n\\s+9\\s+64\\s+0-1\\s+account.*crosses line\\n.*"));
+        assertTrue(report.contains("---- cache line 1 @ 64 ----"));
+        assertTrue(report.matches("(?s).*\\n\\s+0\\s+1\\s+0\\s+\\(presence\\)\\s+bitmap\\n.*"));
+    }
+
+    @Test
+    void render_ShouldShowAlignmentPadding() {
+        String report = new LayoutReportGenerator(fillSchema(true)).render();
+
+        assertTrue(
+                report.contains("Message Fill (id 1, aligned, block 88 bytes, 14 padding bytes"));
+        assertTrue(report.contains("hot region: bytes 0..15, cache line 0"));
+        assertTrue(report.matches("(?s).*\\n\\s+1\\s+7\\s+0\\s+\\(padding\\)\\n.*"));
+        assertTrue(report.matches("(?s).*\\n\\s+81\\s+7\\s+1\\s+\\(padding\\)\\n.*"));
+    }
+
+    @Test
+    void writeFile_ShouldWriteReportIntoOutputDirectory() throws Exception {
+        Path report = new LayoutReportGenerator(fillSchema(false)).writeFile(tempDir);
+
+        assertEquals(tempDir.resolve(LayoutReportGenerator.REPORT_FILE_NAME), report);
+        assertTrue(Files.readString(report).startsWith("Layout report for com.test"));
+    }
+
+    private static ResolvedSchemaDefinition fillSchema(boolean aligned) {
+        return new ResolvedSchemaDefinition(
+                "com.test",
+                "1.0.0",
+                List.of(
+                        new ResolvedMessageDefinition(
+                                "Fill",
+                                1,
+                                List.of(
+                                        new ResolvedFieldDefinition(
+                                                "account", 1, 1, "string", false, false, false,
+                                                "", 60),
+                                        new ResolvedFieldDefinition(
+                                                "live", 2, 2, "bool", true, false, false, "",
+                                                null),
+                                        ResolvedFieldDefinition.builder("price", 3, 3, "int64")
+                                                .hot(true)
+                                                .build()),
+                                aligned)),
+                List.of());
+    }
+}
@@ -10,15 +10,21 @@ import express.mvp.roray.ffm.utils.memory.MemorySegmentPool;
 import express.mvp.roray.ffm.utils.memory.Utf8View;
 import java.io.File;
 import java.io.IOException;
+import java.lang.foreign.Arena;
 import java.lang.foreign.MemorySegment;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Locale;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.tools.Diagnostic;
@@ -126,6 +132,414 @@ class MyraCodegenCliRoundTripTest {
         }
     }
 
+    @Test
+    void cliGeneratesSlackAndFixedCapacityStringsThatCompile(@TempDir Path tempDir)
+            throws Exception {
+        Path schemaPath = tempDir.resolve("notes.myra.yml");
+        Files.writeString(
+                schemaPath,
+                """
+                namespace: "com.example.notes.codec"
+                version: "1.0.0"
+
+                messages:
+                  - name: "Note"
+                    fields:
+                      - tag: 1
+                        name: "symbol"
+                        type: "string"
+                        fixed_capacity: 16
+                      - tag: 2
+                        name: "text"
+                        type: "string"
+                        slack: 8
+                """);
+        Path generatedSources = Files.createDirectories(tempDir.resolve("generated-src"));
+        Path lockFilePath = tempDir.resolve("notes.generated.lock");
+
+        int exitCode =
+                new CommandLine(new MyraCodegenCli())
+                        .execute(
+                                "-s", schemaPath.toString(),
+                                "-o", generatedSources.toString(),
+                                "-l", lockFilePath.toString());
+        assertEquals(0, exitCode, "Myra codegen CLI must succeed");
+
+        LockFile lockFile = LockFileManager.load(lockFilePath);
+        Path compiledOutput = compileGeneratedSources(generatedSources);
+
+        MemorySegmentPool pool = new MemorySegmentPool(4096, 1, 8);
+        MessageEncoder encoder = new MessageEncoder(pool);
+        MemorySegment scratchBuffer = MemorySegment.ofArray(new byte[256]);
+
+        try (URLClassLoader loader =
+                new URLClassLoader(
+                        new URL[] {compiledOutput.toUri().toURL()}, getClass().getClassLoader())) {
+            Class<?> builderClass =
+                    Class.forName("com.example.notes.codec.NoteBuilder", true, loader);
+            Object builder =
+                    builderClass
+                            .getMethod("allocate", MessageEncoder.class, int.class)
+                            .invoke(null, encoder, 2048);
+            builderClass
+                    .getMethod("setSymbol", String.class, MemorySegment.class)
+                    .invoke(builder, "EUR/USD", scratchBuffer);
+            builderClass
+                    .getMethod("setText", String.class, MemorySegment.class)
+                    .invoke(builder, "h\u00e9llo", scratchBuffer);
+
+            PooledSegment encoded =
+                    (PooledSegment)
+                            builderClass
+                                    .getMethod("build", short.class, short.class)
+                                    .invoke(
+                                            builder,
+                                            templateId(lockFile, "Note"),
+                                            schemaVersion(lockFile));
+
+            try (PooledSegment pooled = encoded) {
+                Class<?> flyweightClass =
+                        Class.forName("com.example.notes.codec.NoteFlyweight", true, loader);
+                Object flyweight = flyweightClass.getConstructor().newInstance();
+                flyweightClass
+                        .getMethod("wrap", MemorySegment.class, long.class)
+                        .invoke(flyweight, pooled.segment(), (long) MessageHeader.HEADER_SIZE);
+
+                assertEquals(
+                        "EUR/USD",
+                        flyweightClass.getMethod("getSymbol").invoke(flyweight).toString());
+                assertEquals(
+                        "h\u00e9llo",
+                        flyweightClass.getMethod("getText").invoke(flyweight).toString());
+                // "héllo" is six bytes, so the slack leaves room for eight more in place.
+                assertEquals(14, flyweightClass.getMethod("getTextCapacity").invoke(flyweight));
+
+                Method trySetText =
+                        flyweightClass.getMethod("trySetText", String.class, MemorySegment.class);
+                assertEquals(true, trySetText.invoke(flyweight, "goodbye, world", scratchBuffer));
+                assertEquals(
+                        "goodbye, world",
+                        flyweightClass.getMethod("getText").invoke(flyweight).toString());
+                assertEquals(
+                        false, trySetText.invoke(flyweight, "far too long to fit", scratchBuffer));
+                assertEquals(
+                        "goodbye, world",
+                        flyweightClass.getMethod("getText").invoke(flyweight).toString());
+            }
+        }
+    }
+
+    @Test
+    void cliKeepsTranscodersFromEveryRecordedVersion(@TempDir Path tempDir) throws Exception {
+        Path schemaPath = tempDir.resolve("ticks.myra.yml");
+        Path lockFilePath = tempDir.resolve("ticks.generated.lock");
+
+        Files.writeString(schemaPath, tickSchema("1.0.0", ""));
+        generate(schemaPath, tempDir.resolve("v1_0"), lockFilePath);
+        String withVenue =
+                """
+                      - tag: 3
+                        name: "venue"
+                        type: "int32"
+                """;
+        Files.writeString(schemaPath, tickSchema("1.1.0", withVenue));
+        assertEquals(
+                List.of("TickTranscoder_v1_0_to_v1_1.java"),
+                transcoders(generate(schemaPath, tempDir.resolve("v1_1"), lockFilePath)));
+
+        // Regenerating at the same version must not lose the transcoder.
+        assertEquals(
+                List.of("TickTranscoder_v1_0_to_v1_1.java"),
+                transcoders(generate(schemaPath, tempDir.resolve("v1_1-again"), lockFilePath)));
+
+        // A further version reads both earlier ones directly.
+        Files.writeString(schemaPath, tickSchema("1.2.0", withVenue));
+        Path v12 = generate(schemaPath, tempDir.resolve("v1_2"), lockFilePath);
+        assertEquals(
+                List.of("TickTranscoder_v1_0_to_v1_2.java", "TickTranscoder_v1_1_to_v1_2.java"),
+                transcoders(v12));
+        compileGeneratedSources(v12);
+    }
+
+    @Test
+    void cliGeneratesSparseMessagesThatRoundTrip(@TempDir Path tempDir) throws Exception {
+        // 70 optional fields span two presence words, so f64 and up go through the index entry.
+        StringBuilder wideFields = new StringBuilder();
+        for (int i = 0; i < 70; i++) {
+            wideFields.append(
+                    "      - { tag: %d, name: \"f%d\", type: \"%s\", optional: true }\n"
+                            .formatted(i + 4, i, i % 2 == 0 ? "int64" : "int32"));
+        }
+        String schema =
+                """
+                namespace: "com.example.wide.codec"
+                version: "1.0.0"
+
+                messages:
+                  - name: "Quote"
+                    sparse: true
+                    fields:
+                      - { tag: 1, name: "id", type: "int32" }
+                      - { tag: 2, name: "bid", type: "int64", optional: true }
+                      - { tag: 3, name: "ask", type: "int64", optional: true }
+                  - name: "Wide"
+                    sparse: true
+                    fields:
+                      - { tag: 1, name: "id", type: "int64" }
+                      - { tag: 2, name: "name", type: "string" }
+                      - { tag: 3, name: "quotes", type: "Quote", repeated: true }
+                """
+                        + wideFields;
+        String wide = "com.example.wide.codec.Wide";
+        List<Integer> present = List.of(1, 2, 63, 64, 69);
+
+        try (URLClassLoader loader = compileSchema(tempDir, schema);
+                Arena arena = Arena.ofConfined()) {
+            MemorySegment scratch = arena.allocate(64);
+            int[] nextQuote = {0};
+            MemorySegment frame =
+                    buildFrame(
+                            loader,
+                            wide,
+                            arena,
+                            builder -> {
+                                call(builder, "setId", 42L);
+                                call(builder, "setName", "wide", scratch);
+                                for (int i : present) {
+                                    call(builder, "setF" + i, sparseValue(i, true));
+                                }
+                                call(
+                                        builder,
+                                        "setQuotes",
+                                        2,
+                                        elements(
+                                                quote -> {
+                                                    int id = nextQuote[0]++;
+                                                    String side = id == 0 ? "setBid" : "setAsk";
+                                                    call(quote, "setId", id);
+                                                    call(quote, side, 100L);
+                                                }));
+                            });
+            Object flyweight = wrapFrame(loader, wide, frame);
+
+            assertEquals(42L, call(flyweight, "getId"));
+            assertEquals("wide", call(flyweight, "getName").toString());
+            for (int i = 0; i < 70; i++) {
+                boolean set = present.contains(i);
+                assertEquals(set, call(flyweight, "hasF" + i), "hasF" + i);
+                assertEquals(sparseValue(i, set), call(flyweight, "getF" + i), "getF" + i);
+            }
+
+            // Each element is closed by finishInline(), which appends its own sparse region.
+            assertEquals(2, call(flyweight, "getQuotesCount"));
+            Object first = call(flyweight, "getQuotesAt", 0);
+            assertEquals(100L, call(first, "getBid"));
+            assertEquals(false, call(first, "hasAsk"));
+            Object second = call(flyweight, "getQuotesAt", 1);
+            assertEquals(1, call(second, "getId"));
+            assertEquals(0L, call(second, "getBid"));
+            assertEquals(100L, call(second, "getAsk"));
+
+            call(flyweight, "setF64", 7L);
+            assertEquals(7L, call(flyweight, "getF64"));
+            assertEquals(sparseValue(69, true), call(flyweight, "getF69"));
+            InvocationTargetException absent =
+                    assertThrows(
+                            InvocationTargetException.class, () -> call(flyweight, "setF65", 7));
+            assertInstanceOf(IllegalStateException.class, absent.getCause());
+        }
+    }
+
+    @Test
+    void cliGeneratesOneofsThatRoundTrip(@TempDir Path tempDir) throws Exception {
+        String schema =
+                """
+                namespace: "com.example.pay.codec"
+                version: "1.0.0"
+
+                messages:
+                  - name: "Card"
+                    fields:
+                      - { tag: 1, name: "number", type: "string" }
+                      - { tag: 2, name: "expiry", type: "int32" }
+                  - name: "Order"
+                    fields:
+                      - { tag: 1, name: "id", type: "int64" }
+                      - { tag: 2, name: "note", type: "string", optional: true }
+                    oneofs:
+                      - name: "payment"
+                        fields:
+                          - { tag: 3, name: "card", type: "Card" }
+                          - { tag: 4, name: "iban", type: "string" }
+                          - { tag: 5, name: "voucherAmount", type: "int64" }
+                """;
+
+        try (URLClassLoader loader = compileSchema(tempDir, schema);
+                Arena arena = Arena.ofConfined()) {
+            MemorySegment scratch = arena.allocate(64);
+
+            Object none = order(loader, arena, b -> call(b, "setId", 1L));
+            assertEquals("NOT_SET", call(none, "getPaymentCase").toString());
+            assertEquals(false, call(none, "hasCard"));
+            assertEquals(0L, call(none, "getVoucherAmount"));
+            assertEquals("", call(none, "getIban").toString());
+
+            Object card =
+                    order(
+                            loader,
+                            arena,
+                            b -> {
+                                call(b, "setId", 2L);
+                                call(b, "setNote", "n", scratch);
+                                call(
+                                        b,
+                                        "setCard",
+                                        elements(
+                                                c -> {
+                                                    call(c, "setNumber", "4111", scratch);
+                                                    call(c, "setExpiry", 1226);
+                                                }));
+                            });
+            assertEquals("CARD", call(card, "getPaymentCase").toString());
+            assertEquals(true, call(card, "hasCard"));
+            assertEquals(false, call(card, "hasIban"));
+            assertEquals("4111", call(call(card, "getCard"), "getNumber").toString());
+            assertEquals(1226, call(call(card, "getCard"), "getExpiry"));
+            assertEquals("n", call(card, "getNote").toString());
+
+            // The option may be set before the other fields.
+            Object iban =
+                    order(
+                            loader,
+                            arena,
+                            b -> {
+                                call(b, "setIban", "DE89", scratch);
+                                call(b, "setId", 3L);
+                            });
+            assertEquals("IBAN", call(iban, "getPaymentCase").toString());
+            assertEquals("DE89", call(iban, "getIban").toString());
+            assertEquals(0L, call(iban, "getVoucherAmount"));
+
+            Object voucher =
+                    order(
+                            loader,
+                            arena,
+                            b -> {
+                                call(b, "setId", 4L);
+                                call(b, "setVoucherAmount", -77L);
+                            });
+            assertEquals("VOUCHER_AMOUNT", call(voucher, "getPaymentCase").toString());
+            assertEquals(-77L, call(voucher, "getVoucherAmount"));
+            assertEquals(false, call(voucher, "hasCard"));
+            assertEquals(false, call(voucher, "contentEquals", iban));
+
+            // Selecting a second option of the same group is rejected by the builder.
+            InvocationTargetException twice =
+                    assertThrows(
+                            InvocationTargetException.class,
+                            () ->
+                                    order(
+                                            loader,
+                                            arena,
+                                            b -> {
+                                                call(b, "setIban", "DE89", scratch);
+                                                call(b, "setVoucherAmount", 1L);
+                                            }));
+            assertInstanceOf(IllegalStateException.class, twice.getCause());
+        }
+    }
+
+    @Test
+    void cliGeneratesMapsThatRoundTrip(@TempDir Path tempDir) throws Exception {
+        String schema =
+                """
+                namespace: "com.example.limits.codec"
+                version: "1.0.0"
+
+                messages:
+                  - name: "Account"
+                    fields:
+                      - { tag: 1, name: "symbol", type: "string" }
+                      - { tag: 2, name: "limits", type: "map<string, int64>" }
+                      - { tag: 3, name: "fills", type: "map<int64, int32>", optional: true }
+                      - { tag: 4, name: "tags", type: "map<string, string>" }
+                """;
+        String account = "com.example.limits.codec.Account";
+        // More than 16 entries, so limits carries the embedded hash index.
+        Map<String, Long> limits = new HashMap<>();
+        for (int i = 0; i < 40; i++) {
+            limits.put("SYM" + i, i * 100L);
+        }
+
+        try (URLClassLoader loader = compileSchema(tempDir, schema);
+                Arena arena = Arena.ofConfined()) {
+            MemorySegment scratch = arena.allocate(64);
+            Object flyweight =
+                    wrapFrame(
+                            loader,
+                            account,
+                            buildFrame(
+                                    loader,
+                                    account,
+                                    arena,
+                                    b -> {
+                                        call(b, "setSymbol", "SYM7", scratch);
+                                        call(b, "setLimits", limits);
+                                        call(b, "setFills", Map.of(5L, 50, -1L, -10));
+                                        call(b, "setTags", Map.of("desk", "rates", "book", "a"));
+                                    }));
+
+            assertEquals(40, call(flyweight, "getLimitsCount"));
+            for (Map.Entry<String, Long> limit : limits.entrySet()) {
+                assertEquals(
+                        limit.getValue(),
+                        call(flyweight, "getLimitsOrDefault", limit.getKey(), -1L));
+            }
+            assertEquals(-1L, call(flyweight, "getLimitsOrDefault", "SYM40", -1L));
+            assertEquals(false, call(flyweight, "containsLimits", "SYM40"));
+
+            // String keys read from a frame or held as raw UTF-8 are looked up without decoding.
+            Object symbol = call(flyweight, "getSymbol");
+            assertEquals(700L, call(flyweight, "getLimitsOrDefault", symbol, -1L));
+            byte[] raw = "xSYM12".getBytes(StandardCharsets.UTF_8);
+            MemorySegment bytes = arena.allocate(raw.length).copyFrom(MemorySegment.ofArray(raw));
+            assertEquals(1200L, call(flyweight, "getLimitsOrDefault", bytes, 1L, 5, -1L));
+            assertEquals(true, call(flyweight, "containsLimits", bytes, 1L, 5));
+            assertEquals(false, call(flyweight, "containsLimits", bytes, 0L, 5));
+
+            // Entries are stored in ascending key order.
+            Utf8View view = new Utf8View();
+            call(flyweight, "getLimitsKeyAt", 0, view);
+            assertEquals("SYM0", view.toString());
+            call(flyweight, "getLimitsKeyAt", 2, view);
+            assertEquals("SYM10", view.toString());
+
+            assertEquals(true, call(flyweight, "hasFills"));
+            assertEquals(-1L, call(flyweight, "getFillsKeyAt", 0));
+            assertEquals(-10, call(flyweight, "getFillsValueAt", 0));
+            assertEquals(50, call(flyweight, "getFillsOrDefault", 5L, 0));
+            assertEquals(0, call(flyweight, "getFillsOrDefault", 6L, 0));
+
+            assertEquals(true, call(flyweight, "getTags", "desk", view));
+            assertEquals("rates", view.toString());
+            assertEquals(false, call(flyweight, "getTags", "region", view));
+        }
+    }
+
+    private static Object order(ClassLoader loader, Arena arena, Fields fields)
+            throws ReflectiveOperationException {
+        String order = "com.example.pay.codec.Order";
+        return wrapFrame(loader, order, buildFrame(loader, order, arena, fields));
+    }
+
+    /** The value {@code f<i>} reads back: even fields are int64, odd ones int32. */
+    private static Object sparseValue(int i, boolean present) {
+        if (i % 2 == 0) {
+            return present ? i * 1_000_003L : 0L;
+        }
+        return present ? i * 7 : 0;
+    }
+
         @Test
         void cliFailsFastWhenLockNamespaceMismatches(@TempDir Path tempDir) throws Exception {
                 Path schemaPath = Path.of("src", "test", "resources", "kvstore.myra.yml").toAbsolutePath();
@@ -146,7 +560,132 @@ class MyraCodegenCliRoundTripTest {
                 assertEquals(2, exitCode, "CLI should fail fast with namespace mismatch and return exit code 2");
         }
 
-    private static Path compileGeneratedSources(Path outputDir) throws IOException {
+    private static String tickSchema(String version, String extraFields) {
+        return """
+                namespace: "com.example.ticks.codec"
+                version: "%s"
+
+                messages:
+                  - name: "Tick"
+                    fields:
+                      - tag: 1
+                        name: "price"
+                        type: "int64"
+                      - tag: 2
+                        name: "symbol"
+                        type: "string"
+                %s"""
+                .formatted(version, extraFields);
+    }
+
+    static Path generate(Path schemaPath, Path outputDir, Path lockFilePath) throws IOException {
+        Path generatedSources = Files.createDirectories(outputDir.resolve("generated-src"));
+        int exitCode =
+                new CommandLine(new MyraCodegenCli())
+                        .execute(
+                                "-s", schemaPath.toString(),
+                                "-o", generatedSources.toString(),
+                                "-l", lockFilePath.toString());
+        assertEquals(0, exitCode, "Myra codegen CLI must succeed");
+        return generatedSources;
+    }
+
+    private static List<String> transcoders(Path generatedSources) throws IOException {
+        try (Stream<Path> paths = Files.walk(generatedSources)) {
+            return paths.map(p -> p.getFileName().toString())
+                    .filter(name -> name.contains("Transcoder_"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Generates and compiles {@code schemaYaml} under {@code tempDir}.
+     *
+     * @return a loader for the generated classes; the caller closes it
+     */
+    static URLClassLoader compileSchema(Path tempDir, String schemaYaml) throws IOException {
+        Path schemaPath = tempDir.resolve("schema.myra.yml");
+        Files.writeString(schemaPath, schemaYaml);
+        Path generatedSources = generate(schemaPath, tempDir, tempDir.resolve("schema.lock"));
+        return new URLClassLoader(
+                new URL[] {compileGeneratedSources(generatedSources).toUri().toURL()},
+                MyraCodegenCliRoundTripTest.class.getClassLoader());
+    }
+
+    /**
+     * Calls the public method {@code name} of a generated instance, or a static one when {@code
+     * target} is a class, choosing the overload whose parameters accept {@code args}.
+     */
+    static Object call(Object target, String name, Object... args)
+            throws ReflectiveOperationException {
+        Class<?> type = target instanceof Class<?> c ? c : target.getClass();
+        for (Method method : type.getMethods()) {
+            if (method.getName().equals(name) && accepts(method.getParameterTypes(), args)) {
+                return method.invoke(target instanceof Class<?> ? null : target, args);
+            }
+        }
+        throw new NoSuchMethodException(type.getName() + "." + name);
+    }
+
+    /** Sets the fields of a generated builder or group element builder through {@link #call}. */
+    @FunctionalInterface
+    interface Fields {
+        void set(Object builder) throws ReflectiveOperationException;
+    }
+
+    /**
+     * Builds a frame with the generated {@code <type>Builder}, copied into {@code arena} so that it
+     * outlives the pooled segment it was encoded into.
+     */
+    static MemorySegment buildFrame(ClassLoader loader, String type, Arena arena, Fields fields)
+            throws ReflectiveOperationException {
+        MessageEncoder encoder = new MessageEncoder(new MemorySegmentPool(8192, 1, 4));
+        Object builder =
+                call(Class.forName(type + "Builder", true, loader), "allocate", encoder, 4096);
+        fields.set(builder);
+        Class<?> flyweight = Class.forName(type + "Flyweight", true, loader);
+        short templateId = (short) flyweight.getField("TEMPLATE_ID").getInt(null);
+        short version = flyweight.getField("SCHEMA_VERSION").getShort(null);
+        try (PooledSegment built = (PooledSegment) call(builder, "build", templateId, version)) {
+            return arena.allocate(built.segment().byteSize()).copyFrom(built.segment());
+        }
+    }
+
+    /** Wraps the generated {@code <type>Flyweight} around the payload of a frame. */
+    static Object wrapFrame(ClassLoader loader, String type, MemorySegment frame)
+            throws ReflectiveOperationException {
+        Object flyweight =
+                Class.forName(type + "Flyweight", true, loader).getConstructor().newInstance();
+        call(flyweight, "wrap", frame, (long) MessageHeader.HEADER_SIZE);
+        return flyweight;
+    }
+
+    /** Adapts {@code fields} to the {@code Consumer} taken by group setters. */
+    static Consumer<Object> elements(Fields fields) {
+        return element -> {
+            try {
+                fields.set(element);
+            } catch (ReflectiveOperationException e) {
+                throw new AssertionError(e);
+            }
+        };
+    }
+
+    private static boolean accepts(Class<?>[] parameters, Object[] args) {
+        if (parameters.length != args.length) {
+            return false;
+        }
+        for (int i = 0; i < args.length; i++) {
+            Class<?> boxed = MethodType.methodType(parameters[i]).wrap().returnType();
+            if (args[i] == null ? parameters[i].isPrimitive() : !boxed.isInstance(args[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static Path compileGeneratedSources(Path outputDir) throws IOException {
         JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
         assertNotNull(compiler, "Tests must run on a JDK to recompile generated sources");
 
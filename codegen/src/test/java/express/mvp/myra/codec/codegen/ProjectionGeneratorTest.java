@@ -0,0 +1,209 @@
+package express.mvp.myra.codec.codegen;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.palantir.javapoet.JavaFile;
+import express.mvp.myra.codec.codegen.resolver.*;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ProjectionGeneratorTest {
+
+    @Test
+    void generate_ShouldEmitProjectorPerProjectionOnly() {
+        List<String> names =
+                new ProjectionGenerator(bookSchema()).generate().stream()
+                        .map(JavaFile::toString)
+                        .map(s -> s.replaceAll("(?s).*public final class (\\w+).*", "$1"))
+                        .toList();
+
+        assertEquals(List.of("BookTopProjector"), names);
+    }
+
+    @Test
+    void generate_ShouldCopySelectedFieldsSegmentToSegment() {
+        String projector = source();
+
+        // Book: [presence][seq:8][qty:4][status:8][note:8]; BookTop: [presence][seq:8][status:8]
+        assertTrue(projector.contains("if (this.sourcePresence.get(1))"));
+        assertTrue(projector.contains("this.targetPresence.set(0)"));
+        assertTrue(
+                projector.contains(
+                        "MemorySegment.copy(source, sourceOffset + 1, target, targetOffset + 1,"
+                                + " 8)"));
+        assertTrue(projector.contains("int cursor = BookTopFlyweight.BLOCK_LENGTH"));
+        assertTrue(projector.contains("source.get(Layouts.INT_BE, sourceOffset + 13)"));
+        assertFalse(projector.contains("sourceOffset + 9,"));
+        assertTrue(
+                projector.contains(
+                        "public int project(BookFlyweight source, MemorySegment target,"
+                                + " long targetOffset)"));
+    }
+
+    @Test
+    void generate_ShouldWriteProjectionHeaderForFrames() {
+        String projector = source();
+
+        assertTrue(projector.contains("templateId != (short) BookFlyweight.TEMPLATE_ID"));
+        assertTrue(projector.contains("(flags & MessageHeader.FLAG_PATCH) != 0"));
+        assertTrue(projector.contains("(short) BookTopFlyweight.TEMPLATE_ID)"));
+        assertTrue(projector.contains("BookTopFlyweight.SCHEMA_VERSION)"));
+        assertTrue(projector.contains("SegmentUtils.calculateCrc32("));
+    }
+
+    @Test
+    void generatedProjector_ShouldMatchProjectionBuiltDirectly(@TempDir Path tempDir)
+            throws Exception {
+        try (URLClassLoader loader =
+                        MyraCodegenCliRoundTripTest.compileSchema(tempDir, BOOK_SCHEMA);
+                Arena arena = Arena.ofConfined()) {
+            Object projector =
+                    Class.forName(BOOK + "TopProjector", true, loader)
+                            .getConstructor()
+                            .newInstance();
+            MemorySegment target = arena.allocate(4096);
+
+            for (String status : new String[] {"OPEN", null}) {
+                MemorySegment source =
+                        MyraCodegenCliRoundTripTest.buildFrame(
+                                loader, BOOK, arena, b -> book(b, arena, status, true));
+                int length = (int) call(projector, "projectFrame", source, 0L, target, 0L);
+                Object projected =
+                        MyraCodegenCliRoundTripTest.wrapFrame(
+                                loader, BOOK + "Top", target.asSlice(0, length));
+                Object book = MyraCodegenCliRoundTripTest.wrapFrame(loader, BOOK, source);
+
+                assertEquals(call(book, "getSeq"), call(projected, "getSeq"));
+                assertEquals(call(book, "getQty"), call(projected, "getQty"));
+                assertEquals(status != null, call(projected, "hasStatus"));
+                assertEquals(
+                        call(book, "getStatus").toString(),
+                        call(projected, "getStatus").toString());
+                assertEquals(2, call(projected, "getLevelsCount"));
+                assertEquals(
+                        call(call(book, "getLevelsAt", 1), "getPrice"),
+                        call(call(projected, "getLevelsAt", 1), "getPrice"));
+
+                MemorySegment direct =
+                        MyraCodegenCliRoundTripTest.buildFrame(
+                                loader, BOOK + "Top", arena, b -> book(b, arena, status, false));
+                Object expected =
+                        MyraCodegenCliRoundTripTest.wrapFrame(loader, BOOK + "Top", direct);
+                assertEquals(true, call(projected, "contentEquals", expected));
+            }
+
+            // A frame of another template is rejected.
+            InvocationTargetException wrongTemplate =
+                    assertThrows(
+                            InvocationTargetException.class,
+                            () -> call(projector, "projectFrame", target, 0L, target, 2048L));
+            assertInstanceOf(IllegalArgumentException.class, wrongTemplate.getCause());
+        }
+    }
+
+    private static final String BOOK = "com.example.top.codec.Book";
+
+    private static final String BOOK_SCHEMA =
+            """
+            namespace: "com.example.top.codec"
+            version: "1.0.0"
+
+            messages:
+              - name: "Level"
+                fields:
+                  - { tag: 1, name: "price", type: "int64" }
+                  - { tag: 2, name: "size", type: "int32" }
+              - name: "Book"
+                sparse: true
+                fields:
+                  - { tag: 1, name: "seq", type: "int64" }
+                  - { tag: 2, name: "qty", type: "int32", optional: true }
+                  - { tag: 3, name: "status", type: "string", optional: true }
+                  - { tag: 4, name: "levels", type: "Level", repeated: true }
+                  - { tag: 5, name: "note", type: "string" }
+                projections:
+                  - name: "BookTop"
+                    fields: ["seq", "qty", "status", "levels"]
+            """;
+
+    /** Sets the fields shared by Book and BookTop, plus Book's note when {@code source}. */
+    private static void book(Object builder, Arena arena, String status, boolean source)
+            throws ReflectiveOperationException {
+        MemorySegment scratch = arena.allocate(64);
+        long[] prices = {101, 99};
+        int[] next = {0};
+        call(builder, "setSeq", 42L);
+        call(builder, "setQty", 7);
+        if (status != null) {
+            call(builder, "setStatus", status, scratch);
+        }
+        call(
+                builder,
+                "setLevels",
+                prices.length,
+                MyraCodegenCliRoundTripTest.elements(
+                        level -> {
+                            long price = prices[next[0]++];
+                            call(level, "setPrice", price);
+                            call(level, "setSize", (int) price);
+                        }));
+        if (source) {
+            call(builder, "setNote", "not projected", scratch);
+        }
+    }
+
+    private static Object call(Object target, String name, Object... args)
+            throws ReflectiveOperationException {
+        return MyraCodegenCliRoundTripTest.call(target, name, args);
+    }
+
+    private static String source() {
+        return new ProjectionGenerator(bookSchema()).generate().getFirst().toString();
+    }
+
+    private static ResolvedSchemaDefinition bookSchema() {
+        return new ResolvedSchemaDefinition(
+                "com.test",
+                "1.0.0",
+                List.of(
+                        new ResolvedMessageDefinition(
+                                "Book",
+                                1,
+                                List.of(
+                                        new ResolvedFieldDefinition(
+                                                "seq", 1, 1, "int64", false, false, false, "",
+                                                null),
+                                        new ResolvedFieldDefinition(
+                                                "qty", 2, 2, "int32", true, false, false, "",
+                                                null),
+                                        new ResolvedFieldDefinition(
+                                                "status", 3, 3, "string", true, false, false, "",
+                                                null),
+                                        new ResolvedFieldDefinition(
+                                                "note", 4, 4, "string", false, false, false, "",
+                                                null))),
+                        new ResolvedMessageDefinition(
+                                "BookTop",
+                                2,
+                                List.of(
+                                        new ResolvedFieldDefinition(
+                                                "seq", 1, 1, "int64", false, false, false, "",
+                                                null),
+                                        new ResolvedFieldDefinition(
+                                                "status", 2, 2, "string", true, false, false, "",
+                                                null)),
+                                false,
+                                false,
+                                false,
+                                List.of(),
+                                List.of(),
+                                "Book")),
+                List.of());
+    }
+}
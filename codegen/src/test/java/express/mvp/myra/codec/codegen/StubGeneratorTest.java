@@ -7,7 +7,9 @@ import express.mvp.myra.codec.codegen.resolver.*;
 import express.mvp.myra.codec.schema.EnumValueDefinition;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
@@ -125,7 +127,7 @@ class StubGeneratorTest {
 
         String source = builderFile.toString();
         assertTrue(source.contains("Single-pass, write-once builder"));
-        assertTrue(source.contains("REQUIRED_FIELD_INDEXES"));
+        assertTrue(source.contains("REQUIRED_MASK"));
         assertTrue(source.contains("Missing required field"));
         assertTrue(source.contains("VarFieldWriter"));
         assertTrue(source.contains("SYMBOL_FIXED_CAPACITY"));
@@ -162,6 +164,1022 @@ class StubGeneratorTest {
         assertTrue(source.contains("copy(scratchBuffer"));
     }
 
+    @Test
+    void generate_ShouldEmitDictionaryAccessorsForDictionaryStrings() {
+        ResolvedSchemaDefinition schema =
+                new ResolvedSchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new ResolvedMessageDefinition(
+                                        "Quote",
+                                        7,
+                                        List.of(
+                                                ResolvedFieldDefinition.builder(
+                                                                "venue", 1, 1, "string")
+                                                        .dictionary(true)
+                                                        .build(),
+                                                new ResolvedFieldDefinition(
+                                                        "price", 2, 2, "int64", false, false,
+                                                        false, "", null)))),
+                        List.of());
+
+        List<JavaFile> files = new StubGenerator(schema).generate();
+        String flyweight =
+                files.stream()
+                        .map(JavaFile::toString)
+                        .filter(s -> s.contains("class QuoteFlyweight"))
+                        .findFirst()
+                        .orElseThrow();
+        String builder =
+                files.stream()
+                        .map(JavaFile::toString)
+                        .filter(s -> s.contains("class QuoteBuilder"))
+                        .findFirst()
+                        .orElseThrow();
+
+        // The id is stored inline as a fixed int32, so there is no var-field header.
+        assertTrue(flyweight.contains("BLOCK_LENGTH = 12"));
+        assertTrue(flyweight.contains("int getVenueId()"));
+        assertTrue(flyweight.contains("getVenue(StringDictionaryDecoder dictionary)"));
+        assertTrue(flyweight.contains("dictionary.resolve(getVenueId(), venueView())"));
+        assertTrue(builder.contains("setVenue(String value, StringDictionaryEncoder dictionary)"));
+        assertTrue(builder.contains("dictionary.idOf(value)"));
+        assertFalse(builder.contains("VENUE_VAR_SLOT"));
+    }
+
+    @Test
+    void generate_WriteToShouldStreamVarFieldsWithoutCopying() {
+        ResolvedSchemaDefinition schema =
+                new ResolvedSchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new ResolvedMessageDefinition(
+                                        "Note",
+                                        1,
+                                        List.of(
+                                                new ResolvedFieldDefinition(
+                                                        "title", 1, 1, "string", false, false,
+                                                        false, "", null),
+                                                new ResolvedFieldDefinition(
+                                                        "body", 2, 2, "bytes", false, false,
+                                                        false, "", null)))),
+                        List.of());
+
+        String flyweight =
+                new StubGenerator(schema)
+                        .generate()
+                        .stream()
+                        .map(JavaFile::toString)
+                        .filter(s -> s.contains("class NoteFlyweight"))
+                        .findFirst()
+                        .orElseThrow();
+
+        assertFalse(flyweight.contains("new byte["));
+        assertTrue(flyweight.contains("writer.writeVarInt(titleLength)"));
+        assertTrue(
+                flyweight.contains(
+                        "writer.writeSegmentRaw(this.segment, this.offset + bodyRelativeOffset,"
+                                + " bodyLength)"));
+    }
+
+    @Test
+    void generate_ShouldEmitInPlaceSettersForSlackFields() {
+        ResolvedSchemaDefinition schema =
+                new ResolvedSchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new ResolvedMessageDefinition(
+                                        "State",
+                                        1,
+                                        List.of(
+                                                ResolvedFieldDefinition.builder(
+                                                                "status", 1, 1, "string")
+                                                        .slack(8)
+                                                        .build(),
+                                                new ResolvedFieldDefinition(
+                                                        "name", 2, 2, "string", false, false,
+                                                        false, "", null)))),
+                        List.of());
+
+        List<JavaFile> files = new StubGenerator(schema).generate();
+        String flyweight =
+                files.stream()
+                        .map(JavaFile::toString)
+                        .filter(s -> s.contains("class StateFlyweight"))
+                        .findFirst()
+                        .orElseThrow();
+        String builder =
+                files.stream()
+                        .map(JavaFile::toString)
+                        .filter(s -> s.contains("class StateBuilder"))
+                        .findFirst()
+                        .orElseThrow();
+
+        assertTrue(flyweight.contains("int getStatusCapacity()"));
+        assertTrue(flyweight.contains("boolean trySetStatus(MemorySegment value)"));
+        assertTrue(
+                flyweight.contains(
+                        "boolean trySetStatus(String value, MemorySegment scratchBuffer)"));
+        assertFalse(flyweight.contains("trySetName"));
+        assertTrue(builder.contains("STATUS_SLACK = 8"));
+        assertTrue(
+                builder.contains(
+                        "writeWithSlack(STATUS_VAR_SLOT, StateFlyweight.STATUS_OFFSET,"
+                                + " scratchBuffer, encodedLength, STATUS_SLACK)"));
+    }
+
+    @Test
+    void generate_ShouldEmitContentAndKeyMethods() {
+        ResolvedSchemaDefinition schema =
+                new ResolvedSchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new ResolvedMessageDefinition(
+                                        "Quote",
+                                        1,
+                                        List.of(
+                                                new ResolvedFieldDefinition(
+                                                        "id", 1, 1, "int64", false, false, false,
+                                                        "", null),
+                                                new ResolvedFieldDefinition(
+                                                        "bid", 2, 2, "int32", false, false, false,
+                                                        "", null),
+                                                ResolvedFieldDefinition.builder(
+                                                                "symbol", 3, 3, "string")
+                                                        .key(true)
+                                                        .build()))),
+                        List.of());
+
+        String flyweight =
+                new StubGenerator(schema)
+                        .generate().stream()
+                                .map(JavaFile::toString)
+                                .filter(s -> s.contains("class QuoteFlyweight"))
+                                .findFirst()
+                                .orElseThrow();
+
+        assertTrue(flyweight.contains("public boolean contentEquals(QuoteFlyweight other)"));
+        assertTrue(flyweight.contains("public long contentHash()"));
+        assertTrue(flyweight.contains("public int compareByKey(QuoteFlyweight other)"));
+        // Adjacent required fixed fields are compared as one 12-byte block.
+        assertTrue(
+                flyweight.contains(
+                        "SegmentContent.equals(this.segment, this.offset, other.segment,"
+                                + " other.offset, 12)"));
+        // Only the key field takes part in ordering.
+        assertTrue(flyweight.contains("result = varCompare(SYMBOL_OFFSET, other)"));
+        assertFalse(flyweight.contains("Long.compare"));
+    }
+
+    @Test
+    void generate_ShouldEmitTablesOnlyForFixedSizeMessages() {
+        ResolvedSchemaDefinition schema =
+                new ResolvedSchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new ResolvedMessageDefinition(
+                                        "Level",
+                                        1,
+                                        List.of(
+                                                new ResolvedFieldDefinition(
+                                                        "price", 1, 1, "int64", false, false, false,
+                                                        "", null),
+                                                new ResolvedFieldDefinition(
+                                                        "maker", 2, 2, "bool", true, false, false,
+                                                        "", null))),
+                                new ResolvedMessageDefinition(
+                                        "Note",
+                                        2,
+                                        List.of(
+                                                new ResolvedFieldDefinition(
+                                                        "text", 1, 1, "string", false, false,
+                                                        false, "", null)))),
+                        List.of());
+
+        List<String> sources =
+                new StubGenerator(schema).generate().stream().map(JavaFile::toString).toList();
+        String table =
+                sources.stream()
+                        .filter(s -> s.contains("class LevelTable"))
+                        .findFirst()
+                        .orElseThrow();
+        String flyweight =
+                sources.stream()
+                        .filter(s -> s.contains("class LevelFlyweight"))
+                        .findFirst()
+                        .orElseThrow();
+
+        assertTrue(table.contains("ROW_SIZE = LevelFlyweight.BLOCK_LENGTH"));
+        assertTrue(table.contains("cursor.wrap(rows.segment(), rows.rowOffset(index))"));
+        assertTrue(table.contains("public void forEach(Consumer<LevelFlyweight> action)"));
+        assertFalse(sources.stream().anyMatch(s -> s.contains("class NoteTable")));
+        // In-place setters of optional fields mark the field present.
+        assertTrue(flyweight.contains("this.presenceBits.set(MAKER_OPT_BIT)"));
+    }
+
+    @Test
+    void generate_ShouldUseAlignedOffsetsAndLayoutsForAlignedMessages() {
+        ResolvedSchemaDefinition schema =
+                new ResolvedSchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new ResolvedMessageDefinition(
+                                        "Tick",
+                                        1,
+                                        List.of(
+                                                new ResolvedFieldDefinition(
+                                                        "qty", 1, 1, "int32", false, false, false,
+                                                        "", null),
+                                                new ResolvedFieldDefinition(
+                                                        "price", 2, 2, "int64", false, false,
+                                                        false, "", null)),
+                                        true)),
+                        List.of());
+
+        List<String> sources =
+                new StubGenerator(schema).generate().stream().map(JavaFile::toString).toList();
+        String flyweight =
+                sources.stream()
+                        .filter(s -> s.contains("class TickFlyweight"))
+                        .findFirst()
+                        .orElseThrow();
+
+        assertTrue(flyweight.contains("PRICE_OFFSET = 0"));
+        assertTrue(flyweight.contains("QTY_OFFSET = 8"));
+        assertTrue(flyweight.contains("BLOCK_LENGTH = 16"));
+        assertTrue(flyweight.contains("segment.get(AlignedLayouts.LONG_BE, this.offset"));
+        assertTrue(flyweight.contains("requires an 8-byte aligned native block"));
+    }
+
+    @Test
+    void generate_ShouldEmitVarHandleAccessorsForConcurrentFields() {
+        ResolvedSchemaDefinition schema =
+                new ResolvedSchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new ResolvedMessageDefinition(
+                                        "Cursor",
+                                        1,
+                                        List.of(
+                                                ResolvedFieldDefinition.builder(
+                                                                "sequence", 1, 1, "int64")
+                                                        .concurrent(true)
+                                                        .build(),
+                                                new ResolvedFieldDefinition(
+                                                        "limit", 2, 2, "int64", false, false,
+                                                        false, "", null)),
+                                        true)),
+                        List.of());
+
+        String flyweight =
+                new StubGenerator(schema)
+                        .generate().stream()
+                                .map(JavaFile::toString)
+                                .filter(s -> s.contains("class CursorFlyweight"))
+                                .findFirst()
+                                .orElseThrow();
+
+        assertTrue(flyweight.contains("public long getSequenceAcquire()"));
+        assertTrue(
+                flyweight.contains(
+                        "AlignedLayouts.LONG_BE_HANDLE.getAcquire(this.segment, this.offset +"
+                                + " SEQUENCE_OFFSET)"));
+        assertTrue(flyweight.contains("public void setSequenceRelease(long value)"));
+        assertTrue(flyweight.contains("public long getSequenceVolatile()"));
+        assertTrue(
+                flyweight.contains("public boolean compareAndSetSequence(long expected, long"));
+        assertTrue(flyweight.contains("public long getAndAddSequence(long delta)"));
+        assertFalse(flyweight.contains("getLimitAcquire"));
+    }
+
+    @Test
+    void generate_ShouldEmbedInlineMessagesAtConstantOffset() {
+        ResolvedSchemaDefinition schema =
+                new ResolvedSchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new ResolvedMessageDefinition(
+                                        "Trade",
+                                        1,
+                                        List.of(
+                                                new ResolvedFieldDefinition(
+                                                        "price", 1, 1, "int64", false, false,
+                                                        false, "", null))),
+                                new ResolvedMessageDefinition(
+                                        "Book",
+                                        2,
+                                        List.of(
+                                                new ResolvedFieldDefinition(
+                                                        "symbol", 1, 1, "string", false, false,
+                                                        false, "", null),
+                                                ResolvedFieldDefinition.builder(
+                                                                "lastTrade", 2, 2, "Trade")
+                                                        .optional(true)
+                                                        .inline(true)
+                                                        .build()))),
+                        List.of());
+
+        List<String> sources =
+                new StubGenerator(schema).generate().stream().map(JavaFile::toString).toList();
+        String flyweight =
+                sources.stream()
+                        .filter(s -> s.contains("class BookFlyweight"))
+                        .findFirst()
+                        .orElseThrow();
+        String builder =
+                sources.stream()
+                        .filter(s -> s.contains("class BookBuilder"))
+                        .findFirst()
+                        .orElseThrow();
+
+        // [presence:1][lastTrade:8][symbol header:8]
+        assertTrue(flyweight.contains("LASTTRADE_OFFSET = 1;"));
+        assertTrue(flyweight.contains("BLOCK_LENGTH = 17;"));
+        assertTrue(
+                flyweight.contains(
+                        "lastTradeView().wrap(this.segment, this.offset + LASTTRADE_OFFSET)"));
+        assertTrue(flyweight.contains("if (!hasLastTrade())"));
+        assertTrue(builder.contains("VAR_FIELD_COUNT = 1;"));
+        assertTrue(builder.contains("for (int i = 0; i < VAR_FIELD_COUNT; i++) {"));
+        assertFalse(builder.matches("(?s).*reserveVarField\\(\\);\\s*\\};.*"));
+        assertTrue(
+                builder.contains(
+                        "nestedTradeBuilder(segment.asSlice(payloadBase +"
+                                + " BookFlyweight.LASTTRADE_OFFSET,"
+                                + " TradeFlyweight.BLOCK_LENGTH))"));
+        assertTrue(builder.contains("presenceBits.set(LASTTRADE_OPT_BIT)"));
+    }
+
+    @Test
+    void generate_ShouldPackBoolsAndSmallEnumsIntoBitfieldWord() {
+        ResolvedSchemaDefinition schema =
+                new ResolvedSchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new ResolvedMessageDefinition(
+                                        "Level",
+                                        1,
+                                        List.of(
+                                                new ResolvedFieldDefinition(
+                                                        "price", 1, 1, "int64", false, false,
+                                                        false, "", null),
+                                                new ResolvedFieldDefinition(
+                                                        "maker", 2, 2, "bool", false, false,
+                                                        false, "", null),
+                                                new ResolvedFieldDefinition(
+                                                        "side", 3, 3, "Side", false, false,
+                                                        false, "", null)),
+                                        false,
+                                        true)),
+                        List.of(
+                                new ResolvedEnumDefinition(
+                                        "Side",
+                                        "int8",
+                                        List.of(
+                                                new EnumValueDefinition("BUY", 0),
+                                                new EnumValueDefinition("SELL", 1),
+                                                new EnumValueDefinition("CROSS", 2)))));
+
+        List<String> sources =
+                new StubGenerator(schema).generate().stream().map(JavaFile::toString).toList();
+        String flyweight =
+                sources.stream()
+                        .filter(s -> s.contains("class LevelFlyweight"))
+                        .findFirst()
+                        .orElseThrow();
+        String builder =
+                sources.stream()
+                        .filter(s -> s.contains("class LevelBuilder"))
+                        .findFirst()
+                        .orElseThrow();
+
+        // [word:1 maker@0 side@1..2][price:8]
+        assertTrue(flyweight.contains("MAKER_OFFSET = 0;"));
+        assertTrue(flyweight.contains("SIDE_OFFSET = 0;"));
+        assertTrue(flyweight.contains("SIDE_SHIFT = 1;"));
+        assertTrue(flyweight.contains("PRICE_OFFSET = 1;"));
+        assertTrue(flyweight.contains("BLOCK_LENGTH = 9;"));
+        assertTrue(
+                flyweight.contains(
+                        "return (byte) ((this.segment.get(Layouts.BYTE, this.offset +"
+                                + " SIDE_OFFSET) >>> SIDE_SHIFT) & 0x3);"));
+        assertTrue(flyweight.contains("(byte) ((word & ~(0x3 << SIDE_SHIFT)) | ((value & 0x3)"));
+        assertTrue(
+                builder.contains(
+                        "segment.set(Layouts.BYTE, payloadBase + LevelFlyweight.MAKER_OFFSET,"
+                                + " (byte) 0)"));
+        assertTrue(builder.contains("word | (1 << LevelFlyweight.MAKER_SHIFT)"));
+    }
+
+    @Test
+    void generate_ShouldRankSparseMembersByPopcount() {
+        ResolvedSchemaDefinition schema =
+                new ResolvedSchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new ResolvedMessageDefinition(
+                                        "Quote",
+                                        1,
+                                        List.of(
+                                                new ResolvedFieldDefinition(
+                                                        "id", 1, 1, "int64", false, false, false,
+                                                        "", null),
+                                                new ResolvedFieldDefinition(
+                                                        "bid", 2, 2, "int64", true, false, false,
+                                                        "", null),
+                                                new ResolvedFieldDefinition(
+                                                        "size", 3, 3, "int32", true, false,
+                                                        false, "", null)),
+                                        false,
+                                        false,
+                                        true)),
+                        List.of());
+
+        List<String> sources =
+                new StubGenerator(schema).generate().stream().map(JavaFile::toString).toList();
+        String flyweight =
+                sources.stream()
+                        .filter(s -> s.contains("class QuoteFlyweight"))
+                        .findFirst()
+                        .orElseThrow();
+        String builder =
+                sources.stream()
+                        .filter(s -> s.contains("class QuoteBuilder"))
+                        .findFirst()
+                        .orElseThrow();
+
+        // [presence:1][sparse header:8][id:8]; size sits after bid when bid is present.
+        assertTrue(flyweight.contains("SPARSE_OFFSET = 1;"));
+        assertTrue(flyweight.contains("ID_OFFSET = 9;"));
+        assertFalse(flyweight.contains("SIZE_OFFSET"));
+        assertTrue(
+                flyweight.contains(
+                        "this.offset + SPARSE_OFFSET) + Long.bitCount(this.segment.get("
+                                + "Layouts.LONG_BE, this.offset) & 0x100000000000000L) * 8)"));
+        assertTrue(flyweight.contains("Sparse field 'size' is absent and cannot be set in place"));
+        assertTrue(builder.contains("SPARSE_BITS = new int[] { 0, 1 }"));
+        assertTrue(builder.contains("SPARSE_SIZES = new int[] { 8, 4 }"));
+        assertTrue(builder.contains("long payloadSize = finishSparse(bodySize())"));
+        assertTrue(builder.contains("sparseValues().set(Layouts.INT_BE, 8, value)"));
+    }
+
+    @Test
+    void generate_ShouldDiscriminateOneofOptionsByCaseByte() {
+        ResolvedSchemaDefinition schema =
+                new ResolvedSchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new ResolvedMessageDefinition(
+                                        "Order",
+                                        1,
+                                        List.of(
+                                                new ResolvedFieldDefinition(
+                                                        "id", 1, 1, "int64", false, false, false,
+                                                        "", null)),
+                                        false,
+                                        false,
+                                        false,
+                                        List.of(
+                                                new ResolvedOneofDefinition(
+                                                        "payment",
+                                                        List.of(
+                                                                new ResolvedFieldDefinition(
+                                                                        "amount", 2, 2, "int64",
+                                                                        false, false, false, "",
+                                                                        null),
+                                                                new ResolvedFieldDefinition(
+                                                                        "iban", 3, 3, "string",
+                                                                        false, false, false, "",
+                                                                        null)))))),
+                        List.of());
+
+        List<String> sources =
+                new StubGenerator(schema).generate().stream().map(JavaFile::toString).toList();
+        String flyweight =
+                sources.stream()
+                        .filter(s -> s.contains("class OrderFlyweight"))
+                        .findFirst()
+                        .orElseThrow();
+        String builder =
+                sources.stream()
+                        .filter(s -> s.contains("class OrderBuilder"))
+                        .findFirst()
+                        .orElseThrow();
+
+        // [id:8][paymentCase:1][payment header:8]
+        assertTrue(flyweight.contains("PAYMENTCASE_OFFSET = 8;"));
+        assertTrue(flyweight.contains("PAYMENT_OFFSET = 9;"));
+        assertTrue(flyweight.contains("public enum PaymentCase"));
+        assertTrue(flyweight.contains("NOT_SET"));
+        assertTrue(flyweight.contains("public PaymentCase getPaymentCase()"));
+        assertTrue(flyweight.contains("this.offset + PAYMENTCASE_OFFSET) == 2;"));
+        assertTrue(flyweight.contains("public Utf8View getIban()"));
+        assertTrue(builder.contains("VAR_FIELD_COUNT = 1;"));
+        assertTrue(builder.contains("ensureWritable(PAYMENT_INDEX, \"payment\")"));
+        assertTrue(
+                builder.contains(
+                        "segment.set(Layouts.BYTE, payloadBase + OrderFlyweight.PAYMENTCASE_OFFSET,"
+                                + " (byte) 1)"));
+    }
+
+    @Test
+    void generate_ShouldLookUpMapEntriesThroughMapGroupView() {
+        ResolvedSchemaDefinition schema =
+                new ResolvedSchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new ResolvedMessageDefinition(
+                                        "Order",
+                                        1,
+                                        List.of(
+                                                new ResolvedFieldDefinition(
+                                                        "tags", 1, 1, "map<string, string>",
+                                                        false, false, false, "", null),
+                                                new ResolvedFieldDefinition(
+                                                        "limits", 2, 2, "map<int64, int32>",
+                                                        false, false, false, "", null)))),
+                        List.of());
+
+        List<String> sources =
+                new StubGenerator(schema).generate().stream().map(JavaFile::toString).toList();
+        String flyweight =
+                sources.stream()
+                        .filter(s -> s.contains("class OrderFlyweight"))
+                        .findFirst()
+                        .orElseThrow();
+        String builder =
+                sources.stream()
+                        .filter(s -> s.contains("class OrderBuilder"))
+                        .findFirst()
+                        .orElseThrow();
+
+        assertTrue(flyweight.contains("new MapGroupView(MapGroupView.KeyType.STRING)"));
+        assertTrue(flyweight.contains("public boolean getTags(String key, Utf8View view)"));
+        assertTrue(flyweight.contains("final long valueOffset = wrapTagsMap().find(key);"));
+        assertTrue(flyweight.contains("public void getTagsKeyAt(int index, Utf8View view)"));
+        assertTrue(flyweight.contains("public int getLimitsOrDefault(long key, int defaultValue)"));
+        assertTrue(flyweight.contains("public long getLimitsKeyAt(int index)"));
+        assertTrue(flyweight.contains("public boolean containsLimits(long key)"));
+        // String keys can also be looked up by their UTF-8 bytes; integer keys cannot.
+        assertTrue(flyweight.contains("public boolean getTags(Utf8View key, Utf8View view)"));
+        assertTrue(
+                flyweight.contains(
+                        "public boolean getTags(MemorySegment key, long keyOffset, int keyLength,"
+                                + " Utf8View view)"));
+        assertTrue(
+                flyweight.contains(
+                        "public boolean containsTags(MemorySegment key, long keyOffset,"
+                                + " int keyLength)"));
+        assertTrue(flyweight.contains("wrapTagsMap().find(key, keyOffset, keyLength)"));
+        assertFalse(flyweight.contains("containsLimits(Utf8View key)"));
+        assertTrue(builder.contains("public OrderBuilder setLimits(Map<Long, Integer> entries)"));
+        assertTrue(builder.contains("mapBuilder.putKey(entry.getKey()).putInt(entry.getValue())"));
+        assertTrue(builder.contains("handle.finish(mapBuilder.finish())"));
+    }
+
+    @Test
+    void generate_ShouldExposeRichTypesThroughPrimitiveComponents() {
+        ResolvedSchemaDefinition schema =
+                new ResolvedSchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new ResolvedMessageDefinition(
+                                        "Trade",
+                                        1,
+                                        List.of(
+                                                new ResolvedFieldDefinition(
+                                                        "id", 1, 1, "uuid", false, false, false,
+                                                        "", null),
+                                                new ResolvedFieldDefinition(
+                                                        "at", 2, 2, "timestamp_nanos", false,
+                                                        false, false, "", null),
+                                                new ResolvedFieldDefinition(
+                                                        "price", 3, 3, "decimal(4)", false, false,
+                                                        false, "", null)))),
+                        List.of());
+
+        List<String> sources =
+                new StubGenerator(schema).generate().stream().map(JavaFile::toString).toList();
+        String flyweight =
+                sources.stream()
+                        .filter(s -> s.contains("class TradeFlyweight"))
+                        .findFirst()
+                        .orElseThrow();
+        String builder =
+                sources.stream()
+                        .filter(s -> s.contains("class TradeBuilder"))
+                        .findFirst()
+                        .orElseThrow();
+
+        assertTrue(flyweight.contains("public long getIdMsb()"));
+        assertTrue(flyweight.contains("segment.get(Layouts.LONG_BE, this.offset + ID_OFFSET + 8)"));
+        assertTrue(flyweight.contains("return Uuids.formatTo(getIdMsb(), getIdLsb(), out);"));
+        assertTrue(flyweight.contains("public long getAt()"));
+        assertTrue(flyweight.contains("return Timestamps.formatIso8601(getAt(), out);"));
+        assertTrue(flyweight.contains("public static final int PRICE_SCALE = 4;"));
+        assertTrue(flyweight.contains("public <A extends Appendable> A appendPrice(A out)"));
+        assertTrue(flyweight.contains("return Decimals.toDouble(getPrice(), PRICE_SCALE);"));
+        assertTrue(flyweight.contains("writer.writeLongBE(this.getIdLsb());"));
+        assertTrue(builder.contains("public TradeBuilder setId(long msb, long lsb)"));
+        assertTrue(builder.contains("public TradeBuilder setPrice(long value)"));
+    }
+
+    @Test
+    void generate_ShouldDecodeSparseEnumIdsAndNamesWithoutScanning() {
+        ResolvedSchemaDefinition schema =
+                new ResolvedSchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new ResolvedMessageDefinition(
+                                        "Order",
+                                        1,
+                                        List.of(
+                                                new ResolvedFieldDefinition(
+                                                        "reasons", 1, 1, "Reason", false, true,
+                                                        false, "", null),
+                                                ResolvedFieldDefinition.builder(
+                                                                "flags", 2, 2, "Flag")
+                                                        .repeated(true)
+                                                        .bitset(true)
+                                                        .build()))),
+                        List.of(
+                                new ResolvedEnumDefinition(
+                                        "Reason",
+                                        "int32",
+                                        List.of(
+                                                new EnumValueDefinition("NONE", -1),
+                                                new EnumValueDefinition("TIMEOUT", 5000),
+                                                new EnumValueDefinition("HALT", 123456789))),
+                                new ResolvedEnumDefinition(
+                                        "Flag",
+                                        "int8",
+                                        List.of(
+                                                new EnumValueDefinition("IOC", 0),
+                                                new EnumValueDefinition("POST_ONLY", 63)))));
+
+        List<String> sources =
+                new StubGenerator(schema).generate().stream().map(JavaFile::toString).toList();
+        String reason =
+                sources.stream()
+                        .filter(s -> s.contains("public enum Reason"))
+                        .findFirst()
+                        .orElseThrow();
+        String flag =
+                sources.stream()
+                        .filter(s -> s.contains("public enum Flag"))
+                        .findFirst()
+                        .orElseThrow();
+        String flyweight =
+                sources.stream()
+                        .filter(s -> s.contains("class OrderFlyweight"))
+                        .findFirst()
+                        .orElseThrow();
+        String builder =
+                sources.stream()
+                        .filter(s -> s.contains("class OrderBuilder"))
+                        .findFirst()
+                        .orElseThrow();
+
+        assertTrue(reason.contains("VALUES_BY_HASH[(id * ID_HASH_MULTIPLIER) >>> ID_HASH_SHIFT]"));
+        assertTrue(reason.contains("public static Reason fromName(Utf8View name)"));
+        assertEquals(1, reason.split("static \\{", -1).length - 1);
+        assertEquals(1, flag.split("static \\{", -1).length - 1);
+        assertFalse(reason.contains("public long bit()"));
+        assertFalse(flyweight.contains(".values()"));
+        assertTrue(flyweight.contains("return Reason.fromId((int) reasonsIterator()."));
+        assertTrue(flag.contains("public long bit()"));
+        assertTrue(flyweight.contains("public long getFlagsBits()"));
+        assertTrue(flyweight.contains("return (getFlagsBits() & value.bit()) != 0;"));
+        assertTrue(flyweight.contains("public EnumSet<Flag> getFlags(EnumSet<Flag> dst)"));
+        assertTrue(flyweight.contains("writer.writeLongBE(this.getFlagsBits());"));
+        assertTrue(builder.contains("public OrderBuilder setFlagsBits(long bits)"));
+        assertTrue(
+                builder.contains("public OrderBuilder setFlags(Iterable<? extends Flag> values)"));
+    }
+
+    @Test
+    void generate_ShouldReturnConstantsAndDefaultsWithoutStoringThem() {
+        ResolvedSchemaDefinition schema =
+                new ResolvedSchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new ResolvedMessageDefinition(
+                                        "Order",
+                                        1,
+                                        List.of(
+                                                ResolvedFieldDefinition.builder(
+                                                                "qty", 2, 2, "int32")
+                                                        .optional(true)
+                                                        .defaultValue("100")
+                                                        .build(),
+                                                ResolvedFieldDefinition.builder("px", 3, 3, "int16")
+                                                        .optional(true)
+                                                        .defaultValue("-3")
+                                                        .build()),
+                                        false,
+                                        false,
+                                        true,
+                                        List.of(),
+                                        List.of(
+                                                ResolvedFieldDefinition.builder(
+                                                                "msgType", 1, 1, "int8")
+                                                        .constant("68")
+                                                        .build()))),
+                        List.of());
+
+        List<String> sources =
+                new StubGenerator(schema).generate().stream().map(JavaFile::toString).toList();
+        String flyweight =
+                sources.stream()
+                        .filter(s -> s.contains("class OrderFlyweight"))
+                        .findFirst()
+                        .orElseThrow();
+        String builder =
+                sources.stream()
+                        .filter(s -> s.contains("class OrderBuilder"))
+                        .findFirst()
+                        .orElseThrow();
+
+        assertTrue(flyweight.contains("public static final byte MSGTYPE_CONSTANT = (byte) 68;"));
+        assertTrue(flyweight.contains("return MSGTYPE_CONSTANT;"));
+        assertFalse(flyweight.contains("MSGTYPE_OFFSET"));
+        assertTrue(flyweight.contains("public static final int QTY_DEFAULT = 100;"));
+        assertTrue(flyweight.contains("public static final short PX_DEFAULT = (short) -3;"));
+        assertTrue(flyweight.contains("return QTY_DEFAULT;"));
+        assertFalse(builder.contains("setMsgType"));
+        assertTrue(builder.contains("if (value == OrderFlyweight.QTY_DEFAULT) {"));
+    }
+
+    @Test
+    void findIdHash_ShouldSendEveryIdToItsOwnSlot() {
+        int[] ids = {-1, 5000, 100000, 77, 123456789};
+
+        int[] hash = StubGenerator.findIdHash(ids);
+
+        assertNotNull(hash);
+        Set<Integer> slots = new HashSet<>();
+        for (int id : ids) {
+            assertTrue(slots.add((id * hash[0]) >>> (Integer.SIZE - hash[1])));
+        }
+        assertTrue(hash[1] <= 5);
+    }
+
+    @Test
+    void generate_ShouldPackAsciiSymbolsAndEncodeAsciiTextDirectly() {
+        ResolvedSchemaDefinition schema =
+                new ResolvedSchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new ResolvedMessageDefinition(
+                                        "Quote",
+                                        1,
+                                        List.of(
+                                                new ResolvedFieldDefinition(
+                                                        "symbol", 1, 1, "ascii8", false, false,
+                                                        false, "", null),
+                                                new ResolvedFieldDefinition(
+                                                        "isin", 2, 2, "ascii16", false, false,
+                                                        false, "", null),
+                                                new ResolvedFieldDefinition(
+                                                        "note", 3, 3, "ascii", false, false, false,
+                                                        "", null)))),
+                        List.of());
+
+        List<String> sources =
+                new StubGenerator(schema).generate().stream().map(JavaFile::toString).toList();
+        String flyweight =
+                sources.stream()
+                        .filter(s -> s.contains("class QuoteFlyweight"))
+                        .findFirst()
+                        .orElseThrow();
+        String builder =
+                sources.stream()
+                        .filter(s -> s.contains("class QuoteBuilder"))
+                        .findFirst()
+                        .orElseThrow();
+
+        assertTrue(flyweight.contains("public long getSymbol()"));
+        assertTrue(flyweight.contains("return Ascii.packedLength(getSymbol());"));
+        assertTrue(flyweight.contains("return Ascii.appendPacked8(getSymbol(), out);"));
+        assertTrue(flyweight.contains("public long getIsinHi()"));
+        assertTrue(flyweight.contains("public void setIsin(long hi, long lo)"));
+        assertTrue(
+                flyweight.contains("return Ascii.appendPacked16(getIsinHi(), getIsinLo(), out);"));
+        assertTrue(flyweight.contains("public Utf8View getNote()"));
+        assertTrue(builder.contains("public QuoteBuilder setSymbol(CharSequence value)"));
+        assertTrue(builder.contains("return setSymbol(Ascii.pack8(value));"));
+        assertTrue(
+                builder.contains("return setIsin(Ascii.pack16Hi(value), Ascii.pack16Lo(value));"));
+        assertTrue(builder.contains("public QuoteBuilder setNote(CharSequence value)"));
+        assertTrue(builder.contains("handle.finish(Ascii.encode(value, segment,"));
+    }
+
+    @Test
+    void generate_ShouldAccessFixedCountArraysAndFixedBytesInPlace() {
+        ResolvedSchemaDefinition schema =
+                new ResolvedSchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new ResolvedMessageDefinition(
+                                        "Book",
+                                        1,
+                                        List.of(
+                                                ResolvedFieldDefinition.builder(
+                                                                "bids", 1, 1, "int64")
+                                                        .repeated(true)
+                                                        .fixedCount(10)
+                                                        .build(),
+                                                new ResolvedFieldDefinition(
+                                                        "digest", 2, 2, "bytes", false, false,
+                                                        false, "", 32)))),
+                        List.of());
+
+        List<String> sources =
+                new StubGenerator(schema).generate().stream().map(JavaFile::toString).toList();
+        String flyweight =
+                sources.stream()
+                        .filter(s -> s.contains("class BookFlyweight"))
+                        .findFirst()
+                        .orElseThrow();
+        String builder =
+                sources.stream()
+                        .filter(s -> s.contains("class BookBuilder"))
+                        .findFirst()
+                        .orElseThrow();
+
+        assertTrue(flyweight.contains("public static final int BIDS_COUNT = 10;"));
+        assertTrue(flyweight.contains("public long getBidsAt(int index)"));
+        assertTrue(flyweight.contains("Objects.checkIndex(index, BIDS_COUNT);"));
+        assertTrue(
+                flyweight.contains(
+                        "MemorySegment.copy(segment, Layouts.LONG_BE, this.offset + BIDS_OFFSET,"
+                                + " dst, 0, BIDS_COUNT);"));
+        assertTrue(flyweight.contains("public void setBids(long[] src)"));
+        assertTrue(flyweight.contains("public Utf8View getDigest()"));
+        assertTrue(
+                flyweight.contains(
+                        "writer.writeSegmentRaw(this.segment, this.offset + BIDS_OFFSET, 80);"));
+        assertTrue(builder.contains("public BookBuilder setBids(long[] values)"));
+        assertTrue(builder.contains("public BookBuilder setDigest(MemorySegment source)"));
+        assertFalse(flyweight.contains("RepeatingGroupIterator"));
+    }
+
+    @Test
+    void generate_ShouldCreateViewsOnFirstAccess() {
+        ResolvedSchemaDefinition schema =
+                new ResolvedSchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new ResolvedMessageDefinition(
+                                        "Note",
+                                        1,
+                                        List.of(
+                                                new ResolvedFieldDefinition(
+                                                        "text", 1, 1, "string", false, false,
+                                                        false, "", null),
+                                                new ResolvedFieldDefinition(
+                                                        "levels", 2, 2, "int64", false, true,
+                                                        false, "", null)))),
+                        List.of());
+
+        List<String> sources =
+                new StubGenerator(schema).generate().stream().map(JavaFile::toString).toList();
+        String flyweight =
+                sources.stream()
+                        .filter(s -> s.contains("class NoteFlyweight"))
+                        .findFirst()
+                        .orElseThrow();
+
+        assertTrue(flyweight.contains("private Utf8View textView;"));
+        assertTrue(flyweight.contains("private RepeatingGroupIterator levelsIterator;"));
+        assertFalse(flyweight.contains("Utf8View textView = new"));
+        assertTrue(flyweight.contains("private Utf8View textView() {"));
+        assertTrue(flyweight.contains("view = new RepeatingGroupIterator(8)"));
+        assertTrue(flyweight.contains("textView().wrap(this.segment"));
+        assertTrue(flyweight.contains("return levelsIterator().get"));
+    }
+
+    @Test
+    void generate_ShouldBoundRecursiveViewsAndReuseNestedBuilders() {
+        ResolvedSchemaDefinition schema =
+                new ResolvedSchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new ResolvedMessageDefinition(
+                                        "Node",
+                                        1,
+                                        List.of(
+                                                new ResolvedFieldDefinition(
+                                                        "value", 1, 1, "int64", false, false,
+                                                        false, "", null),
+                                                new ResolvedFieldDefinition(
+                                                        "left", 2, 2, "Node", true, false, false,
+                                                        "", null),
+                                                new ResolvedFieldDefinition(
+                                                        "children", 3, 3, "Node", false, true,
+                                                        false, "", null)))),
+                        List.of());
+
+        List<String> sources =
+                new StubGenerator(schema).generate().stream().map(JavaFile::toString).toList();
+        String flyweight =
+                sources.stream()
+                        .filter(s -> s.contains("class NodeFlyweight"))
+                        .findFirst()
+                        .orElseThrow();
+        String builder =
+                sources.stream()
+                        .filter(s -> s.contains("class NodeBuilder"))
+                        .findFirst()
+                        .orElseThrow();
+
+        assertTrue(flyweight.contains("public static final int MAX_NESTING_DEPTH = 64;"));
+        assertTrue(flyweight.contains("static NodeFlyweight nested(int depth)"));
+        assertTrue(flyweight.contains("view = NodeFlyweight.nested(this.depth + 1)"));
+        assertTrue(builder.contains("private NodeBuilder nestedNodeBuilder(MemorySegment target)"));
+        assertTrue(builder.contains("nested.reset(target)"));
+        assertTrue(builder.contains("nested.depth = depth + 1"));
+        assertTrue(builder.contains("NodeBuilder nestedBuilder = nestedNodeBuilder(nestedSlice)"));
+        assertTrue(builder.contains("NodeBuilder nestedBuilder = nestedNodeBuilder(elementSlice)"));
+        assertFalse(builder.contains("NodeBuilder.inline(nestedSlice)"));
+    }
+
+    @Test
+    void generate_ShouldBinarySearchSortedGroupsAndRejectUnsortedElements() {
+        ResolvedSchemaDefinition schema =
+                new ResolvedSchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new ResolvedMessageDefinition(
+                                        "Level",
+                                        1,
+                                        List.of(
+                                                new ResolvedFieldDefinition(
+                                                        "priceNanos", 1, 1, "int64", false,
+                                                        false, false, "", null),
+                                                new ResolvedFieldDefinition(
+                                                        "size", 2, 2, "int32", false, false,
+                                                        false, "", null))),
+                                new ResolvedMessageDefinition(
+                                        "Book",
+                                        2,
+                                        List.of(
+                                                ResolvedFieldDefinition.builder(
+                                                                "bids", 1, 1, "Level")
+                                                        .repeated(true)
+                                                        .sortedBy("priceNanos desc")
+                                                        .build()))),
+                        List.of());
+
+        List<String> sources =
+                new StubGenerator(schema).generate().stream().map(JavaFile::toString).toList();
+        String flyweight =
+                sources.stream()
+                        .filter(s -> s.contains("class BookFlyweight"))
+                        .findFirst()
+                        .orElseThrow();
+        String builder =
+                sources.stream()
+                        .filter(s -> s.contains("class BookBuilder"))
+                        .findFirst()
+                        .orElseThrow();
+
+        assertTrue(flyweight.contains("public int findBidsByPriceNanos(long priceNanos)"));
+        assertTrue(flyweight.contains("public int lowerBoundBidsByPriceNanos(long priceNanos)"));
+        assertTrue(flyweight.contains("public int upperBoundBidsByPriceNanos(long priceNanos)"));
+        assertTrue(
+                flyweight.contains(
+                        "long key = bidsIterator().wrapElementAt(mid,"
+                                + " bidsView()).getPriceNanos()"));
+        assertTrue(flyweight.contains("if (key > priceNanos || (upper && key == priceNanos))"));
+        assertTrue(
+                builder.contains(
+                        "long key = segment.get(Layouts.LONG_BE, elementStart +"
+                                + " LevelFlyweight.PRICENANOS_OFFSET)"));
+        assertTrue(builder.contains("if (i > 0 && key > previousKey)"));
+        assertTrue(builder.contains("must be sorted by priceNanos descending"));
+    }
+
     private ResolvedSchemaDefinition createSimpleSchema() {
         return new ResolvedSchemaDefinition(
                 "com.test",
@@ -193,4 +1211,5 @@ class StubGeneratorTest {
                                         new EnumValueDefinition("OK", 0),
                                         new EnumValueDefinition("ERROR", 1)))));
     }
+
 }
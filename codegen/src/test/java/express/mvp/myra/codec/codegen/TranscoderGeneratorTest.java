@@ -0,0 +1,271 @@
+package express.mvp.myra.codec.codegen;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.palantir.javapoet.JavaFile;
+import express.mvp.myra.codec.codegen.resolver.*;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class TranscoderGeneratorTest {
+
+    @Test
+    void generate_WithoutPreviousLock_ShouldEmitNothing() {
+        assertTrue(new TranscoderGenerator(orderSchema("1.1.0", false), null).generate().isEmpty());
+    }
+
+    @Test
+    void generate_WithSameWireVersion_ShouldEmitNothing() {
+        LockFile previous = lockFor(orderSchema("1.1.0", false));
+
+        assertTrue(
+                new TranscoderGenerator(orderSchema("1.1.3", true), previous).generate().isEmpty());
+    }
+
+    @Test
+    void generate_WithUnchangedLayout_ShouldCopyWholeMessage() {
+        LockFile previous = lockFor(orderSchema("1.0.0", false));
+
+        String transcoder = single(new TranscoderGenerator(orderSchema("1.1.0", false), previous));
+
+        assertTrue(transcoder.contains("class OrderTranscoder_v1_0_to_v1_1"));
+        assertTrue(transcoder.contains("final int length = sourceLength(source, sourceOffset)"));
+        assertTrue(transcoder.contains("MemorySegment.copy(source, sourceOffset, target,"));
+    }
+
+    @Test
+    void generate_WithInsertedField_ShouldRemapOffsetsAndDefaultNewField() {
+        LockFile previous = lockFor(orderSchema("1.0.0", false));
+
+        String transcoder = single(new TranscoderGenerator(orderSchema("1.1.0", true), previous));
+
+        // id and price keep their place and move as one 16-byte run.
+        assertTrue(transcoder.contains("sourceOffset + 0, target, targetOffset + 0, 16)"));
+        // The new int32 is zeroed and qty shifts by four bytes.
+        assertTrue(transcoder.contains("target.asSlice(targetOffset + 16, 4).fill((byte) 0)"));
+        assertTrue(transcoder.contains("sourceOffset + 16, target, targetOffset + 20, 4)"));
+        // The symbol payload is appended after the larger block with a rewritten header.
+        assertTrue(transcoder.contains("int cursor = OrderFlyweight.BLOCK_LENGTH"));
+        assertTrue(
+                transcoder.contains(
+                        "relativeOffset = source.get(Layouts.INT_BE, sourceOffset + 20)"));
+        assertTrue(transcoder.contains("target.set(Layouts.INT_BE, targetOffset + 24, cursor)"));
+        assertTrue(transcoder.contains("TARGET_SCHEMA_VERSION = OrderFlyweight.SCHEMA_VERSION"));
+        assertTrue(transcoder.contains("SOURCE_SCHEMA_VERSION = (short) 256"));
+        assertTrue(transcoder.contains("SegmentUtils.calculateCrc32"));
+    }
+
+    @Test
+    void generate_WithLegacyLockVersion_ShouldEmitNothing() {
+        LockFile previous = lockFor(orderSchema("1.0.0", false));
+        previous.schemaInfo = Map.of("version", 3);
+
+        assertTrue(
+                new TranscoderGenerator(orderSchema("1.1.0", true), previous).generate().isEmpty());
+    }
+
+    @Test
+    void generate_WithRecordedHistory_ShouldTranscodeFromEveryEarlierVersion() {
+        LockFile lock = lockFor(orderSchema("1.1.0", true));
+        ResolvedSchemaDefinition v1 = orderSchema("1.0.0", false);
+        lock.messages.get("Order").previousLayouts.put(
+                "1.0", MessageLayout.of(v1, v1.messages().get(0)).toLock());
+
+        List<String> transcoders =
+                new TranscoderGenerator(orderSchema("1.2.0", true), lock)
+                        .generate().stream().map(JavaFile::toString).toList();
+
+        assertEquals(2, transcoders.size());
+        // v1.0 frames go straight to v1.2, remapping qty behind the new venueId...
+        assertTrue(transcoders.get(0).contains("class OrderTranscoder_v1_0_to_v1_2"));
+        assertTrue(
+                transcoders.get(0).contains("sourceOffset + 16, target, targetOffset + 20, 4)"));
+        // ...while v1.1 frames already have the current layout.
+        assertTrue(transcoders.get(1).contains("class OrderTranscoder_v1_1_to_v1_2"));
+        assertTrue(
+                transcoders
+                        .get(1)
+                        .contains("final int length = sourceLength(source, sourceOffset)"));
+    }
+
+    @Test
+    void generate_WithChangedInlineMessage_ShouldTranscodeItInPlace() {
+        LockFile previous = lockFor(quoteSchema("1.0.0", false));
+
+        String transcoder =
+                new TranscoderGenerator(quoteSchema("1.1.0", true), previous)
+                        .generate().stream()
+                                .map(JavaFile::toString)
+                                .filter(s -> s.contains("class QuoteTranscoder"))
+                                .findFirst()
+                                .orElseThrow();
+
+        // bid grows from 8 to 12 bytes and is rewritten by the Px transcoder; seq moves behind it.
+        assertTrue(transcoder.contains("pxTranscoder = new PxTranscoder_v1_0_to_v1_1()"));
+        assertTrue(
+                transcoder.contains(
+                        "this.pxTranscoder.transcode(source, sourceOffset + 0, target,"
+                                + " targetOffset + 0)"));
+        assertTrue(transcoder.contains("sourceOffset + 8, target, targetOffset + 12, 8)"));
+    }
+
+    @Test
+    void generate_WhenBitfieldsEnabled_ShouldPackFlagsIntoWord() {
+        LockFile previous = lockFor(flagsSchema("1.0.0", false));
+
+        String transcoder = single(new TranscoderGenerator(flagsSchema("1.1.0", true), previous));
+
+        // [qty:4][maker:1][implied:1] becomes [word:1][qty:4].
+        assertTrue(transcoder.contains("sourceOffset + 0, target, targetOffset + 1, 4)"));
+        assertTrue(
+                transcoder.contains(
+                        "target.set(Layouts.BYTE, targetOffset + 0, (byte)"
+                                + " (((source.get(Layouts.BOOLEAN, sourceOffset + 4)) ? 1L :"
+                                + " 0L) << 0 | ((source.get(Layouts.BOOLEAN, sourceOffset + 5))"
+                                + " ? 1L : 0L) << 1))"));
+    }
+
+    @Test
+    void generate_WhenSparseEnabled_ShouldAppendOnlyPresentMembers() {
+        LockFile previous = lockFor(bidSchema("1.0.0", false));
+
+        String transcoder = single(new TranscoderGenerator(bidSchema("1.1.0", true), previous));
+
+        // [presence:1][qty:4][bid:8][size:4] becomes [presence:1][sparse header:8][qty:4].
+        assertTrue(transcoder.contains("sourceOffset + 0, target, targetOffset + 0, 1)"));
+        assertTrue(transcoder.contains("sourceOffset + 1, target, targetOffset + 9, 4)"));
+        assertTrue(
+                transcoder.contains("if ((target.get(Layouts.BYTE, targetOffset + 0) & 2) != 0)"));
+        assertTrue(
+                transcoder.contains(
+                        "target.set(Layouts.INT_BE, targetOffset + cursor,"
+                                + " source.get(Layouts.INT_BE, sourceOffset + 13))"));
+        assertTrue(
+                transcoder.contains("target.set(Layouts.INT_BE, targetOffset + 1, sparseStart)"));
+    }
+
+    private static String single(TranscoderGenerator generator) {
+        List<JavaFile> files = generator.generate();
+        assertEquals(1, files.size());
+        return files.get(0).toString();
+    }
+
+    private static LockFile lockFor(ResolvedSchemaDefinition schema) {
+        LockFile lock = LockFile.empty();
+        lock.schemaInfo = Map.of("namespace", schema.namespace(), "version", schema.version());
+        for (ResolvedMessageDefinition message : schema.messages()) {
+            LockFile.MessageLock messageLock = new LockFile.MessageLock();
+            messageLock.id = message.id();
+            messageLock.layout = MessageLayout.of(schema, message).toLock();
+            lock.messages.put(message.name(), messageLock);
+        }
+        return lock;
+    }
+
+    private static ResolvedSchemaDefinition quoteSchema(String version, boolean withSize) {
+        List<ResolvedFieldDefinition> pxFields =
+                withSize
+                        ? List.of(
+                                new ResolvedFieldDefinition(
+                                        "price", 1, 1, "int64", false, false, false, "", null),
+                                new ResolvedFieldDefinition(
+                                        "size", 2, 2, "int32", false, false, false, "", null))
+                        : List.of(
+                                new ResolvedFieldDefinition(
+                                        "price", 1, 1, "int64", false, false, false, "", null));
+        return new ResolvedSchemaDefinition(
+                "com.test",
+                version,
+                List.of(
+                        new ResolvedMessageDefinition("Px", 1, pxFields),
+                        new ResolvedMessageDefinition(
+                                "Quote",
+                                2,
+                                List.of(
+                                        ResolvedFieldDefinition.builder("bid", 1, 1, "Px")
+                                                .inline(true)
+                                                .build(),
+                                        new ResolvedFieldDefinition(
+                                                "seq", 2, 2, "int64", false, false, false, "",
+                                                null)))),
+                List.of());
+    }
+
+    private static ResolvedSchemaDefinition flagsSchema(String version, boolean bitfields) {
+        return new ResolvedSchemaDefinition(
+                "com.test",
+                version,
+                List.of(
+                        new ResolvedMessageDefinition(
+                                "Fill",
+                                1,
+                                List.of(
+                                        new ResolvedFieldDefinition(
+                                                "qty", 1, 1, "int32", false, false, false, "",
+                                                null),
+                                        new ResolvedFieldDefinition(
+                                                "maker", 2, 2, "bool", false, false, false, "",
+                                                null),
+                                        new ResolvedFieldDefinition(
+                                                "implied", 3, 3, "bool", false, false, false, "",
+                                                null)),
+                                false,
+                                bitfields)),
+                List.of());
+    }
+
+    private static ResolvedSchemaDefinition bidSchema(String version, boolean sparse) {
+        return new ResolvedSchemaDefinition(
+                "com.test",
+                version,
+                List.of(
+                        new ResolvedMessageDefinition(
+                                "Bid",
+                                1,
+                                List.of(
+                                        new ResolvedFieldDefinition(
+                                                "qty", 1, 1, "int32", false, false, false, "",
+                                                null),
+                                        new ResolvedFieldDefinition(
+                                                "bid", 2, 2, "int64", true, false, false, "",
+                                                null),
+                                        new ResolvedFieldDefinition(
+                                                "size", 3, 3, "int32", true, false, false, "",
+                                                null)),
+                                false,
+                                false,
+                                sparse)),
+                List.of());
+    }
+
+    private static ResolvedSchemaDefinition orderSchema(String version, boolean withVenueId) {
+        List<ResolvedFieldDefinition> fields =
+                withVenueId
+                        ? List.of(
+                                new ResolvedFieldDefinition(
+                                        "id", 1, 1, "int64", false, false, false, "", null),
+                                new ResolvedFieldDefinition(
+                                        "price", 2, 2, "int64", false, false, false, "", null),
+                                new ResolvedFieldDefinition(
+                                        "venueId", 5, 3, "int32", false, false, false, "", null),
+                                new ResolvedFieldDefinition(
+                                        "qty", 3, 4, "int32", false, false, false, "", null),
+                                new ResolvedFieldDefinition(
+                                        "symbol", 4, 5, "string", false, false, false, "", null))
+                        : List.of(
+                                new ResolvedFieldDefinition(
+                                        "id", 1, 1, "int64", false, false, false, "", null),
+                                new ResolvedFieldDefinition(
+                                        "price", 2, 2, "int64", false, false, false, "", null),
+                                new ResolvedFieldDefinition(
+                                        "qty", 3, 3, "int32", false, false, false, "", null),
+                                new ResolvedFieldDefinition(
+                                        "symbol", 4, 4, "string", false, false, false, "", null));
+        return new ResolvedSchemaDefinition(
+                "com.test",
+                version,
+                List.of(new ResolvedMessageDefinition("Order", 3, fields)),
+                List.of());
+    }
+}
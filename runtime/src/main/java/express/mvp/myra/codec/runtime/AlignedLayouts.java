@@ -0,0 +1,57 @@
+package express.mvp.myra.codec.runtime;
+
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Big-endian value layouts with natural alignment, the aligned counterparts of the unaligned
+ * {@code Layouts} constants. Flyweights of messages declared with {@code layout: aligned} read and
+ * write their fixed fields through these, so the JIT can emit plain aligned loads and stores.
+ *
+ * <p>An access through an aligned layout throws {@link IllegalArgumentException} when the address
+ * is not a multiple of the layout's size. Aligned flyweights therefore require native memory whose
+ * frame (or table row) starts on an 8-byte boundary; heap segments over {@code byte[]} are only
+ * byte-aligned and cannot be used.
+ *
+ * <p>{@link #INT_BE_HANDLE} and {@link #LONG_BE_HANDLE} give fields marked {@code concurrent:
+ * true} acquire/release, volatile and atomic read-modify-write access. Their coordinates are
+ * {@code (MemorySegment segment, long offset)}; the byte order is applied by the handle, so values
+ * stay big-endian on the wire.
+ */
+public final class AlignedLayouts {
+
+    /** Aligned big-endian {@code short}. */
+    public static final ValueLayout.OfShort SHORT_BE =
+            ValueLayout.JAVA_SHORT.withOrder(ByteOrder.BIG_ENDIAN);
+
+    /** Aligned big-endian {@code int}. */
+    public static final ValueLayout.OfInt INT_BE =
+            ValueLayout.JAVA_INT.withOrder(ByteOrder.BIG_ENDIAN);
+
+    /** Aligned big-endian {@code long}. */
+    public static final ValueLayout.OfLong LONG_BE =
+            ValueLayout.JAVA_LONG.withOrder(ByteOrder.BIG_ENDIAN);
+
+    /** Aligned big-endian {@code float}. */
+    public static final ValueLayout.OfFloat FLOAT_BE =
+            ValueLayout.JAVA_FLOAT.withOrder(ByteOrder.BIG_ENDIAN);
+
+    /** Aligned big-endian {@code double}. */
+    public static final ValueLayout.OfDouble DOUBLE_BE =
+            ValueLayout.JAVA_DOUBLE.withOrder(ByteOrder.BIG_ENDIAN);
+
+    /** Single byte; alignment is trivially satisfied. */
+    public static final ValueLayout.OfByte BYTE = ValueLayout.JAVA_BYTE;
+
+    /** Single-byte boolean; alignment is trivially satisfied. */
+    public static final ValueLayout.OfBoolean BOOLEAN = ValueLayout.JAVA_BOOLEAN;
+
+    /** Var handle over {@link #INT_BE} for ordered and atomic access. */
+    public static final VarHandle INT_BE_HANDLE = INT_BE.varHandle();
+
+    /** Var handle over {@link #LONG_BE} for ordered and atomic access. */
+    public static final VarHandle LONG_BE_HANDLE = LONG_BE.varHandle();
+
+    private AlignedLayouts() {}
+}
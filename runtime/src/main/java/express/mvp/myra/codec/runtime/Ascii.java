@@ -0,0 +1,180 @@
+package express.mvp.myra.codec.runtime;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Allocation-free conversion for ASCII text, the storage of {@code ascii}, {@code ascii8} and
+ * {@code ascii16} fields.
+ *
+ * <p>{@code ascii} values are written byte for byte from the characters, skipping the UTF-8
+ * length pass and the scratch-buffer copy that {@code string} fields need. {@code ascii8} and
+ * {@code ascii16} values are packed into one or two longs: the first character in the most
+ * significant byte, unused bytes zero. Packed values are compared and hashed as plain longs, and
+ * since every byte is below {@code 0x80} their signed order is the text's lexicographic order.
+ *
+ * <p>Characters outside {@code 1..127} are rejected; NUL is excluded because it marks the padding
+ * of packed values.
+ *
+ * <h2>Thread Safety</h2>
+ *
+ * <p>All methods are stateless and thread-safe.
+ *
+ * <p><b>Example usage:</b>
+ *
+ * <pre>{@code
+ * private static final long AAPL = Ascii.pack8("AAPL");
+ *
+ * if (quote.getSymbol() == AAPL) { ... }
+ * Ascii.appendPacked8(quote.getSymbol(), line);
+ * }</pre>
+ */
+public final class Ascii {
+
+    /** Characters held by an {@code ascii8} value. */
+    public static final int PACKED8_LENGTH = 8;
+
+    /** Characters held by an {@code ascii16} value. */
+    public static final int PACKED16_LENGTH = 16;
+
+    private Ascii() {}
+
+    /**
+     * Writes ASCII text into a segment, one byte per character.
+     *
+     * @param text the text
+     * @param segment the destination
+     * @param offset where the first byte goes
+     * @return the number of bytes written, {@code text.length()}
+     * @throws IllegalArgumentException if a character is not ASCII or is NUL
+     * @throws IndexOutOfBoundsException if the text does not fit the segment
+     */
+    public static int encode(CharSequence text, MemorySegment segment, long offset) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            segment.set(ValueLayout.JAVA_BYTE, offset + i, checked(text, i));
+        }
+        return length;
+    }
+
+    /**
+     * Packs up to 8 characters into an {@code ascii8} value.
+     *
+     * @param text the text
+     * @return the packed value
+     * @throws IllegalArgumentException if the text is longer than 8 characters or not ASCII
+     */
+    public static long pack8(CharSequence text) {
+        checkLength(text, PACKED8_LENGTH);
+        return packWord(text, 0);
+    }
+
+    /**
+     * Packs the first 8 characters of up to 16 into the high word of an {@code ascii16} value.
+     *
+     * @param text the text
+     * @return the high word
+     * @throws IllegalArgumentException if the text is longer than 16 characters or not ASCII
+     */
+    public static long pack16Hi(CharSequence text) {
+        checkLength(text, PACKED16_LENGTH);
+        return packWord(text, 0);
+    }
+
+    /**
+     * Packs characters 8 to 15 of up to 16 into the low word of an {@code ascii16} value.
+     *
+     * @param text the text
+     * @return the low word
+     * @throws IllegalArgumentException if the text is longer than 16 characters or not ASCII
+     */
+    public static long pack16Lo(CharSequence text) {
+        checkLength(text, PACKED16_LENGTH);
+        return packWord(text, PACKED8_LENGTH);
+    }
+
+    /**
+     * Returns the number of characters in a packed word.
+     *
+     * @param word a packed word
+     * @return 0 to 8
+     */
+    public static int packedLength(long word) {
+        return PACKED8_LENGTH - Long.numberOfTrailingZeros(word) / Byte.SIZE;
+    }
+
+    /**
+     * Appends the text of an {@code ascii8} value.
+     *
+     * @param word the packed value
+     * @param out where to write the text
+     * @param <A> the appendable type
+     * @return {@code out}
+     * @throws UncheckedIOException if {@code out} throws
+     */
+    public static <A extends Appendable> A appendPacked8(long word, A out) {
+        try {
+            appendWord(word, out);
+            return out;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Appends the text of an {@code ascii16} value.
+     *
+     * @param hi the high word
+     * @param lo the low word
+     * @param out where to write the text
+     * @param <A> the appendable type
+     * @return {@code out}
+     * @throws UncheckedIOException if {@code out} throws
+     */
+    public static <A extends Appendable> A appendPacked16(long hi, long lo, A out) {
+        try {
+            appendWord(hi, out);
+            appendWord(lo, out);
+            return out;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long packWord(CharSequence text, int from) {
+        int to = Math.min(text.length(), from + PACKED8_LENGTH);
+        long word = 0;
+        for (int i = from; i < to; i++) {
+            word |= (long) checked(text, i) << ((PACKED8_LENGTH - 1 - (i - from)) * Byte.SIZE);
+        }
+        return word;
+    }
+
+    private static void appendWord(long word, Appendable out) throws IOException {
+        for (int shift = (PACKED8_LENGTH - 1) * Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+            char c = (char) ((word >>> shift) & 0xFF);
+            if (c == 0) {
+                return;
+            }
+            out.append(c);
+        }
+    }
+
+    private static byte checked(CharSequence text, int index) {
+        char c = text.charAt(index);
+        if (c == 0 || c > 0x7F) {
+            throw new IllegalArgumentException(
+                    "Character " + (int) c + " at index " + index + " is not ASCII: " + text);
+        }
+        return (byte) c;
+    }
+
+    private static void checkLength(CharSequence text, int max) {
+        if (text.length() > max) {
+            throw new IllegalArgumentException(
+                    "Text of " + text.length() + " characters exceeds " + max + ": " + text);
+        }
+    }
+}
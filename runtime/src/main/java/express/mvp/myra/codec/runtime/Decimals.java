@@ -0,0 +1,259 @@
+package express.mvp.myra.codec.runtime;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Allocation-free arithmetic and formatting for scaled-long decimals, the storage of {@code
+ * decimal(S)} fields. A value is an unscaled {@code long} plus a scale: {@code 12.34} at scale 4
+ * is {@code 123400}.
+ *
+ * <p>Rescaling to fewer fraction digits rounds half away from zero (HALF_UP). Every operation
+ * that could exceed the {@code long} range throws {@link ArithmeticException} instead of wrapping.
+ * Formatting writes straight into an {@link Appendable}, so a reused {@link StringBuilder} or
+ * off-heap text buffer sees no intermediate {@code String} or {@code BigDecimal}.
+ *
+ * <h2>Thread Safety</h2>
+ *
+ * <p>All methods are stateless and thread-safe.
+ *
+ * <p><b>Example usage:</b>
+ *
+ * <pre>{@code
+ * long notional = Decimals.multiply(
+ *         order.getPrice(), OrderFlyweight.PRICE_SCALE,
+ *         order.getQty(), OrderFlyweight.QTY_SCALE,
+ *         2);
+ * Decimals.formatTo(notional, 2, line);
+ * }</pre>
+ */
+public final class Decimals {
+
+    /** The largest supported scale; {@code 10^18} is the largest power of ten in a long. */
+    public static final int MAX_SCALE = 18;
+
+    private static final long[] POW10 = new long[MAX_SCALE + 1];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i <= MAX_SCALE; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    private Decimals() {}
+
+    /**
+     * Returns {@code 10^scale}.
+     *
+     * @param scale a scale from 0 to {@link #MAX_SCALE}
+     * @return the power of ten
+     * @throws IllegalArgumentException if the scale is out of range
+     */
+    public static long pow10(int scale) {
+        checkScale(scale);
+        return POW10[scale];
+    }
+
+    /**
+     * Converts an unscaled value from one scale to another, rounding half away from zero when
+     * fraction digits are dropped.
+     *
+     * @param unscaled the unscaled value
+     * @param fromScale the current scale
+     * @param toScale the wanted scale
+     * @return the unscaled value at {@code toScale}
+     * @throws ArithmeticException if the result does not fit in a long
+     */
+    public static long rescale(long unscaled, int fromScale, int toScale) {
+        checkScale(fromScale);
+        checkScale(toScale);
+        if (toScale >= fromScale) {
+            return Math.multiplyExact(unscaled, POW10[toScale - fromScale]);
+        }
+        long divisor = POW10[fromScale - toScale];
+        long quotient = unscaled / divisor;
+        long remainder = Math.abs(unscaled % divisor);
+        // remainder >= divisor / 2, without overflowing for the largest divisors.
+        if (remainder >= divisor - remainder) {
+            quotient += unscaled < 0 ? -1 : 1;
+        }
+        return quotient;
+    }
+
+    /**
+     * Adds two decimals of possibly different scales.
+     *
+     * @param a first unscaled value
+     * @param aScale scale of {@code a}
+     * @param b second unscaled value
+     * @param bScale scale of {@code b}
+     * @param scale scale of the result
+     * @return the unscaled sum at {@code scale}
+     * @throws ArithmeticException if an intermediate or the result does not fit in a long
+     */
+    public static long add(long a, int aScale, long b, int bScale, int scale) {
+        int common = Math.max(aScale, bScale);
+        long sum = Math.addExact(rescale(a, aScale, common), rescale(b, bScale, common));
+        return rescale(sum, common, scale);
+    }
+
+    /**
+     * Multiplies two decimals. The exact product has scale {@code aScale + bScale}; it must fit in
+     * a long before it is rounded to {@code scale}.
+     *
+     * @param a first unscaled value
+     * @param aScale scale of {@code a}
+     * @param b second unscaled value
+     * @param bScale scale of {@code b}
+     * @param scale scale of the result
+     * @return the unscaled product at {@code scale}
+     * @throws ArithmeticException if the exact product or the result does not fit in a long, or
+     *     if {@code aScale + bScale} exceeds {@link #MAX_SCALE}
+     */
+    public static long multiply(long a, int aScale, long b, int bScale, int scale) {
+        int productScale = aScale + bScale;
+        if (productScale > MAX_SCALE) {
+            throw new ArithmeticException(
+                    "Product scale " + productScale + " exceeds " + MAX_SCALE);
+        }
+        return rescale(Math.multiplyExact(a, b), productScale, scale);
+    }
+
+    /**
+     * Converts a decimal to the nearest double.
+     *
+     * @param unscaled the unscaled value
+     * @param scale its scale
+     * @return the value as a double
+     */
+    public static double toDouble(long unscaled, int scale) {
+        checkScale(scale);
+        return unscaled / (double) POW10[scale];
+    }
+
+    /**
+     * Converts a double to a decimal, rounding half away from zero.
+     *
+     * @param value the value; must be finite
+     * @param scale the wanted scale
+     * @return the unscaled value
+     * @throws ArithmeticException if the value is not finite or out of range at this scale
+     */
+    public static long fromDouble(double value, int scale) {
+        checkScale(scale);
+        double scaled = value * POW10[scale];
+        if (!Double.isFinite(scaled) || Math.abs(scaled) >= 0x1p63) {
+            throw new ArithmeticException(value + " does not fit a decimal of scale " + scale);
+        }
+        return (long) (scaled + Math.copySign(0.5, scaled));
+    }
+
+    /**
+     * Appends a decimal in plain notation with exactly {@code scale} fraction digits, e.g. {@code
+     * -0.0500} for {@code -500} at scale 4.
+     *
+     * @param unscaled the unscaled value
+     * @param scale its scale
+     * @param out where to write the text
+     * @param <A> the appendable type
+     * @return {@code out}
+     * @throws UncheckedIOException if {@code out} throws
+     */
+    public static <A extends Appendable> A formatTo(long unscaled, int scale, A out) {
+        checkScale(scale);
+        try {
+            if (unscaled < 0) {
+                out.append('-');
+            }
+            // Negation leaves Long.MIN_VALUE as is; read as unsigned it is the right magnitude.
+            long magnitude = unscaled < 0 ? -unscaled : unscaled;
+            // Position `scale` is always printed, giving a leading 0 for values below one.
+            int top = Math.max(unsignedDigits(magnitude) - 1, scale);
+            for (int pos = top; pos >= 0; pos--) {
+                if (pos == scale - 1) {
+                    out.append('.');
+                }
+                out.append(unsignedDigitAt(magnitude, pos));
+            }
+            return out;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parses plain decimal notation ({@code [+-]digits[.digits]}) into an unscaled value. Extra
+     * fraction digits are accepted only if they are zero, so parsing never rounds.
+     *
+     * @param text the text
+     * @param scale the wanted scale
+     * @return the unscaled value
+     * @throws NumberFormatException if the text is malformed, out of range, or has non-zero
+     *     digits beyond {@code scale}
+     */
+    public static long parse(CharSequence text, int scale) {
+        checkScale(scale);
+        int length = text.length();
+        int i = 0;
+        boolean negative = false;
+        if (i < length && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+        // Accumulate negatively so that Long.MIN_VALUE parses.
+        long result = 0;
+        int integerDigits = 0;
+        int fractionDigits = 0;
+        boolean point = false;
+        try {
+            for (; i < length; i++) {
+                char c = text.charAt(i);
+                if (c == '.' && !point) {
+                    point = true;
+                    continue;
+                }
+                if (c < '0' || c > '9') {
+                    throw new NumberFormatException("Malformed decimal: " + text);
+                }
+                if (!point) {
+                    integerDigits++;
+                } else if (++fractionDigits > scale) {
+                    if (c != '0') {
+                        throw new NumberFormatException(
+                                "More than " + scale + " fraction digits: " + text);
+                    }
+                    continue;
+                }
+                result = Math.subtractExact(Math.multiplyExact(result, 10), c - '0');
+            }
+            if (integerDigits == 0 && fractionDigits == 0) {
+                throw new NumberFormatException("Malformed decimal: " + text);
+            }
+            result = Math.multiplyExact(result, POW10[scale - Math.min(fractionDigits, scale)]);
+            return negative ? result : Math.negateExact(result);
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Decimal out of range: " + text);
+        }
+    }
+
+    private static int unsignedDigits(long magnitude) {
+        int digits = 1;
+        while (digits <= MAX_SCALE && Long.compareUnsigned(magnitude, POW10[digits]) >= 0) {
+            digits++;
+        }
+        return digits;
+    }
+
+    private static char unsignedDigitAt(long magnitude, int pos) {
+        long shifted = Long.divideUnsigned(magnitude, POW10[pos]);
+        return (char) ('0' + Long.remainderUnsigned(shifted, 10));
+    }
+
+    private static void checkScale(int scale) {
+        if (scale < 0 || scale > MAX_SCALE) {
+            throw new IllegalArgumentException(
+                    "Scale " + scale + " is not between 0 and " + MAX_SCALE);
+        }
+    }
+}
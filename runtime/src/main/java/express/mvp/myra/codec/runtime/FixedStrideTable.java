@@ -0,0 +1,250 @@
+package express.mvp.myra.codec.runtime;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Growable off-heap array of equally sized rows. Generated {@code <Message>Table} classes use it
+ * to store fixed-size messages back to back at a {@code BLOCK_LENGTH} stride, without frame
+ * headers, and wrap their flyweight directly over a row.
+ *
+ * <h2>Memory Layout</h2>
+ *
+ * <pre>
+ * rows:     [row0][row1]...[rowN-1]              row i at offset i * rowSize
+ * live:     one bit per row, set while the row is allocated
+ * freeList: [row:int32]...                       stack of released rows, reused first
+ * </pre>
+ *
+ * <p>Rows are zeroed when handed out. When the table is full the row capacity doubles and the
+ * contents are copied into a new arena; the previous arena is released, so flyweights must be
+ * re-wrapped via {@link #segment()} after any {@link #allocate()}.
+ *
+ * <h2>Thread Safety</h2>
+ *
+ * <p><b>This class is NOT thread-safe.</b> Use one table per thread, or guard it externally.
+ *
+ * <p><b>Example usage:</b>
+ *
+ * <pre>{@code
+ * try (FixedStrideTable table = new FixedStrideTable(LevelFlyweight.BLOCK_LENGTH, 1024)) {
+ *     int row = table.allocate();
+ *     level.wrap(table.segment(), table.rowOffset(row));
+ *     level.setPriceNanos(101_250_000_000L);
+ * }
+ * }</pre>
+ */
+public final class FixedStrideTable implements AutoCloseable {
+
+    private final int rowSize;
+    private Arena arena;
+    private MemorySegment rows;
+    private MemorySegment live;
+    private MemorySegment freeList;
+    private int capacity;
+    private int highWaterMark;
+    private int freeCount;
+    private int size;
+
+    /**
+     * Creates a table.
+     *
+     * @param rowSize size of each row in bytes
+     * @param initialRows initial row capacity; the table grows on demand
+     * @throws IllegalArgumentException if either argument is not positive
+     */
+    public FixedStrideTable(int rowSize, int initialRows) {
+        if (rowSize <= 0 || initialRows <= 0) {
+            throw new IllegalArgumentException("Row size and initial rows must be positive");
+        }
+        this.rowSize = rowSize;
+        this.arena = Arena.ofShared();
+        this.capacity = initialRows;
+        this.rows = arena.allocate((long) initialRows * rowSize, Long.BYTES);
+        this.live = arena.allocate(bitmapBytes(initialRows), Long.BYTES);
+        this.freeList = arena.allocate((long) initialRows * Integer.BYTES, Integer.BYTES);
+    }
+
+    /**
+     * Allocates a zeroed row, reusing a released one when available.
+     *
+     * @return the row index
+     * @throws IllegalStateException if the table would exceed {@link Integer#MAX_VALUE} rows
+     */
+    public int allocate() {
+        int row;
+        if (freeCount > 0) {
+            row = freeList.getAtIndex(ValueLayout.JAVA_INT, --freeCount);
+        } else {
+            if (highWaterMark == capacity) {
+                grow();
+            }
+            row = highWaterMark++;
+        }
+        rows.asSlice((long) row * rowSize, rowSize).fill((byte) 0);
+        setLive(row, true);
+        size++;
+        return row;
+    }
+
+    /**
+     * Releases a row for reuse by a later {@link #allocate()}.
+     *
+     * @param row the row index
+     * @throws IllegalArgumentException if the row is not allocated
+     */
+    public void free(int row) {
+        if (!isLive(row)) {
+            throw new IllegalArgumentException("Row " + row + " is not allocated");
+        }
+        setLive(row, false);
+        freeList.setAtIndex(ValueLayout.JAVA_INT, freeCount++, row);
+        size--;
+    }
+
+    /**
+     * Returns whether a row is currently allocated.
+     *
+     * @param row the row index
+     * @return true if the row is live
+     */
+    public boolean isLive(int row) {
+        if (row < 0 || row >= highWaterMark) {
+            return false;
+        }
+        long word = live.getAtIndex(ValueLayout.JAVA_LONG, row >>> 6);
+        return (word & (1L << row)) != 0;
+    }
+
+    /**
+     * Returns the first live row at or after {@code from}, for allocation-free iteration.
+     *
+     * @param from the row to start from
+     * @return the next live row, or -1 if there is none
+     */
+    public int nextLive(int from) {
+        int row = Math.max(from, 0);
+        while (row < highWaterMark) {
+            long word = live.getAtIndex(ValueLayout.JAVA_LONG, row >>> 6) & (-1L << row);
+            if (word != 0) {
+                int found = (row & ~63) + Long.numberOfTrailingZeros(word);
+                return found < highWaterMark ? found : -1;
+            }
+            row = (row & ~63) + 64;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the liveness bits of 64 consecutive rows, for scans that skip free rows a word at a
+     * time. Bit {@code b} of word {@code w} is row {@code w * 64 + b}.
+     *
+     * @param word the word index, {@code 0 <= word < (highWaterMark() + 63) / 64}
+     * @return the liveness bits
+     */
+    public long liveWord(int word) {
+        return live.getAtIndex(ValueLayout.JAVA_LONG, word);
+    }
+
+    /**
+     * Returns the byte offset of a row within {@link #segment()}.
+     *
+     * @param row the row index
+     * @return the row offset
+     */
+    public long rowOffset(int row) {
+        return (long) row * rowSize;
+    }
+
+    /**
+     * Returns the segment holding every row. Replaced when the table grows.
+     *
+     * @return the current row segment
+     */
+    public MemorySegment segment() {
+        return rows;
+    }
+
+    /**
+     * Returns the row size in bytes.
+     *
+     * @return the stride
+     */
+    public int rowSize() {
+        return rowSize;
+    }
+
+    /**
+     * Returns the number of live rows.
+     *
+     * @return the live row count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns one past the highest row ever allocated.
+     *
+     * @return the bound for row indexes
+     */
+    public int highWaterMark() {
+        return highWaterMark;
+    }
+
+    /**
+     * Returns the off-heap bytes reserved for rows, liveness bits and the free list.
+     *
+     * @return the reserved size in bytes
+     */
+    public long reservedBytes() {
+        return rows.byteSize() + live.byteSize() + freeList.byteSize();
+    }
+
+    /** Releases every row while keeping the reserved memory. */
+    public void clear() {
+        live.fill((byte) 0);
+        highWaterMark = 0;
+        freeCount = 0;
+        size = 0;
+    }
+
+    /** Releases the off-heap memory. */
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    private void setLive(int row, boolean value) {
+        long index = row >>> 6;
+        long word = live.getAtIndex(ValueLayout.JAVA_LONG, index);
+        word = value ? word | (1L << row) : word & ~(1L << row);
+        live.setAtIndex(ValueLayout.JAVA_LONG, index, word);
+    }
+
+    private void grow() {
+        if (capacity == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Table is full");
+        }
+        int newCapacity = (int) Math.min((long) capacity * 2, Integer.MAX_VALUE);
+        Arena grownArena = Arena.ofShared();
+        MemorySegment grownRows = grownArena.allocate((long) newCapacity * rowSize, Long.BYTES);
+        MemorySegment grownLive = grownArena.allocate(bitmapBytes(newCapacity), Long.BYTES);
+        MemorySegment grownFree =
+                grownArena.allocate((long) newCapacity * Integer.BYTES, Integer.BYTES);
+        MemorySegment.copy(rows, 0, grownRows, 0, rows.byteSize());
+        MemorySegment.copy(live, 0, grownLive, 0, live.byteSize());
+        MemorySegment.copy(freeList, 0, grownFree, 0, (long) freeCount * Integer.BYTES);
+        arena.close();
+        arena = grownArena;
+        rows = grownRows;
+        live = grownLive;
+        freeList = grownFree;
+        capacity = newCapacity;
+    }
+
+    private static long bitmapBytes(int rows) {
+        return ((rows + 63L) >>> 6) * Long.BYTES;
+    }
+}
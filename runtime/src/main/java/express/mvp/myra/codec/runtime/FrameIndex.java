@@ -0,0 +1,358 @@
+package express.mvp.myra.codec.runtime;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import express.mvp.roray.ffm.utils.memory.Utf8View;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Objects;
+
+/**
+ * Off-heap open-addressing hash index from a frame's key bytes to the frame's location (an offset
+ * into a journal, arena or mapped file owned by the caller). The index stores only the key hash
+ * and the location; key bytes are read back from the frame itself through a {@link KeyReader}, so
+ * a lookup costs one probe of the table plus one read of the candidate frame, and allocates
+ * nothing.
+ *
+ * <h2>Memory Layout</h2>
+ *
+ * <pre>
+ * slot: [hash:int64][location:int64]    location = -1 empty, -2 tombstone
+ * </pre>
+ *
+ * <p>Collisions are resolved by linear probing. Removal leaves a tombstone that later inserts
+ * reuse. Once live entries plus tombstones reach 70% of the capacity a new table is allocated
+ * (twice as large, or the same size when mostly tombstones) and the old one is drained
+ * incrementally: every mutation moves a few old slots across, and lookups consult both tables
+ * until the old one is empty and released. No single put pays for a full rehash.
+ *
+ * <h2>Thread Safety</h2>
+ *
+ * <p><b>This class is NOT thread-safe.</b> Use one index per writer thread, or guard it
+ * externally.
+ *
+ * <p><b>Example usage:</b>
+ *
+ * <pre>{@code
+ * PutRequestFlyweight frame = new PutRequestFlyweight();
+ * try (FrameIndex index =
+ *         new FrameIndex(
+ *                 1024,
+ *                 (location, view) -> {
+ *                     frame.wrap(journal, location + MessageHeader.HEADER_SIZE);
+ *                     Utf8View key = frame.getKey();
+ *                     view.wrap(key.segment(), key.offset(), (int) key.byteSize());
+ *                 })) {
+ *     index.put(request.getKey(), frameOffset);
+ *     long location = index.get(lookup.getKey());
+ * }
+ * }</pre>
+ */
+public final class FrameIndex implements AutoCloseable {
+
+    /** Returned by lookups and mutations when the key is not present. */
+    public static final long MISSING = -1L;
+
+    private static final long EMPTY = -1L;
+    private static final long TOMBSTONE = -2L;
+    private static final long SLOT_SIZE = 16;
+    private static final long LOCATION_OFFSET = 8;
+    private static final int MIGRATION_STEP = 16;
+    private static final long HASH_SEED = 0x6D797261L;
+
+    /** Locates the key bytes of an indexed frame. */
+    @FunctionalInterface
+    public interface KeyReader {
+
+        /**
+         * Wraps {@code view} around the key of the frame at {@code location}.
+         *
+         * @param location a location previously passed to {@link FrameIndex#put}
+         * @param view the index's scratch view to wrap
+         */
+        void readKey(long location, Utf8View view);
+    }
+
+    private final KeyReader keyReader;
+    private final Utf8View candidate = new Utf8View();
+    private Table current;
+    private Table draining;
+    private long drainCursor;
+
+    /**
+     * Creates an index.
+     *
+     * @param initialCapacity expected number of entries; rounded up to a power of two slots
+     * @param keyReader reads the key of an indexed frame back for comparison
+     * @throws IllegalArgumentException if {@code initialCapacity} is not positive
+     */
+    public FrameIndex(int initialCapacity, @NonNull KeyReader keyReader) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("Initial capacity must be positive");
+        }
+        this.keyReader = Objects.requireNonNull(keyReader, "keyReader");
+        long slots = Long.highestOneBit(Math.max(8L, initialCapacity * 2L - 1)) << 1;
+        this.current = new Table(slots);
+    }
+
+    /**
+     * Looks up a key held in a view, e.g. a flyweight's string getter.
+     *
+     * @param key the key bytes
+     * @return the stored location, or {@link #MISSING}
+     */
+    public long get(@NonNull Utf8View key) {
+        return get(key.segment(), key.offset(), key.byteSize());
+    }
+
+    /**
+     * Looks up a key.
+     *
+     * @param key segment holding the key bytes
+     * @param offset start of the key
+     * @param length key length in bytes
+     * @return the stored location, or {@link #MISSING}
+     */
+    public long get(@NonNull MemorySegment key, long offset, long length) {
+        long hash = SegmentContent.hash(key, offset, length, HASH_SEED);
+        long slot = find(current, hash, key, offset, length);
+        if (slot >= 0) {
+            return current.location(slot);
+        }
+        if (draining != null) {
+            slot = find(draining, hash, key, offset, length);
+            if (slot >= 0) {
+                return draining.location(slot);
+            }
+        }
+        return MISSING;
+    }
+
+    /**
+     * Maps a key held in a view to a location.
+     *
+     * @param key the key bytes
+     * @param location the frame location; must be non-negative
+     * @return the previous location, or {@link #MISSING}
+     */
+    public long put(@NonNull Utf8View key, long location) {
+        return put(key.segment(), key.offset(), key.byteSize(), location);
+    }
+
+    /**
+     * Maps a key to a location, replacing any previous mapping.
+     *
+     * @param key segment holding the key bytes
+     * @param offset start of the key
+     * @param length key length in bytes
+     * @param location the frame location; must be non-negative
+     * @return the previous location, or {@link #MISSING}
+     * @throws IllegalArgumentException if {@code location} is negative
+     */
+    public long put(@NonNull MemorySegment key, long offset, long length, long location) {
+        if (location < 0) {
+            throw new IllegalArgumentException("Location must be non-negative: " + location);
+        }
+        drainStep();
+        long hash = SegmentContent.hash(key, offset, length, HASH_SEED);
+        long slot = find(current, hash, key, offset, length);
+        if (slot >= 0) {
+            long previous = current.location(slot);
+            current.setLocation(slot, location);
+            return previous;
+        }
+        long previous = MISSING;
+        if (draining != null) {
+            slot = find(draining, hash, key, offset, length);
+            if (slot >= 0) {
+                previous = draining.location(slot);
+                draining.remove(slot);
+            }
+        }
+        current.insert(hash, location);
+        growIfNeeded();
+        return previous;
+    }
+
+    /**
+     * Removes the mapping for a key held in a view.
+     *
+     * @param key the key bytes
+     * @return the removed location, or {@link #MISSING}
+     */
+    public long remove(@NonNull Utf8View key) {
+        return remove(key.segment(), key.offset(), key.byteSize());
+    }
+
+    /**
+     * Removes the mapping for a key, leaving a tombstone.
+     *
+     * @param key segment holding the key bytes
+     * @param offset start of the key
+     * @param length key length in bytes
+     * @return the removed location, or {@link #MISSING}
+     */
+    public long remove(@NonNull MemorySegment key, long offset, long length) {
+        drainStep();
+        long hash = SegmentContent.hash(key, offset, length, HASH_SEED);
+        long slot = find(current, hash, key, offset, length);
+        if (slot >= 0) {
+            long previous = current.location(slot);
+            current.remove(slot);
+            return previous;
+        }
+        if (draining != null) {
+            slot = find(draining, hash, key, offset, length);
+            if (slot >= 0) {
+                long previous = draining.location(slot);
+                draining.remove(slot);
+                return previous;
+            }
+        }
+        return MISSING;
+    }
+
+    /**
+     * Returns the number of live mappings.
+     *
+     * @return the entry count
+     */
+    public long size() {
+        return current.live + (draining == null ? 0 : draining.live);
+    }
+
+    /**
+     * Returns the slot count of the active table.
+     *
+     * @return the capacity in slots
+     */
+    public long capacity() {
+        return current.capacity;
+    }
+
+    /** Removes every mapping and releases any table still being drained. */
+    public void clear() {
+        releaseDraining();
+        current.slots.fill((byte) 0xFF);
+        current.live = 0;
+        current.tombstones = 0;
+    }
+
+    /** Releases the off-heap tables. */
+    @Override
+    public void close() {
+        releaseDraining();
+        current.arena.close();
+    }
+
+    private long find(Table table, long hash, MemorySegment key, long offset, long length) {
+        long slot = hash & table.mask;
+        while (true) {
+            long location = table.location(slot);
+            if (location == EMPTY) {
+                return -1;
+            }
+            if (location != TOMBSTONE && table.hash(slot) == hash) {
+                keyReader.readKey(location, candidate);
+                if (SegmentContent.equals(
+                        candidate.segment(),
+                        candidate.offset(),
+                        candidate.byteSize(),
+                        key,
+                        offset,
+                        length)) {
+                    return slot;
+                }
+            }
+            slot = (slot + 1) & table.mask;
+        }
+    }
+
+    private void growIfNeeded() {
+        if ((current.live + current.tombstones) * 10 < current.capacity * 7) {
+            return;
+        }
+        while (draining != null) {
+            drainStep();
+        }
+        // Mostly tombstones: rehash at the same size instead of growing.
+        long capacity =
+                current.live * 2 >= current.capacity ? current.capacity * 2 : current.capacity;
+        draining = current;
+        drainCursor = 0;
+        current = new Table(capacity);
+    }
+
+    private void drainStep() {
+        if (draining == null) {
+            return;
+        }
+        long end = Math.min(drainCursor + MIGRATION_STEP, draining.capacity);
+        for (; drainCursor < end; drainCursor++) {
+            long location = draining.location(drainCursor);
+            if (location >= 0) {
+                current.insert(draining.hash(drainCursor), location);
+                draining.remove(drainCursor);
+            }
+        }
+        if (drainCursor == draining.capacity) {
+            releaseDraining();
+        }
+    }
+
+    private void releaseDraining() {
+        if (draining != null) {
+            draining.arena.close();
+            draining = null;
+        }
+    }
+
+    /** One generation of the slot array. */
+    private static final class Table {
+        final Arena arena = Arena.ofShared();
+        final MemorySegment slots;
+        final long capacity;
+        final long mask;
+        long live;
+        long tombstones;
+
+        Table(long capacity) {
+            this.capacity = capacity;
+            this.mask = capacity - 1;
+            this.slots = arena.allocate(capacity * SLOT_SIZE, Long.BYTES);
+            this.slots.fill((byte) 0xFF);
+        }
+
+        long hash(long slot) {
+            return slots.get(ValueLayout.JAVA_LONG, slot * SLOT_SIZE);
+        }
+
+        long location(long slot) {
+            return slots.get(ValueLayout.JAVA_LONG, slot * SLOT_SIZE + LOCATION_OFFSET);
+        }
+
+        void setLocation(long slot, long location) {
+            slots.set(ValueLayout.JAVA_LONG, slot * SLOT_SIZE + LOCATION_OFFSET, location);
+        }
+
+        void insert(long hash, long location) {
+            long slot = hash & mask;
+            long existing;
+            while ((existing = location(slot)) >= 0) {
+                slot = (slot + 1) & mask;
+            }
+            if (existing == TOMBSTONE) {
+                tombstones--;
+            }
+            slots.set(ValueLayout.JAVA_LONG, slot * SLOT_SIZE, hash);
+            setLocation(slot, location);
+            live++;
+        }
+
+        void remove(long slot) {
+            setLocation(slot, TOMBSTONE);
+            live--;
+            tombstones++;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package express.mvp.myra.codec.runtime;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+
+/**
+ * Allocation-free equality, ordering and hashing over raw segment bytes. Generated flyweights use
+ * these helpers to implement {@code contentEquals}, {@code contentHash}, {@code keyEquals}, {@code
+ * keyHash} and {@code compareByKey} without decoding fields into Java objects.
+ *
+ * <h2>Hash Function</h2>
+ *
+ * <p>{@link #hash} is XXH64: it consumes 32-byte stripes as four little-endian 64-bit lanes, then
+ * the 8/4/1-byte tail, and finishes with the XXH64 avalanche. Results are stable across JVMs and
+ * platforms, so hashes may be persisted or compared between processes. Hashes of several regions
+ * are chained by passing the previous result as the next seed; {@link #mix} folds in a scalar
+ * (such as a length or presence flag) the same way.
+ *
+ * <h2>Thread Safety</h2>
+ *
+ * <p>All methods are stateless and thread-safe. Callers are responsible for not mutating the
+ * segments concurrently.
+ *
+ * <p><b>Example usage:</b>
+ *
+ * <pre>{@code
+ * long h = SegmentContent.hash(segment, offset, 16, SegmentContent.DEFAULT_SEED);
+ * h = SegmentContent.mix(h, nameLength);
+ * h = SegmentContent.hash(segment, nameOffset, nameLength, h);
+ * }</pre>
+ */
+public final class SegmentContent {
+
+    /** Seed used by generated flyweights for the first hashed region. */
+    public static final long DEFAULT_SEED = 0L;
+
+    private static final long P1 = 0x9E3779B185EBCA87L;
+    private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long P3 = 0x165667B19E3779F9L;
+    private static final long P4 = 0x85EBCA77C2B2AE63L;
+    private static final long P5 = 0x27D4EB2F165667C5L;
+
+    private static final ValueLayout.OfLong LONG_LE =
+            ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfInt INT_LE =
+            ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private SegmentContent() {}
+
+    /**
+     * Compares two equally sized regions byte for byte.
+     *
+     * @param a first segment
+     * @param aOffset start of the first region
+     * @param b second segment
+     * @param bOffset start of the second region
+     * @param length number of bytes to compare
+     * @return true if the regions hold identical bytes
+     */
+    public static boolean equals(
+            MemorySegment a, long aOffset, MemorySegment b, long bOffset, long length) {
+        return MemorySegment.mismatch(a, aOffset, aOffset + length, b, bOffset, bOffset + length)
+                == -1;
+    }
+
+    /**
+     * Compares two regions of possibly different lengths.
+     *
+     * @param a first segment
+     * @param aOffset start of the first region
+     * @param aLength length of the first region
+     * @param b second segment
+     * @param bOffset start of the second region
+     * @param bLength length of the second region
+     * @return true if both regions have the same length and bytes
+     */
+    public static boolean equals(
+            MemorySegment a,
+            long aOffset,
+            long aLength,
+            MemorySegment b,
+            long bOffset,
+            long bLength) {
+        return aLength == bLength && equals(a, aOffset, b, bOffset, aLength);
+    }
+
+    /**
+     * Orders two regions lexicographically by unsigned byte value, shorter first on a common
+     * prefix. For UTF-8 text this matches code point order.
+     *
+     * @param a first segment
+     * @param aOffset start of the first region
+     * @param aLength length of the first region
+     * @param b second segment
+     * @param bOffset start of the second region
+     * @param bLength length of the second region
+     * @return a negative value, zero or a positive value as the first region sorts before, equal
+     *     to or after the second
+     */
+    public static int compare(
+            MemorySegment a,
+            long aOffset,
+            long aLength,
+            MemorySegment b,
+            long bOffset,
+            long bLength) {
+        long mismatch =
+                MemorySegment.mismatch(a, aOffset, aOffset + aLength, b, bOffset, bOffset + bLength);
+        if (mismatch == -1) {
+            return 0;
+        }
+        if (mismatch == aLength || mismatch == bLength) {
+            return Long.compare(aLength, bLength);
+        }
+        return Byte.compareUnsigned(
+                a.get(ValueLayout.JAVA_BYTE, aOffset + mismatch),
+                b.get(ValueLayout.JAVA_BYTE, bOffset + mismatch));
+    }
+
+    /**
+     * Hashes a region with XXH64.
+     *
+     * @param segment the segment to read
+     * @param offset start of the region
+     * @param length number of bytes to hash
+     * @param seed the seed, or the hash of the preceding region when chaining
+     * @return the 64-bit hash
+     */
+    public static long hash(MemorySegment segment, long offset, long length, long seed) {
+        final long end = offset + length;
+        long position = offset;
+        long h;
+        if (length >= 32) {
+            long v1 = seed + P1 + P2;
+            long v2 = seed + P2;
+            long v3 = seed;
+            long v4 = seed - P1;
+            final long limit = end - 32;
+            do {
+                v1 = round(v1, segment.get(LONG_LE, position));
+                v2 = round(v2, segment.get(LONG_LE, position + 8));
+                v3 = round(v3, segment.get(LONG_LE, position + 16));
+                v4 = round(v4, segment.get(LONG_LE, position + 24));
+                position += 32;
+            } while (position <= limit);
+            h =
+                    Long.rotateLeft(v1, 1)
+                            + Long.rotateLeft(v2, 7)
+                            + Long.rotateLeft(v3, 12)
+                            + Long.rotateLeft(v4, 18);
+            h = mergeRound(h, v1);
+            h = mergeRound(h, v2);
+            h = mergeRound(h, v3);
+            h = mergeRound(h, v4);
+        } else {
+            h = seed + P5;
+        }
+        h += length;
+        while (position + 8 <= end) {
+            h ^= round(0, segment.get(LONG_LE, position));
+            h = Long.rotateLeft(h, 27) * P1 + P4;
+            position += 8;
+        }
+        if (position + 4 <= end) {
+            h ^= (segment.get(INT_LE, position) & 0xFFFFFFFFL) * P1;
+            h = Long.rotateLeft(h, 23) * P2 + P3;
+            position += 4;
+        }
+        while (position < end) {
+            h ^= (segment.get(ValueLayout.JAVA_BYTE, position) & 0xFFL) * P5;
+            h = Long.rotateLeft(h, 11) * P1;
+            position++;
+        }
+        return avalanche(h);
+    }
+
+    /**
+     * Folds a scalar into a running hash.
+     *
+     * @param hash the running hash
+     * @param value the value to fold in
+     * @return the updated hash
+     */
+    public static long mix(long hash, long value) {
+        return avalanche(Long.rotateLeft(hash ^ round(0, value), 27) * P1 + P4);
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * P2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * P1;
+    }
+
+    private static long mergeRound(long acc, long value) {
+        acc ^= round(0, value);
+        return acc * P1 + P4;
+    }
+
+    private static long avalanche(long h) {
+        h ^= h >>> 33;
+        h *= P2;
+        h ^= h >>> 29;
+        h *= P3;
+        h ^= h >>> 32;
+        return h;
+    }
+}
@@ -0,0 +1,255 @@
+package express.mvp.myra.codec.runtime;
+
+import static express.mvp.roray.ffm.utils.memory.Layouts.*;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import express.mvp.myra.codec.runtime.struct.MessageHeader;
+import express.mvp.roray.ffm.utils.memory.Utf8View;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Objects;
+
+/**
+ * Decoder-side half of a per-session string dictionary. Applies the update frames produced by
+ * {@link StringDictionaryEncoder} into an off-heap {@code id -> bytes} table so that generated
+ * flyweights can resolve dictionary ids into a {@link Utf8View} without copying.
+ *
+ * <h2>Memory Layout</h2>
+ *
+ * <p>The table is made of two segments, each in an arena of its own:
+ *
+ * <pre>
+ * index: [entry0:int64][entry1:int64]...   entry = (dataOffset &lt;&lt; 32) | length, -1 if unset
+ * data:  [utf8 bytes of all entries, appended in arrival order]
+ * </pre>
+ *
+ * <p>When either segment runs out of space a larger one is allocated, the live contents are copied
+ * across and the old one is freed; {@link #reset()} keeps both segments and only rewinds them. The
+ * footprint therefore follows the largest dictionary seen, however often the session resets, and
+ * never exceeds the entry and data limits given at construction. A {@link Utf8View} resolved from
+ * the table is valid until the next {@link #apply}, {@link #reset()} or {@link #close()}; copy the
+ * value out if it is needed for longer.
+ *
+ * <h2>Thread Safety</h2>
+ *
+ * <p><b>This class is NOT thread-safe.</b> Use one decoder per inbound session and apply update
+ * frames on the same thread that decodes the data frames referencing them.
+ *
+ * <p><b>Example usage:</b>
+ *
+ * <pre>{@code
+ * try (StringDictionaryDecoder dictionary = new StringDictionaryDecoder()) {
+ *     while (hasMoreData()) {
+ *         header.wrap(segment, offset);
+ *         if (header.getTemplateId() == StringDictionaryEncoder.UPDATE_TEMPLATE_ID) {
+ *             dictionary.apply(segment, offset);
+ *         } else {
+ *             snapshot.wrap(segment, offset + MessageHeader.HEADER_SIZE);
+ *             Utf8View venue = snapshot.getVenue(dictionary);
+ *         }
+ *         offset += header.getFrameLength();
+ *     }
+ * }
+ * }</pre>
+ *
+ * @see StringDictionaryEncoder
+ */
+public final class StringDictionaryDecoder implements AutoCloseable {
+
+    /** Default limit on the string bytes held between two {@link #reset()} calls. */
+    public static final int DEFAULT_MAX_DATA_BYTES = 1 << 24;
+
+    private static final long UNSET = -1L;
+
+    private final int maxEntries;
+    private final int maxDataBytes;
+    // Shared rather than confined so a decoder may be built on one thread and handed to the
+    // session thread; growth is rare, so closing a shared arena costs little.
+    private Arena indexArena = Arena.ofShared();
+    private Arena dataArena = Arena.ofShared();
+    private MemorySegment index;
+    private MemorySegment data;
+    private long dataPosition;
+    private int size;
+
+    /** Creates a decoder sized for a small dictionary; it grows on demand. */
+    public StringDictionaryDecoder() {
+        this(StringDictionaryEncoder.DEFAULT_MAX_ENTRIES, DEFAULT_MAX_DATA_BYTES, 64, 4096);
+    }
+
+    /**
+     * Creates a decoder with explicit limits and initial capacity. Update frames come from the
+     * peer, so both limits bound what a corrupt or hostile frame can make the decoder allocate.
+     *
+     * @param maxEntries the largest id range accepted from update frames
+     * @param maxDataBytes the most string bytes held between two resets
+     * @param initialEntries initial capacity of the id index
+     * @param initialDataBytes initial capacity of the string data region
+     * @throws IllegalArgumentException if any argument is not positive
+     */
+    public StringDictionaryDecoder(
+            int maxEntries, int maxDataBytes, int initialEntries, int initialDataBytes) {
+        if (maxEntries <= 0 || maxDataBytes <= 0 || initialEntries <= 0 || initialDataBytes <= 0) {
+            throw new IllegalArgumentException("Dictionary capacities must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.maxDataBytes = maxDataBytes;
+        this.index =
+                indexArena.allocate(
+                        (long) Math.min(initialEntries, maxEntries) * Long.BYTES, Long.BYTES);
+        this.index.fill((byte) 0xFF);
+        this.data = dataArena.allocate(Math.min(initialDataBytes, maxDataBytes));
+    }
+
+    /**
+     * Applies an update frame starting at the given offset (the frame header, not the payload).
+     *
+     * @param frame segment holding the update frame
+     * @param frameOffset offset of the frame's {@link MessageHeader}
+     * @return the number of entries applied
+     * @throws IllegalArgumentException if the frame is not a dictionary update
+     * @throws IllegalStateException if the update is malformed or exceeds the decoder's limits
+     */
+    public int apply(@NonNull MemorySegment frame, long frameOffset) {
+        Objects.requireNonNull(frame, "frame");
+        short templateId = frame.get(SHORT_BE, frameOffset + MessageHeader.TEMPLATE_ID_OFFSET);
+        if (templateId != StringDictionaryEncoder.UPDATE_TEMPLATE_ID) {
+            throw new IllegalArgumentException(
+                    "Not a dictionary update frame: template id " + templateId);
+        }
+        return applyPayload(frame, frameOffset + MessageHeader.HEADER_SIZE);
+    }
+
+    /**
+     * Applies an update payload (the bytes following the message header). Every entry is checked
+     * against the bounds of {@code payload} and the decoder's limits before anything is copied or
+     * allocated for it.
+     *
+     * @param payload segment holding the payload
+     * @param payloadOffset offset of the entry count
+     * @return the number of entries applied
+     * @throws IllegalStateException if the payload is truncated, an entry id or length is out of
+     *     range, or the entries exceed the data limit
+     */
+    public int applyPayload(@NonNull MemorySegment payload, long payloadOffset) {
+        Objects.requireNonNull(payload, "payload");
+        int count = payload.get(INT_BE, payloadOffset);
+        if (count < 0) {
+            throw new IllegalStateException("Negative dictionary entry count: " + count);
+        }
+        long position = payloadOffset + StringDictionaryEncoder.COUNT_SIZE;
+        for (int i = 0; i < count; i++) {
+            if (position + StringDictionaryEncoder.ENTRY_HEADER_SIZE > payload.byteSize()) {
+                throw new IllegalStateException(
+                        "Dictionary update truncated at entry " + i + " of " + count);
+            }
+            int id = payload.get(INT_BE, position);
+            int length = payload.get(INT_BE, position + 4);
+            if (id < 0 || id >= maxEntries) {
+                throw new IllegalStateException(
+                        "Dictionary id " + id + " outside [0, " + maxEntries + ")");
+            }
+            long bytesStart = position + StringDictionaryEncoder.ENTRY_HEADER_SIZE;
+            if (length < 0 || bytesStart + length > payload.byteSize()) {
+                throw new IllegalStateException(
+                        "Dictionary entry " + id + " has invalid length " + length);
+            }
+            if (dataPosition + length > maxDataBytes) {
+                throw new IllegalStateException(
+                        "String dictionary data exceeds " + maxDataBytes + " bytes");
+            }
+            ensureIndexCapacity(id);
+            ensureDataCapacity(length);
+            MemorySegment.copy(payload, bytesStart, data, dataPosition, length);
+            index.setAtIndex(ValueLayout.JAVA_LONG, id, (dataPosition << 32) | length);
+            dataPosition += length;
+            size = Math.max(size, id + 1);
+            position = bytesStart + length;
+        }
+        return count;
+    }
+
+    /**
+     * Returns whether an entry has been received for the given id.
+     *
+     * @param id the dictionary id
+     * @return true if {@link #resolve} will succeed
+     */
+    public boolean contains(int id) {
+        return id >= 0 && id < size && index.getAtIndex(ValueLayout.JAVA_LONG, id) != UNSET;
+    }
+
+    /**
+     * Wraps {@code view} around the bytes registered for {@code id}. No data is copied.
+     *
+     * @param id the dictionary id read from a data frame
+     * @param view the reusable view to wrap
+     * @return {@code view}, for chaining
+     * @throws IllegalStateException if the id has not been received
+     */
+    public Utf8View resolve(int id, @NonNull Utf8View view) {
+        if (!contains(id)) {
+            throw new IllegalStateException("Unknown dictionary id: " + id);
+        }
+        long entry = index.getAtIndex(ValueLayout.JAVA_LONG, id);
+        view.wrap(data, entry >>> 32, (int) entry);
+        return view;
+    }
+
+    /**
+     * Returns one past the highest id received so far.
+     *
+     * @return the id range currently covered by the table
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Forgets every entry, keeping the allocated segments for the entries that follow. Must mirror
+     * {@link StringDictionaryEncoder#reset()} on the sender. Views resolved before the reset see
+     * the next entries' bytes once update frames arrive.
+     */
+    public void reset() {
+        index.asSlice(0, (long) size * Long.BYTES).fill((byte) 0xFF);
+        dataPosition = 0;
+        size = 0;
+    }
+
+    /** Releases the off-heap table. Views resolved through this decoder become invalid. */
+    @Override
+    public void close() {
+        indexArena.close();
+        dataArena.close();
+    }
+
+    private void ensureIndexCapacity(int id) {
+        long entries = index.byteSize() / Long.BYTES;
+        if (id < entries) {
+            return;
+        }
+        long newEntries = Math.min(Math.max(entries * 2, id + 1L), maxEntries);
+        Arena grownArena = Arena.ofShared();
+        MemorySegment grown = grownArena.allocate(newEntries * Long.BYTES, Long.BYTES);
+        grown.fill((byte) 0xFF);
+        MemorySegment.copy(index, 0, grown, 0, index.byteSize());
+        indexArena.close();
+        indexArena = grownArena;
+        index = grown;
+    }
+
+    private void ensureDataCapacity(int length) {
+        long required = dataPosition + length;
+        if (required <= data.byteSize()) {
+            return;
+        }
+        Arena grownArena = Arena.ofShared();
+        long capacity = Math.min(Math.max(data.byteSize() * 2, required), maxDataBytes);
+        MemorySegment grown = grownArena.allocate(capacity);
+        MemorySegment.copy(data, 0, grown, 0, dataPosition);
+        dataArena.close();
+        dataArena = grownArena;
+        data = grown;
+    }
+}
@@ -0,0 +1,199 @@
+package express.mvp.myra.codec.runtime;
+
+import static express.mvp.roray.ffm.utils.memory.Layouts.*;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import express.mvp.myra.codec.runtime.struct.MessageHeader;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Encoder-side half of a per-session string dictionary. Fields declared with {@code dictionary:
+ * true} store a small integer id on the wire instead of repeating the same UTF-8 bytes in every
+ * frame; this class assigns those ids and produces the dictionary-update frames that teach the peer
+ * {@link StringDictionaryDecoder} about newly seen strings.
+ *
+ * <h2>Update Frame Wire Format</h2>
+ *
+ * <p>An update frame is a regular Myra frame (16-byte {@link MessageHeader}) whose template id is
+ * {@link #UPDATE_TEMPLATE_ID}. The payload lists every entry assigned since the previous update:
+ *
+ * <pre>
+ * [entryCount:int32][id:int32][length:int32][utf8 bytes]...[id:int32][length:int32][utf8 bytes]
+ * </pre>
+ *
+ * <p>Ids are dense, start at zero and are never reused within a session. An update frame must be
+ * delivered before the first data frame that references one of its ids.
+ *
+ * <h2>Thread Safety</h2>
+ *
+ * <p><b>This class is NOT thread-safe.</b> A dictionary belongs to a single encoding session
+ * (connection, file, journal) and should be used from the thread that owns that session.
+ *
+ * <p><b>Example usage:</b>
+ *
+ * <pre>{@code
+ * StringDictionaryEncoder dictionary = new StringDictionaryEncoder();
+ *
+ * OrderBookSnapshotBuilder builder = OrderBookSnapshotBuilder.allocate(encoder, 4096);
+ * builder.setVenue("XNAS", dictionary);
+ *
+ * if (dictionary.hasPendingUpdates()) {
+ *     try (PooledSegment update = dictionary.encodeUpdate(encoder, SCHEMA_VERSION)) {
+ *         transport.send(update.segment());
+ *     }
+ * }
+ * }</pre>
+ *
+ * @see StringDictionaryDecoder
+ */
+public final class StringDictionaryEncoder {
+
+    /** Template id reserved for dictionary-update frames; never assigned to schema messages. */
+    public static final short UPDATE_TEMPLATE_ID = (short) 0xFFFF;
+
+    /** Size in bytes of the entry count that starts an update payload. */
+    public static final int COUNT_SIZE = 4;
+
+    /** Size in bytes of the {@code [id][length]} prefix written before each entry's bytes. */
+    public static final int ENTRY_HEADER_SIZE = 8;
+
+    /** Default maximum number of distinct strings a session dictionary will accept. */
+    public static final int DEFAULT_MAX_ENTRIES = 1 << 16;
+
+    private final int maxEntries;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private byte[][] encoded = new byte[16][];
+    private int nextId;
+    private int firstPendingId;
+
+    /** Creates a dictionary that accepts up to {@link #DEFAULT_MAX_ENTRIES} strings. */
+    public StringDictionaryEncoder() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Creates a dictionary with an explicit entry limit.
+     *
+     * @param maxEntries the maximum number of distinct strings; must be positive
+     * @throws IllegalArgumentException if maxEntries is not positive
+     */
+    public StringDictionaryEncoder(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the id for the given string, assigning the next free id if the string has not been
+     * seen in this session. Lookups of known strings do not allocate.
+     *
+     * @param value the string to encode
+     * @return the dictionary id
+     * @throws IllegalStateException if the dictionary is full
+     */
+    public int idOf(@NonNull String value) {
+        Integer existing = ids.get(Objects.requireNonNull(value, "value"));
+        if (existing != null) {
+            return existing;
+        }
+        if (nextId == maxEntries) {
+            throw new IllegalStateException(
+                    "String dictionary is full (" + maxEntries + " entries)");
+        }
+        int id = nextId++;
+        if (id == encoded.length) {
+            encoded = Arrays.copyOf(encoded, Math.min(encoded.length * 2, maxEntries));
+        }
+        encoded[id] = value.getBytes(StandardCharsets.UTF_8);
+        ids.put(value, id);
+        return id;
+    }
+
+    /**
+     * Returns the number of strings known to this dictionary.
+     *
+     * @return the entry count
+     */
+    public int size() {
+        return nextId;
+    }
+
+    /**
+     * Returns whether ids were assigned since the last {@link #encodeUpdate} call.
+     *
+     * @return true if an update frame must be sent before frames using the new ids
+     */
+    public boolean hasPendingUpdates() {
+        return firstPendingId < nextId;
+    }
+
+    /**
+     * Returns the payload size of the next update frame, excluding the message header.
+     *
+     * @return the number of payload bytes {@link #encodeUpdate} will write
+     */
+    public int pendingPayloadSize() {
+        int size = COUNT_SIZE;
+        for (int id = firstPendingId; id < nextId; id++) {
+            size += ENTRY_HEADER_SIZE + encoded[id].length;
+        }
+        return size;
+    }
+
+    /**
+     * Writes all pending entries into a new update frame and marks them as sent.
+     *
+     * @param encoder the encoder used to acquire and finalize the frame
+     * @param schemaVersion the schema version placed in the frame header
+     * @return the finished frame; the caller owns it and must close it
+     * @throws IllegalStateException if there are no pending entries
+     */
+    public PooledSegment encodeUpdate(@NonNull MessageEncoder encoder, short schemaVersion) {
+        Objects.requireNonNull(encoder, "encoder");
+        if (!hasPendingUpdates()) {
+            throw new IllegalStateException("No pending dictionary entries");
+        }
+        int payloadSize = pendingPayloadSize();
+        MemorySegment segment = encoder.acquire(MessageHeader.HEADER_SIZE + payloadSize);
+
+        long position = MessageHeader.HEADER_SIZE;
+        segment.set(INT_BE, position, nextId - firstPendingId);
+        position += COUNT_SIZE;
+        for (int id = firstPendingId; id < nextId; id++) {
+            byte[] bytes = encoded[id];
+            segment.set(INT_BE, position, id);
+            segment.set(INT_BE, position + 4, bytes.length);
+            MemorySegment.copy(
+                    bytes,
+                    0,
+                    segment,
+                    ValueLayout.JAVA_BYTE,
+                    position + ENTRY_HEADER_SIZE,
+                    bytes.length);
+            position += ENTRY_HEADER_SIZE + bytes.length;
+        }
+
+        encoder.getWriter(segment).position(position);
+        encoder.finalizeMessage(segment, UPDATE_TEMPLATE_ID, schemaVersion);
+        firstPendingId = nextId;
+        return new PooledSegment(segment, encoder.pool());
+    }
+
+    /**
+     * Forgets every entry so ids restart at zero. Only call this when the peer decoder is reset
+     * at the same point in the stream (for example, on reconnect).
+     */
+    public void reset() {
+        ids.clear();
+        Arrays.fill(encoded, 0, nextId, null);
+        nextId = 0;
+        firstPendingId = 0;
+    }
+}
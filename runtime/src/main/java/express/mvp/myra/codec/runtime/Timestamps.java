@@ -0,0 +1,224 @@
+package express.mvp.myra.codec.runtime;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Allocation-free ISO-8601 formatting and parsing for epoch timestamps, the storage of {@code
+ * timestamp_nanos} and {@code timestamp_millis} fields.
+ *
+ * <p>Timestamps are UTC and proleptic Gregorian, written as {@code 2024-03-01T09:30:00.000000001Z}
+ * (nanosecond precision) or {@code 2024-03-01T09:30:00.000Z} (millisecond precision). Years
+ * outside {@code 0000..9999} get a sign, as in {@link java.time.Instant#toString()}. The calendar
+ * arithmetic is done on longs, so no {@code Instant}, {@code LocalDateTime} or {@code String} is
+ * created.
+ *
+ * <h2>Thread Safety</h2>
+ *
+ * <p>All methods are stateless and thread-safe.
+ *
+ * <p><b>Example usage:</b>
+ *
+ * <pre>{@code
+ * Timestamps.formatIso8601(trade.getExecutedAt(), line).append(' ');
+ * long sentAt = Timestamps.parseIso8601("2024-03-01T09:30:00.5Z");
+ * }</pre>
+ */
+public final class Timestamps {
+
+    /** Nanoseconds per second. */
+    public static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    /** Nanoseconds per millisecond. */
+    public static final long NANOS_PER_MILLI = 1_000_000L;
+
+    private static final long SECONDS_PER_DAY = 86_400L;
+    private static final int DAYS_PER_ERA = 146_097;
+    // Days from 0000-03-01 to 1970-01-01; the civil algorithms count eras from March.
+    private static final long EPOCH_SHIFT = 719_468L;
+
+    private Timestamps() {}
+
+    /**
+     * Appends a nanosecond timestamp with nine fraction digits.
+     *
+     * @param epochNanos nanoseconds since the Unix epoch
+     * @param out where to write the text
+     * @param <A> the appendable type
+     * @return {@code out}
+     * @throws UncheckedIOException if {@code out} throws
+     */
+    public static <A extends Appendable> A formatIso8601(long epochNanos, A out) {
+        return format(
+                Math.floorDiv(epochNanos, NANOS_PER_SECOND),
+                Math.floorMod(epochNanos, NANOS_PER_SECOND),
+                9,
+                out);
+    }
+
+    /**
+     * Appends a millisecond timestamp with three fraction digits.
+     *
+     * @param epochMillis milliseconds since the Unix epoch
+     * @param out where to write the text
+     * @param <A> the appendable type
+     * @return {@code out}
+     * @throws UncheckedIOException if {@code out} throws
+     */
+    public static <A extends Appendable> A formatIso8601Millis(long epochMillis, A out) {
+        return format(Math.floorDiv(epochMillis, 1000L), Math.floorMod(epochMillis, 1000L), 3, out);
+    }
+
+    /**
+     * Parses {@code YYYY-MM-DDTHH:MM:SS[.f]Z}, with zero to nine fraction digits, into
+     * nanoseconds since the Unix epoch.
+     *
+     * @param text the text
+     * @return the epoch nanoseconds
+     * @throws IllegalArgumentException if the text is malformed, names an invalid date or time,
+     *     or lies outside the range of epoch nanoseconds (years 1677 to 2262)
+     */
+    public static long parseIso8601(CharSequence text) {
+        int length = text.length();
+        if (length < 20
+                || text.charAt(4) != '-'
+                || text.charAt(7) != '-'
+                || text.charAt(10) != 'T'
+                || text.charAt(13) != ':'
+                || text.charAt(16) != ':'
+                || text.charAt(length - 1) != 'Z') {
+            throw malformed(text);
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 7);
+        int day = digits(text, 8, 10);
+        int hour = digits(text, 11, 13);
+        int minute = digits(text, 14, 16);
+        int second = digits(text, 17, 19);
+        if (month < 1
+                || month > 12
+                || day < 1
+                || day > daysInMonth(year, month)
+                || hour > 23
+                || minute > 59
+                || second > 59) {
+            throw new IllegalArgumentException("Invalid date or time: " + text);
+        }
+        long nanos = 0;
+        if (length > 20) {
+            int fractionDigits = length - 21;
+            if (text.charAt(19) != '.' || fractionDigits < 1 || fractionDigits > 9) {
+                throw malformed(text);
+            }
+            nanos = digits(text, 20, length - 1);
+            for (int i = fractionDigits; i < 9; i++) {
+                nanos *= 10;
+            }
+        }
+        long seconds =
+                daysFromCivil(year, month, day) * SECONDS_PER_DAY
+                        + hour * 3600L
+                        + minute * 60L
+                        + second;
+        if (seconds < 0 && nanos > 0) {
+            // Borrow a second so that the earliest representable instants do not overflow.
+            seconds++;
+            nanos -= NANOS_PER_SECOND;
+        }
+        try {
+            return Math.addExact(Math.multiplyExact(seconds, NANOS_PER_SECOND), nanos);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Timestamp out of nanosecond range: " + text);
+        }
+    }
+
+    private static <A extends Appendable> A format(
+            long epochSeconds, long fraction, int fractionDigits, A out) {
+        long days = Math.floorDiv(epochSeconds, SECONDS_PER_DAY);
+        int secondOfDay = (int) Math.floorMod(epochSeconds, SECONDS_PER_DAY);
+
+        // civil_from_days (H. Hinnant): eras of 400 years starting on March 1st.
+        long z = days + EPOCH_SHIFT;
+        long era = Math.floorDiv(z, DAYS_PER_ERA);
+        int dayOfEra = (int) (z - era * DAYS_PER_ERA);
+        int yearOfEra =
+                (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        try {
+            if (year < 0) {
+                out.append('-');
+            } else if (year > 9999) {
+                out.append('+');
+            }
+            appendPadded(Math.abs(year), 4, out);
+            out.append('-');
+            appendPadded(month, 2, out);
+            out.append('-');
+            appendPadded(day, 2, out);
+            out.append('T');
+            appendPadded(secondOfDay / 3600, 2, out);
+            out.append(':');
+            appendPadded(secondOfDay / 60 % 60, 2, out);
+            out.append(':');
+            appendPadded(secondOfDay % 60, 2, out);
+            out.append('.');
+            appendPadded(fraction, fractionDigits, out);
+            out.append('Z');
+            return out;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // days_from_civil (H. Hinnant), the inverse of the conversion in format.
+    private static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        int yearOfEra = (int) (y - era * 400);
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * DAYS_PER_ERA + dayOfEra - EPOCH_SHIFT;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    private static void appendPadded(long value, int width, Appendable out) throws IOException {
+        long limit = 1;
+        for (int i = 1; i < width; i++) {
+            limit *= 10;
+        }
+        while (limit <= value / 10) {
+            limit *= 10;
+        }
+        for (; limit > 0; limit /= 10) {
+            out.append((char) ('0' + value / limit % 10));
+        }
+    }
+
+    private static int digits(CharSequence text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                throw malformed(text);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static IllegalArgumentException malformed(CharSequence text) {
+        return new IllegalArgumentException("Malformed ISO-8601 timestamp: " + text);
+    }
+}
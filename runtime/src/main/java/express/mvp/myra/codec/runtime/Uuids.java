@@ -0,0 +1,116 @@
+package express.mvp.myra.codec.runtime;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Allocation-free text conversion for UUIDs held as two longs, the storage of {@code uuid}
+ * fields. The text form is the canonical lowercase {@code 8-4-4-4-12} hex layout used by {@link
+ * java.util.UUID#toString()}, and the two words are the UUID's most and least significant bits.
+ *
+ * <h2>Thread Safety</h2>
+ *
+ * <p>All methods are stateless and thread-safe.
+ *
+ * <p><b>Example usage:</b>
+ *
+ * <pre>{@code
+ * Uuids.formatTo(order.getClientIdMsb(), order.getClientIdLsb(), line);
+ * builder.setClientId(Uuids.parseMsb(text), Uuids.parseLsb(text));
+ * }</pre>
+ */
+public final class Uuids {
+
+    /** Length of the canonical text form. */
+    public static final int TEXT_LENGTH = 36;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private Uuids() {}
+
+    /**
+     * Appends a UUID in canonical form.
+     *
+     * @param msb the most significant 64 bits
+     * @param lsb the least significant 64 bits
+     * @param out where to write the text
+     * @param <A> the appendable type
+     * @return {@code out}
+     * @throws UncheckedIOException if {@code out} throws
+     */
+    public static <A extends Appendable> A formatTo(long msb, long lsb, A out) {
+        try {
+            appendHex(msb >>> 32, 8, out);
+            out.append('-');
+            appendHex(msb >>> 16, 4, out);
+            out.append('-');
+            appendHex(msb, 4, out);
+            out.append('-');
+            appendHex(lsb >>> 48, 4, out);
+            out.append('-');
+            appendHex(lsb, 12, out);
+            return out;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parses the most significant 64 bits of a canonical UUID. Hex digits may be in either case.
+     *
+     * @param text the 36-character text
+     * @return the most significant bits
+     * @throws IllegalArgumentException if the text is not a canonical UUID
+     */
+    public static long parseMsb(CharSequence text) {
+        checkShape(text);
+        return hex(text, 0, 8) << 32 | hex(text, 9, 13) << 16 | hex(text, 14, 18);
+    }
+
+    /**
+     * Parses the least significant 64 bits of a canonical UUID. Hex digits may be in either case.
+     *
+     * @param text the 36-character text
+     * @return the least significant bits
+     * @throws IllegalArgumentException if the text is not a canonical UUID
+     */
+    public static long parseLsb(CharSequence text) {
+        checkShape(text);
+        return hex(text, 19, 23) << 48 | hex(text, 24, 36);
+    }
+
+    private static void appendHex(long value, int digits, Appendable out) throws IOException {
+        for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+            out.append(HEX[(int) (value >>> shift) & 0xF]);
+        }
+    }
+
+    private static void checkShape(CharSequence text) {
+        if (text.length() != TEXT_LENGTH
+                || text.charAt(8) != '-'
+                || text.charAt(13) != '-'
+                || text.charAt(18) != '-'
+                || text.charAt(23) != '-') {
+            throw new IllegalArgumentException("Malformed UUID: " + text);
+        }
+    }
+
+    private static long hex(CharSequence text, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (c >= 'a' && c <= 'f') {
+                digit = c - 'a' + 10;
+            } else if (c >= 'A' && c <= 'F') {
+                digit = c - 'A' + 10;
+            } else {
+                throw new IllegalArgumentException("Malformed UUID: " + text);
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+}
@@ -10,11 +10,36 @@
  *     <th>Notes</th>
  *   </tr>
  *   <tr>
+ *     <td>{@link express.mvp.myra.codec.runtime.AlignedLayouts}</td>
+ *     <td>✅ Yes</td>
+ *     <td>Immutable layout constants and var handles.</td>
+ *   </tr>
+ *   <tr>
+ *     <td>{@link express.mvp.myra.codec.runtime.Ascii}</td>
+ *     <td>✅ Yes</td>
+ *     <td>Stateless static helpers.</td>
+ *   </tr>
+ *   <tr>
+ *     <td>{@link express.mvp.myra.codec.runtime.Decimals}</td>
+ *     <td>✅ Yes</td>
+ *     <td>Stateless static helpers.</td>
+ *   </tr>
+ *   <tr>
  *     <td>{@link express.mvp.myra.codec.runtime.EncoderConfig}</td>
  *     <td>✅ Yes</td>
  *     <td>Immutable. Share freely.</td>
  *   </tr>
  *   <tr>
+ *     <td>{@link express.mvp.myra.codec.runtime.FixedStrideTable}</td>
+ *     <td>❌ No</td>
+ *     <td>Single owner; close to free the rows.</td>
+ *   </tr>
+ *   <tr>
+ *     <td>{@link express.mvp.myra.codec.runtime.FrameIndex}</td>
+ *     <td>❌ No</td>
+ *     <td>Single writer; close to free the off-heap table.</td>
+ *   </tr>
+ *   <tr>
  *     <td>{@link express.mvp.myra.codec.runtime.MessageEncoder}</td>
  *     <td>❌ No</td>
  *     <td>Use one per thread (or ThreadLocal).</td>
@@ -25,6 +50,31 @@
  *     <td>Single-owner until closed.</td>
  *   </tr>
  *   <tr>
+ *     <td>{@link express.mvp.myra.codec.runtime.SegmentContent}</td>
+ *     <td>✅ Yes</td>
+ *     <td>Stateless static helpers.</td>
+ *   </tr>
+ *   <tr>
+ *     <td>{@link express.mvp.myra.codec.runtime.StringDictionaryEncoder}</td>
+ *     <td>❌ No</td>
+ *     <td>One per outbound session.</td>
+ *   </tr>
+ *   <tr>
+ *     <td>{@link express.mvp.myra.codec.runtime.StringDictionaryDecoder}</td>
+ *     <td>❌ No</td>
+ *     <td>One per inbound session; close to free the off-heap table.</td>
+ *   </tr>
+ *   <tr>
+ *     <td>{@link express.mvp.myra.codec.runtime.Timestamps}</td>
+ *     <td>✅ Yes</td>
+ *     <td>Stateless static helpers.</td>
+ *   </tr>
+ *   <tr>
+ *     <td>{@link express.mvp.myra.codec.runtime.Uuids}</td>
+ *     <td>✅ Yes</td>
+ *     <td>Stateless static helpers.</td>
+ *   </tr>
+ *   <tr>
  *     <td>{@link express.mvp.myra.codec.runtime.struct.MessageHeader}</td>
  *     <td>❌ No</td>
  *     <td>Flyweight pattern, reuse via wrap().</td>
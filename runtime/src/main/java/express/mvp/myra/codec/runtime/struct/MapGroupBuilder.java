@@ -0,0 +1,455 @@
+package express.mvp.myra.codec.runtime.struct;
+
+import static express.mvp.roray.ffm.utils.memory.Layouts.*;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A builder for writing {@code map<K, V>} fields in the layout read by {@link MapGroupView}.
+ *
+ * <p>Entries may be written in any order. {@link #finish()} rejects duplicate keys, moves the
+ * entries into key order and, for maps of more than {@link MapGroupView#SORTED_MAX} entries, fills
+ * in the hash index. Equal maps therefore encode to identical bytes, whatever order they were
+ * written in.
+ *
+ * <p><b>Three-Phase Writing:</b>
+ *
+ * <ol>
+ *   <li>Call {@link #beginWithCount(MemorySegment, long, int)} to reserve space for the header,
+ *       offset table and hash index
+ *   <li>For each entry call {@code putKey} followed by exactly one value writer
+ *   <li>Call {@link #finish()} to order the entries and return total bytes written
+ * </ol>
+ *
+ * <p><b>Thread Safety:</b> This class is NOT thread-safe.
+ *
+ * <p><b>Example Usage:</b>
+ *
+ * <pre>{@code
+ * MapGroupBuilder builder = new MapGroupBuilder(MapGroupView.KeyType.STRING);
+ * builder.beginWithCount(segment, offset, 2);
+ * builder.putKey("venue").putString("XNAS");
+ * builder.putKey("desk").putString("EQ-1");
+ * int bytesWritten = builder.finish();
+ * }</pre>
+ */
+public final class MapGroupBuilder {
+
+    private final MapGroupView.KeyType keyType;
+    @Nullable private MemorySegment segment;
+    private long baseOffset;
+    private int maxCount;
+    private int currentIndex;
+    private int hashSlots;
+    private long offsetTableStart;
+    private long hashTableStart;
+    private long entryRegionStart;
+    private long writeOffset;
+    private boolean awaitingValue;
+    private Integer[] order = new Integer[0];
+    private int[] entryOffsets = new int[0];
+    private byte[] scratch = new byte[0];
+
+    /**
+     * Creates a builder for maps with the given key encoding.
+     *
+     * @param keyType the key encoding
+     */
+    public MapGroupBuilder(@NonNull MapGroupView.KeyType keyType) {
+        this.keyType = Objects.requireNonNull(keyType, "keyType");
+    }
+
+    /**
+     * Returns the number of bytes needed for the header, offset table and hash index of a map.
+     *
+     * @param count the number of entries
+     * @return the size of everything that precedes the entry data
+     */
+    public static long indexSize(int count) {
+        return MapGroupView.HEADER_SIZE
+                + (long) count * MapGroupView.OFFSET_ENTRY_SIZE
+                + (long) hashSlots(count) * MapGroupView.HASH_SLOT_SIZE;
+    }
+
+    /**
+     * Begins writing a map with a known entry count. This reserves space for the header, the
+     * offset table and, above {@link MapGroupView#SORTED_MAX} entries, the hash index.
+     *
+     * @param segment the memory segment to write to
+     * @param offset the offset within the segment where the map starts
+     * @param count the number of entries that will be written
+     * @throws NullPointerException if segment is null
+     * @throws IllegalArgumentException if count is negative
+     */
+    public void beginWithCount(@NonNull MemorySegment segment, long offset, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count cannot be negative: " + count);
+        }
+        this.segment = Objects.requireNonNull(segment, "segment");
+        this.baseOffset = offset;
+        this.maxCount = count;
+        this.currentIndex = 0;
+        this.hashSlots = hashSlots(count);
+        this.offsetTableStart = offset + MapGroupView.HEADER_SIZE;
+        this.hashTableStart = offsetTableStart + (long) count * MapGroupView.OFFSET_ENTRY_SIZE;
+        this.entryRegionStart = hashTableStart + (long) hashSlots * MapGroupView.HASH_SLOT_SIZE;
+        this.writeOffset = entryRegionStart;
+        this.awaitingValue = false;
+
+        segment.set(INT_BE, offset, count);
+        segment.set(INT_BE, offset + 4, hashSlots);
+        if (hashSlots > 0) {
+            segment.asSlice(hashTableStart, (long) hashSlots * MapGroupView.HASH_SLOT_SIZE)
+                    .fill((byte) 0);
+        }
+    }
+
+    // =========================================================================
+    // Key Writers
+    // =========================================================================
+
+    /**
+     * Starts an entry with a string key.
+     *
+     * @param key the key
+     * @return this builder for chaining
+     * @throws IllegalStateException if the map does not have string keys, the previous entry has
+     *     no value yet, or all expected entries have been written
+     */
+    public MapGroupBuilder putKey(String key) {
+        Objects.requireNonNull(key, "key");
+        checkKeyType(MapGroupView.KeyType.STRING);
+        beginEntry();
+        writeLengthPrefixed(key.getBytes(StandardCharsets.UTF_8));
+        return this;
+    }
+
+    /**
+     * Starts an entry with an integer key.
+     *
+     * @param key the key; narrowed to {@code int32} for maps with {@code int32} keys
+     * @return this builder for chaining
+     * @throws IllegalStateException if the map has string keys, the previous entry has no value
+     *     yet, or all expected entries have been written
+     */
+    public MapGroupBuilder putKey(long key) {
+        if (keyType == MapGroupView.KeyType.STRING) {
+            throw new IllegalStateException("Map has string keys");
+        }
+        beginEntry();
+        if (keyType == MapGroupView.KeyType.INT32) {
+            segment.set(INT_BE, writeOffset, (int) key);
+        } else {
+            segment.set(LONG_BE, writeOffset, key);
+        }
+        writeOffset += keyType.width();
+        return this;
+    }
+
+    // =========================================================================
+    // Value Writers
+    // =========================================================================
+
+    /**
+     * Writes a {@code bool} value for the current entry.
+     *
+     * @param value the value
+     * @return this builder for chaining
+     */
+    public MapGroupBuilder putBoolean(boolean value) {
+        endEntry();
+        segment.set(BOOLEAN, writeOffset, value);
+        writeOffset += 1;
+        return this;
+    }
+
+    /**
+     * Writes an {@code int8} or enum value for the current entry.
+     *
+     * @param value the value
+     * @return this builder for chaining
+     */
+    public MapGroupBuilder putByte(byte value) {
+        endEntry();
+        segment.set(BYTE, writeOffset, value);
+        writeOffset += 1;
+        return this;
+    }
+
+    /**
+     * Writes an {@code int16} value for the current entry.
+     *
+     * @param value the value
+     * @return this builder for chaining
+     */
+    public MapGroupBuilder putShort(short value) {
+        endEntry();
+        segment.set(SHORT_BE, writeOffset, value);
+        writeOffset += 2;
+        return this;
+    }
+
+    /**
+     * Writes an {@code int32} value for the current entry.
+     *
+     * @param value the value
+     * @return this builder for chaining
+     */
+    public MapGroupBuilder putInt(int value) {
+        endEntry();
+        segment.set(INT_BE, writeOffset, value);
+        writeOffset += 4;
+        return this;
+    }
+
+    /**
+     * Writes an {@code int64} value for the current entry.
+     *
+     * @param value the value
+     * @return this builder for chaining
+     */
+    public MapGroupBuilder putLong(long value) {
+        endEntry();
+        segment.set(LONG_BE, writeOffset, value);
+        writeOffset += 8;
+        return this;
+    }
+
+    /**
+     * Writes a {@code float32} value for the current entry.
+     *
+     * @param value the value
+     * @return this builder for chaining
+     */
+    public MapGroupBuilder putFloat(float value) {
+        endEntry();
+        segment.set(FLOAT_BE, writeOffset, value);
+        writeOffset += 4;
+        return this;
+    }
+
+    /**
+     * Writes a {@code float64} value for the current entry.
+     *
+     * @param value the value
+     * @return this builder for chaining
+     */
+    public MapGroupBuilder putDouble(double value) {
+        endEntry();
+        segment.set(DOUBLE_BE, writeOffset, value);
+        writeOffset += 8;
+        return this;
+    }
+
+    /**
+     * Writes a {@code string} value for the current entry as {@code [length:int32][utf8]}.
+     *
+     * @param value the value
+     * @return this builder for chaining
+     */
+    public MapGroupBuilder putString(String value) {
+        Objects.requireNonNull(value, "value");
+        endEntry();
+        writeLengthPrefixed(value.getBytes(StandardCharsets.UTF_8));
+        return this;
+    }
+
+    /**
+     * Writes a {@code bytes} value for the current entry as {@code [length:int32][bytes]}.
+     *
+     * @param value the value
+     * @return this builder for chaining
+     */
+    public MapGroupBuilder putBytes(byte[] value) {
+        Objects.requireNonNull(value, "value");
+        endEntry();
+        writeLengthPrefixed(value);
+        return this;
+    }
+
+    // =========================================================================
+    // Finalization
+    // =========================================================================
+
+    /**
+     * Finishes writing the map: rewrites the entries in key order and builds the hash index.
+     *
+     * @return the total number of bytes written (header + index + entry data)
+     * @throws IllegalStateException if fewer entries were written than expected
+     * @throws IllegalArgumentException if two entries have the same key
+     */
+    public int finish() {
+        if (currentIndex != maxCount || awaitingValue) {
+            throw new IllegalStateException(
+                    "Expected " + maxCount + " entries but wrote " + currentIndex);
+        }
+        if (order.length < maxCount) {
+            order = new Integer[maxCount];
+            entryOffsets = new int[maxCount];
+        }
+        for (int i = 0; i < maxCount; i++) {
+            order[i] = i;
+            entryOffsets[i] =
+                    segment.get(
+                            INT_BE, offsetTableStart + (long) i * MapGroupView.OFFSET_ENTRY_SIZE);
+        }
+        Arrays.sort(
+                order, 0, maxCount, (a, b) -> compareKeys(entryOffsets[a], entryOffsets[b]));
+        for (int i = 1; i < maxCount; i++) {
+            if (compareKeys(entryOffsets[order[i - 1]], entryOffsets[order[i]]) == 0) {
+                throw new IllegalArgumentException(
+                        "Duplicate map key in entry " + order[i] + " of " + maxCount);
+            }
+        }
+
+        // Entries were appended in write order; copy them back in key order so that equal maps
+        // encode to identical bytes however they were filled.
+        int dataLength = (int) (writeOffset - entryRegionStart);
+        if (scratch.length < dataLength) {
+            scratch = new byte[dataLength];
+        }
+        MemorySegment.copy(segment, BYTE, entryRegionStart, scratch, 0, dataLength);
+        int position = 0;
+        for (int i = 0; i < maxCount; i++) {
+            int written = order[i];
+            int start = entryOffsets[written];
+            int end = written + 1 < maxCount ? entryOffsets[written + 1] : dataLength;
+            MemorySegment.copy(
+                    scratch, start, segment, BYTE, entryRegionStart + position, end - start);
+            segment.set(
+                    INT_BE, offsetTableStart + (long) i * MapGroupView.OFFSET_ENTRY_SIZE, position);
+            position += end - start;
+        }
+        if (hashSlots > 0) {
+            int mask = hashSlots - 1;
+            for (int i = 0; i < maxCount; i++) {
+                int hash =
+                        hashKey(
+                                segment.get(
+                                        INT_BE,
+                                        offsetTableStart
+                                                + (long) i * MapGroupView.OFFSET_ENTRY_SIZE));
+                int slot = hash & mask;
+                while (segment.get(INT_BE, slotOffset(slot) + 4) != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                segment.set(INT_BE, slotOffset(slot), hash);
+                segment.set(INT_BE, slotOffset(slot) + 4, i + 1);
+            }
+        }
+        return (int) (writeOffset - baseOffset);
+    }
+
+    /**
+     * Returns the underlying memory segment.
+     *
+     * @return the segment being written to
+     */
+    public MemorySegment segment() {
+        return segment;
+    }
+
+    /** Resets this builder, releasing the reference to the segment. */
+    public void reset() {
+        this.segment = null;
+        this.baseOffset = 0;
+        this.maxCount = 0;
+        this.currentIndex = 0;
+        this.hashSlots = 0;
+        this.offsetTableStart = 0;
+        this.hashTableStart = 0;
+        this.entryRegionStart = 0;
+        this.writeOffset = 0;
+        this.awaitingValue = false;
+        Arrays.fill(order, null);
+    }
+
+    // =========================================================================
+    // Helper Methods
+    // =========================================================================
+
+    private static int hashSlots(int count) {
+        return count <= MapGroupView.SORTED_MAX ? 0 : Integer.highestOneBit(2 * count - 1) << 1;
+    }
+
+    private void checkKeyType(MapGroupView.KeyType expected) {
+        if (keyType != expected) {
+            throw new IllegalStateException("Map has " + keyType + " keys");
+        }
+    }
+
+    private void beginEntry() {
+        if (awaitingValue) {
+            throw new IllegalStateException("Entry " + currentIndex + " has no value");
+        }
+        if (currentIndex >= maxCount) {
+            throw new IllegalStateException(
+                    "Cannot add more entries. Expected "
+                            + maxCount
+                            + ", already wrote "
+                            + currentIndex);
+        }
+        segment.set(
+                INT_BE,
+                offsetTableStart + (long) currentIndex * MapGroupView.OFFSET_ENTRY_SIZE,
+                (int) (writeOffset - entryRegionStart));
+        awaitingValue = true;
+    }
+
+    private void endEntry() {
+        if (!awaitingValue) {
+            throw new IllegalStateException("No key written for entry " + currentIndex);
+        }
+        awaitingValue = false;
+        currentIndex++;
+    }
+
+    private void writeLengthPrefixed(byte[] bytes) {
+        segment.set(INT_BE, writeOffset, bytes.length);
+        writeOffset += 4;
+        MemorySegment.copy(bytes, 0, segment, BYTE, writeOffset, bytes.length);
+        writeOffset += bytes.length;
+    }
+
+    private long slotOffset(int slot) {
+        return hashTableStart + (long) slot * MapGroupView.HASH_SLOT_SIZE;
+    }
+
+    private int hashKey(int entryOffset) {
+        long keyOffset = entryRegionStart + entryOffset;
+        return switch (keyType) {
+            case STRING ->
+                    MapGroupView.hash(segment, keyOffset + 4, segment.get(INT_BE, keyOffset));
+            case INT32 -> MapGroupView.hash(segment.get(INT_BE, keyOffset));
+            case INT64 -> MapGroupView.hash(segment.get(LONG_BE, keyOffset));
+        };
+    }
+
+    private int compareKeys(int leftEntry, int rightEntry) {
+        long left = entryRegionStart + leftEntry;
+        long right = entryRegionStart + rightEntry;
+        return switch (keyType) {
+            case INT32 ->
+                    Integer.compare(segment.get(INT_BE, left), segment.get(INT_BE, right));
+            case INT64 -> Long.compare(segment.get(LONG_BE, left), segment.get(LONG_BE, right));
+            case STRING -> {
+                int leftLength = segment.get(INT_BE, left);
+                int rightLength = segment.get(INT_BE, right);
+                int common = Math.min(leftLength, rightLength);
+                for (int i = 0; i < common; i++) {
+                    int l = segment.get(BYTE, left + 4 + i) & 0xFF;
+                    int r = segment.get(BYTE, right + 4 + i) & 0xFF;
+                    if (l != r) {
+                        yield Integer.compare(l, r);
+                    }
+                }
+                yield Integer.compare(leftLength, rightLength);
+            }
+        };
+    }
+}
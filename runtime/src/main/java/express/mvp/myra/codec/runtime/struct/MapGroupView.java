@@ -0,0 +1,454 @@
+package express.mvp.myra.codec.runtime.struct;
+
+import static express.mvp.roray.ffm.utils.memory.Layouts.*;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import express.mvp.myra.codec.runtime.SegmentContent;
+import express.mvp.roray.ffm.utils.memory.Utf8View;
+import java.lang.foreign.MemorySegment;
+import java.util.Objects;
+
+/**
+ * A zero-allocation reader for {@code map<K, V>} fields written by {@link MapGroupBuilder}.
+ *
+ * <p><b>Wire Format:</b>
+ *
+ * <pre>
+ * [count:int32][hashSlots:int32]
+ * [offset0:int32]...[offsetN-1:int32]            entries in ascending key order
+ * ([hash:int32][entry:int32]) * hashSlots        open-addressing index, only when hashSlots &gt; 0
+ * [key0][value0][key1][value1]...
+ * </pre>
+ *
+ * <p>Offsets are relative to the start of the entry region. String keys are {@code
+ * [length:int32][utf8]} and sort by unsigned bytes; {@code int32} and {@code int64} keys are
+ * big-endian and sort by signed value. A value directly follows its key: big-endian for scalars,
+ * {@code [length:int32][bytes]} for strings and bytes.
+ *
+ * <p>Maps of up to {@link #SORTED_MAX} entries are found by binary search over the offset table.
+ * Larger maps also carry a hash index with a power-of-two number of slots, at most half full, so
+ * a lookup probes a few slots and compares the key bytes only on a hash match. Each slot holds the
+ * key hash and the entry index plus one, 0 marking an empty slot. The region holds no absolute
+ * offsets and can be copied as-is.
+ *
+ * <p><b>Thread Safety:</b> This class is NOT thread-safe. The view can be reused by calling
+ * {@link #wrap}.
+ *
+ * <p><b>Example usage:</b>
+ *
+ * <pre>{@code
+ * MapGroupView map = new MapGroupView(MapGroupView.KeyType.STRING);
+ * map.wrap(segment, offset);
+ * long value = map.find("venue");
+ * if (value >= 0) {
+ *     view.wrap(segment, value + 4, segment.get(Layouts.INT_BE, value));
+ * }
+ * }</pre>
+ *
+ * @see MapGroupBuilder
+ */
+public final class MapGroupView {
+
+    /** The encodings a map key may have. */
+    public enum KeyType {
+        /** Length-prefixed UTF-8, ordered by unsigned bytes. */
+        STRING(0),
+        /** Big-endian {@code int32}, ordered by signed value. */
+        INT32(Integer.BYTES),
+        /** Big-endian {@code int64}, ordered by signed value. */
+        INT64(Long.BYTES);
+
+        private final int width;
+
+        KeyType(int width) {
+            this.width = width;
+        }
+
+        /**
+         * Returns the size of a fixed-width key.
+         *
+         * @return the key size in bytes, or 0 for length-prefixed string keys
+         */
+        public int width() {
+            return width;
+        }
+    }
+
+    /** Size in bytes of the count and hash-slot fields. */
+    public static final int HEADER_SIZE = 8;
+
+    /** Size in bytes of each offset entry (int32). */
+    public static final int OFFSET_ENTRY_SIZE = 4;
+
+    /** Size in bytes of each hash index slot: the key hash and the entry index plus one. */
+    public static final int HASH_SLOT_SIZE = 8;
+
+    /** Largest map written without a hash index; binary search stays within 4 comparisons. */
+    public static final int SORTED_MAX = 16;
+
+    private static final int FNV_OFFSET_BASIS = 0x811C9DC5;
+    private static final int FNV_PRIME = 0x01000193;
+
+    private final KeyType keyType;
+    @Nullable private MemorySegment segment;
+    private long offsetTableStart;
+    private long hashTableStart;
+    private long entryRegionStart;
+    private int count;
+    private int hashSlots;
+
+    /**
+     * Creates a view for maps with the given key encoding.
+     *
+     * @param keyType the key encoding
+     */
+    public MapGroupView(@NonNull KeyType keyType) {
+        this.keyType = Objects.requireNonNull(keyType, "keyType");
+    }
+
+    /**
+     * Wraps this view around a map region.
+     *
+     * @param segment the memory segment containing the map
+     * @param offset the offset within the segment where the map starts
+     * @throws NullPointerException if segment is null
+     */
+    public void wrap(@NonNull MemorySegment segment, long offset) {
+        this.segment = Objects.requireNonNull(segment, "segment");
+        this.count = segment.get(INT_BE, offset);
+        this.hashSlots = segment.get(INT_BE, offset + 4);
+        this.offsetTableStart = offset + HEADER_SIZE;
+        this.hashTableStart = offsetTableStart + (long) count * OFFSET_ENTRY_SIZE;
+        this.entryRegionStart = hashTableStart + (long) hashSlots * HASH_SLOT_SIZE;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the entry count
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Returns whether the map carries a hash index, i.e. has more than {@link #SORTED_MAX}
+     * entries.
+     *
+     * @return true if lookups probe the hash index
+     */
+    public boolean hashed() {
+        return hashSlots > 0;
+    }
+
+    /**
+     * Finds a string key.
+     *
+     * @param key the key; compared by its UTF-8 encoding without encoding it to an array
+     * @return the absolute offset of the value, or -1 if the key is absent
+     */
+    public long find(@NonNull String key) {
+        if (hashSlots > 0) {
+            int hash = hash(key);
+            int mask = hashSlots - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                long slotOffset = hashTableStart + (long) slot * HASH_SLOT_SIZE;
+                int entry = segment.get(INT_BE, slotOffset + 4);
+                if (entry == 0) {
+                    return -1;
+                }
+                if (segment.get(INT_BE, slotOffset) == hash
+                        && compareStringKey(entry - 1, key) == 0) {
+                    return valueOffset(entry - 1);
+                }
+            }
+        }
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareStringKey(mid, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return valueOffset(mid);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds a string key given as UTF-8 bytes, for instance a var field of another frame, without
+     * decoding it.
+     *
+     * @param key the segment holding the key bytes
+     * @param keyOffset the offset of the first key byte
+     * @param keyLength the number of key bytes
+     * @return the absolute offset of the value, or -1 if the key is absent
+     */
+    public long find(@NonNull MemorySegment key, long keyOffset, int keyLength) {
+        if (hashSlots > 0) {
+            int hash = hash(key, keyOffset, keyLength);
+            int mask = hashSlots - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                long slotOffset = hashTableStart + (long) slot * HASH_SLOT_SIZE;
+                int entry = segment.get(INT_BE, slotOffset + 4);
+                if (entry == 0) {
+                    return -1;
+                }
+                if (segment.get(INT_BE, slotOffset) == hash
+                        && compareStringKey(entry - 1, key, keyOffset, keyLength) == 0) {
+                    return valueOffset(entry - 1);
+                }
+            }
+        }
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareStringKey(mid, key, keyOffset, keyLength);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return valueOffset(mid);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds a string key held by a view, without decoding it.
+     *
+     * @param key a view over the key's UTF-8 bytes
+     * @return the absolute offset of the value, or -1 if the key is absent
+     */
+    public long find(@NonNull Utf8View key) {
+        return find(key.segment(), key.offset(), (int) key.byteSize());
+    }
+
+    /**
+     * Finds an integer key.
+     *
+     * @param key the key
+     * @return the absolute offset of the value, or -1 if the key is absent
+     */
+    public long find(long key) {
+        if (hashSlots > 0) {
+            int hash = hash(key);
+            int mask = hashSlots - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                long slotOffset = hashTableStart + (long) slot * HASH_SLOT_SIZE;
+                int entry = segment.get(INT_BE, slotOffset + 4);
+                if (entry == 0) {
+                    return -1;
+                }
+                if (segment.get(INT_BE, slotOffset) == hash && longKeyAt(entry - 1) == key) {
+                    return valueOffset(entry - 1);
+                }
+            }
+        }
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = Long.compare(longKeyAt(mid), key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return valueOffset(mid);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the absolute offset of an entry's key.
+     *
+     * @param index the entry index in key order (0-based)
+     * @return the key offset
+     * @throws IndexOutOfBoundsException if index is out of range
+     */
+    public long keyOffset(int index) {
+        Objects.checkIndex(index, count);
+        return entryRegionStart
+                + segment.get(INT_BE, offsetTableStart + (long) index * OFFSET_ENTRY_SIZE);
+    }
+
+    /**
+     * Returns the absolute offset of an entry's value.
+     *
+     * @param index the entry index in key order (0-based)
+     * @return the value offset
+     * @throws IndexOutOfBoundsException if index is out of range
+     */
+    public long valueOffset(int index) {
+        long keyOffset = keyOffset(index);
+        return keyType == KeyType.STRING
+                ? keyOffset + 4 + segment.get(INT_BE, keyOffset)
+                : keyOffset + keyType.width();
+    }
+
+    /**
+     * Returns an integer key.
+     *
+     * @param index the entry index in key order (0-based)
+     * @return the key, widened to {@code long}
+     * @throws IndexOutOfBoundsException if index is out of range
+     * @throws IllegalStateException if the map has string keys
+     */
+    public long longKeyAt(int index) {
+        long keyOffset = keyOffset(index);
+        return switch (keyType) {
+            case INT32 -> segment.get(INT_BE, keyOffset);
+            case INT64 -> segment.get(LONG_BE, keyOffset);
+            case STRING -> throw new IllegalStateException("Map has string keys");
+        };
+    }
+
+    /**
+     * Wraps a view around a string key.
+     *
+     * @param index the entry index in key order (0-based)
+     * @param view the view to wrap around the key bytes
+     * @throws IndexOutOfBoundsException if index is out of range
+     */
+    public void stringKeyAt(int index, Utf8View view) {
+        long keyOffset = keyOffset(index);
+        view.wrap(segment, keyOffset + 4, segment.get(INT_BE, keyOffset));
+    }
+
+    /**
+     * Returns the underlying memory segment.
+     *
+     * @return the wrapped segment, or null if not wrapped
+     */
+    public MemorySegment segment() {
+        return segment;
+    }
+
+    /**
+     * Hashes UTF-8 bytes the way the hash index does.
+     *
+     * @param segment the segment holding the bytes
+     * @param offset the offset of the first byte
+     * @param length the number of bytes
+     * @return the 32-bit FNV-1a hash
+     */
+    public static int hash(MemorySegment segment, long offset, int length) {
+        int hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ (segment.get(BYTE, offset + i) & 0xFF)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Hashes the UTF-8 encoding of a string the way the hash index does, without encoding it to an
+     * array. Unpaired surrogates hash as {@code '?'}, as {@link String#getBytes} encodes them.
+     *
+     * @param key the string
+     * @return the 32-bit FNV-1a hash of its UTF-8 bytes
+     */
+    public static int hash(String key) {
+        int hash = FNV_OFFSET_BASIS;
+        int length = key.length();
+        for (int i = 0; i < length; ) {
+            int codePoint = codePointAt(key, i);
+            i += Character.charCount(codePoint);
+            for (int b = 0, n = utf8Length(codePoint); b < n; b++) {
+                hash = (hash ^ utf8Byte(codePoint, n, b)) * FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Hashes an integer key the way the hash index does.
+     *
+     * @param key the key, widened to {@code long}
+     * @return the 32-bit hash
+     */
+    public static int hash(long key) {
+        long mixed = SegmentContent.mix(SegmentContent.DEFAULT_SEED, key);
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    private int compareStringKey(int index, String key) {
+        long keyOffset = keyOffset(index);
+        int length = segment.get(INT_BE, keyOffset);
+        long data = keyOffset + 4;
+        int position = 0;
+        int keyLength = key.length();
+        for (int i = 0; i < keyLength; ) {
+            int codePoint = codePointAt(key, i);
+            i += Character.charCount(codePoint);
+            for (int b = 0, n = utf8Length(codePoint); b < n; b++) {
+                if (position == length) {
+                    return -1;
+                }
+                int stored = segment.get(BYTE, data + position++) & 0xFF;
+                int wanted = utf8Byte(codePoint, n, b);
+                if (stored != wanted) {
+                    return stored < wanted ? -1 : 1;
+                }
+            }
+        }
+        return position == length ? 0 : 1;
+    }
+
+    private int compareStringKey(int index, MemorySegment key, long keyOffset, int keyLength) {
+        long keyAt = keyOffset(index);
+        int length = segment.get(INT_BE, keyAt);
+        long data = keyAt + 4;
+        long mismatch =
+                MemorySegment.mismatch(
+                        segment, data, data + length, key, keyOffset, keyOffset + keyLength);
+        if (mismatch < 0) {
+            return 0;
+        }
+        if (mismatch == length) {
+            return -1;
+        }
+        if (mismatch == keyLength) {
+            return 1;
+        }
+        return Integer.compare(
+                segment.get(BYTE, data + mismatch) & 0xFF,
+                key.get(BYTE, keyOffset + mismatch) & 0xFF);
+    }
+
+    /** Reads a code point, mapping an unpaired surrogate to {@code '?'}. */
+    private static int codePointAt(String s, int index) {
+        int codePoint = s.codePointAt(index);
+        return Character.isSurrogate((char) codePoint) ? '?' : codePoint;
+    }
+
+    private static int utf8Length(int codePoint) {
+        if (codePoint < 0x80) {
+            return 1;
+        }
+        if (codePoint < 0x800) {
+            return 2;
+        }
+        return codePoint < 0x10000 ? 3 : 4;
+    }
+
+    private static int utf8Byte(int codePoint, int length, int index) {
+        if (length == 1) {
+            return codePoint;
+        }
+        int shift = 6 * (length - 1 - index);
+        if (index == 0) {
+            int lead = length == 2 ? 0xC0 : length == 3 ? 0xE0 : 0xF0;
+            return lead | (codePoint >>> shift);
+        }
+        return 0x80 | ((codePoint >>> shift) & 0x3F);
+    }
+}
@@ -50,6 +50,14 @@ public final class MessageHeader implements FlyweightAccessor {
     public static final int CHECKSUM_OFFSET = 12;
     public static final int HEADER_SIZE = 16;
 
+    // --- Flag Bits ---
+    /**
+     * Set on frames whose body is a patch against an earlier frame of the same message rather than
+     * the message itself. Patch frames are produced by generated {@code <Message>Differ} classes
+     * and turned back into full frames by the matching {@code <Message>Patcher}.
+     */
+    public static final byte FLAG_PATCH = 0x01;
+
     private MemorySegment segment;
     private long offset;
 
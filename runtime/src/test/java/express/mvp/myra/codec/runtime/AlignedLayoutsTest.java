@@ -0,0 +1,43 @@
+package express.mvp.myra.codec.runtime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/** Tests for the aligned layouts and their var handles. */
+@DisplayName("AlignedLayouts Tests")
+class AlignedLayoutsTest {
+
+    @Test
+    @DisplayName("Should update values atomically in big-endian order")
+    void shouldUpdateBigEndianAtomically() {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment segment = arena.allocate(16, Long.BYTES);
+
+            AlignedLayouts.LONG_BE_HANDLE.setRelease(segment, 8L, 1L);
+            assertEquals(1L, (long) AlignedLayouts.LONG_BE_HANDLE.getAndAdd(segment, 8L, 2L));
+            assertEquals(3L, (long) AlignedLayouts.LONG_BE_HANDLE.getAcquire(segment, 8L));
+            assertEquals(3, segment.get(ValueLayout.JAVA_BYTE, 15));
+
+            assertTrue(AlignedLayouts.INT_BE_HANDLE.compareAndSet(segment, 0L, 0, 0x01020304));
+            assertFalse(AlignedLayouts.INT_BE_HANDLE.compareAndSet(segment, 0L, 0, 5));
+            assertEquals(0x01, segment.get(ValueLayout.JAVA_BYTE, 0));
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject misaligned atomic access")
+    void shouldRejectMisalignedAccess() {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment segment = arena.allocate(16, Long.BYTES);
+
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () -> AlignedLayouts.LONG_BE_HANDLE.getAcquire(segment, 4L));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package express.mvp.myra.codec.runtime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.foreign.ValueLayout;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/** Tests for FixedStrideTable row allocation, reuse and growth. */
+@DisplayName("FixedStrideTable Tests")
+class FixedStrideTableTest {
+
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED;
+
+    @Test
+    @DisplayName("Should keep row contents across growth")
+    void shouldGrowAndKeepRows() {
+        try (FixedStrideTable table = new FixedStrideTable(12, 2)) {
+            for (int i = 0; i < 100; i++) {
+                int row = table.allocate();
+                assertEquals(i, row);
+                table.segment().set(LONG, table.rowOffset(row), i * 10L);
+            }
+
+            assertEquals(100, table.size());
+            assertEquals(990L, table.segment().get(LONG, table.rowOffset(99)));
+            assertEquals(70L, table.segment().get(LONG, table.rowOffset(7)));
+        }
+    }
+
+    @Test
+    @DisplayName("Should reuse freed rows zeroed")
+    void shouldReuseFreedRows() {
+        try (FixedStrideTable table = new FixedStrideTable(8, 4)) {
+            table.allocate();
+            int second = table.allocate();
+            table.segment().set(LONG, table.rowOffset(second), 42L);
+            table.free(second);
+
+            assertFalse(table.isLive(second));
+            assertThrows(IllegalArgumentException.class, () -> table.free(second));
+            assertEquals(second, table.allocate());
+            assertEquals(0L, table.segment().get(LONG, table.rowOffset(second)));
+        }
+    }
+
+    @Test
+    @DisplayName("Should iterate live rows across bitmap words")
+    void shouldIterateLiveRows() {
+        try (FixedStrideTable table = new FixedStrideTable(1, 8)) {
+            for (int i = 0; i < 130; i++) {
+                table.allocate();
+            }
+            for (int i = 0; i < 130; i++) {
+                if (i != 5 && i != 64 && i != 129) {
+                    table.free(i);
+                }
+            }
+
+            assertEquals(5, table.nextLive(0));
+            assertEquals(64, table.nextLive(6));
+            assertEquals(129, table.nextLive(65));
+            assertEquals(-1, table.nextLive(130));
+            assertEquals(3, table.size());
+        }
+    }
+}
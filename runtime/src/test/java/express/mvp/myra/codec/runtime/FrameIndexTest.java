@@ -0,0 +1,139 @@
+package express.mvp.myra.codec.runtime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import express.mvp.roray.ffm.utils.memory.Utf8View;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/** Tests for FrameIndex over a journal of {@code [length:int32][key bytes]} records. */
+@DisplayName("FrameIndex Tests")
+class FrameIndexTest {
+
+    private Arena arena;
+    private MemorySegment journal;
+    private long journalPosition;
+
+    @BeforeEach
+    void setUp() {
+        arena = Arena.ofConfined();
+        journal = arena.allocate(1 << 20);
+        journalPosition = 0;
+    }
+
+    @AfterEach
+    void tearDown() {
+        arena.close();
+    }
+
+    private FrameIndex newIndex(int capacity) {
+        return new FrameIndex(
+                capacity,
+                (location, view) ->
+                        view.wrap(
+                                journal,
+                                location + 4,
+                                journal.get(ValueLayout.JAVA_INT_UNALIGNED, location)));
+    }
+
+    private long append(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        long location = journalPosition;
+        journal.set(ValueLayout.JAVA_INT_UNALIGNED, location, bytes.length);
+        MemorySegment.copy(bytes, 0, journal, ValueLayout.JAVA_BYTE, location + 4, bytes.length);
+        journalPosition += 4 + bytes.length;
+        return location;
+    }
+
+    private static MemorySegment key(String key) {
+        return MemorySegment.ofArray(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long get(FrameIndex index, String key) {
+        MemorySegment bytes = key(key);
+        return index.get(bytes, 0, bytes.byteSize());
+    }
+
+    private long put(FrameIndex index, String key) {
+        long location = append(key);
+        Utf8View view = new Utf8View();
+        view.wrap(journal, location + 4, journal.get(ValueLayout.JAVA_INT_UNALIGNED, location));
+        return index.put(view, location);
+    }
+
+    @Test
+    @DisplayName("Should map keys to locations and replace on re-put")
+    void shouldPutAndGet() {
+        try (FrameIndex index = newIndex(16)) {
+            assertEquals(FrameIndex.MISSING, put(index, "alpha"));
+            put(index, "beta");
+            long first = get(index, "alpha");
+            long previous = put(index, "alpha");
+
+            assertEquals(first, previous);
+            assertNotEquals(first, get(index, "alpha"));
+            assertEquals(FrameIndex.MISSING, get(index, "gamma"));
+            assertEquals(2, index.size());
+        }
+    }
+
+    @Test
+    @DisplayName("Should remove keys and reuse tombstones")
+    void shouldRemove() {
+        try (FrameIndex index = newIndex(16)) {
+            put(index, "alpha");
+            MemorySegment alpha = key("alpha");
+
+            assertNotEquals(FrameIndex.MISSING, index.remove(alpha, 0, alpha.byteSize()));
+            assertEquals(FrameIndex.MISSING, index.remove(alpha, 0, alpha.byteSize()));
+            assertEquals(FrameIndex.MISSING, get(index, "alpha"));
+            assertEquals(0, index.size());
+
+            put(index, "alpha");
+            assertNotEquals(FrameIndex.MISSING, get(index, "alpha"));
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep every key reachable while resizing incrementally")
+    void shouldResizeIncrementally() {
+        try (FrameIndex index = newIndex(4)) {
+            long initialCapacity = index.capacity();
+            boolean[] removed = new boolean[5_000];
+            for (int i = 0; i < removed.length; i++) {
+                put(index, "key-" + i);
+                if (i % 3 == 0) {
+                    MemorySegment bytes = key("key-" + (i / 2));
+                    index.remove(bytes, 0, bytes.byteSize());
+                    removed[i / 2] = true;
+                }
+            }
+
+            assertTrue(index.capacity() > initialCapacity);
+            int live = 0;
+            for (int i = 0; i < removed.length; i++) {
+                live += removed[i] ? 0 : 1;
+                assertEquals(
+                        !removed[i], get(index, "key-" + i) != FrameIndex.MISSING, "key-" + i);
+            }
+            assertEquals(live, index.size());
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject negative locations")
+    void shouldRejectNegativeLocations() {
+        try (FrameIndex index = newIndex(4)) {
+            MemorySegment bytes = key("alpha");
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () -> index.put(bytes, 0, bytes.byteSize(), -5));
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package express.mvp.myra.codec.runtime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.UUID;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/** Tests for Decimals, Timestamps, Uuids and Ascii. */
+@DisplayName("Rich Value Tests")
+class RichValuesTest {
+
+    @Nested
+    @DisplayName("Decimals")
+    class DecimalTests {
+
+        @Test
+        @DisplayName("Should format with exactly scale fraction digits")
+        void shouldFormat() {
+            assertEquals("12.3400", format(123400, 4));
+            assertEquals("-0.0500", format(-500, 4));
+            assertEquals("0.0000", format(0, 4));
+            assertEquals("42", format(42, 0));
+            assertEquals("-9.223372036854775808", format(Long.MIN_VALUE, 18));
+            assertEquals("9223372036854775807", format(Long.MAX_VALUE, 0));
+        }
+
+        @Test
+        @DisplayName("Should match BigDecimal for plain notation")
+        void shouldMatchBigDecimal() {
+            long[] values = {1, -1, 7, 99, 100_000_001, -123_456_789_012L, Long.MAX_VALUE};
+            for (long value : values) {
+                for (int scale = 0; scale <= Decimals.MAX_SCALE; scale++) {
+                    String expected = BigDecimal.valueOf(value, scale).toPlainString();
+                    assertEquals(expected, format(value, scale));
+                    assertEquals(value, Decimals.parse(expected, scale));
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("Should parse exactly and reject rounding")
+        void shouldParse() {
+            assertEquals(123400, Decimals.parse("12.34", 4));
+            assertEquals(-500, Decimals.parse("-.05", 4));
+            assertEquals(1200, Decimals.parse("+12.000000", 2));
+            assertEquals(Long.MIN_VALUE, Decimals.parse("-9223372036854775808", 0));
+            assertThrows(NumberFormatException.class, () -> Decimals.parse("1.234", 2));
+            assertThrows(
+                    NumberFormatException.class, () -> Decimals.parse("9223372036854775808", 0));
+            assertThrows(NumberFormatException.class, () -> Decimals.parse("1.2.3", 2));
+            assertThrows(NumberFormatException.class, () -> Decimals.parse("-", 2));
+        }
+
+        @Test
+        @DisplayName("Should rescale half away from zero like BigDecimal HALF_UP")
+        void shouldRescale() {
+            long[] values = {15, 25, -15, -25, 14, -16, 999_999_999_999_999_999L};
+            for (long value : values) {
+                long expected =
+                        BigDecimal.valueOf(value, 1)
+                                .setScale(0, RoundingMode.HALF_UP)
+                                .unscaledValue()
+                                .longValueExact();
+                assertEquals(expected, Decimals.rescale(value, 1, 0));
+            }
+            assertEquals(-9, Decimals.rescale(Long.MIN_VALUE, 18, 0));
+            assertEquals(1_500, Decimals.rescale(15, 1, 3));
+            assertThrows(ArithmeticException.class, () -> Decimals.rescale(Long.MAX_VALUE, 0, 1));
+        }
+
+        @Test
+        @DisplayName("Should add and multiply across scales")
+        void shouldAddAndMultiply() {
+            // 1.25 + 0.125 = 1.375 -> 1.38 at scale 2
+            assertEquals(138, Decimals.add(125, 2, 125, 3, 2));
+            // 101.25 * 3.5 = 354.375 -> 354.38 at scale 2
+            assertEquals(35438, Decimals.multiply(10125, 2, 35, 1, 2));
+            assertThrows(
+                    ArithmeticException.class,
+                    () -> Decimals.multiply(Long.MAX_VALUE, 0, 2, 0, 0));
+            assertThrows(ArithmeticException.class, () -> Decimals.multiply(1, 10, 1, 10, 2));
+        }
+
+        @Test
+        @DisplayName("Should convert to and from double")
+        void shouldConvertDoubles() {
+            assertEquals(12.34, Decimals.toDouble(123400, 4));
+            assertEquals(123400, Decimals.fromDouble(12.34, 4));
+            assertEquals(-3, Decimals.fromDouble(-2.5, 0));
+            assertThrows(ArithmeticException.class, () -> Decimals.fromDouble(Double.NaN, 2));
+            assertThrows(ArithmeticException.class, () -> Decimals.fromDouble(1e18, 2));
+        }
+
+        private static String format(long unscaled, int scale) {
+            return Decimals.formatTo(unscaled, scale, new StringBuilder()).toString();
+        }
+    }
+
+    @Nested
+    @DisplayName("Timestamps")
+    class TimestampTests {
+
+        @Test
+        @DisplayName("Should format nanosecond timestamps like Instant")
+        void shouldFormatNanos() {
+            long[] samples = {
+                0, 1, -1, 1_709_285_400_000_000_001L, 951_782_400_123_456_789L, Long.MIN_VALUE,
+                Long.MAX_VALUE
+            };
+            for (long nanos : samples) {
+                Instant instant =
+                        Instant.ofEpochSecond(
+                                Math.floorDiv(nanos, Timestamps.NANOS_PER_SECOND),
+                                Math.floorMod(nanos, Timestamps.NANOS_PER_SECOND));
+                String text = Timestamps.formatIso8601(nanos, new StringBuilder()).toString();
+                assertEquals(instant, Instant.parse(text));
+                assertEquals(30, text.length());
+                assertEquals(nanos, Timestamps.parseIso8601(text));
+            }
+            assertEquals(
+                    "2024-03-01T09:30:00.000000001Z",
+                    Timestamps.formatIso8601(1_709_285_400_000_000_001L, new StringBuilder())
+                            .toString());
+        }
+
+        @Test
+        @DisplayName("Should format millisecond timestamps across the calendar")
+        void shouldFormatMillis() {
+            StringBuilder text = new StringBuilder();
+            for (long millis = -62_135_596_800_000L; millis < 253_402_300_800_000L; ) {
+                text.setLength(0);
+                Timestamps.formatIso8601Millis(millis, text);
+                assertEquals(Instant.ofEpochMilli(millis), Instant.parse(text));
+                millis += 86_399_999L * 37;
+            }
+            text.setLength(0);
+            assertEquals(
+                    "+10000-01-01T00:00:00.000Z",
+                    Timestamps.formatIso8601Millis(253_402_300_800_000L, text).toString());
+        }
+
+        @Test
+        @DisplayName("Should parse short fractions and reject invalid dates")
+        void shouldParse() {
+            assertEquals(500_000_000L, Timestamps.parseIso8601("1970-01-01T00:00:00.5Z"));
+            assertEquals(-1_000_000_000L, Timestamps.parseIso8601("1969-12-31T23:59:59Z"));
+            assertEquals(
+                    Instant.parse("2000-02-29T12:00:00Z").getEpochSecond()
+                            * Timestamps.NANOS_PER_SECOND,
+                    Timestamps.parseIso8601("2000-02-29T12:00:00Z"));
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () -> Timestamps.parseIso8601("2023-02-29T12:00:00Z"));
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () -> Timestamps.parseIso8601("2023-01-01 12:00:00Z"));
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () -> Timestamps.parseIso8601("2023-01-01T12:00:00.1234567890Z"));
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () -> Timestamps.parseIso8601("3000-01-01T00:00:00Z"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Uuids")
+    class UuidTests {
+
+        @Test
+        @DisplayName("Should format and parse like java.util.UUID")
+        void shouldRoundTrip() {
+            UUID[] samples = {
+                UUID.fromString("123e4567-e89b-12d3-a456-426614174000"),
+                new UUID(0, 0),
+                new UUID(-1, -1),
+                new UUID(0x0123_4567_89AB_CDEFL, 0xFEDC_BA98_7654_3210L)
+            };
+            for (UUID uuid : samples) {
+                String text =
+                        Uuids.formatTo(
+                                        uuid.getMostSignificantBits(),
+                                        uuid.getLeastSignificantBits(),
+                                        new StringBuilder())
+                                .toString();
+                assertEquals(uuid.toString(), text);
+                assertEquals(uuid.getMostSignificantBits(), Uuids.parseMsb(text));
+                assertEquals(uuid.getLeastSignificantBits(), Uuids.parseLsb(text));
+            }
+            assertEquals(
+                    0x123e4567e89b12d3L, Uuids.parseMsb("123E4567-E89B-12D3-A456-426614174000"));
+        }
+
+        @Test
+        @DisplayName("Should reject malformed text")
+        void shouldRejectMalformed() {
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () -> Uuids.parseMsb("123e4567e89b12d3a456426614174000"));
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () -> Uuids.parseLsb("123e4567-e89b-12d3-a456-42661417400g"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Ascii")
+    class AsciiTests {
+
+        @Test
+        @DisplayName("Should pack text so that words order like the text")
+        void shouldPackInOrder() {
+            assertEquals(0x4141_504C_0000_0000L, Ascii.pack8("AAPL"));
+            assertEquals(0, Ascii.pack8(""));
+            assertTrue(Ascii.pack8("AAPL") < Ascii.pack8("AAPLX"));
+            assertTrue(Ascii.pack8("AAPL") < Ascii.pack8("MSFT"));
+            assertEquals(4, Ascii.packedLength(Ascii.pack8("AAPL")));
+            assertEquals(8, Ascii.packedLength(Ascii.pack8("~~~~~~~~")));
+            assertEquals(0, Ascii.packedLength(0));
+        }
+
+        @Test
+        @DisplayName("Should split sixteen characters across two words")
+        void shouldPack16() {
+            String isin = "US0378331005";
+            long hi = Ascii.pack16Hi(isin);
+            long lo = Ascii.pack16Lo(isin);
+            assertEquals(Ascii.pack8("US037833"), hi);
+            assertEquals(Ascii.pack8("1005"), lo);
+            assertEquals(isin, Ascii.appendPacked16(hi, lo, new StringBuilder()).toString());
+            assertEquals("", Ascii.appendPacked16(0, 0, new StringBuilder()).toString());
+        }
+
+        @Test
+        @DisplayName("Should encode one byte per character")
+        void shouldEncode() {
+            MemorySegment segment = MemorySegment.ofArray(new byte[8]);
+            assertEquals(4, Ascii.encode("XNAS", segment, 2));
+            assertEquals('X', segment.get(ValueLayout.JAVA_BYTE, 2));
+            assertEquals('S', segment.get(ValueLayout.JAVA_BYTE, 5));
+        }
+
+        @Test
+        @DisplayName("Should reject non-ASCII, NUL and overlong text")
+        void shouldReject() {
+            MemorySegment segment = MemorySegment.ofArray(new byte[8]);
+            assertThrows(IllegalArgumentException.class, () -> Ascii.encode("é", segment, 0));
+            assertThrows(IllegalArgumentException.class, () -> Ascii.pack8("A\0B"));
+            assertThrows(IllegalArgumentException.class, () -> Ascii.pack8("123456789"));
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () -> Ascii.pack16Lo("12345678901234567"));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package express.mvp.myra.codec.runtime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/** Tests for SegmentContent equality, ordering and hashing. */
+@DisplayName("SegmentContent Tests")
+class SegmentContentTest {
+
+    private static MemorySegment bytes(String value) {
+        return MemorySegment.ofArray(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Should match XXH64 reference values")
+    void shouldMatchReferenceHashes() {
+        MemorySegment text = bytes("Nobody inspects the spammish repetition");
+
+        assertEquals(0xEF46DB3751D8E999L, SegmentContent.hash(bytes(""), 0, 0, 0));
+        assertEquals(0x44BC2CF5AD770999L, SegmentContent.hash(bytes("abc"), 0, 3, 0));
+        assertEquals(0xFBCEA83C8A378BF1L, SegmentContent.hash(text, 0, text.byteSize(), 0));
+    }
+
+    @Test
+    @DisplayName("Should hash equal regions at different offsets identically")
+    void shouldHashByContent() {
+        MemorySegment a = bytes("--payload");
+        MemorySegment b = bytes("payload++++");
+
+        assertEquals(SegmentContent.hash(a, 2, 7, 42), SegmentContent.hash(b, 0, 7, 42));
+        assertNotEquals(SegmentContent.hash(a, 2, 7, 42), SegmentContent.hash(a, 2, 7, 43));
+    }
+
+    @Test
+    @DisplayName("Should compare regions by length and bytes")
+    void shouldCompareEquality() {
+        MemorySegment a = bytes("abc");
+        MemorySegment b = bytes("xabcd");
+
+        assertTrue(SegmentContent.equals(a, 0, b, 1, 3));
+        assertTrue(SegmentContent.equals(a, 0, 3, b, 1, 3));
+        assertFalse(SegmentContent.equals(a, 0, 3, b, 1, 2));
+        assertFalse(SegmentContent.equals(a, 0, b, 2, 3));
+    }
+
+    @Test
+    @DisplayName("Should order by unsigned bytes, shorter prefix first")
+    void shouldOrderLexicographically() {
+        MemorySegment ab = bytes("ab");
+        MemorySegment abc = bytes("abc");
+        MemorySegment high = MemorySegment.ofArray(new byte[] {(byte) 0xC3});
+
+        assertTrue(SegmentContent.compare(ab, 0, 2, abc, 0, 3) < 0);
+        assertTrue(SegmentContent.compare(abc, 0, 3, ab, 0, 2) > 0);
+        assertEquals(0, SegmentContent.compare(ab, 0, 2, abc, 0, 2));
+        assertTrue(SegmentContent.compare(abc, 0, 1, high, 0, 1) < 0);
+    }
+}
@@ -0,0 +1,226 @@
+package express.mvp.myra.codec.runtime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import express.mvp.myra.codec.runtime.struct.MessageHeader;
+import express.mvp.roray.ffm.utils.memory.Layouts;
+import express.mvp.roray.ffm.utils.memory.MemorySegmentPool;
+import express.mvp.roray.ffm.utils.memory.Utf8View;
+import java.lang.foreign.MemorySegment;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/** Tests for the StringDictionaryEncoder / StringDictionaryDecoder pair. */
+@DisplayName("String Dictionary Tests")
+class StringDictionaryTest {
+
+    private final MessageEncoder encoder = new MessageEncoder(new MemorySegmentPool(1024, 1, 4));
+
+    @Nested
+    @DisplayName("Encoder")
+    class EncoderTests {
+
+        @Test
+        @DisplayName("Should assign dense ids and reuse them for repeated strings")
+        void shouldAssignDenseIds() {
+            StringDictionaryEncoder dictionary = new StringDictionaryEncoder();
+
+            assertEquals(0, dictionary.idOf("XNAS"));
+            assertEquals(1, dictionary.idOf("AAPL"));
+            assertEquals(0, dictionary.idOf("XNAS"));
+            assertEquals(2, dictionary.size());
+        }
+
+        @Test
+        @DisplayName("Should clear pending entries once an update is encoded")
+        void shouldClearPendingAfterUpdate() {
+            StringDictionaryEncoder dictionary = new StringDictionaryEncoder();
+            dictionary.idOf("XNAS");
+            assertTrue(dictionary.hasPendingUpdates());
+
+            try (PooledSegment update = dictionary.encodeUpdate(encoder, (short) 1)) {
+                MessageHeader header = new MessageHeader();
+                header.wrap(update.segment(), 0);
+                assertEquals(StringDictionaryEncoder.UPDATE_TEMPLATE_ID, header.getTemplateId());
+                assertEquals(MessageHeader.HEADER_SIZE + 4 + 8 + 4, header.getFrameLength());
+            }
+
+            assertFalse(dictionary.hasPendingUpdates());
+            dictionary.idOf("XNAS");
+            assertFalse(dictionary.hasPendingUpdates());
+            assertThrows(
+                    IllegalStateException.class, () -> dictionary.encodeUpdate(encoder, (short) 1));
+        }
+
+        @Test
+        @DisplayName("Should reject new strings once full")
+        void shouldRejectWhenFull() {
+            StringDictionaryEncoder dictionary = new StringDictionaryEncoder(1);
+            dictionary.idOf("XNAS");
+
+            assertEquals(0, dictionary.idOf("XNAS"));
+            assertThrows(IllegalStateException.class, () -> dictionary.idOf("XLON"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Decoder")
+    class DecoderTests {
+
+        @Test
+        @DisplayName("Should resolve ids from successive update frames")
+        void shouldResolveAcrossUpdates() {
+            StringDictionaryEncoder sender = new StringDictionaryEncoder();
+            int venue = sender.idOf("XNAS");
+            try (StringDictionaryDecoder receiver = new StringDictionaryDecoder(16, 64, 1, 4);
+                    PooledSegment first = sender.encodeUpdate(encoder, (short) 1)) {
+                assertEquals(1, receiver.apply(first.segment(), 0));
+
+                int symbol = sender.idOf("BRK.B");
+                try (PooledSegment second = sender.encodeUpdate(encoder, (short) 1)) {
+                    receiver.apply(second.segment(), 0);
+                }
+
+                Utf8View view = new Utf8View();
+                assertEquals("XNAS", receiver.resolve(venue, view).toString());
+                assertEquals("BRK.B", receiver.resolve(symbol, view).toString());
+                assertEquals(2, receiver.size());
+            }
+        }
+
+        @Test
+        @DisplayName("Should reuse its table across repeated resets")
+        void shouldReuseTableAcrossResets() {
+            StringDictionaryEncoder sender = new StringDictionaryEncoder();
+            try (StringDictionaryDecoder receiver = new StringDictionaryDecoder(16, 1024, 4, 64)) {
+                Utf8View earlier = new Utf8View();
+                for (int i = 0; i < 10_000; i++) {
+                    sender.reset();
+                    receiver.reset();
+                    assertFalse(receiver.contains(0));
+
+                    int id = sender.idOf("VENUE-" + (i % 10));
+                    try (PooledSegment update = sender.encodeUpdate(encoder, (short) 1)) {
+                        receiver.apply(update.segment(), 0);
+                    }
+                    assertEquals(1, receiver.size());
+                    assertEquals(
+                            "VENUE-" + (i % 10), receiver.resolve(id, new Utf8View()).toString());
+                    if (i == 0) {
+                        receiver.resolve(id, earlier);
+                    }
+                }
+                // The first view still reads the same, reused bytes rather than a freed segment.
+                assertEquals("VENUE-9", earlier.toString());
+            }
+        }
+
+        @Test
+        @DisplayName("Should free the segments it outgrows")
+        void shouldFreeOutgrownSegments() {
+            StringDictionaryEncoder sender = new StringDictionaryEncoder();
+            int venue = sender.idOf("XNAS");
+            try (StringDictionaryDecoder receiver = new StringDictionaryDecoder(16, 64, 1, 4)) {
+                try (PooledSegment update = sender.encodeUpdate(encoder, (short) 1)) {
+                    receiver.apply(update.segment(), 0);
+                }
+                Utf8View before = receiver.resolve(venue, new Utf8View());
+
+                int symbol = sender.idOf("BRK.B");
+                try (PooledSegment update = sender.encodeUpdate(encoder, (short) 1)) {
+                    receiver.apply(update.segment(), 0);
+                }
+
+                assertThrows(IllegalStateException.class, before::toString);
+                assertEquals("XNAS", receiver.resolve(venue, new Utf8View()).toString());
+                assertEquals("BRK.B", receiver.resolve(symbol, new Utf8View()).toString());
+            }
+        }
+
+        @Test
+        @DisplayName("Should reject unknown ids and non-update frames")
+        void shouldRejectUnknownIds() {
+            StringDictionaryEncoder sender = new StringDictionaryEncoder();
+            sender.idOf("XNAS");
+            try (StringDictionaryDecoder receiver = new StringDictionaryDecoder();
+                    PooledSegment update = sender.encodeUpdate(encoder, (short) 1)) {
+                assertFalse(receiver.contains(0));
+                assertThrows(
+                        IllegalStateException.class, () -> receiver.resolve(0, new Utf8View()));
+
+                MessageHeader header = new MessageHeader();
+                header.wrap(update.segment(), 0);
+                header.setTemplateId((short) 7);
+                assertThrows(
+                        IllegalArgumentException.class,
+                        () -> receiver.apply(update.segment(), 0));
+            }
+        }
+
+        @Test
+        @DisplayName("Should reject truncated update frames before copying")
+        void shouldRejectTruncatedFrames() {
+            StringDictionaryEncoder sender = new StringDictionaryEncoder();
+            sender.idOf("XNAS");
+            try (StringDictionaryDecoder receiver = new StringDictionaryDecoder();
+                    PooledSegment update = sender.encodeUpdate(encoder, (short) 1)) {
+                MessageHeader header = new MessageHeader();
+                header.wrap(update.segment(), 0);
+                int frameLength = header.getFrameLength();
+
+                MemorySegment shortBytes = update.segment().asSlice(0, frameLength - 1);
+                assertThrows(IllegalStateException.class, () -> receiver.apply(shortBytes, 0));
+                MemorySegment shortHeader =
+                        update.segment().asSlice(0, MessageHeader.HEADER_SIZE + 4 + 6);
+                assertThrows(IllegalStateException.class, () -> receiver.apply(shortHeader, 0));
+                assertFalse(receiver.contains(0));
+            }
+        }
+
+        @Test
+        @DisplayName("Should reject negative and oversized entry lengths")
+        void shouldRejectInvalidLengths() {
+            StringDictionaryEncoder sender = new StringDictionaryEncoder();
+            sender.idOf("XNAS");
+            try (StringDictionaryDecoder receiver = new StringDictionaryDecoder();
+                    PooledSegment update = sender.encodeUpdate(encoder, (short) 1)) {
+                MemorySegment frame = update.segment();
+                long lengthOffset = MessageHeader.HEADER_SIZE + 4 + 4;
+
+                frame.set(Layouts.INT_BE, lengthOffset, -1);
+                assertThrows(IllegalStateException.class, () -> receiver.apply(frame, 0));
+                frame.set(Layouts.INT_BE, lengthOffset, Integer.MAX_VALUE);
+                assertThrows(IllegalStateException.class, () -> receiver.apply(frame, 0));
+                assertFalse(receiver.contains(0));
+            }
+        }
+
+        @Test
+        @DisplayName("Should stop at the data limit")
+        void shouldEnforceDataLimit() {
+            StringDictionaryEncoder sender = new StringDictionaryEncoder();
+            sender.idOf("XNAS");
+            try (StringDictionaryDecoder receiver = new StringDictionaryDecoder(16, 8, 1, 4)) {
+                try (PooledSegment update = sender.encodeUpdate(encoder, (short) 1)) {
+                    receiver.apply(update.segment(), 0);
+                }
+                sender.idOf("BRK.B");
+                try (PooledSegment update = sender.encodeUpdate(encoder, (short) 1)) {
+                    assertThrows(
+                            IllegalStateException.class,
+                            () -> receiver.apply(update.segment(), 0));
+                }
+
+                // A reset frees the budget for the next generation of entries.
+                receiver.reset();
+                sender.reset();
+                sender.idOf("BRK.B");
+                try (PooledSegment update = sender.encodeUpdate(encoder, (short) 1)) {
+                    receiver.apply(update.segment(), 0);
+                }
+                assertEquals("BRK.B", receiver.resolve(0, new Utf8View()).toString());
+            }
+        }
+    }
+}
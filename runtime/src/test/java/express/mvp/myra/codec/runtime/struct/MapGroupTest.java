@@ -0,0 +1,273 @@
+package express.mvp.myra.codec.runtime.struct;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import express.mvp.roray.ffm.utils.memory.Layouts;
+import express.mvp.roray.ffm.utils.memory.Utf8View;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/** Tests for MapGroupBuilder and MapGroupView. */
+@DisplayName("Map Group Tests")
+class MapGroupTest {
+
+    @Nested
+    @DisplayName("Sorted Maps")
+    class SortedMapTests {
+
+        @Test
+        @DisplayName("Should order string keys by UTF-8 bytes and find them by binary search")
+        void shouldOrderStringKeysAndFindThem() {
+            try (Arena arena = Arena.ofConfined()) {
+                MemorySegment segment = arena.allocate(500);
+
+                MapGroupBuilder builder = new MapGroupBuilder(MapGroupView.KeyType.STRING);
+                builder.beginWithCount(segment, 0, 4);
+                builder.putKey("venue").putString("XNAS");
+                builder.putKey("desk").putString("EQ-1");
+                builder.putKey("é").putString("accent");
+                builder.putKey("").putString("empty");
+                builder.finish();
+
+                MapGroupView view = new MapGroupView(MapGroupView.KeyType.STRING);
+                view.wrap(segment, 0);
+                assertEquals(4, view.count());
+                assertFalse(view.hashed());
+
+                Utf8View key = new Utf8View();
+                view.stringKeyAt(0, key);
+                assertEquals("", key.toString());
+                view.stringKeyAt(1, key);
+                assertEquals("desk", key.toString());
+                view.stringKeyAt(3, key);
+                assertEquals("é", key.toString());
+
+                assertEquals("XNAS", stringValue(segment, view.find("venue")));
+                assertEquals("accent", stringValue(segment, view.find("é")));
+                assertEquals("empty", stringValue(segment, view.find("")));
+                assertEquals(-1, view.find("ven"));
+                assertEquals(-1, view.find("venues"));
+            }
+        }
+
+        @Test
+        @DisplayName("Should order integer keys by signed value")
+        void shouldOrderIntegerKeysBySignedValue() {
+            try (Arena arena = Arena.ofConfined()) {
+                MemorySegment segment = arena.allocate(200);
+
+                MapGroupBuilder builder = new MapGroupBuilder(MapGroupView.KeyType.INT32);
+                builder.beginWithCount(segment, 0, 3);
+                builder.putKey(7).putLong(70L);
+                builder.putKey(-3).putLong(-30L);
+                builder.putKey(0).putLong(0L);
+                builder.finish();
+
+                MapGroupView view = new MapGroupView(MapGroupView.KeyType.INT32);
+                view.wrap(segment, 0);
+                assertEquals(-3, view.longKeyAt(0));
+                assertEquals(0, view.longKeyAt(1));
+                assertEquals(7, view.longKeyAt(2));
+                assertEquals(70L, segment.get(Layouts.LONG_BE, view.find(7)));
+                assertEquals(-30L, segment.get(Layouts.LONG_BE, view.valueOffset(0)));
+                assertEquals(-1, view.find(1));
+            }
+        }
+
+        @Test
+        @DisplayName("Should encode equal maps identically whatever the insertion order")
+        void shouldEncodeEqualMapsIdentically() {
+            try (Arena arena = Arena.ofConfined()) {
+                MemorySegment first = arena.allocate(200);
+                MemorySegment second = arena.allocate(200);
+
+                MapGroupBuilder builder = new MapGroupBuilder(MapGroupView.KeyType.STRING);
+                builder.beginWithCount(first, 0, 3);
+                builder.putKey("b").putString("two");
+                builder.putKey("a").putString("one");
+                builder.putKey("c").putString("three");
+                int firstSize = builder.finish();
+
+                builder.beginWithCount(second, 0, 3);
+                builder.putKey("c").putString("three");
+                builder.putKey("a").putString("one");
+                builder.putKey("b").putString("two");
+                int secondSize = builder.finish();
+
+                assertEquals(firstSize, secondSize);
+                assertEquals(
+                        -1,
+                        first.asSlice(0, firstSize).mismatch(second.asSlice(0, secondSize)));
+            }
+        }
+
+        @Test
+        @DisplayName("Should handle empty map")
+        void shouldHandleEmptyMap() {
+            try (Arena arena = Arena.ofConfined()) {
+                MemorySegment segment = arena.allocate(100);
+
+                MapGroupBuilder builder = new MapGroupBuilder(MapGroupView.KeyType.STRING);
+                builder.beginWithCount(segment, 0, 0);
+                assertEquals(MapGroupView.HEADER_SIZE, builder.finish());
+
+                MapGroupView view = new MapGroupView(MapGroupView.KeyType.STRING);
+                view.wrap(segment, 0);
+                assertEquals(0, view.count());
+                assertEquals(-1, view.find("any"));
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Hashed Maps")
+    class HashedMapTests {
+
+        @Test
+        @DisplayName("Should index string keys above the sorted threshold")
+        void shouldIndexStringKeys() {
+            try (Arena arena = Arena.ofConfined()) {
+                MemorySegment segment = arena.allocate(8192);
+                int count = 100;
+
+                MapGroupBuilder builder = new MapGroupBuilder(MapGroupView.KeyType.STRING);
+                builder.beginWithCount(segment, 16, count);
+                for (int i = count - 1; i >= 0; i--) {
+                    builder.putKey("key-" + i).putInt(i);
+                }
+                builder.finish();
+
+                MapGroupView view = new MapGroupView(MapGroupView.KeyType.STRING);
+                view.wrap(segment, 16);
+                assertTrue(view.hashed());
+                for (int i = 0; i < count; i++) {
+                    assertEquals(i, segment.get(Layouts.INT_BE, view.find("key-" + i)));
+                }
+                assertEquals(-1, view.find("key-100"));
+                assertEquals(-1, view.find("key-"));
+
+                Utf8View key = new Utf8View();
+                view.stringKeyAt(0, key);
+                assertEquals("key-0", key.toString());
+                view.stringKeyAt(1, key);
+                assertEquals("key-1", key.toString());
+                view.stringKeyAt(2, key);
+                assertEquals("key-10", key.toString());
+            }
+        }
+
+        @Test
+        @DisplayName("Should index int64 keys above the sorted threshold")
+        void shouldIndexLongKeys() {
+            try (Arena arena = Arena.ofConfined()) {
+                MemorySegment segment = arena.allocate(4096);
+                int count = 40;
+
+                MapGroupBuilder builder = new MapGroupBuilder(MapGroupView.KeyType.INT64);
+                builder.beginWithCount(segment, 0, count);
+                for (int i = 0; i < count; i++) {
+                    builder.putKey((long) i << 40).putBoolean(i % 2 == 0);
+                }
+                builder.finish();
+
+                MapGroupView view = new MapGroupView(MapGroupView.KeyType.INT64);
+                view.wrap(segment, 0);
+                assertTrue(view.hashed());
+                for (int i = 0; i < count; i++) {
+                    long value = view.find((long) i << 40);
+                    assertEquals(i % 2 == 0, segment.get(Layouts.BOOLEAN, value));
+                }
+                assertEquals(-1, view.find(1L));
+            }
+        }
+
+        @Test
+        @DisplayName("Should find string keys given as bytes or views")
+        void shouldFindKeysGivenAsBytes() {
+            try (Arena arena = Arena.ofConfined()) {
+                MemorySegment segment = arena.allocate(8192);
+                MemorySegment keys = arena.allocate(64);
+                Utf8View key = new Utf8View();
+
+                for (int count : new int[] {4, 100}) {
+                    MapGroupBuilder builder = new MapGroupBuilder(MapGroupView.KeyType.STRING);
+                    builder.beginWithCount(segment, 0, count);
+                    for (int i = 0; i < count; i++) {
+                        builder.putKey("key-é" + i).putInt(i);
+                    }
+                    builder.finish();
+                    MapGroupView view = new MapGroupView(MapGroupView.KeyType.STRING);
+                    view.wrap(segment, 0);
+
+                    for (int i = 0; i < count; i++) {
+                        byte[] utf8 = ("key-é" + i).getBytes(StandardCharsets.UTF_8);
+                        // Offset 3 checks the key is read relative to its own offset.
+                        MemorySegment.copy(utf8, 0, keys, Layouts.BYTE, 3, utf8.length);
+                        key.wrap(keys, 3, utf8.length);
+                        assertEquals(view.find("key-é" + i), view.find(keys, 3, utf8.length));
+                        assertEquals(i, segment.get(Layouts.INT_BE, view.find(key)));
+                    }
+                    byte[] prefix = "key-é".getBytes(StandardCharsets.UTF_8);
+                    MemorySegment.copy(prefix, 0, keys, Layouts.BYTE, 0, prefix.length);
+                    assertEquals(-1, view.find(keys, 0, prefix.length));
+                    assertEquals(-1, view.find(keys, 0, 0));
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("Should hash a String the same as its UTF-8 bytes")
+        void shouldHashStringLikeItsBytes() {
+            String key = "prix-€-😀";
+            MemorySegment bytes = MemorySegment.ofArray(key.getBytes(StandardCharsets.UTF_8));
+
+            assertEquals(
+                    MapGroupView.hash(bytes, 0, (int) bytes.byteSize()), MapGroupView.hash(key));
+        }
+    }
+
+    @Nested
+    @DisplayName("Error Handling")
+    class ErrorHandlingTests {
+
+        @Test
+        @DisplayName("Should reject duplicate keys")
+        void shouldRejectDuplicateKeys() {
+            try (Arena arena = Arena.ofConfined()) {
+                MemorySegment segment = arena.allocate(200);
+
+                MapGroupBuilder builder = new MapGroupBuilder(MapGroupView.KeyType.STRING);
+                builder.beginWithCount(segment, 0, 2);
+                builder.putKey("a").putInt(1);
+                builder.putKey("a").putInt(2);
+
+                assertThrows(IllegalArgumentException.class, builder::finish);
+            }
+        }
+
+        @Test
+        @DisplayName("Should require a value after each key")
+        void shouldRequireValueAfterKey() {
+            try (Arena arena = Arena.ofConfined()) {
+                MemorySegment segment = arena.allocate(200);
+
+                MapGroupBuilder builder = new MapGroupBuilder(MapGroupView.KeyType.INT32);
+                builder.beginWithCount(segment, 0, 2);
+                builder.putKey(1);
+
+                assertThrows(IllegalStateException.class, () -> builder.putKey(2));
+                assertThrows(IllegalStateException.class, builder::finish);
+            }
+        }
+    }
+
+    private static String stringValue(MemorySegment segment, long valueOffset) {
+        Utf8View view = new Utf8View();
+        view.wrap(segment, valueOffset + 4, segment.get(Layouts.INT_BE, valueOffset));
+        return view.toString();
+    }
+}
@@ -1,7 +1,10 @@
 package express.mvp.myra.codec.codegen.resolver;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 public final class LockFile {
 
@@ -13,6 +16,35 @@ public final class LockFile {
     public static class MessageLock {
         public int id;
         public Map<String, Integer> fields = new HashMap<>();
+
+        /** Fixed-block layout at the locked schema version; null in older lock files. */
+        public LayoutLock layout;
+
+        /**
+         * Layouts at earlier schema versions, keyed by {@code major.minor}, so transcoders from
+         * every recorded version can be regenerated on each run.
+         */
+        public Map<String, LayoutLock> previousLayouts = new TreeMap<>();
+    }
+
+    /** Recorded {@link MessageLayout} of a message, used to generate version transcoders. */
+    public static class LayoutLock {
+        /** Whether the message was laid out with {@code layout: aligned}. */
+        public boolean aligned;
+
+        public int presenceBytes;
+        public int blockLength;
+        public List<SlotLock> fields = new ArrayList<>();
+    }
+
+    /** Recorded {@link MessageLayout.Slot}. */
+    public static class SlotLock {
+        public String name;
+        public String encoding;
+        public int offset;
+        public int size;
+        public boolean variable;
+        public int presenceBit = -1;
     }
 
     public static class EnumLock {
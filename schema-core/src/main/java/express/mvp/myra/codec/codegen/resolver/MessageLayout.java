@@ -0,0 +1,724 @@
+package express.mvp.myra.codec.codegen.resolver;
+
+import express.mvp.myra.codec.schema.EnumValueDefinition;
+import express.mvp.myra.codec.schema.MapType;
+import express.mvp.myra.codec.schema.RichType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * The binary layout of a message's fixed block: presence bytes, then fixed-size fields in
+ * declaration order, then an 8-byte {@code [relOffset][length]} header per variable-length field.
+ * Fixed fields marked {@code hot: true} are placed ahead of the others, so that together with the
+ * presence bytes they fit the block's first {@link #CACHE_LINE_SIZE} bytes.
+ *
+ * <p>Messages declared with {@code layout: aligned} instead place fixed fields by descending
+ * natural alignment (8, 4, 2, 1; declaration order within a size) and pad each to its alignment,
+ * start the var-field headers on an 8-byte boundary and round the block length up to a multiple of
+ * 8. A block that starts 8-byte aligned then has every {@code int64}/{@code float64} slot 8-byte
+ * aligned, which lets generated flyweights use aligned value layouts.
+ *
+ * <p>Messages declared with {@code bitfields: true} pack their {@code bool} fields and enums of at
+ * most {@link #MAX_PACKED_BITS} bits into one bitfield word of 1, 2, 4 or 8 bytes, placed right
+ * after the presence bytes. Members take bits from the least significant end in declaration order;
+ * each member's slot spans the whole word and its encoding records its width and shift, e.g.
+ * {@code bool:1@0} or {@code int8:3@1}. Fields that no longer fit in 64 bits keep their own slot.
+ *
+ * <p>Messages declared with {@code sparse: true} store optional scalar fields only when present.
+ * The block reserves an 8-byte {@code [relOffset][length]} header for the sparse region right after
+ * the presence bytes, followed by one int32 per further 64-bit presence word holding the region
+ * bytes that precede that word's members. Present members follow the var data in presence-bit
+ * order; a member's address is the header offset, its word's entry, and the sizes of the lower
+ * present members of its word, counted with {@link Long#bitCount} over {@link
+ * #sparseRankMasks(Slot)}. Sparse slots record their offset within a fully populated region and
+ * encodings such as {@code sparse:int64}.
+ *
+ * <p>Each oneof group adds a 1-byte discriminator slot named {@code <group>Case} with encoding
+ * {@code oneof-case} after the fixed fields, and a var-field header named after the group with
+ * encoding {@code oneof} after the other var-field headers. The header points at the value of the
+ * selected option.
+ *
+ * <p>This is the single source of truth for field placement. The stub generator derives its
+ * {@code *_OFFSET} constants from it, the resolver records it in the lock file, and the transcoder
+ * generator diffs the recorded layout of the previous schema version against the current one.
+ */
+public final class MessageLayout {
+
+    /** Size in bytes of the {@code [relOffset:int32][length:int32]} header of a var field. */
+    public static final int VAR_HEADER_SIZE = 8;
+
+    /** Cache-line size assumed for hot-field placement and layout reports. */
+    public static final int CACHE_LINE_SIZE = 64;
+
+    /** Widest enum, in bits, that {@code bitfields: true} packs into the bitfield word. */
+    public static final int MAX_PACKED_BITS = 4;
+
+    private static final String SPARSE_PREFIX = "sparse:";
+
+    /**
+     * Placement of a single field in the fixed block.
+     *
+     * @param name the field name
+     * @param encoding a stable description of the field's wire encoding; two slots with equal
+     *     encodings hold byte-compatible data
+     * @param offset offset of the slot from the start of the message
+     * @param size slot size in bytes ({@link #VAR_HEADER_SIZE} for var fields)
+     * @param variable whether the slot is a var-field header pointing into the data region
+     * @param presenceBit the optional-field presence bit, or -1 for required fields
+     */
+    public record Slot(
+            String name,
+            String encoding,
+            int offset,
+            int size,
+            boolean variable,
+            int presenceBit) {
+
+        /**
+         * Returns whether this slot is a member of the bitfield word.
+         *
+         * @return true for encodings of the form {@code type:width@shift}
+         */
+        public boolean packed() {
+            return encoding.indexOf('@') >= 0;
+        }
+
+        /**
+         * Returns whether this slot is a member of the sparse region.
+         *
+         * @return true for encodings of the form {@code sparse:type}
+         */
+        public boolean sparse() {
+            return encoding.startsWith(SPARSE_PREFIX);
+        }
+
+        /**
+         * Returns the underlying type of the value, e.g. {@code bool} or {@code int8}. For slots
+         * that are neither packed nor sparse this is the encoding itself.
+         *
+         * @return the value type
+         */
+        public String valueType() {
+            if (sparse()) {
+                return encoding.substring(SPARSE_PREFIX.length());
+            }
+            return packed() ? encoding.substring(0, encoding.indexOf(':')) : encoding;
+        }
+
+        /**
+         * Returns the number of bits a packed member occupies.
+         *
+         * @return the width in bits
+         */
+        public int bitWidth() {
+            return Integer.parseInt(
+                    encoding.substring(encoding.indexOf(':') + 1, encoding.indexOf('@')));
+        }
+
+        /**
+         * Returns the position of a packed member's least significant bit within the word.
+         *
+         * @return the shift in bits
+         */
+        public int bitShift() {
+            return Integer.parseInt(encoding.substring(encoding.indexOf('@') + 1));
+        }
+
+        /**
+         * Returns the integer type of the bitfield word a packed member lives in.
+         *
+         * @return {@code int8}, {@code int16}, {@code int32} or {@code int64}
+         */
+        public String wordType() {
+            return switch (size) {
+                case 1 -> "int8";
+                case 2 -> "int16";
+                case 4 -> "int32";
+                default -> "int64";
+            };
+        }
+    }
+
+    private final boolean aligned;
+    private final int presenceBytes;
+    private final int blockLength;
+    private final List<Slot> slots;
+    private final Map<String, Slot> slotsByName;
+
+    private MessageLayout(boolean aligned, int presenceBytes, int blockLength, List<Slot> slots) {
+        this.aligned = aligned;
+        this.presenceBytes = presenceBytes;
+        this.blockLength = blockLength;
+        this.slots = Collections.unmodifiableList(slots);
+        this.slotsByName = new LinkedHashMap<>();
+        for (Slot slot : slots) {
+            slotsByName.put(slot.name(), slot);
+        }
+    }
+
+    /**
+     * Computes the layout of a resolved message.
+     *
+     * @param schema the schema the message belongs to (used to resolve enum and message types)
+     * @param message the message to lay out
+     * @return the computed layout
+     */
+    public static MessageLayout of(
+            ResolvedSchemaDefinition schema, ResolvedMessageDefinition message) {
+        Objects.requireNonNull(schema, "schema");
+        List<ResolvedFieldDefinition> fields = message.fields();
+        int optionalCount = (int) fields.stream().filter(ResolvedFieldDefinition::optional).count();
+        int presenceBytes = optionalCount == 0 ? 0 : (optionalCount + 7) / 8;
+
+        Map<String, Integer> presenceBits = new LinkedHashMap<>();
+        for (ResolvedFieldDefinition field : fields) {
+            if (field.optional()) {
+                presenceBits.put(field.name(), presenceBits.size());
+            }
+        }
+
+        // Bitfield members, in declaration order: name -> {shift, width}.
+        Map<String, int[]> packed = new LinkedHashMap<>();
+        int packedBits = 0;
+        if (message.bitfields()) {
+            for (ResolvedFieldDefinition field : fields) {
+                int width = packedWidth(schema, field);
+                if (width > 0 && packedBits + width <= Long.SIZE) {
+                    packed.put(field.name(), new int[] {packedBits, width});
+                    packedBits += width;
+                }
+            }
+        }
+
+        List<ResolvedFieldDefinition> sparseFields = new ArrayList<>();
+        List<ResolvedFieldDefinition> fixedFields = new ArrayList<>();
+        for (ResolvedFieldDefinition field : fields) {
+            if (packed.containsKey(field.name())) {
+                continue;
+            }
+            if (message.sparse() && isSparseEligible(schema, field)) {
+                sparseFields.add(field);
+            } else if (isFixedSize(schema, field)) {
+                fixedFields.add(field);
+            }
+        }
+        // Stable sort: hot fields first, then (aligned mode) by descending alignment; fields
+        // that tie keep their declaration order.
+        Comparator<ResolvedFieldDefinition> placement =
+                Comparator.comparingInt(f -> f.hot() ? 0 : 1);
+        if (message.aligned()) {
+            placement = placement.thenComparingInt(f -> -alignment(schema, f));
+        }
+        fixedFields.sort(placement);
+
+        List<Slot> slots = new ArrayList<>();
+        int offset = presenceBytes;
+        if (!sparseFields.isEmpty()) {
+            int lastBit = presenceBits.get(sparseFields.getLast().name());
+            offset += VAR_HEADER_SIZE + Integer.BYTES * (lastBit / Long.SIZE);
+        }
+        if (!packed.isEmpty()) {
+            // Bytes needed, rounded up to a power of two so the word is one load.
+            int wordSize = Integer.highestOneBit((packedBits + 7) / 8 * 2 - 1);
+            if (message.aligned()) {
+                offset = alignUp(offset, wordSize);
+            }
+            for (ResolvedFieldDefinition field : fields) {
+                int[] bits = packed.get(field.name());
+                if (bits != null) {
+                    slots.add(
+                            new Slot(
+                                    field.name(),
+                                    encoding(schema, field) + ":" + bits[1] + "@" + bits[0],
+                                    offset,
+                                    wordSize,
+                                    false,
+                                    presenceBits.getOrDefault(field.name(), -1)));
+                }
+            }
+            offset += wordSize;
+        }
+        for (ResolvedFieldDefinition field : fixedFields) {
+            int size = fixedSize(schema, field);
+            if (message.aligned()) {
+                offset = alignUp(offset, alignment(schema, field));
+            }
+            slots.add(
+                    new Slot(
+                            field.name(),
+                            encoding(schema, field),
+                            offset,
+                            size,
+                            false,
+                            presenceBits.getOrDefault(field.name(), -1)));
+            offset += size;
+        }
+        for (ResolvedOneofDefinition oneof : message.oneofs()) {
+            slots.add(new Slot(oneof.caseName(), "oneof-case", offset, 1, false, -1));
+            offset += 1;
+        }
+        if (message.aligned()) {
+            offset = alignUp(offset, Long.BYTES);
+        }
+        for (ResolvedFieldDefinition field : fields) {
+            if (!isFixedSize(schema, field)) {
+                slots.add(
+                        new Slot(
+                                field.name(),
+                                encoding(schema, field),
+                                offset,
+                                VAR_HEADER_SIZE,
+                                true,
+                                presenceBits.getOrDefault(field.name(), -1)));
+                offset += VAR_HEADER_SIZE;
+            }
+        }
+        for (ResolvedOneofDefinition oneof : message.oneofs()) {
+            slots.add(new Slot(oneof.name(), "oneof", offset, VAR_HEADER_SIZE, true, -1));
+            offset += VAR_HEADER_SIZE;
+        }
+        int sparseOffset = 0;
+        for (ResolvedFieldDefinition field : sparseFields) {
+            int size = fixedSize(schema, field);
+            slots.add(
+                    new Slot(
+                            field.name(),
+                            SPARSE_PREFIX + encoding(schema, field),
+                            sparseOffset,
+                            size,
+                            false,
+                            presenceBits.get(field.name())));
+            sparseOffset += size;
+        }
+        return new MessageLayout(message.aligned(), presenceBytes, offset, slots);
+    }
+
+    /**
+     * Rebuilds a layout recorded in a lock file.
+     *
+     * @param lock the recorded layout, may be null
+     * @return the layout, or null if none was recorded
+     */
+    public static MessageLayout fromLock(LockFile.LayoutLock lock) {
+        if (lock == null) {
+            return null;
+        }
+        List<Slot> slots = new ArrayList<>();
+        for (LockFile.SlotLock slot : lock.fields) {
+            slots.add(
+                    new Slot(
+                            slot.name,
+                            slot.encoding,
+                            slot.offset,
+                            slot.size,
+                            slot.variable,
+                            slot.presenceBit));
+        }
+        return new MessageLayout(lock.aligned, lock.presenceBytes, lock.blockLength, slots);
+    }
+
+    /**
+     * Converts this layout into its lock-file representation.
+     *
+     * @return a new lock entry
+     */
+    public LockFile.LayoutLock toLock() {
+        LockFile.LayoutLock lock = new LockFile.LayoutLock();
+        lock.aligned = aligned;
+        lock.presenceBytes = presenceBytes;
+        lock.blockLength = blockLength;
+        for (Slot slot : slots) {
+            LockFile.SlotLock slotLock = new LockFile.SlotLock();
+            slotLock.name = slot.name();
+            slotLock.encoding = slot.encoding();
+            slotLock.offset = slot.offset();
+            slotLock.size = slot.size();
+            slotLock.variable = slot.variable();
+            slotLock.presenceBit = slot.presenceBit();
+            lock.fields.add(slotLock);
+        }
+        return lock;
+    }
+
+    /**
+     * Returns the end of the hot region: the offset just past the last slot of a field marked
+     * {@code hot: true}, or 0 when the message has no hot fields.
+     *
+     * @param message the message this layout was computed for
+     * @return the hot region end, relative to the start of the block
+     */
+    public int hotRegionEnd(ResolvedMessageDefinition message) {
+        int end = 0;
+        for (ResolvedFieldDefinition field : message.fields()) {
+            Slot slot = slotsByName.get(field.name());
+            if (field.hot() && slot != null) {
+                end = Math.max(end, slot.offset() + slot.size());
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Returns whether the message uses the naturally aligned layout mode.
+     *
+     * @return true for {@code layout: aligned} messages
+     */
+    public boolean aligned() {
+        return aligned;
+    }
+
+    /**
+     * Returns the number of presence-bitmap bytes at the start of the block.
+     *
+     * @return the presence byte count
+     */
+    public int presenceBytes() {
+        return presenceBytes;
+    }
+
+    /**
+     * Returns the size of the fixed block, including var-field headers.
+     *
+     * @return the block length in bytes
+     */
+    public int blockLength() {
+        return blockLength;
+    }
+
+    /**
+     * Returns every slot: fixed fields first, in block order, then var-field headers, then sparse
+     * members in region order.
+     *
+     * @return an unmodifiable slot list
+     */
+    public List<Slot> slots() {
+        return slots;
+    }
+
+    /**
+     * Returns the offset of the sparse region header: an 8-byte {@code [relOffset][length]} pair
+     * followed by one int32 per further presence word, or -1 when no field is stored sparsely.
+     *
+     * @return the header offset, relative to the start of the block
+     */
+    public int sparseOffset() {
+        return slots.isEmpty() || !slots.getLast().sparse() ? -1 : presenceBytes;
+    }
+
+    /**
+     * Returns the masks that rank a sparse member among the present members of its 64-bit
+     * presence word. The word is read as a big-endian {@code long} at byte {@code 8 * (bit /
+     * 64)}, so presence bit {@code b} lands at position {@code (7 - (b / 8) % 8) * 8 + b % 8}. Each
+     * entry maps a member size to the bits of the lower sparse members of that size; the member's
+     * offset within its word's run is the sum of {@code size * bitCount(word & mask)}.
+     *
+     * @param slot a sparse slot of this layout
+     * @return member size to mask, largest size first; empty for the word's first member
+     */
+    public Map<Integer, Long> sparseRankMasks(Slot slot) {
+        Map<Integer, Long> masks = new TreeMap<>(Comparator.reverseOrder());
+        int word = slot.presenceBit() / Long.SIZE;
+        for (Slot other : slots) {
+            int bit = other.presenceBit();
+            if (other.sparse() && bit / Long.SIZE == word && bit < slot.presenceBit()) {
+                long position = (7 - (bit / 8) % 8) * 8L + bit % 8;
+                masks.merge(other.size(), 1L << position, (a, b) -> a | b);
+            }
+        }
+        return masks;
+    }
+
+    /**
+     * Looks up a slot by field name.
+     *
+     * @param fieldName the field name
+     * @return the slot, or null if the message has no such field
+     */
+    public Slot slot(String fieldName) {
+        return slotsByName.get(fieldName);
+    }
+
+    /**
+     * Layouts are equal when they place every field identically; the mode that produced the
+     * placement is not compared.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MessageLayout other)) {
+            return false;
+        }
+        return presenceBytes == other.presenceBytes
+                && blockLength == other.blockLength
+                && slots.equals(other.slots);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(presenceBytes, blockLength, slots);
+    }
+
+    /**
+     * Returns whether a field lives entirely in the fixed block.
+     *
+     * @param schema the owning schema
+     * @param field the field
+     * @return true for primitives, enums, dictionary ids, fixed-capacity strings and bytes,
+     *     fixed-count arrays, bitsets and inline messages
+     */
+    public static boolean isFixedSize(
+            ResolvedSchemaDefinition schema, ResolvedFieldDefinition field) {
+        if (field.fixedCount() != null || field.bitset()) {
+            return true;
+        }
+        if (field.repeated() || MapType.parse(field.type()) != null) {
+            return false;
+        }
+        if (isMessageType(schema, field.type())) {
+            return field.inline();
+        }
+        if (field.dictionary()) {
+            return true;
+        }
+        String underlyingType = underlyingType(schema, field.type());
+        if (underlyingType.equals("string") || underlyingType.equals("bytes")) {
+            return field.fixedCapacity() != null;
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether a field of a {@code sparse: true} message is stored in the sparse region:
+     * optional, singular scalar and enum fields that are neither hot nor key fields.
+     *
+     * @param schema the owning schema
+     * @param field the field
+     * @return true if the field is only stored when present
+     */
+    public static boolean isSparseEligible(
+            ResolvedSchemaDefinition schema, ResolvedFieldDefinition field) {
+        if (!field.optional() || field.repeated() || field.hot() || field.key()) {
+            return false;
+        }
+        if (field.dictionary() || isMessageType(schema, field.type())) {
+            return false;
+        }
+        return switch (underlyingType(schema, field.type())) {
+            case "bool", "int8", "int16", "int32", "int64", "float32", "float64" -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Returns how many bits a field needs in the bitfield word of a {@code bitfields: true}
+     * message: 1 for {@code bool}, and for enums whose values all lie in {@code [0, 15]} the bits
+     * needed for the largest value (at least 1).
+     *
+     * @param schema the owning schema
+     * @param field the field
+     * @return the width in bits, or 0 if the field is never packed
+     */
+    public static int packedWidth(ResolvedSchemaDefinition schema, ResolvedFieldDefinition field) {
+        if (field.repeated() || field.concurrent()) {
+            return 0;
+        }
+        if (field.type().equals("bool")) {
+            return 1;
+        }
+        ResolvedEnumDefinition enumDef =
+                schema.enums().stream()
+                        .filter(e -> e.name().equals(field.type()))
+                        .findFirst()
+                        .orElse(null);
+        if (enumDef == null || enumDef.values() == null) {
+            return 0;
+        }
+        int max = 0;
+        for (EnumValueDefinition value : enumDef.values()) {
+            if (value.id() < 0) {
+                return 0;
+            }
+            max = Math.max(max, value.id());
+        }
+        int width = Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(max));
+        return width <= MAX_PACKED_BITS ? width : 0;
+    }
+
+    /**
+     * Returns the size of a fixed-size field's slot.
+     *
+     * @param schema the owning schema
+     * @param field the field, which must satisfy {@link #isFixedSize}
+     * @return the slot size in bytes
+     * @throws IllegalArgumentException if the field has no fixed size
+     */
+    public static int fixedSize(ResolvedSchemaDefinition schema, ResolvedFieldDefinition field) {
+        if (field.dictionary()) {
+            return 4;
+        }
+        if (field.inline()) {
+            // The nested block, presence bytes included, is embedded as-is.
+            return of(schema, message(schema, field.type())).blockLength();
+        }
+        if (field.fixedCount() != null) {
+            return field.fixedCount() * elementSize(schema, field);
+        }
+        if (field.bitset()) {
+            return Long.BYTES;
+        }
+        RichType rich = RichType.of(field.type());
+        if (rich != null) {
+            return rich.size();
+        }
+        String underlyingType = underlyingType(schema, field.type());
+        return switch (underlyingType) {
+            case "string", "bytes" -> {
+                if (field.fixedCapacity() == null) {
+                    throw new IllegalArgumentException(
+                            underlyingType
+                                    + " field "
+                                    + field.name()
+                                    + " is missing fixedCapacity");
+                }
+                yield 4 + field.fixedCapacity();
+            }
+            default -> elementSize(schema, field);
+        };
+    }
+
+    /**
+     * Returns the size of one value of a scalar field, or of one element of a fixed-count array.
+     *
+     * @param schema the owning schema
+     * @param field a field whose type is a primitive, an enum, a timestamp or a decimal
+     * @return the element size in bytes
+     * @throws IllegalArgumentException if the type has no scalar size
+     */
+    public static int elementSize(ResolvedSchemaDefinition schema, ResolvedFieldDefinition field) {
+        RichType rich = RichType.of(field.type());
+        if (rich != null && rich.int64Backed()) {
+            return 8;
+        }
+        return switch (underlyingType(schema, field.type())) {
+            case "bool", "int8" -> 1;
+            case "int16" -> 2;
+            case "int32", "float32" -> 4;
+            case "int64", "float64" -> 8;
+            default ->
+                    throw new IllegalArgumentException(
+                            "Cannot get fixed size for type: " + field.type());
+        };
+    }
+
+    /**
+     * Returns the natural alignment of a fixed-size field: its size for primitives, the element
+     * size for fixed-count arrays, 4 for dictionary ids and fixed-capacity strings and bytes
+     * (whose slot starts with an int32 length), 8 for {@code uuid} and {@code ascii16} (two int64
+     * words), and 1 for inline messages, whose packed blocks have no alignment of their own.
+     *
+     * @param schema the owning schema
+     * @param field the field, which must satisfy {@link #isFixedSize}
+     * @return the alignment in bytes
+     */
+    public static int alignment(ResolvedSchemaDefinition schema, ResolvedFieldDefinition field) {
+        if (field.inline()) {
+            return 1;
+        }
+        if (field.fixedCount() != null) {
+            return elementSize(schema, field);
+        }
+        if (field.dictionary() || field.fixedCapacity() != null) {
+            return 4;
+        }
+        RichType rich = RichType.of(field.type());
+        if (rich != null && !rich.int64Backed()) {
+            return 8;
+        }
+        return fixedSize(schema, field);
+    }
+
+    /**
+     * Describes a field's wire encoding, e.g. {@code int32}, {@code string[16]}, {@code
+     * string+slack}, {@code message:Level}, {@code inline:Level}, {@code repeated:int64}, {@code
+     * array:int64[10]}, {@code bitset} or {@code map:string,int64}. Enums are described by their
+     * underlying type and {@code ascii} as {@code string}, whose encoding it shares; rich types
+     * keep their own name (e.g. {@code timestamp_nanos} or {@code decimal(4)}) so that changing
+     * one is a retype. A bitset holds one bit per enum id, so adding values to its enum is not.
+     *
+     * @param schema the owning schema
+     * @param field the field
+     * @return the encoding descriptor
+     */
+    public static String encoding(
+            ResolvedSchemaDefinition schema, ResolvedFieldDefinition field) {
+        MapType map = MapType.parse(field.type());
+        if (map != null) {
+            return "map:" + map.keyType() + "," + underlyingType(schema, map.valueType());
+        }
+        int scale = RichType.decimalScale(field.type());
+        String element =
+                isMessageType(schema, field.type())
+                        ? "message:" + field.type()
+                        : scale >= 0
+                                ? "decimal(" + scale + ")"
+                                : underlyingType(schema, field.type());
+        if (field.fixedCount() != null) {
+            return "array:" + element + "[" + field.fixedCount() + "]";
+        }
+        if (field.bitset()) {
+            return "bitset";
+        }
+        if (field.repeated()) {
+            return "repeated:" + element;
+        }
+        if (field.inline()) {
+            return "inline:" + field.type();
+        }
+        if (field.dictionary()) {
+            return "dictionary";
+        }
+        if (field.fixedCapacity() != null) {
+            return element + "[" + field.fixedCapacity() + "]";
+        }
+        if (field.slack() != null) {
+            // The capacity prefix travels with the data, so the slack amount is not part of it.
+            return element + "+slack";
+        }
+        return element;
+    }
+
+    private static int alignUp(int offset, int alignment) {
+        return (offset + alignment - 1) & -alignment;
+    }
+
+    private static ResolvedMessageDefinition message(ResolvedSchemaDefinition schema, String type) {
+        return schema.messages().stream()
+                .filter(m -> m.name().equals(type))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown message type: " + type));
+    }
+
+    private static boolean isMessageType(ResolvedSchemaDefinition schema, String type) {
+        return schema.messages().stream().anyMatch(m -> m.name().equals(type));
+    }
+
+    private static String underlyingType(ResolvedSchemaDefinition schema, String type) {
+        if ("ascii".equals(type)) {
+            // ASCII text is valid UTF-8, so it is laid out and encoded exactly like a string.
+            return "string";
+        }
+        return schema.enums().stream()
+                .filter(e -> e.name().equals(type))
+                .findFirst()
+                .map(ResolvedEnumDefinition::type)
+                .orElse(type);
+    }
+}
@@ -9,4 +9,202 @@ public record ResolvedFieldDefinition(
         boolean repeated,
         boolean deprecated,
         String deprecationNote,
-        Integer fixedCapacity) {}
+        Integer fixedCapacity,
+        boolean dictionary,
+        Integer slack,
+        boolean key,
+        boolean hot,
+        boolean concurrent,
+        boolean inline,
+        Integer fixedCount,
+        boolean bitset,
+        String constant,
+        String defaultValue,
+        String sortedBy) {
+
+    /** Creates a field without any of the layout options added after the first schema version. */
+    public ResolvedFieldDefinition(
+            String name,
+            int id,
+            int tag,
+            String type,
+            boolean optional,
+            boolean repeated,
+            boolean deprecated,
+            String deprecationNote,
+            Integer fixedCapacity) {
+        this(
+                name,
+                id,
+                tag,
+                type,
+                optional,
+                repeated,
+                deprecated,
+                deprecationNote,
+                fixedCapacity,
+                false,
+                null,
+                false,
+                false,
+                false,
+                false,
+                null,
+                false,
+                null,
+                null,
+                null);
+    }
+
+    /**
+     * Starts a resolved field; every option not set on the builder is off or absent.
+     *
+     * @param name the field name
+     * @param id the locked field id
+     * @param tag the field tag
+     * @param type the field type
+     * @return a builder for the remaining options
+     */
+    public static Builder builder(String name, int id, int tag, String type) {
+        return new Builder(name, id, tag, type);
+    }
+
+    /**
+     * Builds a {@link ResolvedFieldDefinition} from its required parts and any options set. Each
+     * setter takes the resolved value of the schema field option with the same name, except {@code
+     * defaultValue}, which comes from the message's {@code defaults}; all return this builder.
+     */
+    public static final class Builder {
+        private final String name;
+        private final int id;
+        private final int tag;
+        private final String type;
+        private boolean optional;
+        private boolean repeated;
+        private boolean deprecated;
+        private String deprecationNote = "";
+        private Integer fixedCapacity;
+        private boolean dictionary;
+        private Integer slack;
+        private boolean key;
+        private boolean hot;
+        private boolean concurrent;
+        private boolean inline;
+        private Integer fixedCount;
+        private boolean bitset;
+        private String constant;
+        private String defaultValue;
+        private String sortedBy;
+
+        private Builder(String name, int id, int tag, String type) {
+            this.name = name;
+            this.id = id;
+            this.tag = tag;
+            this.type = type;
+        }
+
+        public Builder optional(boolean optional) {
+            this.optional = optional;
+            return this;
+        }
+
+        public Builder repeated(boolean repeated) {
+            this.repeated = repeated;
+            return this;
+        }
+
+        public Builder deprecated(boolean deprecated) {
+            this.deprecated = deprecated;
+            return this;
+        }
+
+        public Builder deprecationNote(String deprecationNote) {
+            this.deprecationNote = deprecationNote;
+            return this;
+        }
+
+        public Builder fixedCapacity(Integer fixedCapacity) {
+            this.fixedCapacity = fixedCapacity;
+            return this;
+        }
+
+        public Builder dictionary(boolean dictionary) {
+            this.dictionary = dictionary;
+            return this;
+        }
+
+        public Builder slack(Integer slack) {
+            this.slack = slack;
+            return this;
+        }
+
+        public Builder key(boolean key) {
+            this.key = key;
+            return this;
+        }
+
+        public Builder hot(boolean hot) {
+            this.hot = hot;
+            return this;
+        }
+
+        public Builder concurrent(boolean concurrent) {
+            this.concurrent = concurrent;
+            return this;
+        }
+
+        public Builder inline(boolean inline) {
+            this.inline = inline;
+            return this;
+        }
+
+        public Builder fixedCount(Integer fixedCount) {
+            this.fixedCount = fixedCount;
+            return this;
+        }
+
+        public Builder bitset(boolean bitset) {
+            this.bitset = bitset;
+            return this;
+        }
+
+        public Builder constant(String constant) {
+            this.constant = constant;
+            return this;
+        }
+
+        public Builder defaultValue(String defaultValue) {
+            this.defaultValue = defaultValue;
+            return this;
+        }
+
+        public Builder sortedBy(String sortedBy) {
+            this.sortedBy = sortedBy;
+            return this;
+        }
+
+        public ResolvedFieldDefinition build() {
+            return new ResolvedFieldDefinition(
+                    name,
+                    id,
+                    tag,
+                    type,
+                    optional,
+                    repeated,
+                    deprecated,
+                    deprecationNote,
+                    fixedCapacity,
+                    dictionary,
+                    slack,
+                    key,
+                    hot,
+                    concurrent,
+                    inline,
+                    fixedCount,
+                    bitset,
+                    constant,
+                    defaultValue,
+                    sortedBy);
+        }
+    }
+}
@@ -3,4 +3,63 @@ package express.mvp.myra.codec.codegen.resolver;
 import java.util.List;
 
 public record ResolvedMessageDefinition(
-        String name, int id, List<ResolvedFieldDefinition> fields) {}
+        String name,
+        int id,
+        List<ResolvedFieldDefinition> fields,
+        boolean aligned,
+        boolean bitfields,
+        boolean sparse,
+        List<ResolvedOneofDefinition> oneofs,
+        List<ResolvedFieldDefinition> constants,
+        String projectionOf) {
+    public ResolvedMessageDefinition(String name, int id, List<ResolvedFieldDefinition> fields) {
+        this(name, id, fields, false);
+    }
+
+    public ResolvedMessageDefinition(
+            String name, int id, List<ResolvedFieldDefinition> fields, boolean aligned) {
+        this(name, id, fields, aligned, false);
+    }
+
+    public ResolvedMessageDefinition(
+            String name,
+            int id,
+            List<ResolvedFieldDefinition> fields,
+            boolean aligned,
+            boolean bitfields) {
+        this(name, id, fields, aligned, bitfields, false);
+    }
+
+    public ResolvedMessageDefinition(
+            String name,
+            int id,
+            List<ResolvedFieldDefinition> fields,
+            boolean aligned,
+            boolean bitfields,
+            boolean sparse) {
+        this(name, id, fields, aligned, bitfields, sparse, List.of());
+    }
+
+    public ResolvedMessageDefinition(
+            String name,
+            int id,
+            List<ResolvedFieldDefinition> fields,
+            boolean aligned,
+            boolean bitfields,
+            boolean sparse,
+            List<ResolvedOneofDefinition> oneofs) {
+        this(name, id, fields, aligned, bitfields, sparse, oneofs, List.of());
+    }
+
+    public ResolvedMessageDefinition(
+            String name,
+            int id,
+            List<ResolvedFieldDefinition> fields,
+            boolean aligned,
+            boolean bitfields,
+            boolean sparse,
+            List<ResolvedOneofDefinition> oneofs,
+            List<ResolvedFieldDefinition> constants) {
+        this(name, id, fields, aligned, bitfields, sparse, oneofs, constants, null);
+    }
+}
@@ -0,0 +1,22 @@
+package express.mvp.myra.codec.codegen.resolver;
+
+import java.util.List;
+
+/**
+ * A group of fields of which at most one is set. The selected option is recorded as a 1-based
+ * case in a discriminator byte (0 when none is set) and its value in one var region.
+ *
+ * @param name the group name
+ * @param fields the options, in tag order; option {@code i} has case {@code i + 1}
+ */
+public record ResolvedOneofDefinition(String name, List<ResolvedFieldDefinition> fields) {
+
+    /**
+     * Returns the name of the discriminator slot in the message layout.
+     *
+     * @return the group name followed by {@code Case}
+     */
+    public String caseName() {
+        return name + "Case";
+    }
+}
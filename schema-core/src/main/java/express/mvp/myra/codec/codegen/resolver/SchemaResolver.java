@@ -3,8 +3,14 @@ package express.mvp.myra.codec.codegen.resolver;
 import express.mvp.myra.codec.schema.EnumDefinition;
 import express.mvp.myra.codec.schema.EnumValueDefinition;
 import express.mvp.myra.codec.schema.FieldDefinition;
+import express.mvp.myra.codec.schema.MapType;
 import express.mvp.myra.codec.schema.MessageDefinition;
+import express.mvp.myra.codec.schema.OneofDefinition;
+import express.mvp.myra.codec.schema.ProjectionDefinition;
+import express.mvp.myra.codec.schema.RichType;
 import express.mvp.myra.codec.schema.SchemaDefinition;
+import express.mvp.myra.codec.schema.SchemaVersion;
+import express.mvp.myra.codec.schema.SortOrder;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -12,15 +18,32 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public final class SchemaResolver {
 
+    /** Most options a oneof may declare; its case is stored in one signed byte. */
+    private static final int MAX_ONEOF_OPTIONS = Byte.MAX_VALUE;
+
+    private static final Set<String> MAP_KEY_TYPES = Set.of("string", "int32", "int64");
+    private static final Set<String> SORT_KEY_TYPES = Set.of("int8", "int16", "int32", "int64");
+
+    /** Types whose values can be fixed by the schema as a {@code constant} or a default. */
+    private static final Set<String> LITERAL_TYPES =
+            Set.of("bool", "int8", "int16", "int32", "int64", "float32", "float64");
+
+    private static final Set<String> MAP_VALUE_TYPES =
+            Set.of(
+                    "bool", "int8", "int16", "int32", "int64", "float32", "float64", "string",
+                    "bytes");
+
     private final SchemaDefinition rawSchema;
     private final LockFile lockFile;
     private final Map<String, Map<String, Integer>> reservedFieldNamesByMessage;
@@ -29,10 +52,11 @@ public final class SchemaResolver {
     private final List<ResolvedMessageDefinition> resolvedMessages = new ArrayList<>();
     private final List<ResolvedEnumDefinition> resolvedEnums = new ArrayList<>();
     private final Set<String> processedMessageNames = new HashSet<>();
+    private final Map<String, String> projectionSources = new HashMap<>();
     private final AtomicInteger nextMessageId;
 
     private SchemaResolver(SchemaDefinition rawSchema, LockFile existingLockFile) {
-        this.rawSchema = rawSchema;
+        this.rawSchema = expandProjections(rawSchema);
         this.lockFile = (existingLockFile != null) ? existingLockFile : LockFile.empty();
         this.reservedFieldNamesByMessage = extractReservedFieldNames();
         int maxMessageId = findMaxId(this.lockFile.messages.values(), lock -> lock.id);
@@ -56,7 +80,6 @@ public final class SchemaResolver {
         }
         resolveMessages();
         resolveEnums();
-        LockFile updatedLockFile = buildUpdatedLockFile(schemaPath);
 
         ResolvedSchemaDefinition finalResolvedSchema =
                 new ResolvedSchemaDefinition(
@@ -65,6 +88,17 @@ public final class SchemaResolver {
                         resolvedMessages,
                         resolvedEnums);
 
+        // Record each message's layout, keeping those of earlier versions, so transcoders from
+        // any recorded version can be generated.
+        for (ResolvedMessageDefinition message : resolvedMessages) {
+            MessageLayout layout = MessageLayout.of(finalResolvedSchema, message);
+            enforceHotRegionFits(message, layout);
+            LockFile.MessageLock messageLock = newMessagesLock.get(message.name());
+            messageLock.layout = layout.toLock();
+            messageLock.previousLayouts = previousLayouts(lockFile.messages.get(message.name()));
+        }
+        LockFile updatedLockFile = buildUpdatedLockFile(schemaPath);
+
         return new ResolutionResult(finalResolvedSchema, updatedLockFile);
     }
 
@@ -87,11 +121,24 @@ public final class SchemaResolver {
             }
 
             Map<String, Integer> newFieldsLock = new HashMap<>();
+            List<ResolvedFieldDefinition> resolvedConstants = new ArrayList<>();
             List<ResolvedFieldDefinition> resolvedFields =
-                    resolveFieldsForMessage(rawMessage, existingFieldLocks, newFieldsLock);
+                    resolveFieldsForMessage(
+                            rawMessage, existingFieldLocks, newFieldsLock, resolvedConstants);
+            List<ResolvedOneofDefinition> resolvedOneofs =
+                    resolveOneofsForMessage(rawMessage, existingFieldLocks, newFieldsLock);
 
             resolvedMessages.add(
-                    new ResolvedMessageDefinition(rawMessage.name(), messageId, resolvedFields));
+                    new ResolvedMessageDefinition(
+                            rawMessage.name(),
+                            messageId,
+                            resolvedFields,
+                            resolveLayoutMode(rawMessage),
+                            rawMessage.bitfields(),
+                            resolveSparse(rawMessage),
+                            resolvedOneofs,
+                            resolvedConstants,
+                            projectionSources.get(rawMessage.name())));
             LockFile.MessageLock messageLock = new LockFile.MessageLock();
             messageLock.id = messageId;
             messageLock.fields = newFieldsLock;
@@ -99,11 +146,166 @@ public final class SchemaResolver {
         }
     }
 
+    /**
+     * Returns the schema with every projection added as a message of its own, right after the
+     * message declaring it. A projection keeps the selected fields and oneofs as declared, in the
+     * source's declaration order and with only their tags renumbered, so it resolves, locks and
+     * generates like any other message; {@link #projectionSources} remembers where it came from.
+     */
+    private SchemaDefinition expandProjections(SchemaDefinition schema) {
+        if (schema.messages() == null
+                || schema.messages().stream().allMatch(m -> m.projections().isEmpty())) {
+            return schema;
+        }
+        Set<String> names = new HashSet<>();
+        schema.messages().forEach(m -> names.add(m.name()));
+        List<MessageDefinition> messages = new ArrayList<>();
+        for (MessageDefinition message : schema.messages()) {
+            messages.add(message);
+            for (ProjectionDefinition projection : message.projections()) {
+                enforceProjectionName(message.name(), projection, names);
+                messages.add(projectMessage(message, projection));
+                projectionSources.put(projection.name(), message.name());
+            }
+        }
+        return new SchemaDefinition(
+                schema.namespace(), schema.version(), messages, schema.enums());
+    }
+
+    private static void enforceProjectionName(
+            String messageName, ProjectionDefinition projection, Set<String> names) {
+        if (projection.name() == null || projection.name().isEmpty()) {
+            throw new IllegalStateException(
+                    "Message '" + messageName + "' declares a projection without a name");
+        }
+        if (!names.add(projection.name())) {
+            throw new IllegalStateException(
+                    "Projection '"
+                            + projection.name()
+                            + "' in message '"
+                            + messageName
+                            + "' clashes with another message or projection of that name");
+        }
+    }
+
+    private static MessageDefinition projectMessage(
+            MessageDefinition message, ProjectionDefinition projection) {
+        if (projection.fields() == null || projection.fields().isEmpty()) {
+            throw new IllegalStateException(
+                    "Projection '"
+                            + projection.name()
+                            + "' in message '"
+                            + message.name()
+                            + "' must select at least one field");
+        }
+        Set<String> selected = new HashSet<>();
+        for (String name : projection.fields()) {
+            if (!selected.add(name)) {
+                throw new IllegalStateException(
+                        "Projection '"
+                                + projection.name()
+                                + "' in message '"
+                                + message.name()
+                                + "' selects '"
+                                + name
+                                + "' more than once");
+            }
+        }
+        Set<String> declared = new HashSet<>();
+        List<FieldDefinition> fields = new ArrayList<>();
+        List<FieldDefinition> sourceFields =
+                message.fields() == null ? List.of() : message.fields();
+        for (FieldDefinition field : sourceFields) {
+            declared.add(field.name());
+            if (selected.contains(field.name())) {
+                fields.add(field);
+            }
+        }
+        List<OneofDefinition> oneofs = new ArrayList<>();
+        for (OneofDefinition oneof : message.oneofs()) {
+            declared.add(oneof.name());
+            if (selected.contains(oneof.name())) {
+                oneofs.add(oneof);
+            }
+        }
+        for (String name : projection.fields()) {
+            if (!declared.contains(name)) {
+                throw new IllegalStateException(
+                        "Projection '"
+                                + projection.name()
+                                + "' in message '"
+                                + message.name()
+                                + "' selects '"
+                                + name
+                                + "', which is not a field or oneof of the message");
+            }
+        }
+        // Tags keep their relative order but close up the gaps left by unselected fields.
+        List<FieldDefinition> tagged = new ArrayList<>(fields);
+        oneofs.forEach(oneof -> tagged.addAll(oneof.fields()));
+        tagged.sort(Comparator.comparingInt(FieldDefinition::tag));
+        Map<String, Integer> tags = new HashMap<>();
+        for (FieldDefinition field : tagged) {
+            tags.put(field.name(), tags.size() + 1);
+        }
+        fields.replaceAll(field -> retag(field, tags.get(field.name())));
+        oneofs.replaceAll(
+                oneof ->
+                        new OneofDefinition(
+                                oneof.name(),
+                                oneof.fields().stream()
+                                        .map(field -> retag(field, tags.get(field.name())))
+                                        .toList()));
+        Map<String, String> defaults = new LinkedHashMap<>();
+        for (FieldDefinition field : fields) {
+            String value = message.defaults().get(field.name());
+            if (value != null) {
+                defaults.put(field.name(), value);
+            }
+        }
+        return MessageDefinition.builder(projection.name(), fields)
+                .layout(message.layout())
+                .bitfields(message.bitfields())
+                .sparse(message.sparse())
+                .oneofs(oneofs)
+                .defaults(defaults)
+                .build();
+    }
+
+    private static FieldDefinition retag(FieldDefinition field, int tag) {
+        return new FieldDefinition(
+                tag,
+                field.name(),
+                field.type(),
+                field.optional(),
+                field.repeated(),
+                field.deprecated(),
+                field.deprecationNote(),
+                field.fixedCapacity(),
+                field.dictionary(),
+                field.slack(),
+                field.key(),
+                field.hot(),
+                field.concurrent(),
+                field.inline(),
+                field.fixedCount(),
+                field.bitset(),
+                field.constant(),
+                field.sortedBy());
+    }
+
+    /**
+     * Resolves the message's fields. Constant fields keep their id but take no slot in the layout,
+     * so they are collected into {@code resolvedConstants} rather than returned.
+     */
     private List<ResolvedFieldDefinition> resolveFieldsForMessage(
             MessageDefinition rawMessage,
             Map<String, Integer> existingFieldLocks,
-            Map<String, Integer> newFieldsLock) {
+            Map<String, Integer> newFieldsLock,
+            List<ResolvedFieldDefinition> resolvedConstants) {
         enforceSequentialFieldTags(rawMessage);
+        enforceDefaultsNameFields(rawMessage);
+        enforceRecursionTerminates(rawMessage);
         List<ResolvedFieldDefinition> resolvedFields = new ArrayList<>();
 
         int maxFieldId = findMaxId(existingFieldLocks.values(), Integer::intValue);
@@ -116,27 +318,196 @@ public final class SchemaResolver {
                 enforceNoReservedNameReuse(rawMessage.name(), rawField.name());
                 fieldId = nextFieldId.getAndIncrement();
             }
+            enforceMapEligibility(rawMessage.name(), rawField);
+            enforceRichTypeEligibility(rawMessage.name(), rawField);
+            enforceFixedCountEligibility(rawMessage.name(), rawField);
+            enforceBitsetEligibility(rawMessage.name(), rawField);
+            SortOrder sortOrder = resolveSortOrder(rawMessage.name(), rawField);
+            enforceDictionaryEligibility(rawMessage.name(), rawField);
+            enforceSlackEligibility(rawMessage.name(), rawField);
+            enforceKeyEligibility(rawMessage.name(), rawField);
+            enforceAlignedLayoutPlacement(rawMessage.name(), rawField);
+            enforceHotEligibility(rawMessage.name(), rawField);
+            enforceConcurrentEligibility(rawMessage, rawField);
+            enforceInlineEligibility(rawMessage.name(), rawField);
+            enforceConstantEligibility(rawMessage.name(), rawField);
+            String constant =
+                    rawField.constant() == null
+                            ? null
+                            : resolveLiteral(rawMessage.name(), rawField, rawField.constant());
+            String defaultValue = rawMessage.defaults().get(rawField.name());
+            if (defaultValue != null) {
+                enforceDefaultEligibility(rawMessage.name(), rawField);
+                defaultValue = resolveLiteral(rawMessage.name(), rawField, defaultValue);
+            }
 
-            resolvedFields.add(
+            // A defaulted field is optional on the wire: its presence bit marks an override.
+            ResolvedFieldDefinition resolvedField =
                     new ResolvedFieldDefinition(
                             rawField.name(),
                             fieldId,
                             rawField.tag(),
                             rawField.type(),
-                            rawField.optional(),
+                            rawField.optional() || defaultValue != null,
                             rawField.repeated(),
                             rawField.deprecated(),
                             rawField.deprecationNote(),
-                            rawField.fixedCapacity()));
+                            rawField.fixedCapacity(),
+                            rawField.dictionary(),
+                            rawField.slack(),
+                            rawField.key(),
+                            rawField.hot(),
+                            rawField.concurrent(),
+                            rawField.inline(),
+                            rawField.fixedCount(),
+                            rawField.bitset(),
+                            constant,
+                            defaultValue,
+                            sortOrder == null ? null : sortOrder.toString());
+            if (constant == null) {
+                resolvedFields.add(resolvedField);
+            } else {
+                resolvedConstants.add(resolvedField);
+            }
             newFieldsLock.put(rawField.name(), fieldId);
         }
 
         return resolvedFields;
     }
 
+    /**
+     * Resolves the message's oneof groups. Options share the message's tag and field-id space, so
+     * ids continue after the ones {@link #resolveFieldsForMessage} assigned.
+     */
+    private List<ResolvedOneofDefinition> resolveOneofsForMessage(
+            MessageDefinition rawMessage,
+            Map<String, Integer> existingFieldLocks,
+            Map<String, Integer> newFieldsLock) {
+        List<ResolvedOneofDefinition> resolvedOneofs = new ArrayList<>();
+        int maxFieldId =
+                Math.max(
+                        findMaxId(existingFieldLocks.values(), Integer::intValue),
+                        findMaxId(newFieldsLock.values(), Integer::intValue));
+        AtomicInteger nextFieldId = new AtomicInteger(maxFieldId + 1);
+        Set<String> names = new HashSet<>(newFieldsLock.keySet());
+
+        for (OneofDefinition rawOneof : rawMessage.oneofs()) {
+            enforceOneofShape(rawMessage.name(), rawOneof, names);
+            List<FieldDefinition> options = new ArrayList<>(rawOneof.fields());
+            options.sort(Comparator.comparingInt(FieldDefinition::tag));
+            List<ResolvedFieldDefinition> resolvedOptions = new ArrayList<>();
+            for (FieldDefinition rawField : options) {
+                Integer fieldId = existingFieldLocks.get(rawField.name());
+                if (fieldId == null) {
+                    enforceNoReservedNameReuse(rawMessage.name(), rawField.name());
+                    fieldId = nextFieldId.getAndIncrement();
+                }
+                enforceOneofOptionEligibility(rawMessage.name(), rawOneof.name(), rawField);
+                enforceRichTypeEligibility(rawMessage.name(), rawField);
+                enforceAlignedLayoutPlacement(rawMessage.name(), rawField);
+                if (!names.add(rawField.name())) {
+                    throw new IllegalStateException(
+                            "Field '"
+                                    + rawField.name()
+                                    + "' in message '"
+                                    + rawMessage.name()
+                                    + "' is declared more than once");
+                }
+                resolvedOptions.add(
+                        new ResolvedFieldDefinition(
+                                rawField.name(),
+                                fieldId,
+                                rawField.tag(),
+                                rawField.type(),
+                                false,
+                                false,
+                                rawField.deprecated(),
+                                rawField.deprecationNote(),
+                                null));
+                newFieldsLock.put(rawField.name(), fieldId);
+            }
+            resolvedOneofs.add(new ResolvedOneofDefinition(rawOneof.name(), resolvedOptions));
+        }
+        return resolvedOneofs;
+    }
+
+    private static void enforceOneofShape(
+            String messageName, OneofDefinition oneof, Set<String> names) {
+        if (oneof.name() == null || oneof.name().isEmpty()) {
+            throw new IllegalStateException(
+                    "Message '" + messageName + "' declares a oneof without a name");
+        }
+        // Cases are stored in one byte, with 0 meaning that no option is set.
+        if (oneof.fields() == null
+                || oneof.fields().isEmpty()
+                || oneof.fields().size() > MAX_ONEOF_OPTIONS) {
+            throw new IllegalStateException(
+                    "Oneof '"
+                            + oneof.name()
+                            + "' in message '"
+                            + messageName
+                            + "' must declare between 1 and "
+                            + MAX_ONEOF_OPTIONS
+                            + " fields");
+        }
+        // The group's header and discriminator are laid out as slots named after it.
+        for (String slotName : List.of(oneof.name(), oneof.name() + "Case")) {
+            if (!names.add(slotName)) {
+                throw new IllegalStateException(
+                        "Oneof '"
+                                + oneof.name()
+                                + "' in message '"
+                                + messageName
+                                + "' clashes with another field or oneof named '"
+                                + slotName
+                                + "'");
+            }
+        }
+    }
+
+    private void enforceOneofOptionEligibility(
+            String messageName, String oneofName, FieldDefinition field) {
+        RichType rich = RichType.of(field.type());
+        if (field.optional()
+                || field.repeated()
+                || field.fixedCount() != null
+                || field.bitset()
+                || field.constant() != null
+                || field.fixedCapacity() != null
+                || field.dictionary()
+                || field.slack() != null
+                || field.key()
+                || field.hot()
+                || field.concurrent()
+                || field.inline()
+                || MapType.parse(field.type()) != null
+                || (rich != null && !rich.int64Backed())) {
+            throw new IllegalStateException(
+                    "Field '"
+                            + field.name()
+                            + "' in message '"
+                            + messageName
+                            + "' belongs to oneof '"
+                            + oneofName
+                            + "', whose options must be plain singular fields other than maps,"
+                            + " uuids and ascii16s, without optional, repeated, fixed_count,"
+                            + " bitset, constant, fixed_capacity, dictionary, slack, key, hot,"
+                            + " concurrent or inline");
+        }
+    }
+
     private void enforceSequentialFieldTags(MessageDefinition message) {
-        List<FieldDefinition> fields = message.fields();
-        if (fields == null || fields.isEmpty()) {
+        // Oneof options take tags from the same sequence as the message's own fields.
+        List<FieldDefinition> fields = new ArrayList<>();
+        if (message.fields() != null) {
+            fields.addAll(message.fields());
+        }
+        for (OneofDefinition oneof : message.oneofs()) {
+            if (oneof.fields() != null) {
+                fields.addAll(oneof.fields());
+            }
+        }
+        if (fields.isEmpty()) {
             return;
         }
 
@@ -178,6 +549,689 @@ public final class SchemaResolver {
         }
     }
 
+    /**
+     * Checks a {@code map<K, V>} field: keys are {@code string}, {@code int32} or {@code int64},
+     * values are scalars, enums, strings or bytes, and the map itself is a plain var field.
+     */
+    private void enforceMapEligibility(String messageName, FieldDefinition field) {
+        MapType map = MapType.parse(field.type());
+        if (map == null) {
+            if (field.type() != null && field.type().startsWith("map<")) {
+                throw new IllegalStateException(
+                        "Field '"
+                                + field.name()
+                                + "' in message '"
+                                + messageName
+                                + "' has malformed map type '"
+                                + field.type()
+                                + "', expected map<K, V>");
+            }
+            return;
+        }
+        if (!MAP_KEY_TYPES.contains(map.keyType())) {
+            throw new IllegalStateException(
+                    "Field '"
+                            + field.name()
+                            + "' in message '"
+                            + messageName
+                            + "' has map key type '"
+                            + map.keyType()
+                            + "', but map keys must be string, int32 or int64");
+        }
+        boolean enumValue =
+                rawSchema.enums() != null
+                        && rawSchema.enums().stream()
+                                .anyMatch(e -> e.name().equals(map.valueType()));
+        if (!MAP_VALUE_TYPES.contains(map.valueType()) && !enumValue) {
+            throw new IllegalStateException(
+                    "Field '"
+                            + field.name()
+                            + "' in message '"
+                            + messageName
+                            + "' has map value type '"
+                            + map.valueType()
+                            + "', but map values must be scalars, enums, string or bytes");
+        }
+        if (field.repeated()
+                || field.fixedCapacity() != null
+                || field.key()
+                || field.hot()
+                || field.inline()) {
+            throw new IllegalStateException(
+                    "Field '"
+                            + field.name()
+                            + "' in message '"
+                            + messageName
+                            + "' is a map, which cannot be repeated, fixed_capacity, key, hot or"
+                            + " inline");
+        }
+    }
+
+    /**
+     * Checks a rich fixed-width field: {@code decimal} needs a scale from 0 to {@link
+     * RichType#MAX_DECIMAL_SCALE}, and the two-word {@code uuid} and {@code ascii16} cannot be
+     * repeated.
+     */
+    private void enforceRichTypeEligibility(String messageName, FieldDefinition field) {
+        RichType rich = RichType.of(field.type());
+        if (rich == null) {
+            if (field.type() != null && field.type().startsWith("decimal")) {
+                throw new IllegalStateException(
+                        "Field '"
+                                + field.name()
+                                + "' in message '"
+                                + messageName
+                                + "' has malformed decimal type '"
+                                + field.type()
+                                + "', expected decimal(S) with a scale, e.g. decimal(8)");
+            }
+            return;
+        }
+        int scale = RichType.decimalScale(field.type());
+        if (scale > RichType.MAX_DECIMAL_SCALE) {
+            throw new IllegalStateException(
+                    "Field '"
+                            + field.name()
+                            + "' in message '"
+                            + messageName
+                            + "' has decimal scale "
+                            + scale
+                            + ", but the scale must be between 0 and "
+                            + RichType.MAX_DECIMAL_SCALE);
+        }
+        if (!rich.int64Backed() && field.repeated()) {
+            throw new IllegalStateException(
+                    "Field '"
+                            + field.name()
+                            + "' in message '"
+                            + messageName
+                            + "' is a "
+                            + field.type()
+                            + ", which cannot be repeated");
+        }
+    }
+
+    /**
+     * Checks a {@code fixed_count} array: a repeated field of scalars, enums, timestamps or
+     * decimals, stored inline as exactly that many elements.
+     */
+    private void enforceFixedCountEligibility(String messageName, FieldDefinition field) {
+        if (field.fixedCount() == null) {
+            return;
+        }
+        boolean enumType =
+                rawSchema.enums() != null
+                        && rawSchema.enums().stream().anyMatch(e -> e.name().equals(field.type()));
+        RichType rich = RichType.of(field.type());
+        boolean numeric =
+                switch (field.type()) {
+                    case "int8", "int16", "int32", "int64", "float32", "float64" -> true;
+                    default -> enumType || (rich != null && rich.int64Backed());
+                };
+        if (!field.repeated()
+                || !numeric
+                || field.fixedCapacity() != null
+                || field.dictionary()
+                || field.slack() != null
+                || field.inline()) {
+            throw new IllegalStateException(
+                    "Field '"
+                            + field.name()
+                            + "' in message '"
+                            + messageName
+                            + "' has fixed_count, which is only supported on repeated numeric,"
+                            + " enum, timestamp, decimal or ascii8 fields without fixed_capacity,"
+                            + " dictionary, slack or inline");
+        }
+    }
+
+    /**
+     * Parses a {@code sorted_by} attribute. Groups can be sorted by a required integer, timestamp,
+     * decimal or {@code ascii8} field of their elements: values the flyweight can compare as
+     * primitives, and that every element has.
+     */
+    private SortOrder resolveSortOrder(String messageName, FieldDefinition field) {
+        if (field.sortedBy() == null) {
+            return null;
+        }
+        SortOrder order = SortOrder.parse(field.sortedBy());
+        if (order == null) {
+            throw new IllegalStateException(
+                    "Field '"
+                            + field.name()
+                            + "' in message '"
+                            + messageName
+                            + "' has sorted_by '"
+                            + field.sortedBy()
+                            + "', which is not of the form '<field> [asc|desc]'");
+        }
+        MessageDefinition element =
+                rawSchema.messages().stream()
+                        .filter(m -> m.name().equals(field.type()))
+                        .findFirst()
+                        .orElse(null);
+        if (element == null || !field.repeated() || field.fixedCount() != null) {
+            throw new IllegalStateException(
+                    "Field '"
+                            + field.name()
+                            + "' in message '"
+                            + messageName
+                            + "' is sorted, which is only supported on repeated message fields");
+        }
+        List<FieldDefinition> elementFields =
+                element.fields() == null ? List.of() : element.fields();
+        FieldDefinition key =
+                elementFields.stream()
+                        .filter(f -> f.name().equals(order.keyField()))
+                        .findFirst()
+                        .orElse(null);
+        if (key == null
+                || key.optional()
+                || key.repeated()
+                || key.constant() != null
+                || element.defaults().containsKey(key.name())
+                || !isSortKeyType(key.type())) {
+            throw new IllegalStateException(
+                    "Field '"
+                            + field.name()
+                            + "' in message '"
+                            + messageName
+                            + "' is sorted by '"
+                            + order.keyField()
+                            + "', which is not a required integer, timestamp, decimal or ascii8"
+                            + " field of '"
+                            + element.name()
+                            + "'");
+        }
+        return order;
+    }
+
+    private static boolean isSortKeyType(String type) {
+        RichType rich = RichType.of(type);
+        return SORT_KEY_TYPES.contains(type) || (rich != null && rich.int64Backed());
+    }
+
+    /**
+     * Checks a {@code bitset} field: a required repeated enum whose ids all fit the bits of one
+     * int64, stored in the fixed block as the set of ids present.
+     */
+    private void enforceBitsetEligibility(String messageName, FieldDefinition field) {
+        if (!field.bitset()) {
+            return;
+        }
+        EnumDefinition enumDef =
+                rawSchema.enums() == null
+                        ? null
+                        : rawSchema.enums().stream()
+                                .filter(e -> e.name().equals(field.type()))
+                                .findFirst()
+                                .orElse(null);
+        if (enumDef == null
+                || !field.repeated()
+                || field.optional()
+                || field.fixedCount() != null
+                || field.fixedCapacity() != null
+                || field.dictionary()
+                || field.slack() != null
+                || field.inline()) {
+            throw new IllegalStateException(
+                    "Field '"
+                            + field.name()
+                            + "' in message '"
+                            + messageName
+                            + "' is a bitset, which is only supported on required repeated enum"
+                            + " fields without fixed_count, fixed_capacity, dictionary, slack or"
+                            + " inline");
+        }
+        for (EnumValueDefinition value : enumDef.values()) {
+            if (value.id() < 0 || value.id() >= Long.SIZE) {
+                throw new IllegalStateException(
+                        "Field '"
+                                + field.name()
+                                + "' in message '"
+                                + messageName
+                                + "' is a bitset of enum '"
+                                + enumDef.name()
+                                + "', whose value '"
+                                + value.name()
+                                + "' has id "
+                                + value.id()
+                                + " outside 0 to 63");
+            }
+        }
+    }
+
+    /**
+     * Checks a {@code constant} field: a required singular scalar, enum or string whose value the
+     * schema fixes, generated as a compile-time constant that takes no bytes in the frame.
+     */
+    private void enforceConstantEligibility(String messageName, FieldDefinition field) {
+        if (field.constant() == null) {
+            return;
+        }
+        boolean literalType =
+                LITERAL_TYPES.contains(field.type())
+                        || field.type().equals("string")
+                        || findEnum(field.type()) != null;
+        if (!literalType
+                || field.optional()
+                || field.repeated()
+                || field.fixedCount() != null
+                || field.bitset()
+                || field.fixedCapacity() != null
+                || field.dictionary()
+                || field.slack() != null
+                || field.key()
+                || field.hot()
+                || field.concurrent()
+                || field.inline()) {
+            throw new IllegalStateException(
+                    "Field '"
+                            + field.name()
+                            + "' in message '"
+                            + messageName
+                            + "' is a constant, which is only supported on required singular"
+                            + " scalar, enum or string fields without fixed_count, bitset,"
+                            + " fixed_capacity, dictionary, slack, key, hot, concurrent or"
+                            + " inline");
+        }
+    }
+
+    private static void enforceDefaultsNameFields(MessageDefinition message) {
+        for (String name : message.defaults().keySet()) {
+            boolean declared =
+                    message.fields() != null
+                            && message.fields().stream().anyMatch(f -> f.name().equals(name));
+            if (!declared) {
+                throw new IllegalStateException(
+                        "Message '"
+                                + message.name()
+                                + "' declares a default for '"
+                                + name
+                                + "', which is not one of its fields");
+            }
+        }
+    }
+
+    /**
+     * Checks a field named in the message's {@code defaults}: a singular scalar or enum, which the
+     * builder only writes when the value differs from the default.
+     */
+    private void enforceDefaultEligibility(String messageName, FieldDefinition field) {
+        boolean literalType =
+                LITERAL_TYPES.contains(field.type()) || findEnum(field.type()) != null;
+        if (!literalType
+                || field.repeated()
+                || field.fixedCount() != null
+                || field.bitset()
+                || field.constant() != null
+                || field.key()
+                || field.concurrent()) {
+            throw new IllegalStateException(
+                    "Field '"
+                            + field.name()
+                            + "' in message '"
+                            + messageName
+                            + "' has a default, which is only supported on singular scalar or"
+                            + " enum fields that are not constant, key or concurrent");
+        }
+    }
+
+    /**
+     * Returns the canonical text of a constant or default value: integers range-checked against
+     * the field's width, enum values as ids, floats and booleans as Java spells them.
+     */
+    private String resolveLiteral(String messageName, FieldDefinition field, String value) {
+        EnumDefinition enumDef = findEnum(field.type());
+        try {
+            if (enumDef != null) {
+                for (EnumValueDefinition enumValue : enumDef.values()) {
+                    if (enumValue.name().equals(value)
+                            || Integer.toString(enumValue.id()).equals(value)) {
+                        return Integer.toString(enumValue.id());
+                    }
+                }
+                throw new NumberFormatException(value);
+            }
+            return switch (field.type()) {
+                case "bool" -> {
+                    if (!value.equals("true") && !value.equals("false")) {
+                        throw new NumberFormatException(value);
+                    }
+                    yield value;
+                }
+                case "int8" -> Byte.toString(Byte.parseByte(value));
+                case "int16" -> Short.toString(Short.parseShort(value));
+                case "int32" -> Integer.toString(Integer.parseInt(value));
+                case "int64" -> Long.toString(Long.parseLong(value));
+                case "float32" -> {
+                    float parsed = Float.parseFloat(value);
+                    if (!Float.isFinite(parsed)) {
+                        throw new NumberFormatException(value);
+                    }
+                    yield Float.toString(parsed);
+                }
+                case "float64" -> {
+                    double parsed = Double.parseDouble(value);
+                    if (!Double.isFinite(parsed)) {
+                        throw new NumberFormatException(value);
+                    }
+                    yield Double.toString(parsed);
+                }
+                default -> value;
+            };
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException(
+                    "Field '"
+                            + field.name()
+                            + "' in message '"
+                            + messageName
+                            + "' has value '"
+                            + value
+                            + "', which is not a valid "
+                            + field.type());
+        }
+    }
+
+    private EnumDefinition findEnum(String type) {
+        if (rawSchema.enums() == null) {
+            return null;
+        }
+        return rawSchema.enums().stream()
+                .filter(e -> e.name().equals(type))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private void enforceDictionaryEligibility(String messageName, FieldDefinition field) {
+        if (!field.dictionary()) {
+            return;
+        }
+        if (!"string".equals(field.type()) || field.repeated() || field.fixedCapacity() != null) {
+            throw new IllegalStateException(
+                    "Field '"
+                            + field.name()
+                            + "' in message '"
+                            + messageName
+                            + "' uses dictionary encoding, which is only supported on singular"
+                            + " variable-length string fields");
+        }
+    }
+
+    private void enforceSlackEligibility(String messageName, FieldDefinition field) {
+        if (field.slack() == null) {
+            return;
+        }
+        boolean varLength = isTextOrBytes(field.type());
+        if (!varLength
+                || field.repeated()
+                || field.fixedCapacity() != null
+                || field.dictionary()) {
+            throw new IllegalStateException(
+                    "Field '"
+                            + field.name()
+                            + "' in message '"
+                            + messageName
+                            + "' reserves slack, which is only supported on singular"
+                            + " variable-length string or bytes fields");
+        }
+    }
+
+    private void enforceKeyEligibility(String messageName, FieldDefinition field) {
+        if (!field.key()) {
+            return;
+        }
+        boolean messageType =
+                rawSchema.messages().stream().anyMatch(m -> m.name().equals(field.type()));
+        // Dictionary ids are assigned per session, so they would not order keys by string bytes.
+        if (field.repeated() || messageType || field.dictionary()) {
+            throw new IllegalStateException(
+                    "Field '"
+                            + field.name()
+                            + "' in message '"
+                            + messageName
+                            + "' is marked as a key, which is only supported on singular scalar,"
+                            + " enum, string or bytes fields without dictionary encoding");
+        }
+    }
+
+    private void enforceHotEligibility(String messageName, FieldDefinition field) {
+        if (!field.hot()) {
+            return;
+        }
+        boolean messageType =
+                rawSchema.messages().stream().anyMatch(m -> m.name().equals(field.type()));
+        boolean variableLength =
+                isTextOrBytes(field.type())
+                        && field.fixedCapacity() == null
+                        && !field.dictionary();
+        boolean varGroup = field.repeated() && field.fixedCount() == null && !field.bitset();
+        if (varGroup || (messageType && !field.inline()) || variableLength) {
+            throw new IllegalStateException(
+                    "Field '"
+                            + field.name()
+                            + "' in message '"
+                            + messageName
+                            + "' is marked hot, which is only supported on fixed-size fields");
+        }
+    }
+
+    private void enforceInlineEligibility(String messageName, FieldDefinition field) {
+        if (!field.inline()) {
+            return;
+        }
+        boolean messageType =
+                rawSchema.messages().stream().anyMatch(m -> m.name().equals(field.type()));
+        if (!messageType || field.repeated()) {
+            throw new IllegalStateException(
+                    "Field '"
+                            + field.name()
+                            + "' in message '"
+                            + messageName
+                            + "' is marked inline, which is only supported on singular message"
+                            + " fields");
+        }
+        if (!isFixedSizeMessage(field.type(), new HashSet<>())) {
+            throw new IllegalStateException(
+                    "Field '"
+                            + field.name()
+                            + "' in message '"
+                            + messageName
+                            + "' inlines message '"
+                            + field.type()
+                            + "', which is not fixed-size: it must not be sparse or declare oneofs,"
+                            + " and every field must be a scalar, enum, fixed_count array, bitset,"
+                            + " fixed-capacity or dictionary string or bytes, or an inline message"
+                            + " that does not contain itself");
+        }
+    }
+
+    /**
+     * Returns whether a message is not sparse, has no oneofs and every field has a fixed size,
+     * following inline message fields recursively. A message reached again along the same path
+     * contains itself and is rejected.
+     */
+    private boolean isFixedSizeMessage(String messageName, Set<String> path) {
+        if (!path.add(messageName)) {
+            return false;
+        }
+        MessageDefinition message =
+                rawSchema.messages().stream()
+                        .filter(m -> m.name().equals(messageName))
+                        .findFirst()
+                        .orElseThrow();
+        if (message.sparse() || !message.oneofs().isEmpty()) {
+            return false;
+        }
+        List<FieldDefinition> fields = message.fields() == null ? List.of() : message.fields();
+        for (FieldDefinition field : fields) {
+            if (field.constant() != null) {
+                continue;
+            }
+            if (field.repeated() && field.fixedCount() == null && !field.bitset()) {
+                return false;
+            }
+            boolean messageType =
+                    rawSchema.messages().stream().anyMatch(m -> m.name().equals(field.type()));
+            if (messageType) {
+                if (!field.inline() || !isFixedSizeMessage(field.type(), path)) {
+                    return false;
+                }
+            } else if (isTextOrBytes(field.type())
+                    && field.fixedCapacity() == null
+                    && !field.dictionary()) {
+                return false;
+            } else if (MapType.parse(field.type()) != null) {
+                return false;
+            }
+        }
+        path.remove(messageName);
+        return true;
+    }
+
+    /**
+     * Rejects a message that contains itself through required singular message fields, which no
+     * finite frame could hold. Recursion through an optional, repeated or oneof field is allowed:
+     * it ends wherever the data does.
+     */
+    private void enforceRecursionTerminates(MessageDefinition message) {
+        List<FieldDefinition> fields = message.fields() == null ? List.of() : message.fields();
+        for (FieldDefinition field : fields) {
+            if (isRequiredMessageField(field)
+                    && reachesThroughRequiredFields(
+                            field.type(), message.name(), new HashSet<>())) {
+                throw new IllegalStateException(
+                        "Field '"
+                                + field.name()
+                                + "' in message '"
+                                + message.name()
+                                + "' makes the message contain itself through required fields;"
+                                + " mark a field on the cycle optional or repeated");
+            }
+        }
+    }
+
+    private boolean reachesThroughRequiredFields(
+            String messageName, String target, Set<String> visited) {
+        if (messageName.equals(target)) {
+            return true;
+        }
+        if (!visited.add(messageName)) {
+            return false;
+        }
+        MessageDefinition message =
+                rawSchema.messages().stream()
+                        .filter(m -> m.name().equals(messageName))
+                        .findFirst()
+                        .orElseThrow();
+        List<FieldDefinition> fields = message.fields() == null ? List.of() : message.fields();
+        for (FieldDefinition field : fields) {
+            if (isRequiredMessageField(field)
+                    && reachesThroughRequiredFields(field.type(), target, visited)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isRequiredMessageField(FieldDefinition field) {
+        return !field.optional()
+                && !field.repeated()
+                && rawSchema.messages().stream().anyMatch(m -> m.name().equals(field.type()));
+    }
+
+    private void enforceConcurrentEligibility(MessageDefinition message, FieldDefinition field) {
+        if (!field.concurrent()) {
+            return;
+        }
+        // Atomic access modes need naturally aligned addresses, which only aligned layouts
+        // guarantee. Optional fields are excluded because their presence bit is a plain write.
+        boolean integral = field.type().equals("int32") || field.type().equals("int64");
+        if (!integral || field.repeated() || field.optional()) {
+            throw new IllegalStateException(
+                    "Field '"
+                            + field.name()
+                            + "' in message '"
+                            + message.name()
+                            + "' is marked concurrent, which is only supported on required"
+                            + " int32 or int64 fields");
+        }
+        if (!"aligned".equals(message.layout())) {
+            throw new IllegalStateException(
+                    "Field '"
+                            + field.name()
+                            + "' in message '"
+                            + message.name()
+                            + "' is marked concurrent, which requires layout 'aligned'");
+        }
+    }
+
+    private static void enforceHotRegionFits(
+            ResolvedMessageDefinition message, MessageLayout layout) {
+        int hotEnd = layout.hotRegionEnd(message);
+        if (hotEnd > MessageLayout.CACHE_LINE_SIZE) {
+            throw new IllegalStateException(
+                    "Hot fields of message '"
+                            + message.name()
+                            + "' end at byte "
+                            + hotEnd
+                            + ", beyond the first "
+                            + MessageLayout.CACHE_LINE_SIZE
+                            + "-byte cache line of the block");
+        }
+    }
+
+    private void enforceAlignedLayoutPlacement(String messageName, FieldDefinition field) {
+        // Nested messages live in the data region at unpadded offsets, so an aligned message
+        // can only be a top-level frame (or a table row), where its block starts 8-byte aligned.
+        boolean alignedType =
+                rawSchema.messages().stream()
+                        .anyMatch(
+                                m -> m.name().equals(field.type()) && "aligned".equals(m.layout()));
+        if (alignedType) {
+            throw new IllegalStateException(
+                    "Field '"
+                            + field.name()
+                            + "' in message '"
+                            + messageName
+                            + "' embeds message '"
+                            + field.type()
+                            + "', which uses layout 'aligned' and cannot be nested");
+        }
+    }
+
+    /** Returns whether a field type is stored as variable-length text or bytes. */
+    private static boolean isTextOrBytes(String type) {
+        return type.equals("string") || type.equals("ascii") || type.equals("bytes");
+    }
+
+    private static boolean resolveLayoutMode(MessageDefinition message) {
+        String layout = message.layout();
+        if (layout == null || layout.equals("packed")) {
+            return false;
+        }
+        if (layout.equals("aligned")) {
+            return true;
+        }
+        throw new IllegalStateException(
+                "Message '"
+                        + message.name()
+                        + "' declares unknown layout '"
+                        + layout
+                        + "'; expected 'packed' or 'aligned'");
+    }
+
+    private static boolean resolveSparse(MessageDefinition message) {
+        // Sparse members sit at data-dependent offsets, which aligned layouts cannot promise.
+        if (message.sparse() && "aligned".equals(message.layout())) {
+            throw new IllegalStateException(
+                    "Message '"
+                            + message.name()
+                            + "' is sparse, which cannot be combined with layout 'aligned'");
+        }
+        return message.sparse();
+    }
+
     private void resolveEnums() {
         for (EnumDefinition rawEnum : rawSchema.enums()) {
             resolvedEnums.add(ResolvedEnumDefinition.fromRaw(rawEnum));
@@ -258,6 +1312,42 @@ public final class SchemaResolver {
         return result;
     }
 
+    /**
+     * Returns the layouts a message had under earlier wire versions: those the existing lock
+     * already carried, plus the one it recorded as current if the version has moved on since.
+     */
+    private Map<String, LockFile.LayoutLock> previousLayouts(LockFile.MessageLock existing) {
+        Map<String, LockFile.LayoutLock> layouts = new TreeMap<>();
+        if (existing == null) {
+            return layouts;
+        }
+        if (existing.previousLayouts != null) {
+            layouts.putAll(existing.previousLayouts);
+        }
+        String locked =
+                versionKey(lockFile.schemaInfo == null ? null : lockFile.schemaInfo.get("version"));
+        if (existing.layout != null && locked != null) {
+            layouts.put(locked, existing.layout);
+        }
+        String current = versionKey(rawSchema.version());
+        if (current != null) {
+            layouts.remove(current);
+        }
+        return layouts;
+    }
+
+    /** Returns {@code major.minor} of a version, or null for legacy revision counters. */
+    private static String versionKey(Object version) {
+        if (version == null) {
+            return null;
+        }
+        try {
+            return SchemaVersion.parse(String.valueOf(version)).toShortString();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     private <T> int findMaxId(Collection<T> items, Function<T, Integer> idExtractor) {
         return items.stream().mapToInt(idExtractor::apply).max().orElse(0);
     }
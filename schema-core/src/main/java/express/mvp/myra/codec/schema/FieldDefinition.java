@@ -10,7 +10,17 @@ public record FieldDefinition(
         boolean repeated,
         boolean deprecated,
         String deprecationNote,
-        @JsonAlias("fixed_capacity") Integer fixedCapacity) {
+        @JsonAlias("fixed_capacity") Integer fixedCapacity,
+        boolean dictionary,
+        Integer slack,
+        boolean key,
+        boolean hot,
+        boolean concurrent,
+        boolean inline,
+        @JsonAlias("fixed_count") Integer fixedCount,
+        boolean bitset,
+        String constant,
+        @JsonAlias("sorted_by") String sortedBy) {
     public FieldDefinition {
         if (tag < 1) {
             throw new IllegalArgumentException("Tag must be greater than 0");
@@ -22,5 +32,275 @@ public record FieldDefinition(
         if (fixedCapacity != null && fixedCapacity < 0) {
             throw new IllegalArgumentException("Fixed capacity must be non-negative");
         }
+        if (slack != null && slack < 0) {
+            throw new IllegalArgumentException("Slack must be non-negative");
+        }
+        if (fixedCount != null && fixedCount < 1) {
+            throw new IllegalArgumentException("Fixed count must be positive");
+        }
+    }
+
+    /** Creates a field without any of the layout options added after the first schema version. */
+    public FieldDefinition(
+            int tag,
+            String name,
+            String type,
+            boolean optional,
+            boolean repeated,
+            boolean deprecated,
+            String deprecationNote,
+            Integer fixedCapacity) {
+        this(
+                tag,
+                name,
+                type,
+                optional,
+                repeated,
+                deprecated,
+                deprecationNote,
+                fixedCapacity,
+                false,
+                null,
+                false,
+                false,
+                false,
+                false,
+                null,
+                false,
+                null,
+                null);
+    }
+
+    /**
+     * Starts a field definition; every option not set on the builder takes its YAML default.
+     *
+     * @param tag the field tag, greater than 0
+     * @param name the field name
+     * @param type the field type
+     * @return a builder for the remaining options
+     */
+    public static Builder builder(int tag, String name, String type) {
+        return new Builder(tag, name, type);
+    }
+
+    /** Builds a {@link FieldDefinition} from its required parts and any options set. */
+    public static final class Builder {
+        private final int tag;
+        private final String name;
+        private final String type;
+        private boolean optional;
+        private boolean repeated;
+        private boolean deprecated;
+        private String deprecationNote;
+        private Integer fixedCapacity;
+        private boolean dictionary;
+        private Integer slack;
+        private boolean key;
+        private boolean hot;
+        private boolean concurrent;
+        private boolean inline;
+        private Integer fixedCount;
+        private boolean bitset;
+        private String constant;
+        private String sortedBy;
+
+        private Builder(int tag, String name, String type) {
+            this.tag = tag;
+            this.name = name;
+            this.type = type;
+        }
+
+        /**
+         * Sets whether the field may be absent from a message.
+         *
+         * @param optional true if the field is optional
+         * @return this builder for chaining
+         */
+        public Builder optional(boolean optional) {
+            this.optional = optional;
+            return this;
+        }
+
+        /**
+         * Sets whether the field holds a list of values.
+         *
+         * @param repeated true for a repeating group or list
+         * @return this builder for chaining
+         */
+        public Builder repeated(boolean repeated) {
+            this.repeated = repeated;
+            return this;
+        }
+
+        /**
+         * Sets whether the field is deprecated.
+         *
+         * @param deprecated true to mark the generated accessors deprecated
+         * @return this builder for chaining
+         */
+        public Builder deprecated(boolean deprecated) {
+            this.deprecated = deprecated;
+            return this;
+        }
+
+        /**
+         * Sets the explanation generated for a deprecated field.
+         *
+         * @param deprecationNote the note, or null for the default
+         * @return this builder for chaining
+         */
+        public Builder deprecationNote(String deprecationNote) {
+            this.deprecationNote = deprecationNote;
+            return this;
+        }
+
+        /**
+         * Sets the inline capacity of a string or bytes field ({@code fixed_capacity}).
+         *
+         * @param fixedCapacity the capacity in bytes, or null for a variable-length field
+         * @return this builder for chaining
+         */
+        public Builder fixedCapacity(Integer fixedCapacity) {
+            this.fixedCapacity = fixedCapacity;
+            return this;
+        }
+
+        /**
+         * Sets whether a string field is sent as a per-session dictionary id.
+         *
+         * @param dictionary true for dictionary encoding
+         * @return this builder for chaining
+         */
+        public Builder dictionary(boolean dictionary) {
+            this.dictionary = dictionary;
+            return this;
+        }
+
+        /**
+         * Sets the spare bytes reserved after a variable-length value for in-place updates.
+         *
+         * @param slack the slack in bytes, or null for none
+         * @return this builder for chaining
+         */
+        public Builder slack(Integer slack) {
+            this.slack = slack;
+            return this;
+        }
+
+        /**
+         * Sets whether the field is part of the message key used for equality, hashing and order.
+         *
+         * @param key true for a key field
+         * @return this builder for chaining
+         */
+        public Builder key(boolean key) {
+            this.key = key;
+            return this;
+        }
+
+        /**
+         * Sets whether the field is placed in the first cache line of the message.
+         *
+         * @param hot true for a hot field
+         * @return this builder for chaining
+         */
+        public Builder hot(boolean hot) {
+            this.hot = hot;
+            return this;
+        }
+
+        /**
+         * Sets whether the field gets {@code VarHandle} accessors for concurrent use.
+         *
+         * @param concurrent true for a concurrent field
+         * @return this builder for chaining
+         */
+        public Builder concurrent(boolean concurrent) {
+            this.concurrent = concurrent;
+            return this;
+        }
+
+        /**
+         * Sets whether a fixed-size message field is stored in the parent's fixed block.
+         *
+         * @param inline true to inline the nested message
+         * @return this builder for chaining
+         */
+        public Builder inline(boolean inline) {
+            this.inline = inline;
+            return this;
+        }
+
+        /**
+         * Sets the element count of an array stored in the fixed block ({@code fixed_count}).
+         *
+         * @param fixedCount the element count, or null for a variable-length group
+         * @return this builder for chaining
+         */
+        public Builder fixedCount(Integer fixedCount) {
+            this.fixedCount = fixedCount;
+            return this;
+        }
+
+        /**
+         * Sets whether a repeated enum field is stored as a bitset of enum ids.
+         *
+         * @param bitset true for a bitset field
+         * @return this builder for chaining
+         */
+        public Builder bitset(boolean bitset) {
+            this.bitset = bitset;
+            return this;
+        }
+
+        /**
+         * Sets the value of a constant field, which is generated rather than sent.
+         *
+         * @param constant the constant value, or null for a wire field
+         * @return this builder for chaining
+         */
+        public Builder constant(String constant) {
+            this.constant = constant;
+            return this;
+        }
+
+        /**
+         * Sets the element order of a repeated message field ({@code sorted_by}).
+         *
+         * @param sortedBy the {@code "<field> [asc|desc]"} order, or null if unsorted
+         * @return this builder for chaining
+         */
+        public Builder sortedBy(String sortedBy) {
+            this.sortedBy = sortedBy;
+            return this;
+        }
+
+        /**
+         * Builds the field definition, validating it like one parsed from a schema.
+         *
+         * @return a new FieldDefinition
+         * @throws IllegalArgumentException if the tag or a size option is out of range
+         */
+        public FieldDefinition build() {
+            return new FieldDefinition(
+                    tag,
+                    name,
+                    type,
+                    optional,
+                    repeated,
+                    deprecated,
+                    deprecationNote,
+                    fixedCapacity,
+                    dictionary,
+                    slack,
+                    key,
+                    hot,
+                    concurrent,
+                    inline,
+                    fixedCount,
+                    bitset,
+                    constant,
+                    sortedBy);
+        }
     }
 }
@@ -0,0 +1,34 @@
+package express.mvp.myra.codec.schema;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The key and value types of a {@code map<K, V>} field type.
+ *
+ * <p>Whitespace around the type arguments is ignored, so {@code map<string,int64>} and {@code
+ * map<string, int64>} describe the same map. Which key and value types a schema may use is
+ * checked by the resolver, not here.
+ *
+ * @param keyType the key type, e.g. {@code string}
+ * @param valueType the value type, e.g. {@code int64} or an enum name
+ */
+public record MapType(String keyType, String valueType) {
+
+    private static final Pattern MAP_PATTERN =
+            Pattern.compile("^map\\s*<\\s*([\\w.]+)\\s*,\\s*([\\w.]+)\\s*>$");
+
+    /**
+     * Parses a field type as a map type.
+     *
+     * @param type the field type; may be null
+     * @return the map type, or null if {@code type} is not of the form {@code map<K, V>}
+     */
+    public static MapType parse(String type) {
+        if (type == null) {
+            return null;
+        }
+        Matcher matcher = MAP_PATTERN.matcher(type.trim());
+        return matcher.matches() ? new MapType(matcher.group(1), matcher.group(2)) : null;
+    }
+}
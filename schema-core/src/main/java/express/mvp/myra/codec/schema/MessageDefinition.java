@@ -1,5 +1,140 @@
 package express.mvp.myra.codec.schema;
 
 import java.util.List;
+import java.util.Map;
 
-public record MessageDefinition(String name, List<FieldDefinition> fields) {}
+public record MessageDefinition(
+        String name,
+        List<FieldDefinition> fields,
+        String layout,
+        boolean bitfields,
+        boolean sparse,
+        List<OneofDefinition> oneofs,
+        Map<String, String> defaults,
+        List<ProjectionDefinition> projections) {
+    public MessageDefinition {
+        if (oneofs == null) {
+            oneofs = List.of();
+        }
+        if (defaults == null) {
+            defaults = Map.of();
+        }
+        if (projections == null) {
+            projections = List.of();
+        }
+    }
+
+    /**
+     * Creates a message with the default layout and no oneofs, defaults or projections.
+     *
+     * @param name the message name
+     * @param fields the message fields
+     */
+    public MessageDefinition(String name, List<FieldDefinition> fields) {
+        this(name, fields, null, false, false, null, null, null);
+    }
+
+    /**
+     * Starts a message definition; every option not set on the builder takes its YAML default.
+     *
+     * @param name the message name
+     * @param fields the message fields
+     * @return a builder for the remaining options
+     */
+    public static Builder builder(String name, List<FieldDefinition> fields) {
+        return new Builder(name, fields);
+    }
+
+    /** Builds a {@link MessageDefinition} from its name, its fields and any options set. */
+    public static final class Builder {
+        private final String name;
+        private final List<FieldDefinition> fields;
+        private String layout;
+        private boolean bitfields;
+        private boolean sparse;
+        private List<OneofDefinition> oneofs;
+        private Map<String, String> defaults;
+        private List<ProjectionDefinition> projections;
+
+        private Builder(String name, List<FieldDefinition> fields) {
+            this.name = name;
+            this.fields = fields;
+        }
+
+        /**
+         * Sets how fixed-size fields are placed in the fixed block.
+         *
+         * @param layout {@code "packed"} or {@code "aligned"}; null means packed
+         * @return this builder for chaining
+         */
+        public Builder layout(String layout) {
+            this.layout = layout;
+            return this;
+        }
+
+        /**
+         * Sets whether bools and small enums are packed into a shared bitfield word.
+         *
+         * @param bitfields true to pack eligible fields
+         * @return this builder for chaining
+         */
+        public Builder bitfields(boolean bitfields) {
+            this.bitfields = bitfields;
+            return this;
+        }
+
+        /**
+         * Sets whether present optional fields are stored behind a presence rank index.
+         *
+         * @param sparse true for sparse optional fields
+         * @return this builder for chaining
+         */
+        public Builder sparse(boolean sparse) {
+            this.sparse = sparse;
+            return this;
+        }
+
+        /**
+         * Sets the oneof groups of the message.
+         *
+         * @param oneofs the groups, each holding at most one set option
+         * @return this builder for chaining
+         */
+        public Builder oneofs(List<OneofDefinition> oneofs) {
+            this.oneofs = oneofs;
+            return this;
+        }
+
+        /**
+         * Sets the values fields take when a builder does not set them.
+         *
+         * @param defaults the default value of each field, by field name
+         * @return this builder for chaining
+         */
+        public Builder defaults(Map<String, String> defaults) {
+            this.defaults = defaults;
+            return this;
+        }
+
+        /**
+         * Sets the projection messages derived from this one.
+         *
+         * @param projections the projections, each selecting a subset of the fields
+         * @return this builder for chaining
+         */
+        public Builder projections(List<ProjectionDefinition> projections) {
+            this.projections = projections;
+            return this;
+        }
+
+        /**
+         * Builds the message definition.
+         *
+         * @return a new MessageDefinition
+         */
+        public MessageDefinition build() {
+            return new MessageDefinition(
+                    name, fields, layout, bitfields, sparse, oneofs, defaults, projections);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package express.mvp.myra.codec.schema;
+
+import java.util.List;
+
+/**
+ * A {@code oneofs} group of a message: options of which at most one is set, sharing one case byte.
+ *
+ * @param name the group name
+ * @param fields the options, declared like regular fields
+ */
+public record OneofDefinition(String name, List<FieldDefinition> fields) {}
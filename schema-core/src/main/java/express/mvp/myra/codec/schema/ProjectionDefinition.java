@@ -0,0 +1,11 @@
+package express.mvp.myra.codec.schema;
+
+import java.util.List;
+
+/**
+ * An entry of a message's {@code projections}: a further message holding a subset of its fields.
+ *
+ * @param name the name of the projection message
+ * @param fields the names of the selected fields and oneofs of the declaring message
+ */
+public record ProjectionDefinition(String name, List<String> fields) {}
@@ -0,0 +1,97 @@
+package express.mvp.myra.codec.schema;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fixed-width field types with a richer meaning than their storage: {@code uuid}, {@code
+ * timestamp_nanos}, {@code timestamp_millis}, {@code decimal(S)}, {@code ascii8} and {@code
+ * ascii16}.
+ *
+ * <p>{@code uuid} and {@code ascii16} are two big-endian int64 words, the rest a single one. A
+ * {@code decimal(S)} holds the unscaled value, so {@code 12.34} in a {@code decimal(4)} field is
+ * stored as {@code 123400}. Whether a scale is in range is checked by the resolver, not here.
+ * {@code ascii8} and {@code ascii16} pack up to 8 or 16 ASCII characters, first character in the
+ * most significant byte and padded with zero bytes, so packed values compare like the text.
+ *
+ * <p>The variable-length {@code ascii} type is not a rich type: it is stored exactly like {@code
+ * string}, since ASCII text is valid UTF-8.
+ */
+public enum RichType {
+    /** A 128-bit UUID, stored as its most and least significant words. */
+    UUID(16),
+    /** Nanoseconds since the Unix epoch. */
+    TIMESTAMP_NANOS(8),
+    /** Milliseconds since the Unix epoch. */
+    TIMESTAMP_MILLIS(8),
+    /** A fixed-point number stored as an unscaled int64 with a schema-declared scale. */
+    DECIMAL(8),
+    /** Up to 8 ASCII characters packed into one word. */
+    ASCII8(8),
+    /** Up to 16 ASCII characters packed into two words, the first 8 in the high word. */
+    ASCII16(16);
+
+    /** The largest decimal scale whose power of ten still fits in an int64. */
+    public static final int MAX_DECIMAL_SCALE = 18;
+
+    private static final Pattern DECIMAL_PATTERN =
+            Pattern.compile("^decimal\\s*\\(\\s*(\\d{1,3})\\s*\\)$");
+
+    private final int size;
+
+    RichType(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Returns the slot size of this type.
+     *
+     * @return the size in bytes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether values of this type are a single int64.
+     *
+     * @return true for everything but {@link #UUID} and {@link #ASCII16}
+     */
+    public boolean int64Backed() {
+        return size == 8;
+    }
+
+    /**
+     * Classifies a field type.
+     *
+     * @param type the field type; may be null
+     * @return the rich type, or null if {@code type} is not one (including a bare {@code decimal})
+     */
+    public static RichType of(String type) {
+        if (type == null) {
+            return null;
+        }
+        return switch (type.trim()) {
+            case "uuid" -> UUID;
+            case "timestamp_nanos" -> TIMESTAMP_NANOS;
+            case "timestamp_millis" -> TIMESTAMP_MILLIS;
+            case "ascii8" -> ASCII8;
+            case "ascii16" -> ASCII16;
+            default -> decimalScale(type) >= 0 ? DECIMAL : null;
+        };
+    }
+
+    /**
+     * Parses the scale of a {@code decimal(S)} field type.
+     *
+     * @param type the field type; may be null
+     * @return the scale, or -1 if {@code type} is not of the form {@code decimal(S)}
+     */
+    public static int decimalScale(String type) {
+        if (type == null) {
+            return -1;
+        }
+        Matcher matcher = DECIMAL_PATTERN.matcher(type.trim());
+        return matcher.matches() ? Integer.parseInt(matcher.group(1)) : -1;
+    }
+}
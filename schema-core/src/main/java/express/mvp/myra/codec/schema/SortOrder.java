@@ -0,0 +1,40 @@
+package express.mvp.myra.codec.schema;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The key field and direction of a {@code sorted_by} attribute, e.g. {@code priceNanos desc}.
+ *
+ * <p>The direction is optional and defaults to ascending. Whether the key names a field the
+ * elements can be sorted by is checked by the resolver, not here.
+ *
+ * @param keyField the element field the group is ordered by
+ * @param descending whether greater keys come first
+ */
+public record SortOrder(String keyField, boolean descending) {
+
+    private static final Pattern SORT_PATTERN = Pattern.compile("^(\\w+)(?:\\s+(asc|desc))?$");
+
+    /**
+     * Parses a {@code sorted_by} attribute.
+     *
+     * @param sortedBy the attribute; may be null
+     * @return the sort order, or null if {@code sortedBy} is not of the form {@code <field>
+     *     [asc|desc]}
+     */
+    public static SortOrder parse(String sortedBy) {
+        if (sortedBy == null) {
+            return null;
+        }
+        Matcher matcher = SORT_PATTERN.matcher(sortedBy.trim());
+        return matcher.matches()
+                ? new SortOrder(matcher.group(1), "desc".equals(matcher.group(2)))
+                : null;
+    }
+
+    @Override
+    public String toString() {
+        return keyField + (descending ? " desc" : " asc");
+    }
+}
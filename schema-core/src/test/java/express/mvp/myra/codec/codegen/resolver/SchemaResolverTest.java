@@ -6,6 +6,8 @@ import express.mvp.myra.codec.schema.EnumDefinition;
 import express.mvp.myra.codec.schema.EnumValueDefinition;
 import express.mvp.myra.codec.schema.FieldDefinition;
 import express.mvp.myra.codec.schema.MessageDefinition;
+import express.mvp.myra.codec.schema.OneofDefinition;
+import express.mvp.myra.codec.schema.ProjectionDefinition;
 import express.mvp.myra.codec.schema.SchemaDefinition;
 import java.nio.file.Path;
 import java.util.List;
@@ -304,6 +306,1388 @@ class SchemaResolverTest {
                 assertTrue(ex.getMessage().contains("Lock file schema namespace"));
         }
 
+    @Test
+    void resolve_ShouldCarryDictionaryFlagOnStringFields() {
+        SchemaDefinition schema =
+                new SchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new MessageDefinition(
+                                        "Quote",
+                                        List.of(
+                                                FieldDefinition.builder(1, "venue", "string")
+                                                        .dictionary(true)
+                                                        .build(),
+                                                new FieldDefinition(
+                                                        2, "price", "int64", false, false, false,
+                                                        "", null)))),
+                        List.of());
+
+        ResolutionResult result =
+                SchemaResolver.resolve(schema, null, tempDir.resolve("dict.myra.yml"));
+
+        List<ResolvedFieldDefinition> fields =
+                result.resolvedSchema().messages().getFirst().fields();
+        assertTrue(fields.get(0).dictionary());
+        assertFalse(fields.get(1).dictionary());
+    }
+
+    @Test
+    void resolve_ShouldRejectDictionaryOnNonStringFields() {
+        SchemaDefinition schema =
+                new SchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new MessageDefinition(
+                                        "Quote",
+                                        List.of(
+                                                FieldDefinition.builder(1, "price", "int64")
+                                                        .dictionary(true)
+                                                        .build()))),
+                        List.of());
+
+        IllegalStateException ex =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                SchemaResolver.resolve(
+                                        schema, null, tempDir.resolve("dict.myra.yml")));
+        assertTrue(ex.getMessage().contains("dictionary encoding"));
+    }
+
+    @Test
+    void resolve_ShouldCarrySlackOnVariableLengthFields() {
+        SchemaDefinition schema =
+                new SchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new MessageDefinition(
+                                        "State",
+                                        List.of(
+                                                FieldDefinition.builder(1, "status", "string")
+                                                        .slack(16)
+                                                        .build(),
+                                                new FieldDefinition(
+                                                        2, "blob", "bytes", false, false, false,
+                                                        "", null)))),
+                        List.of());
+
+        ResolutionResult result =
+                SchemaResolver.resolve(schema, null, tempDir.resolve("state.myra.yml"));
+
+        List<ResolvedFieldDefinition> fields =
+                result.resolvedSchema().messages().getFirst().fields();
+        assertEquals(16, fields.get(0).slack());
+        assertNull(fields.get(1).slack());
+        assertEquals(
+                "string+slack",
+                result.updatedLockFile().messages.get("State").layout.fields.get(0).encoding);
+    }
+
+    @Test
+    void resolve_ShouldRejectSlackOnFixedSizeFields() {
+        SchemaDefinition schema =
+                new SchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new MessageDefinition(
+                                        "State",
+                                        List.of(
+                                                FieldDefinition.builder(1, "code", "string")
+                                                        .fixedCapacity(8)
+                                                        .slack(16)
+                                                        .build()))),
+                        List.of());
+
+        IllegalStateException ex =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                SchemaResolver.resolve(
+                                        schema, null, tempDir.resolve("state.myra.yml")));
+        assertTrue(ex.getMessage().contains("reserves slack"));
+    }
+
+    @Test
+    void resolve_ShouldCarryKeyFlagOnFields() {
+        SchemaDefinition schema =
+                new SchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new MessageDefinition(
+                                        "Quote",
+                                        List.of(
+                                                FieldDefinition.builder(1, "symbol", "string")
+                                                        .key(true)
+                                                        .build(),
+                                                new FieldDefinition(
+                                                        2, "bid", "int64", false, false, false,
+                                                        "", null)))),
+                        List.of());
+
+        ResolutionResult result =
+                SchemaResolver.resolve(schema, null, tempDir.resolve("quote.myra.yml"));
+
+        List<ResolvedFieldDefinition> fields =
+                result.resolvedSchema().messages().getFirst().fields();
+        assertTrue(fields.get(0).key());
+        assertFalse(fields.get(1).key());
+    }
+
+    @Test
+    void resolve_ShouldRejectKeyOnRepeatedFields() {
+        SchemaDefinition schema =
+                new SchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new MessageDefinition(
+                                        "Quote",
+                                        List.of(
+                                                FieldDefinition.builder(1, "levels", "int64")
+                                                        .repeated(true)
+                                                        .key(true)
+                                                        .build()))),
+                        List.of());
+
+        IllegalStateException ex =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                SchemaResolver.resolve(
+                                        schema, null, tempDir.resolve("quote.myra.yml")));
+        assertTrue(ex.getMessage().contains("is marked as a key"));
+    }
+
+    @Test
+    void resolve_ShouldRejectKeyOnDictionaryFields() {
+        SchemaDefinition schema =
+                new SchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new MessageDefinition(
+                                        "Quote",
+                                        List.of(
+                                                FieldDefinition.builder(1, "venue", "string")
+                                                        .dictionary(true)
+                                                        .key(true)
+                                                        .build()))),
+                        List.of());
+
+        // A dictionary id is per session, so it cannot order keys by their string bytes.
+        IllegalStateException ex =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                SchemaResolver.resolve(
+                                        schema, null, tempDir.resolve("quote.myra.yml")));
+        assertTrue(ex.getMessage().contains("is marked as a key"));
+    }
+
+    @Test
+    void resolve_ShouldRecordMessageLayoutInLockFile() {
+        SchemaDefinition schema =
+                new SchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new MessageDefinition(
+                                        "Order",
+                                        List.of(
+                                                new FieldDefinition(
+                                                        1, "note", "string", true, false, false,
+                                                        "", null),
+                                                new FieldDefinition(
+                                                        2, "price", "int64", false, false, false,
+                                                        "", null)))),
+                        List.of());
+
+        ResolutionResult result =
+                SchemaResolver.resolve(schema, null, tempDir.resolve("order.myra.yml"));
+
+        LockFile.LayoutLock layout = result.updatedLockFile().messages.get("Order").layout;
+        assertNotNull(layout);
+        assertEquals(1, layout.presenceBytes);
+        assertEquals(17, layout.blockLength);
+        // Fixed fields come first, var-field headers follow.
+        assertEquals("price", layout.fields.get(0).name);
+        assertEquals(1, layout.fields.get(0).offset);
+        assertEquals("note", layout.fields.get(1).name);
+        assertEquals(9, layout.fields.get(1).offset);
+        assertTrue(layout.fields.get(1).variable);
+        assertEquals(0, layout.fields.get(1).presenceBit);
+    }
+
+    @Test
+    void resolve_ShouldCarryLayoutsOfEarlierVersionsForward() {
+        Path path = tempDir.resolve("tick.myra.yml");
+        LockFile v10 = SchemaResolver.resolve(tickSchema("1.0.0"), null, path).updatedLockFile();
+        assertTrue(v10.messages.get("Tick").previousLayouts.isEmpty());
+
+        LockFile v11 = SchemaResolver.resolve(tickSchema("1.1.0"), v10, path).updatedLockFile();
+        assertEquals(
+                List.of("1.0"), List.copyOf(v11.messages.get("Tick").previousLayouts.keySet()));
+
+        // Resolving again at the same version keeps the history rather than replacing it.
+        LockFile again = SchemaResolver.resolve(tickSchema("1.1.2"), v11, path).updatedLockFile();
+        assertEquals(
+                List.of("1.0"), List.copyOf(again.messages.get("Tick").previousLayouts.keySet()));
+
+        LockFile v12 = SchemaResolver.resolve(tickSchema("1.2.0"), again, path).updatedLockFile();
+        assertEquals(
+                List.of("1.0", "1.1"),
+                List.copyOf(v12.messages.get("Tick").previousLayouts.keySet()));
+        assertEquals(8, v12.messages.get("Tick").previousLayouts.get("1.0").blockLength);
+    }
+
+    private static SchemaDefinition tickSchema(String version) {
+        return new SchemaDefinition(
+                "com.test",
+                version,
+                List.of(
+                        new MessageDefinition(
+                                "Tick",
+                                List.of(
+                                        new FieldDefinition(
+                                                1, "price", "int64", false, false, false, "",
+                                                null)))),
+                List.of());
+    }
+
+    @Test
+    void resolve_ShouldAlignFixedFieldsInAlignedLayout() {
+        SchemaDefinition schema =
+                new SchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                MessageDefinition.builder(
+                                                "Tick",
+                                                List.of(
+                                                        new FieldDefinition(
+                                                                1, "live", "bool", true, false,
+                                                                false, "", null),
+                                                        new FieldDefinition(
+                                                                2, "venue", "int16", false, false,
+                                                                false, "", null),
+                                                        new FieldDefinition(
+                                                                3, "qty", "int32", false, false,
+                                                                false, "", null),
+                                                        new FieldDefinition(
+                                                                4, "price", "int64", false, false,
+                                                                false, "", null),
+                                                        new FieldDefinition(
+                                                                5, "note", "string", false, false,
+                                                                false, "", null)))
+                                        .layout("aligned")
+                                        .build()),
+                        List.of());
+
+        ResolutionResult result =
+                SchemaResolver.resolve(schema, null, tempDir.resolve("tick.myra.yml"));
+
+        assertTrue(result.resolvedSchema().messages().getFirst().aligned());
+        LockFile.LayoutLock layout = result.updatedLockFile().messages.get("Tick").layout;
+        assertTrue(layout.aligned);
+        // Largest alignment first, each slot on its natural boundary after the presence byte.
+        assertEquals("price", layout.fields.get(0).name);
+        assertEquals(8, layout.fields.get(0).offset);
+        assertEquals("qty", layout.fields.get(1).name);
+        assertEquals(16, layout.fields.get(1).offset);
+        assertEquals("venue", layout.fields.get(2).name);
+        assertEquals(20, layout.fields.get(2).offset);
+        assertEquals("live", layout.fields.get(3).name);
+        assertEquals(22, layout.fields.get(3).offset);
+        // Var headers start on an 8-byte boundary and close the block.
+        assertEquals("note", layout.fields.get(4).name);
+        assertEquals(24, layout.fields.get(4).offset);
+        assertEquals(32, layout.blockLength);
+    }
+
+    @Test
+    void resolve_ShouldRejectUnknownLayoutMode() {
+        SchemaDefinition schema =
+                new SchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                MessageDefinition.builder(
+                                                "Tick",
+                                                List.of(
+                                                        new FieldDefinition(
+                                                                1, "price", "int64", false, false,
+                                                                false, "", null)))
+                                        .layout("sparse")
+                                        .build()),
+                        List.of());
+
+        IllegalStateException ex =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                SchemaResolver.resolve(
+                                        schema, null, tempDir.resolve("tick.myra.yml")));
+        assertTrue(ex.getMessage().contains("unknown layout 'sparse'"));
+    }
+
+    @Test
+    void resolve_ShouldRejectNestingAlignedMessages() {
+        SchemaDefinition schema =
+                new SchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                MessageDefinition.builder(
+                                                "Tick",
+                                                List.of(
+                                                        new FieldDefinition(
+                                                                1, "price", "int64", false, false,
+                                                                false, "", null)))
+                                        .layout("aligned")
+                                        .build(),
+                                new MessageDefinition(
+                                        "Batch",
+                                        List.of(
+                                                new FieldDefinition(
+                                                        1, "ticks", "Tick", false, true, false,
+                                                        "", null)))),
+                        List.of());
+
+        IllegalStateException ex =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                SchemaResolver.resolve(
+                                        schema, null, tempDir.resolve("batch.myra.yml")));
+        assertTrue(ex.getMessage().contains("cannot be nested"));
+    }
+
+    @Test
+    void resolve_ShouldPlaceHotFieldsFirst() {
+        SchemaDefinition schema =
+                new SchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new MessageDefinition(
+                                        "Fill",
+                                        List.of(
+                                                new FieldDefinition(
+                                                        1, "account", "string", false, false,
+                                                        false, "", 32),
+                                                new FieldDefinition(
+                                                        2, "execId", "int64", false, false, false,
+                                                        "", null),
+                                                FieldDefinition.builder(3, "price", "int64")
+                                                        .hot(true)
+                                                        .build(),
+                                                FieldDefinition.builder(4, "qty", "int32")
+                                                        .hot(true)
+                                                        .build()))),
+                        List.of());
+
+        ResolutionResult result =
+                SchemaResolver.resolve(schema, null, tempDir.resolve("fill.myra.yml"));
+
+        assertTrue(result.resolvedSchema().messages().getFirst().fields().get(2).hot());
+        LockFile.LayoutLock layout = result.updatedLockFile().messages.get("Fill").layout;
+        // Hot fields lead in declaration order; cold fixed fields follow.
+        assertEquals("price", layout.fields.get(0).name);
+        assertEquals(0, layout.fields.get(0).offset);
+        assertEquals("qty", layout.fields.get(1).name);
+        assertEquals(8, layout.fields.get(1).offset);
+        assertEquals("account", layout.fields.get(2).name);
+        assertEquals(12, layout.fields.get(2).offset);
+        assertEquals("execId", layout.fields.get(3).name);
+        assertEquals(48, layout.fields.get(3).offset);
+    }
+
+    @Test
+    void resolve_ShouldRejectHotVariableLengthFields() {
+        SchemaDefinition schema =
+                new SchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new MessageDefinition(
+                                        "Fill",
+                                        List.of(
+                                                FieldDefinition.builder(1, "note", "string")
+                                                        .hot(true)
+                                                        .build()))),
+                        List.of());
+
+        IllegalStateException ex =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                SchemaResolver.resolve(
+                                        schema, null, tempDir.resolve("fill.myra.yml")));
+        assertTrue(ex.getMessage().contains("is marked hot"));
+    }
+
+    @Test
+    void resolve_ShouldRejectHotFieldsBeyondFirstCacheLine() {
+        SchemaDefinition schema =
+                new SchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new MessageDefinition(
+                                        "Fill",
+                                        List.of(
+                                                FieldDefinition.builder(1, "account", "string")
+                                                        .fixedCapacity(60)
+                                                        .hot(true)
+                                                        .build(),
+                                                FieldDefinition.builder(2, "price", "int64")
+                                                        .hot(true)
+                                                        .build()))),
+                        List.of());
+
+        IllegalStateException ex =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                SchemaResolver.resolve(
+                                        schema, null, tempDir.resolve("fill.myra.yml")));
+        assertTrue(ex.getMessage().contains("Hot fields of message 'Fill' end at byte 72"));
+    }
+
+    @Test
+    void resolve_ShouldCarryConcurrentFlagInAlignedMessages() {
+        SchemaDefinition schema =
+                new SchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                MessageDefinition.builder(
+                                                "Cursor",
+                                                List.of(
+                                                        FieldDefinition.builder(
+                                                                        1, "sequence", "int64")
+                                                                .concurrent(true)
+                                                                .build()))
+                                        .layout("aligned")
+                                        .build()),
+                        List.of());
+
+        ResolutionResult result =
+                SchemaResolver.resolve(schema, null, tempDir.resolve("cursor.myra.yml"));
+
+        assertTrue(result.resolvedSchema().messages().getFirst().fields().getFirst().concurrent());
+    }
+
+    @Test
+    void resolve_ShouldRejectConcurrentFieldsInPackedMessages() {
+        SchemaDefinition schema =
+                new SchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new MessageDefinition(
+                                        "Cursor",
+                                        List.of(
+                                                FieldDefinition.builder(1, "sequence", "int64")
+                                                        .concurrent(true)
+                                                        .build()))),
+                        List.of());
+
+        IllegalStateException ex =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                SchemaResolver.resolve(
+                                        schema, null, tempDir.resolve("cursor.myra.yml")));
+        assertTrue(ex.getMessage().contains("requires layout 'aligned'"));
+    }
+
+    @Test
+    void resolve_ShouldRejectConcurrentNonIntegralFields() {
+        SchemaDefinition schema =
+                new SchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                MessageDefinition.builder(
+                                                "Cursor",
+                                                List.of(
+                                                        FieldDefinition.builder(
+                                                                        1, "price", "float64")
+                                                                .concurrent(true)
+                                                                .build()))
+                                        .layout("aligned")
+                                        .build()),
+                        List.of());
+
+        IllegalStateException ex =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                SchemaResolver.resolve(
+                                        schema, null, tempDir.resolve("cursor.myra.yml")));
+        assertTrue(ex.getMessage().contains("is marked concurrent"));
+    }
+
+    @Test
+    void resolve_ShouldEmbedInlineMessagesInParentBlock() {
+        SchemaDefinition schema = inlineSchema("int32", "Trade");
+
+        ResolutionResult result =
+                SchemaResolver.resolve(schema, null, tempDir.resolve("book.myra.yml"));
+
+        LockFile.LayoutLock layout = result.updatedLockFile().messages.get("Book").layout;
+        // [presence:1][lastTrade: Trade block of 12][symbol header:8]
+        assertEquals(21, layout.blockLength);
+        assertEquals("lastTrade", layout.fields.get(0).name);
+        assertEquals("inline:Trade", layout.fields.get(0).encoding);
+        assertEquals(1, layout.fields.get(0).offset);
+        assertEquals(12, layout.fields.get(0).size);
+        assertFalse(layout.fields.get(0).variable);
+        assertEquals(0, layout.fields.get(0).presenceBit);
+    }
+
+    @Test
+    void resolve_ShouldRejectInlineMessagesWithVarFields() {
+        SchemaDefinition schema = inlineSchema("string", "Trade");
+
+        IllegalStateException ex =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                SchemaResolver.resolve(
+                                        schema, null, tempDir.resolve("book.myra.yml")));
+        assertTrue(ex.getMessage().contains("inlines message 'Trade', which is not fixed-size"));
+    }
+
+    @Test
+    void resolve_ShouldRejectInlineOnNonMessageFields() {
+        SchemaDefinition schema = inlineSchema("int32", "int64");
+
+        IllegalStateException ex =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                SchemaResolver.resolve(
+                                        schema, null, tempDir.resolve("book.myra.yml")));
+        assertTrue(ex.getMessage().contains("is marked inline"));
+    }
+
+    @Test
+    void resolve_ShouldRejectSelfContainingInlineMessages() {
+        SchemaDefinition schema =
+                new SchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new MessageDefinition(
+                                        "Node",
+                                        List.of(
+                                                new FieldDefinition(
+                                                        1, "value", "int64", false, false,
+                                                        false, "", null),
+                                                FieldDefinition.builder(2, "next", "Node")
+                                                        .optional(true)
+                                                        .inline(true)
+                                                        .build()))),
+                        List.of());
+
+        IllegalStateException ex =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                SchemaResolver.resolve(
+                                        schema, null, tempDir.resolve("node.myra.yml")));
+        assertTrue(ex.getMessage().contains("inlines message 'Node', which is not fixed-size"));
+    }
+
+    @Test
+    void resolve_ShouldAllowRecursionOnlyThroughOptionalOrRepeatedFields() {
+        SchemaDefinition endless = recursiveSchema(false);
+        IllegalStateException ex =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                SchemaResolver.resolve(
+                                        endless, null, tempDir.resolve("endless.myra.yml")));
+        assertTrue(ex.getMessage().contains("Field 'parent' in message 'Expr'"));
+        assertTrue(ex.getMessage().contains("contain itself through required fields"));
+
+        ResolutionResult result =
+                SchemaResolver.resolve(
+                        recursiveSchema(true), null, tempDir.resolve("tree.myra.yml"));
+        assertEquals(2, result.resolvedSchema().messages().size());
+    }
+
+    private SchemaDefinition recursiveSchema(boolean optionalParent) {
+        return new SchemaDefinition(
+                "com.test",
+                "1.0.0",
+                List.of(
+                        new MessageDefinition(
+                                "Expr",
+                                List.of(
+                                        new FieldDefinition(
+                                                1, "op", "int32", false, false, false, "",
+                                                null),
+                                        new FieldDefinition(
+                                                2, "parent", "Scope", optionalParent, false,
+                                                false, "", null),
+                                        new FieldDefinition(
+                                                3, "args", "Expr", false, true, false, "",
+                                                null))),
+                        new MessageDefinition(
+                                "Scope",
+                                List.of(
+                                        new FieldDefinition(
+                                                1, "owner", "Expr", false, false, false, "",
+                                                null)))),
+                List.of());
+    }
+
+    @Test
+    void resolve_ShouldPackBoolsAndSmallEnumsIntoBitfieldWord() {
+        SchemaDefinition schema =
+                new SchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                MessageDefinition.builder(
+                                                "Level",
+                                                List.of(
+                                                        new FieldDefinition(
+                                                                1, "price", "int64", false, false,
+                                                                false, "", null),
+                                                        new FieldDefinition(
+                                                                2, "maker", "bool", false, false,
+                                                                false, "", null),
+                                                        new FieldDefinition(
+                                                                3, "side", "Side", true, false,
+                                                                false, "", null),
+                                                        new FieldDefinition(
+                                                                4, "venue", "Venue", false, false,
+                                                                false, "", null)))
+                                        .bitfields(true)
+                                        .build()),
+                        List.of(
+                                new EnumDefinition(
+                                        "Side",
+                                        "int8",
+                                        List.of(
+                                                new EnumValueDefinition("BUY", 0),
+                                                new EnumValueDefinition("SELL", 1),
+                                                new EnumValueDefinition("CROSS", 5))),
+                                new EnumDefinition(
+                                        "Venue",
+                                        "int8",
+                                        List.of(
+                                                new EnumValueDefinition("XNAS", 0),
+                                                new EnumValueDefinition("XLON", 40)))));
+
+        ResolutionResult result =
+                SchemaResolver.resolve(schema, null, tempDir.resolve("level.myra.yml"));
+
+        assertTrue(result.resolvedSchema().messages().getFirst().bitfields());
+        LockFile.LayoutLock layout = result.updatedLockFile().messages.get("Level").layout;
+        // [presence:1][word:1 maker@0 side@1..3][price:8][venue:1]; Venue needs 6 bits.
+        assertEquals("maker", layout.fields.get(0).name);
+        assertEquals("bool:1@0", layout.fields.get(0).encoding);
+        assertEquals(1, layout.fields.get(0).offset);
+        assertEquals("side", layout.fields.get(1).name);
+        assertEquals("int8:3@1", layout.fields.get(1).encoding);
+        assertEquals(1, layout.fields.get(1).offset);
+        assertEquals(0, layout.fields.get(1).presenceBit);
+        assertEquals("price", layout.fields.get(2).name);
+        assertEquals(2, layout.fields.get(2).offset);
+        assertEquals("venue", layout.fields.get(3).name);
+        assertEquals("int8", layout.fields.get(3).encoding);
+        assertEquals(11, layout.blockLength);
+    }
+
+    @Test
+    void resolve_ShouldMoveOptionalScalarsOfSparseMessagesOutOfTheBlock() {
+        SchemaDefinition schema =
+                new SchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                MessageDefinition.builder(
+                                                "Quote",
+                                                List.of(
+                                                        new FieldDefinition(
+                                                                1, "id", "int64", false, false,
+                                                                false, "", null),
+                                                        new FieldDefinition(
+                                                                2, "bid", "int64", true, false,
+                                                                false, "", null),
+                                                        new FieldDefinition(
+                                                                3, "note", "string", true, false,
+                                                                false, "", null),
+                                                        new FieldDefinition(
+                                                                4, "size", "int32", true, false,
+                                                                false, "", null)))
+                                        .sparse(true)
+                                        .build()),
+                        List.of());
+
+        ResolutionResult result =
+                SchemaResolver.resolve(schema, null, tempDir.resolve("quote.myra.yml"));
+
+        assertTrue(result.resolvedSchema().messages().getFirst().sparse());
+        LockFile.LayoutLock layout = result.updatedLockFile().messages.get("Quote").layout;
+        // [presence:1][sparse header:8][id:8][note header:8]; bid and size follow the var data.
+        assertEquals("id", layout.fields.get(0).name);
+        assertEquals(9, layout.fields.get(0).offset);
+        assertEquals("note", layout.fields.get(1).name);
+        assertEquals(17, layout.fields.get(1).offset);
+        assertEquals("bid", layout.fields.get(2).name);
+        assertEquals("sparse:int64", layout.fields.get(2).encoding);
+        assertEquals(0, layout.fields.get(2).offset);
+        assertEquals("size", layout.fields.get(3).name);
+        assertEquals("sparse:int32", layout.fields.get(3).encoding);
+        assertEquals(8, layout.fields.get(3).offset);
+        assertEquals(2, layout.fields.get(3).presenceBit);
+        assertEquals(25, layout.blockLength);
+    }
+
+    @Test
+    void resolve_ShouldRejectSparseAlignedMessages() {
+        SchemaDefinition schema =
+                new SchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                MessageDefinition.builder(
+                                                "Quote",
+                                                List.of(
+                                                        new FieldDefinition(
+                                                                1, "bid", "int64", true, false,
+                                                                false, "", null)))
+                                        .layout("aligned")
+                                        .sparse(true)
+                                        .build()),
+                        List.of());
+
+        IllegalStateException ex =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                SchemaResolver.resolve(
+                                        schema, null, tempDir.resolve("quote.myra.yml")));
+        assertTrue(ex.getMessage().contains("cannot be combined with layout 'aligned'"));
+    }
+
+    @Test
+    void resolve_ShouldLayOutOneofsAsCaseByteAndSharedVarHeader() {
+        SchemaDefinition schema =
+                new SchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                MessageDefinition.builder(
+                                                "Order",
+                                                List.of(
+                                                        new FieldDefinition(
+                                                                1, "id", "int64", false, false,
+                                                                false, "", null),
+                                                        new FieldDefinition(
+                                                                2, "note", "string", false, false,
+                                                                false, "", null)))
+                                        .oneofs(
+                                                List.of(
+                                                        new OneofDefinition(
+                                                                "payment",
+                                                                List.of(
+                                                                        new FieldDefinition(
+                                                                                4, "iban", "string",
+                                                                                false, false, false,
+                                                                                "", null),
+                                                                        new FieldDefinition(
+                                                                                3, "amount",
+                                                                                "int64", false,
+                                                                                false, false, "",
+                                                                                null)))))
+                                        .build()),
+                        List.of());
+
+        ResolutionResult result =
+                SchemaResolver.resolve(schema, null, tempDir.resolve("order.myra.yml"));
+
+        ResolvedOneofDefinition oneof =
+                result.resolvedSchema().messages().getFirst().oneofs().getFirst();
+        assertEquals("paymentCase", oneof.caseName());
+        // Options are numbered in tag order: amount is case 1, iban case 2.
+        assertEquals("amount", oneof.fields().get(0).name());
+        assertEquals(3, oneof.fields().get(0).id());
+        assertEquals("iban", oneof.fields().get(1).name());
+        LockFile.MessageLock lock = result.updatedLockFile().messages.get("Order");
+        assertEquals(4, lock.fields.get("iban").intValue());
+        // [id:8][paymentCase:1][note header:8][payment header:8]
+        assertEquals("paymentCase", lock.layout.fields.get(1).name);
+        assertEquals("oneof-case", lock.layout.fields.get(1).encoding);
+        assertEquals(8, lock.layout.fields.get(1).offset);
+        assertEquals("payment", lock.layout.fields.get(3).name);
+        assertEquals("oneof", lock.layout.fields.get(3).encoding);
+        assertEquals(17, lock.layout.fields.get(3).offset);
+        assertEquals(25, lock.layout.blockLength);
+    }
+
+    @Test
+    void resolve_ShouldRejectOptionalOneofOptions() {
+        SchemaDefinition schema =
+                new SchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                MessageDefinition.builder("Order", List.of())
+                                        .oneofs(
+                                                List.of(
+                                                        new OneofDefinition(
+                                                                "payment",
+                                                                List.of(
+                                                                        new FieldDefinition(
+                                                                                1, "amount",
+                                                                                "int64", true,
+                                                                                false, false, "",
+                                                                                null)))))
+                                        .build()),
+                        List.of());
+
+        IllegalStateException ex =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                SchemaResolver.resolve(
+                                        schema, null, tempDir.resolve("order.myra.yml")));
+        assertTrue(ex.getMessage().contains("belongs to oneof 'payment'"));
+    }
+
+    @Test
+    void resolve_ShouldLayOutMapsAsVarFields() {
+        SchemaDefinition schema = mapSchema("map<string, int64>");
+
+        ResolutionResult result =
+                SchemaResolver.resolve(schema, null, tempDir.resolve("order.myra.yml"));
+
+        LockFile.MessageLock lock = result.updatedLockFile().messages.get("Order");
+        // [id:8][limits header:8]
+        assertEquals("limits", lock.layout.fields.get(1).name);
+        assertEquals("map:string,int64", lock.layout.fields.get(1).encoding);
+        assertEquals(8, lock.layout.fields.get(1).offset);
+        assertEquals(16, lock.layout.blockLength);
+    }
+
+    @Test
+    void resolve_ShouldRejectMapsWithUnsupportedKeys() {
+        IllegalStateException ex =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                SchemaResolver.resolve(
+                                        mapSchema("map<float64, string>"),
+                                        null,
+                                        tempDir.resolve("order.myra.yml")));
+        assertTrue(ex.getMessage().contains("map keys must be string, int32 or int64"));
+    }
+
+    @Test
+    void resolve_ShouldLayOutRichTypesAsFixedFields() {
+        SchemaDefinition schema =
+                new SchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new MessageDefinition(
+                                        "Trade",
+                                        List.of(
+                                                new FieldDefinition(
+                                                        1, "id", "uuid", false, false, false, "",
+                                                        null),
+                                                new FieldDefinition(
+                                                        2, "at", "timestamp_nanos", false, false,
+                                                        false, "", null),
+                                                new FieldDefinition(
+                                                        3, "price", "decimal( 4 )", false, false,
+                                                        false, "", null)))),
+                        List.of());
+
+        ResolutionResult result =
+                SchemaResolver.resolve(schema, null, tempDir.resolve("trade.myra.yml"));
+
+        LockFile.MessageLock lock = result.updatedLockFile().messages.get("Trade");
+        // [id:16][at:8][price:8]
+        assertEquals("uuid", lock.layout.fields.get(0).encoding);
+        assertEquals("timestamp_nanos", lock.layout.fields.get(1).encoding);
+        assertEquals(16, lock.layout.fields.get(1).offset);
+        assertEquals("decimal(4)", lock.layout.fields.get(2).encoding);
+        assertEquals(32, lock.layout.blockLength);
+    }
+
+    @Test
+    void resolve_ShouldStoreEnumBitsetsAsOneWord() {
+        SchemaDefinition schema = bitsetSchema(63);
+
+        ResolutionResult result =
+                SchemaResolver.resolve(schema, null, tempDir.resolve("order.myra.yml"));
+
+        LockFile.MessageLock lock = result.updatedLockFile().messages.get("Order");
+        assertEquals("bitset", lock.layout.fields.get(0).encoding);
+        assertEquals(8, lock.layout.fields.get(0).size);
+        assertFalse(lock.layout.fields.get(0).variable);
+
+        IllegalStateException wideId =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                SchemaResolver.resolve(
+                                        bitsetSchema(64), null, tempDir.resolve("wide.myra.yml")));
+        assertTrue(wideId.getMessage().contains("has id 64 outside 0 to 63"));
+    }
+
+    @Test
+    void resolve_ShouldKeepConstantsOutOfTheLayoutAndMakeDefaultedFieldsOptional() {
+        SchemaDefinition schema = constantSchema("68", Map.of("qty", "100", "side", "SELL"));
+
+        ResolutionResult result =
+                SchemaResolver.resolve(schema, null, tempDir.resolve("order.myra.yml"));
+
+        ResolvedMessageDefinition order = result.resolvedSchema().messages().get(0);
+        assertEquals(
+                List.of("qty", "side"),
+                order.fields().stream().map(ResolvedFieldDefinition::name).toList());
+        assertEquals("msgType", order.constants().get(0).name());
+        assertEquals("68", order.constants().get(0).constant());
+        assertEquals("100", order.fields().get(0).defaultValue());
+        assertEquals("2", order.fields().get(1).defaultValue());
+        assertTrue(order.fields().get(0).optional());
+        // The constant keeps its id, but the block holds only the presence byte and the defaults.
+        LockFile.MessageLock lock = result.updatedLockFile().messages.get("Order");
+        assertEquals(1, lock.fields.get("msgType"));
+        assertEquals(2, lock.layout.fields.size());
+    }
+
+    @Test
+    void resolve_ShouldRejectConstantsAndDefaultsThatDoNotFitTheField() {
+        IllegalStateException overflow =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                SchemaResolver.resolve(
+                                        constantSchema("128", Map.of()),
+                                        null,
+                                        tempDir.resolve("overflow.myra.yml")));
+        assertTrue(overflow.getMessage().contains("has value '128', which is not a valid int8"));
+
+        IllegalStateException unknownValue =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                SchemaResolver.resolve(
+                                        constantSchema("68", Map.of("side", "HOLD")),
+                                        null,
+                                        tempDir.resolve("side.myra.yml")));
+        assertTrue(unknownValue.getMessage().contains("which is not a valid Side"));
+
+        IllegalStateException unknownField =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                SchemaResolver.resolve(
+                                        constantSchema("68", Map.of("price", "1")),
+                                        null,
+                                        tempDir.resolve("price.myra.yml")));
+        assertTrue(unknownField.getMessage().contains("declares a default for 'price'"));
+
+        IllegalStateException defaultedConstant =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                SchemaResolver.resolve(
+                                        constantSchema("68", Map.of("msgType", "68")),
+                                        null,
+                                        tempDir.resolve("both.myra.yml")));
+        assertTrue(defaultedConstant.getMessage().contains("has a default"));
+    }
+
+    @Test
+    void resolve_ShouldStorePackedAsciiAsWordsAndAsciiAsString() {
+        SchemaDefinition schema =
+                new SchemaDefinition(
+                        "com.test",
+                        "1.0.0",
+                        List.of(
+                                new MessageDefinition(
+                                        "Quote",
+                                        List.of(
+                                                new FieldDefinition(
+                                                        1, "symbol", "ascii8", false, false, false,
+                                                        "", null),
+                                                new FieldDefinition(
+                                                        2, "isin", "ascii16", false, false, false,
+                                                        "", null),
+                                                new FieldDefinition(
+                                                        3, "note", "ascii", false, false, false,
+                                                        "", null)))),
+                        List.of());
+
+        ResolutionResult result =
+                SchemaResolver.resolve(schema, null, tempDir.resolve("quote.myra.yml"));
+
+        LockFile.MessageLock lock = result.updatedLockFile().messages.get("Quote");
+        // [symbol:8][isin:16][note header:8]
+        assertEquals("ascii8", lock.layout.fields.get(0).encoding);
+        assertEquals("ascii16", lock.layout.fields.get(1).encoding);
+        assertEquals(16, lock.layout.fields.get(1).size);
+        assertEquals("string", lock.layout.fields.get(2).encoding);
+        assertTrue(lock.layout.fields.get(2).variable);
+
+        IllegalStateException repeated =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                SchemaResolver.resolve(
+                                        arraySchema("ascii16", true, 2),
+                                        null,
+                                        tempDir.resolve("book.myra.yml")));
+        assertTrue(repeated.getMessage().contains("is a ascii16, which cannot be repeated"));
+    }
+
+    @Test
+    void resolve_ShouldRejectDecimalsWithoutAValidScale() {
+        IllegalStateException missing =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                SchemaResolver.resolve(
+                                        mapSchema("decimal"),
+                                        null,
+                                        tempDir.resolve("order.myra.yml")));
+        assertTrue(missing.getMessage().contains("expected decimal(S) with a scale"));
+
+        IllegalStateException tooLarge =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                SchemaResolver.resolve(
+                                        mapSchema("decimal(19)"),
+                                        null,
+                                        tempDir.resolve("order.myra.yml")));
+        assertTrue(tooLarge.getMessage().contains("scale must be between 0 and 18"));
+    }
+
+    @Test
+    void resolve_ShouldLayOutFixedCountArraysAndFixedBytesInline() {
+        SchemaDefinition schema = arraySchema("int64", true, 4);
+
+        ResolutionResult result =
+                SchemaResolver.resolve(schema, null, tempDir.resolve("book.myra.yml"));
+
+        LockFile.MessageLock lock = result.updatedLockFile().messages.get("Book");
+        // [bids:4x8][digest:4+16]
+        assertEquals("array:int64[4]", lock.layout.fields.get(0).encoding);
+        assertEquals(0, lock.layout.fields.get(0).offset);
+        assertEquals("bytes[16]", lock.layout.fields.get(1).encoding);
+        assertEquals(32, lock.layout.fields.get(1).offset);
+        assertEquals(52, lock.layout.blockLength);
+    }
+
+    @Test
+    void resolve_ShouldRejectFixedCountOnUnsupportedFields() {
+        for (SchemaDefinition schema :
+                List.of(
+                        arraySchema("string", true, 4),
+                        arraySchema("bool", true, 4),
+                        arraySchema("int64", false, 4))) {
+            IllegalStateException ex =
+                    assertThrows(
+                            IllegalStateException.class,
+                            () ->
+                                    SchemaResolver.resolve(
+                                            schema, null, tempDir.resolve("book.myra.yml")));
+            assertTrue(ex.getMessage().contains("has fixed_count"));
+        }
+        assertThrows(IllegalArgumentException.class, () -> arraySchema("int64", true, 0));
+    }
+
+    @Test
+    void resolve_ShouldCanonicalizeSortOrderOfRepeatedMessageFields() {
+        ResolutionResult result =
+                SchemaResolver.resolve(
+                        sortedSchema("Level", "priceNanos", false),
+                        null,
+                        tempDir.resolve("book.myra.yml"));
+
+        ResolvedMessageDefinition book = result.resolvedSchema().messages().get(1);
+        assertEquals("priceNanos asc", book.fields().get(0).sortedBy());
+        assertNull(result.resolvedSchema().messages().get(0).fields().get(0).sortedBy());
+    }
+
+    @Test
+    void resolve_ShouldRejectSortOrdersThatCannotBeSearched() {
+        IllegalStateException malformed =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                SchemaResolver.resolve(
+                                        sortedSchema("Level", "priceNanos up", false),
+                                        null,
+                                        tempDir.resolve("malformed.myra.yml")));
+        assertTrue(malformed.getMessage().contains("is not of the form '<field> [asc|desc]'"));
+
+        IllegalStateException scalar =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                SchemaResolver.resolve(
+                                        sortedSchema("int64", "priceNanos", false),
+                                        null,
+                                        tempDir.resolve("scalar.myra.yml")));
+        assertTrue(scalar.getMessage().contains("only supported on repeated message fields"));
+
+        for (String sortedBy : List.of("priceNanos desc", "venue", "missing")) {
+            IllegalStateException ex =
+                    assertThrows(
+                            IllegalStateException.class,
+                            () ->
+                                    SchemaResolver.resolve(
+                                            sortedSchema("Level", sortedBy, true),
+                                            null,
+                                            tempDir.resolve("key.myra.yml")));
+            assertTrue(ex.getMessage().contains("which is not a required integer"));
+        }
+    }
+
+    @Test
+    void resolve_ShouldExpandProjectionsIntoMessagesOfTheirOwn() {
+        SchemaDefinition schema =
+                projectionSchema(
+                        new ProjectionDefinition("OrderTop", List.of("payment", "qty", "id")));
+
+        ResolutionResult result =
+                SchemaResolver.resolve(schema, null, tempDir.resolve("order.myra.yml"));
+
+        List<ResolvedMessageDefinition> messages = result.resolvedSchema().messages();
+        assertEquals(List.of("Order", "OrderTop"), messages.stream().map(m -> m.name()).toList());
+        assertNull(messages.get(0).projectionOf());
+        ResolvedMessageDefinition top = messages.get(1);
+        assertEquals("Order", top.projectionOf());
+        assertEquals(2, top.id());
+        // Fields keep the source's order and modifiers; tags close up around the dropped note.
+        assertEquals(
+                List.of("id", "qty"),
+                top.fields().stream().map(ResolvedFieldDefinition::name).toList());
+        assertEquals(List.of(1, 2), top.fields().stream().map(f -> f.tag()).toList());
+        assertTrue(top.fields().get(1).optional());
+        assertEquals("5", top.fields().get(1).defaultValue());
+        assertEquals("payment", top.oneofs().getFirst().name());
+        assertEquals(3, top.oneofs().getFirst().fields().getFirst().tag());
+        assertNotNull(result.updatedLockFile().messages.get("OrderTop").layout);
+    }
+
+    @Test
+    void resolve_ShouldRejectProjectionsThatSelectUnknownOrRepeatedNames() {
+        for (ProjectionDefinition projection :
+                List.of(
+                        new ProjectionDefinition("OrderTop", List.of("id", "price")),
+                        new ProjectionDefinition("OrderTop", List.of("id", "id")),
+                        new ProjectionDefinition("OrderTop", List.of()),
+                        new ProjectionDefinition("Order", List.of("id")))) {
+            IllegalStateException ex =
+                    assertThrows(
+                            IllegalStateException.class,
+                            () ->
+                                    SchemaResolver.resolve(
+                                            projectionSchema(projection),
+                                            null,
+                                            tempDir.resolve("order.myra.yml")));
+            assertTrue(ex.getMessage().startsWith("Projection '"));
+        }
+    }
+
+    /**
+     * A Level with an int64 priceNanos, optional or not, and a string venue, and a Book whose
+     * repeated bids field of the given element type is sorted as given.
+     */
+    private static SchemaDefinition sortedSchema(
+            String bidsType, String sortedBy, boolean optionalPrice) {
+        return new SchemaDefinition(
+                "com.test",
+                "1.0.0",
+                List.of(
+                        new MessageDefinition(
+                                "Level",
+                                List.of(
+                                        new FieldDefinition(
+                                                1, "priceNanos", "int64", optionalPrice, false,
+                                                false, "", null),
+                                        new FieldDefinition(
+                                                2, "venue", "string", false, false, false, "",
+                                                null))),
+                        new MessageDefinition(
+                                "Book",
+                                List.of(
+                                        FieldDefinition.builder(1, "bids", bidsType)
+                                                .repeated(true)
+                                                .sortedBy(sortedBy)
+                                                .build()))),
+                List.of());
+    }
+
+    /** A Book with a bids field of the given type and count, and a 16-byte digest. */
+    private static SchemaDefinition bitsetSchema(int maxId) {
+        return new SchemaDefinition(
+                "com.test",
+                "1.0.0",
+                List.of(
+                        new MessageDefinition(
+                                "Order",
+                                List.of(
+                                        FieldDefinition.builder(1, "flags", "Flag")
+                                                .repeated(true)
+                                                .bitset(true)
+                                                .build()))),
+                List.of(
+                        new EnumDefinition(
+                                "Flag",
+                                "int8",
+                                List.of(
+                                        new EnumValueDefinition("IOC", 0),
+                                        new EnumValueDefinition("POST_ONLY", maxId)))));
+    }
+
+    /**
+     * An Order with an int64 id, a string note, an int32 qty defaulting to 5 and a payment oneof
+     * of an int64 amount, projected as given.
+     */
+    private static SchemaDefinition projectionSchema(ProjectionDefinition projection) {
+        return new SchemaDefinition(
+                "com.test",
+                "1.0.0",
+                List.of(
+                        MessageDefinition.builder(
+                                        "Order",
+                                        List.of(
+                                                new FieldDefinition(
+                                                        1, "id", "int64", false, false, false, "",
+                                                        null),
+                                                new FieldDefinition(
+                                                        2, "note", "string", false, false, false,
+                                                        "", null),
+                                                new FieldDefinition(
+                                                        3, "qty", "int32", false, false, false, "",
+                                                        null)))
+                                .oneofs(
+                                        List.of(
+                                                new OneofDefinition(
+                                                        "payment",
+                                                        List.of(
+                                                                new FieldDefinition(
+                                                                        4, "amount", "int64", false,
+                                                                        false, false, "", null)))))
+                                .defaults(Map.of("qty", "5"))
+                                .projections(List.of(projection))
+                                .build()),
+                List.of());
+    }
+
+    /** An Order with an int8 constant msgType, an int32 qty and a Side. */
+    private static SchemaDefinition constantSchema(String msgType, Map<String, String> defaults) {
+        return new SchemaDefinition(
+                "com.test",
+                "1.0.0",
+                List.of(
+                        MessageDefinition.builder(
+                                        "Order",
+                                        List.of(
+                                                FieldDefinition.builder(1, "msgType", "int8")
+                                                        .constant(msgType)
+                                                        .build(),
+                                                new FieldDefinition(
+                                                        2, "qty", "int32", false, false, false, "",
+                                                        null),
+                                                new FieldDefinition(
+                                                        3, "side", "Side", false, false, false, "",
+                                                        null)))
+                                .defaults(defaults)
+                                .build()),
+                List.of(
+                        new EnumDefinition(
+                                "Side",
+                                "int8",
+                                List.of(
+                                        new EnumValueDefinition("BUY", 1),
+                                        new EnumValueDefinition("SELL", 2)))));
+    }
+
+    private static SchemaDefinition arraySchema(String bidsType, boolean repeated, int count) {
+        return new SchemaDefinition(
+                "com.test",
+                "1.0.0",
+                List.of(
+                        new MessageDefinition(
+                                "Book",
+                                List.of(
+                                        FieldDefinition.builder(1, "bids", bidsType)
+                                                .repeated(repeated)
+                                                .fixedCount(count)
+                                                .build(),
+                                        new FieldDefinition(
+                                                2, "digest", "bytes", false, false, false, "",
+                                                16)))),
+                List.of());
+    }
+
+    /** An Order with an int64 id and a limits field of the given type. */
+    private static SchemaDefinition mapSchema(String limitsType) {
+        return new SchemaDefinition(
+                "com.test",
+                "1.0.0",
+                List.of(
+                        new MessageDefinition(
+                                "Order",
+                                List.of(
+                                        new FieldDefinition(
+                                                1, "id", "int64", false, false, false, "", null),
+                                        new FieldDefinition(
+                                                2, "limits", limitsType, false, false, false, "",
+                                                null)))),
+                List.of());
+    }
+
+    /** A Book whose optional lastTrade field is inline; Trade is {price:int64, size}. */
+    private static SchemaDefinition inlineSchema(String sizeType, String lastTradeType) {
+        return new SchemaDefinition(
+                "com.test",
+                "1.0.0",
+                List.of(
+                        new MessageDefinition(
+                                "Trade",
+                                List.of(
+                                        new FieldDefinition(
+                                                1, "price", "int64", false, false, false, "",
+                                                null),
+                                        new FieldDefinition(
+                                                2, "size", sizeType, false, false, false, "",
+                                                null))),
+                        new MessageDefinition(
+                                "Book",
+                                List.of(
+                                        new FieldDefinition(
+                                                1, "symbol", "string", false, false, false, "",
+                                                null),
+                                        FieldDefinition.builder(2, "lastTrade", lastTradeType)
+                                                .optional(true)
+                                                .inline(true)
+                                                .build()))),
+                List.of());
+    }
+
     private SchemaDefinition createTestSchema() {
         return new SchemaDefinition(
                 "com.test",